@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.benchmark;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueDeserializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V1TornadoCookieValueDeserializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieValueDeserializer;
+
+/**
+ * The Class AdversarialInputBenchmark measures the deserializers with the
+ * attacker controlled values that used to make them slow: thousands of field
+ * separators, colon runs, huge length prefixes and invalid UTF-8. The time per
+ * operation should grow linearly with the input size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkData.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkData.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(1)
+public class AdversarialInputBenchmark {
+
+    /** The Constant HEADER holds well formed V2 leading fields. */
+    private static final String HEADER = "2|1:0|10:1521518443|7:session|";
+
+    /** The Constant TAIL holds well formed V1 trailing fields. */
+    private static final String TAIL = "|1521518443|signature";
+
+    /** The Constant UTF_8_CONTINUATION holds the bit pattern of a continuation byte. */
+    private static final int UTF_8_CONTINUATION = 0x80;
+
+    /** The Constant BASE64_BLOCK holds the plain bytes of a base64 block. */
+    private static final int BASE64_BLOCK = 3;
+
+    /** The Constant BASE64_BLOCK_LENGTH holds the encoded length of a base64 block. */
+    private static final int BASE64_BLOCK_LENGTH = 4;
+
+    /** The deserialization format. */
+    @Param({ "TORNADO_V1", "TORNADO_V2" })
+    private String algorithm;
+
+    /** The kind of pathological input. */
+    @Param({ "pipes", "colons", "giant-length", "invalid-utf8" })
+    private String kind;
+
+    /** The input size, also the deserializer maximum length. */
+    @Param({ "1024", "8192", "65536" })
+    private int size;
+
+    /** The deserializer under test. */
+    private TornadoCookieValueDeserializer deserializer;
+
+    /** The pathological input. */
+    private String input;
+
+    /**
+     * Builds the deserializer and the input.
+     */
+    @Setup
+    public void setUp() {
+        if ("TORNADO_V1".equals(algorithm)) {
+            deserializer = new V1TornadoCookieValueDeserializer(size);
+        } else {
+            deserializer = new V2TornadoCookieValueDeserializer(size);
+        }
+
+        StringBuilder builder = new StringBuilder(size);
+        builder.append(HEADER);
+
+        switch (kind) {
+        case "pipes":
+            while (builder.length() < size - TAIL.length() - 1) {
+                builder.append("|a");
+            }
+            break;
+        case "colons":
+            builder.append("1:");
+            while (builder.length() < size - TAIL.length()) {
+                builder.append(':');
+            }
+            break;
+        case "giant-length":
+            builder.append(Integer.MAX_VALUE).append(':');
+            while (builder.length() < size - TAIL.length()) {
+                builder.append('A');
+            }
+            break;
+        default:
+            int blocks = (size - HEADER.length() - TAIL.length()) / BASE64_BLOCK_LENGTH - 1;
+            byte[] bytes = new byte[blocks * BASE64_BLOCK];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) (UTF_8_CONTINUATION | i);
+            }
+            String encoded = Base64.getEncoder().encodeToString(bytes);
+            builder.append(encoded.length()).append(':').append(encoded);
+            break;
+        }
+
+        builder.append(TAIL);
+        input = builder.substring(0, Math.min(size, builder.length()));
+    }
+
+    /**
+     * Deserializes the pathological input, which usually fails.
+     *
+     * @return the cookie value model or the failure
+     */
+    @Benchmark
+    public Object deserialize() {
+        try {
+            return deserializer.deserialize(input);
+        } catch (InvalidFormatException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.benchmark;
+
+import java.util.Random;
+
+import com.jossemargt.cookietwist.CookiePot;
+import com.jossemargt.cookietwist.CookieSignatureAlgorithm;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class BenchmarkData builds the deterministic inputs shared by every
+ * benchmark, so results stay comparable between runs and machines.
+ */
+public final class BenchmarkData {
+
+    /** The Constant COOKIE_NAME holds the benchmarked cookie name. */
+    public static final String COOKIE_NAME = "session";
+
+    /** The Constant TIMESTAMP holds the frozen cookie timestamp. */
+    public static final long TIMESTAMP = 1521518443L;
+
+    /** The Constant ASCII holds the single byte charset parameter value. */
+    public static final String ASCII = "ASCII";
+
+    /** The Constant UTF_8 holds the multi-byte charset parameter value. */
+    public static final String UTF_8 = "UTF_8";
+
+    /** The Constant JSON holds the structured, compressible, content parameter value. */
+    public static final String JSON = "JSON";
+
+    /** The Constant WARMUP_ITERATIONS holds the default warmup iterations. */
+    public static final int WARMUP_ITERATIONS = 3;
+
+    /** The Constant MEASUREMENT_ITERATIONS holds the default measurement iterations. */
+    public static final int MEASUREMENT_ITERATIONS = 5;
+
+    /** The Constant ASCII_ALPHABET holds the characters used by ASCII values. */
+    private static final String ASCII_ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789";
+
+    /** The Constant UTF_8_ALPHABET holds two bytes UTF-8 characters. */
+    private static final String UTF_8_ALPHABET = "áéíóúñüçøåßæ";
+
+    /** The Constant UTF_8_CHAR_BYTES holds the encoded size of each UTF-8 character. */
+    private static final int UTF_8_CHAR_BYTES = 2;
+
+    /** The Constant JSON_SEED holds the seed of the JSON record fields. */
+    private static final long JSON_SEED = 1521518443L;
+
+    /** The Constant JSON_ID_BOUND holds the exclusive bound of the JSON record ids. */
+    private static final int JSON_ID_BOUND = 1000000;
+
+    /** The Constant JSON_QUANTITY_BOUND holds the exclusive bound of the JSON record quantities. */
+    private static final int JSON_QUANTITY_BOUND = 20;
+
+    /** The Constant JSON_TAGS holds the JSON record tags. */
+    private static final String[] JSON_TAGS = {"cart", "wishlist", "recent", "saved"};
+
+    /**
+     * Instantiates a new benchmark data.
+     */
+    private BenchmarkData() {
+        // Hides this utility class constructor
+    }
+
+    /**
+     * Builds a cookie value whose UTF-8 encoding takes the given amount of
+     * bytes.
+     *
+     * @param size
+     *            the value size in bytes
+     * @param charset
+     *            either {@link #ASCII}, {@link #UTF_8} or {@link #JSON}
+     * @return the value
+     */
+    public static String value(int size, String charset) {
+        StringBuilder builder = new StringBuilder(size);
+
+        if (JSON.equals(charset)) {
+            Random random = new Random(JSON_SEED);
+            builder.append('[');
+            while (builder.length() < size) {
+                builder.append(String.format("{\"id\":%d,\"qty\":%d,\"tag\":\"%s\"},",
+                        random.nextInt(JSON_ID_BOUND), random.nextInt(JSON_QUANTITY_BOUND),
+                        JSON_TAGS[random.nextInt(JSON_TAGS.length)]));
+            }
+            builder.setLength(size);
+        } else if (UTF_8.equals(charset)) {
+            for (int i = 0; i < size / UTF_8_CHAR_BYTES; i++) {
+                builder.append(UTF_8_ALPHABET.charAt(i % UTF_8_ALPHABET.length()));
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                builder.append(ASCII_ALPHABET.charAt(i % ASCII_ALPHABET.length()));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Builds a key ring of distinct secret keys.
+     *
+     * @param size
+     *            the amount of keys
+     * @return the secret keys
+     */
+    public static String[] secretKeys(int size) {
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "benchmark-secret-" + i;
+        }
+        return keys;
+    }
+
+    /**
+     * Builds a codec with a frozen timestamp.
+     *
+     * @param algorithm
+     *            the signature algorithm name
+     * @param keyRingSize
+     *            the amount of secret keys, ignored by TORNADO_V1
+     * @return the codec
+     */
+    public static TornadoCookieCodec codec(String algorithm, int keyRingSize) {
+        CookieSignatureAlgorithm signature = CookieSignatureAlgorithm.valueOf(algorithm);
+        TornadoCookieCodec.Builder<?> builder = CookiePot.getBuilderFor(signature)
+                .withTimestamp(TIMESTAMP);
+
+        for (String key : secretKeys(keyRingSize)) {
+            builder.withSecretKey(key);
+        }
+
+        return builder.build();
+    }
+}
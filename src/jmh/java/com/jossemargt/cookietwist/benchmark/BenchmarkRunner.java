@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The Class BenchmarkRunner runs the JMH benchmarks once per requested thread
+ * count and writes every result into a single JSON report.
+ *
+ * <p>
+ * Besides the regular JMH command line options, it accepts:
+ * <ul>
+ *  <li><code>--threads=1,2,4</code>: the thread counts to run (defaults to 1)
+ *  <li><code>--result=path</code>: the JSON report path (required)
+ * </ul>
+ */
+public final class BenchmarkRunner {
+
+    /** The Constant THREADS_OPTION holds the thread counts option prefix. */
+    private static final String THREADS_OPTION = "--threads=";
+
+    /** The Constant RESULT_OPTION holds the JSON report path option prefix. */
+    private static final String RESULT_OPTION = "--result=";
+
+    /**
+     * Instantiates a new benchmark runner.
+     */
+    private BenchmarkRunner() {
+        // Hides this utility class constructor
+    }
+
+    /**
+     * The main method.
+     *
+     * @param args
+     *            the runner and JMH command line options
+     * @throws RunnerException
+     *             when a benchmark fails
+     * @throws CommandLineOptionException
+     *             when a JMH option is invalid
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        List<String> jmhArgs = new ArrayList<String>();
+        List<Integer> threadCounts = new ArrayList<Integer>();
+        String resultPath = null;
+
+        for (String arg : args) {
+            if (arg.startsWith(THREADS_OPTION)) {
+                for (String count : arg.substring(THREADS_OPTION.length()).split(",")) {
+                    threadCounts.add(Integer.valueOf(count.trim()));
+                }
+            } else if (arg.startsWith(RESULT_OPTION)) {
+                resultPath = arg.substring(RESULT_OPTION.length());
+            } else {
+                jmhArgs.add(arg);
+            }
+        }
+
+        if (resultPath == null) {
+            throw new IllegalArgumentException("Missing " + RESULT_OPTION + " option");
+        }
+
+        if (threadCounts.isEmpty()) {
+            threadCounts.addAll(Arrays.asList(1));
+        }
+
+        CommandLineOptions cli = new CommandLineOptions(jmhArgs.toArray(new String[jmhArgs.size()]));
+        List<RunResult> results = new ArrayList<RunResult>();
+
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder().parent(cli).threads(threads).build();
+            results.addAll(new Runner(options).run());
+        }
+
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, resultPath).writeOut(results);
+    }
+}
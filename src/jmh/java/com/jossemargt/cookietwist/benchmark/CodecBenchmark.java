@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.Cookie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class CodecBenchmark measures the full encode and decode round of every
+ * codec, signature included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkData.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkData.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    /** The signature algorithm. */
+    @Param({ "TORNADO_V1", "TORNADO_V2", "COMPACT_V3" })
+    private String algorithm;
+
+    /** The plain value size in bytes. */
+    @Param({ "16", "256", "1024", "4096" })
+    private int valueSize;
+
+    /** The plain value charset. */
+    @Param({ BenchmarkData.ASCII, BenchmarkData.UTF_8 })
+    private String charset;
+
+    /** The codec under test. */
+    private TornadoCookieCodec codec;
+
+    /** The plain cookie. */
+    private Cookie plainCookie;
+
+    /** The signed cookie. */
+    private Cookie signedCookie;
+
+    /**
+     * Builds the codec and the cookies.
+     */
+    @Setup
+    public void setUp() {
+        codec = BenchmarkData.codec(algorithm, 1);
+        plainCookie = new Cookie(BenchmarkData.COOKIE_NAME, BenchmarkData.value(valueSize, charset));
+        signedCookie = codec.encodeCookie(plainCookie);
+    }
+
+    /**
+     * Encodes the plain cookie.
+     *
+     * @return the signed cookie
+     */
+    @Benchmark
+    public Cookie encode() {
+        return codec.encodeCookie(plainCookie);
+    }
+
+    /**
+     * Decodes the signed cookie.
+     *
+     * @return the plain cookie
+     */
+    @Benchmark
+    public Cookie decode() {
+        return codec.decodeCookie(signedCookie);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.Cookie;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.ValueCompression;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+/**
+ * The Class CompressionBenchmark measures the CPU cost of the optional value
+ * compression on the version 2 codec. Each run also reports the signed value
+ * length as the {@code signedValueLength} secondary result, so the time spent
+ * can be weighed against the header bytes saved in the same JSON report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkData.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkData.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    /** The compression, NONE or a deflate level. */
+    @Param({ "NONE", "1", "6" })
+    private String compression;
+
+    /** The plain value size in bytes. */
+    @Param({ "1024", "2048", "3072" })
+    private int valueSize;
+
+    /** The plain value content. */
+    @Param({ BenchmarkData.JSON, BenchmarkData.ASCII })
+    private String content;
+
+    /** The codec under test. */
+    private TornadoCookieCodec codec;
+
+    /** The plain cookie. */
+    private Cookie plainCookie;
+
+    /** The signed cookie. */
+    private Cookie signedCookie;
+
+    /**
+     * Builds the codec and the cookies.
+     */
+    @Setup
+    public void setUp() {
+        V2TornadoCookieCodec.Builder builder = V2TornadoCookieCodec.builder().withTimestamp(BenchmarkData.TIMESTAMP)
+                .withSecretKey(BenchmarkData.secretKeys(1)[0]);
+        if (!"NONE".equals(compression)) {
+            builder.withCompression(ValueCompression.builder().withLevel(Integer.parseInt(compression)).build());
+        }
+
+        codec = builder.build();
+        plainCookie = new Cookie(BenchmarkData.COOKIE_NAME, BenchmarkData.value(valueSize, content));
+        signedCookie = codec.encodeCookie(plainCookie);
+    }
+
+    /**
+     * Encodes the plain cookie.
+     *
+     * @param header
+     *            the header size counters
+     * @return the signed cookie
+     */
+    @Benchmark
+    public Cookie encode(HeaderSize header) {
+        return codec.encodeCookie(plainCookie);
+    }
+
+    /**
+     * Decodes the signed cookie.
+     *
+     * @param header
+     *            the header size counters
+     * @return the plain cookie
+     */
+    @Benchmark
+    public Cookie decode(HeaderSize header) {
+        return codec.decodeCookie(signedCookie);
+    }
+
+    /**
+     * The Class HeaderSize reports the signed value length of the run as a JMH
+     * secondary result.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HeaderSize {
+
+        /** The signed value length, in characters. */
+        private int length;
+
+        /**
+         * Reads the signed value length of the benchmark run.
+         *
+         * @param benchmark
+         *            the benchmark state holding the signed cookie
+         */
+        @Setup
+        public void setUp(CompressionBenchmark benchmark) {
+            length = benchmark.signedCookie.getValue().length();
+        }
+
+        /**
+         * Gets the signed value length, in characters.
+         *
+         * @return the signed value length
+         */
+        public int signedValueLength() {
+            return length;
+        }
+    }
+}
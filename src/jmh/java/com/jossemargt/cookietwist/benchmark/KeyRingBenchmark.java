@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jossemargt.cookietwist.CookieSignatureAlgorithm;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class KeyRingBenchmark measures how the TORNADO_V2 key ring size affects
+ * the codec, always signing with the newest secret key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkData.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkData.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(1)
+public class KeyRingBenchmark {
+
+    /** The amount of secret keys. */
+    @Param({ "1", "4", "16" })
+    private int keyRingSize;
+
+    /** The plain value size in bytes. */
+    @Param({ "256" })
+    private int valueSize;
+
+    /** The codec under test. */
+    private TornadoCookieCodec codec;
+
+    /** The plain value. */
+    private String plainValue;
+
+    /** The signed value. */
+    private String signedValue;
+
+    /**
+     * Builds the codec and the values.
+     */
+    @Setup
+    public void setUp() {
+        codec = BenchmarkData.codec(CookieSignatureAlgorithm.TORNADO_V2.name(), keyRingSize);
+        plainValue = BenchmarkData.value(valueSize, BenchmarkData.ASCII);
+        signedValue = codec.encodeValue(BenchmarkData.COOKIE_NAME, plainValue, keyRingSize - 1);
+    }
+
+    /**
+     * Encodes the plain value with the newest secret key.
+     *
+     * @return the signed value
+     */
+    @Benchmark
+    public String encode() {
+        return codec.encodeValue(BenchmarkData.COOKIE_NAME, plainValue, keyRingSize - 1);
+    }
+
+    /**
+     * Decodes the value signed with the newest secret key.
+     *
+     * @return the plain value
+     */
+    @Benchmark
+    public String decode() {
+        return codec.decodeValue(BenchmarkData.COOKIE_NAME, signedValue);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jossemargt.cookietwist.tornado.CookiePayload;
+
+/**
+ * The Class PayloadBenchmark measures the key and value payload encoding, and
+ * the parsing of an encoded payload to read a single key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkData.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkData.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(1)
+public class PayloadBenchmark {
+
+    /** The payload entry count. */
+    @Param({ "4", "16", "64" })
+    private int entries;
+
+    /** The key read from the parsed payload, the last one encoded. */
+    private String lastKey;
+
+    /** The encoded payload. */
+    private String encoded;
+
+    /**
+     * Builds the encoded payload.
+     */
+    @Setup
+    public void setUp() {
+        lastKey = "key" + (entries - 1);
+        encoded = build().encode();
+    }
+
+    /**
+     * Encodes a payload of long values.
+     *
+     * @return the payload
+     */
+    @Benchmark
+    public CookiePayload build() {
+        CookiePayload.Builder builder = CookiePayload.builder();
+        for (int i = 0; i < entries; i++) {
+            builder.put("key" + i, BenchmarkData.TIMESTAMP + i);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Parses the encoded payload and reads its last key.
+     *
+     * @return the value
+     */
+    @Benchmark
+    public Long parseAndGet() {
+        return CookiePayload.parse(encoded).getLong(lastKey);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueDeserializer;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueSerializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V1TornadoCookieValueDeserializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V1TornadoCookieValueSerializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieValueDeserializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieValueSerializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V3CompactCookieValueDeserializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V3CompactCookieValueSerializer;
+
+/**
+ * The Class SerializationBenchmark measures the serializers and deserializers
+ * alone, without computing nor verifying any signature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkData.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkData.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /** The Constant SIGNATURE holds a fixed SHA-256 sized hex signature. */
+    private static final String SIGNATURE = "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb";
+
+    /** The Constant COMPACT_SIGNATURE holds the same signature as base64url raw bytes. */
+    private static final String COMPACT_SIGNATURE = "lGObOd9IxXi2OW9-AsrQyzxJanoUQBB-8Bgsj7Nez7s";
+
+    /** The serialization format. */
+    @Param({ "TORNADO_V1", "TORNADO_V2", "COMPACT_V3" })
+    private String algorithm;
+
+    /** The plain value size in bytes. */
+    @Param({ "16", "256", "1024", "4096" })
+    private int valueSize;
+
+    /** The plain value charset. */
+    @Param({ BenchmarkData.ASCII, BenchmarkData.UTF_8 })
+    private String charset;
+
+    /** The serializer under test. */
+    private TornadoCookieValueSerializer serializer;
+
+    /** The deserializer under test. */
+    private TornadoCookieValueDeserializer deserializer;
+
+    /** The cookie value model. */
+    private TornadoCookieValue model;
+
+    /** The serialized cookie value. */
+    private String serialized;
+
+    /**
+     * Builds the serializers and the cookie value.
+     */
+    @Setup
+    public void setUp() {
+        String signature = SIGNATURE;
+
+        if ("TORNADO_V1".equals(algorithm)) {
+            serializer = new V1TornadoCookieValueSerializer();
+            deserializer = new V1TornadoCookieValueDeserializer();
+        } else if ("COMPACT_V3".equals(algorithm)) {
+            serializer = new V3CompactCookieValueSerializer();
+            deserializer = new V3CompactCookieValueDeserializer();
+            signature = COMPACT_SIGNATURE;
+        } else {
+            serializer = new V2TornadoCookieValueSerializer();
+            deserializer = new V2TornadoCookieValueDeserializer();
+        }
+
+        model = TornadoCookieValue.builder().withName(BenchmarkData.COOKIE_NAME)
+                .withValue(BenchmarkData.value(valueSize, charset)).withTimestamp(BenchmarkData.TIMESTAMP)
+                .withSignature(signature).build();
+        serialized = serializer.serialize(model);
+    }
+
+    /**
+     * Serializes the cookie value.
+     *
+     * @return the serialized value
+     */
+    @Benchmark
+    public String serialize() {
+        return serializer.serialize(model);
+    }
+
+    /**
+     * Deserializes the cookie value.
+     *
+     * @return the cookie value model
+     */
+    @Benchmark
+    public TornadoCookieValue deserialize() {
+        return deserializer.deserialize(serialized);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jossemargt.cookietwist.signature.SignatureHasher;
+import com.jossemargt.cookietwist.signature.impl.Sha1SignatureHasher;
+import com.jossemargt.cookietwist.signature.impl.Sha256SignatureHasher;
+
+/**
+ * The Class SignatureHasherBenchmark measures the HMAC signature computation
+ * alone. Running it with several threads exposes the hasher contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkData.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkData.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(1)
+public class SignatureHasherBenchmark {
+
+    /** The hash function. */
+    @Param({ "SHA1", "SHA256" })
+    private String hash;
+
+    /** The signed payload size in bytes. */
+    @Param({ "16", "256", "1024", "4096" })
+    private int valueSize;
+
+    /** The signed payload charset. */
+    @Param({ BenchmarkData.ASCII, BenchmarkData.UTF_8 })
+    private String charset;
+
+    /** The hasher under test. */
+    private SignatureHasher hasher;
+
+    /** The signed payload. */
+    private String payload;
+
+    /**
+     * Builds the hasher and the payload.
+     */
+    @Setup
+    public void setUp() {
+        String secret = BenchmarkData.secretKeys(1)[0];
+
+        if ("SHA1".equals(hash)) {
+            hasher = new Sha1SignatureHasher(secret);
+        } else {
+            hasher = new Sha256SignatureHasher(secret);
+        }
+
+        hasher.init();
+        payload = BenchmarkData.value(valueSize, charset);
+    }
+
+    /**
+     * Signs the payload.
+     *
+     * @return the hex signature
+     */
+    @Benchmark
+    public String sign() {
+        return hasher.computeSignature(payload);
+    }
+}
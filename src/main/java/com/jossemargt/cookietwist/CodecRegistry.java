@@ -0,0 +1,475 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.jossemargt.cookietwist.management.CodecStats;
+import com.jossemargt.cookietwist.metrics.StripedCodecMetrics;
+import com.jossemargt.cookietwist.signature.SignatureHasher;
+import com.jossemargt.cookietwist.signature.impl.Sha1SignatureHasher;
+import com.jossemargt.cookietwist.signature.impl.Sha256SignatureHasher;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec.Builder;
+
+/**
+ * The Class CodecRegistry keeps the shared {@link TornadoCookieCodec} instances
+ * handed by {@link CookiePot}, keyed by signature algorithm plus a fingerprint of
+ * the secret key ring. Codecs are created lazily on first request and the
+ * {@link SignatureHasher} instances are shared among every codec that uses the
+ * same algorithm and secret key.
+ *
+ * <p>
+ * Lookups of existing codecs are lock free, while creation and eviction are
+ * serialized since they also update the shared hasher reference counts.
+ *
+ * <p>
+ * A managed registry builds every codec with a {@link StripedCodecMetrics}
+ * instance and exposes it as a {@link CodecStats} JMX bean until evicted,
+ * optionally tracking the bytes allocated by each operation. The bean names
+ * the key ring by its registration number, never by anything derived from the
+ * secret keys, so a JMX reader can not test guessed keys against it.
+ */
+final class CodecRegistry {
+
+    /** The Constant FINGERPRINT_ALGORITHM holds the key ring digest algorithm. */
+    private static final String FINGERPRINT_ALGORITHM = "SHA-256";
+
+    /** The Constant HEX_DIGITS holds the hexadecimal alphabet. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** The Constant NIBBLE_BITS holds the bit count of a hexadecimal digit. */
+    private static final int NIBBLE_BITS = 4;
+
+    /** The Constant NIBBLE_MASK holds the mask of a hexadecimal digit. */
+    private static final int NIBBLE_MASK = 0x0f;
+
+    /** The registered codecs by registry key. */
+    private final ConcurrentMap<String, Entry> codecs;
+
+    /** The shared hashers by hasher key. */
+    private final Map<String, SharedHasher> hashers;
+
+    /** Whether the codecs are measured and exposed through JMX. */
+    private final boolean managed;
+
+    /** Whether the managed codecs track the bytes allocated by each operation. */
+    private final boolean trackAllocations;
+
+    /** The amount of managed codecs registered so far, numbering their key rings in JMX. */
+    private int managedRegistrations;
+
+    /**
+     * Instantiates a new unmanaged codec registry.
+     */
+    CodecRegistry() {
+        this(false);
+    }
+
+    /**
+     * Instantiates a new codec registry.
+     *
+     * @param managed
+     *            whether the codecs are measured and exposed through JMX
+     */
+    CodecRegistry(boolean managed) {
+        this(managed, false);
+    }
+
+    /**
+     * Instantiates a new codec registry.
+     *
+     * @param managed
+     *            whether the codecs are measured and exposed through JMX
+     * @param trackAllocations
+     *            whether the managed codecs track the bytes allocated by each
+     *            operation
+     */
+    CodecRegistry(boolean managed, boolean trackAllocations) {
+        this.codecs = new ConcurrentHashMap<String, Entry>();
+        this.hashers = new HashMap<String, SharedHasher>();
+        this.managed = managed;
+        this.trackAllocations = trackAllocations;
+    }
+
+    /**
+     * Gets the shared codec for the given algorithm and key ring, creating it when
+     * needed.
+     *
+     * @param algorithm
+     *            the signature algorithm
+     * @param secretKeys
+     *            the key ring, where the position is the secret key number
+     * @return the shared codec
+     * @throws IllegalArgumentException
+     *             when the key ring is empty, or has more than one key for
+     *             {@link CookieSignatureAlgorithm#TORNADO_V1}
+     */
+    TornadoCookieCodec getCodec(CookieSignatureAlgorithm algorithm, String... secretKeys) {
+        String key = registryKey(algorithm, secretKeys);
+        Entry entry = codecs.get(key);
+
+        if (entry == null) {
+            entry = register(key, algorithm, secretKeys);
+        }
+
+        return entry.codec;
+    }
+
+    /**
+     * Removes the shared codec for the given algorithm and key ring, releasing the
+     * hashers no other codec uses.
+     *
+     * @param algorithm
+     *            the signature algorithm
+     * @param secretKeys
+     *            the key ring
+     * @return the evicted codec or null when it was not registered
+     */
+    synchronized TornadoCookieCodec evict(CookieSignatureAlgorithm algorithm, String... secretKeys) {
+        Entry entry = codecs.remove(registryKey(algorithm, secretKeys));
+
+        if (entry == null) {
+            return null;
+        }
+
+        release(entry);
+        return entry.codec;
+    }
+
+    /**
+     * Removes every shared codec and hasher.
+     */
+    synchronized void evictAll() {
+        for (Entry entry : codecs.values()) {
+            if (entry.stats != null) {
+                entry.stats.unregister();
+            }
+        }
+        codecs.clear();
+        hashers.clear();
+    }
+
+    /**
+     * Gets the JMX bean of the shared codec for the given algorithm and key ring.
+     *
+     * @param algorithm
+     *            the signature algorithm
+     * @param secretKeys
+     *            the key ring
+     * @return the codec stats or null when the codec is not registered or the
+     *         registry is not managed
+     */
+    CodecStats getStats(CookieSignatureAlgorithm algorithm, String... secretKeys) {
+        Entry entry = codecs.get(registryKey(algorithm, secretKeys));
+
+        if (entry == null) {
+            return null;
+        }
+
+        return entry.stats;
+    }
+
+    /**
+     * Gets the amount of registered codecs.
+     *
+     * @return the codec count
+     */
+    int codecCount() {
+        return codecs.size();
+    }
+
+    /**
+     * Gets the amount of shared hashers.
+     *
+     * @return the hasher count
+     */
+    synchronized int hasherCount() {
+        return hashers.size();
+    }
+
+    /**
+     * Creates and registers a codec, unless another thread already did.
+     *
+     * @param key
+     *            the registry key
+     * @param algorithm
+     *            the signature algorithm
+     * @param secretKeys
+     *            the key ring
+     * @return the registry entry
+     */
+    private synchronized Entry register(String key, CookieSignatureAlgorithm algorithm, String... secretKeys) {
+        Entry entry = codecs.get(key);
+
+        if (entry != null) {
+            return entry;
+        }
+
+        Builder<?> builder = CookiePot.getBuilderFor(algorithm);
+        List<String> hasherKeys = new ArrayList<String>(secretKeys.length);
+        StripedCodecMetrics metrics = null;
+        TornadoCookieCodec codec;
+
+        try {
+            for (String secretKey : secretKeys) {
+                String hasherKey = hasherKey(algorithm, secretKey);
+                builder.withSignatureHasher(acquire(hasherKey, algorithm, secretKey));
+                hasherKeys.add(hasherKey);
+            }
+
+            if (managed) {
+                metrics = new StripedCodecMetrics(trackAllocations);
+                builder.withMetrics(metrics);
+            }
+
+            codec = builder.build();
+        } catch (RuntimeException e) {
+            // The codec will never release the hashers it could not be built with
+            releaseHashers(hasherKeys);
+            throw e;
+        }
+
+        CodecStats stats = null;
+        if (managed) {
+            managedRegistrations++;
+            stats = new CodecStats(algorithm.name(), Integer.toString(managedRegistrations), codec, metrics);
+            stats.register();
+        }
+
+        entry = new Entry(codec, hasherKeys, stats);
+        codecs.put(key, entry);
+
+        return entry;
+    }
+
+    /**
+     * Gets an initialized shared hasher, creating it when needed, and increases
+     * its reference count.
+     *
+     * @param hasherKey
+     *            the hasher key
+     * @param algorithm
+     *            the signature algorithm
+     * @param secretKey
+     *            the secret key
+     * @return the shared hasher
+     */
+    private SignatureHasher acquire(String hasherKey, CookieSignatureAlgorithm algorithm, String secretKey) {
+        SharedHasher shared = hashers.get(hasherKey);
+
+        if (shared == null) {
+            SignatureHasher hasher = newHasher(algorithm, secretKey);
+            hasher.init();
+            shared = new SharedHasher(hasher);
+            hashers.put(hasherKey, shared);
+        }
+
+        shared.references++;
+        return shared.hasher;
+    }
+
+    /**
+     * Decreases the reference count of the hashers used by an evicted entry,
+     * dropping the unused ones.
+     *
+     * @param entry
+     *            the evicted entry
+     */
+    private void release(Entry entry) {
+        if (entry.stats != null) {
+            entry.stats.unregister();
+        }
+
+        releaseHashers(entry.hasherKeys);
+    }
+
+    /**
+     * Decreases the reference count of the given hashers, dropping the unused
+     * ones.
+     *
+     * @param hasherKeys
+     *            the keys of the acquired hashers
+     */
+    private void releaseHashers(List<String> hasherKeys) {
+        for (String hasherKey : hasherKeys) {
+            SharedHasher shared = hashers.get(hasherKey);
+            if (shared != null && --shared.references <= 0) {
+                hashers.remove(hasherKey);
+            }
+        }
+    }
+
+    /**
+     * Instantiates the hasher required by the given algorithm.
+     *
+     * @param algorithm
+     *            the signature algorithm
+     * @param secretKey
+     *            the secret key
+     * @return the un-initialized hasher
+     */
+    private static SignatureHasher newHasher(CookieSignatureAlgorithm algorithm, String secretKey) {
+        switch (algorithm) {
+        case TORNADO_V1:
+            return new Sha1SignatureHasher(secretKey);
+        default:
+        case TORNADO_V2:
+        case COMPACT_V3:
+            return new Sha256SignatureHasher(secretKey);
+        }
+    }
+
+    /**
+     * Computes the registry key for the given algorithm and key ring.
+     *
+     * @param algorithm
+     *            the signature algorithm
+     * @param secretKeys
+     *            the key ring
+     * @return the registry key
+     */
+    private static String registryKey(CookieSignatureAlgorithm algorithm, String... secretKeys) {
+        if (secretKeys == null || secretKeys.length == 0) {
+            throw new IllegalArgumentException("At least one secret key is required");
+        }
+
+        if (algorithm == CookieSignatureAlgorithm.TORNADO_V1 && secretKeys.length > 1) {
+            throw new IllegalArgumentException("Tornado V1 codecs support a single secret key");
+        }
+
+        return algorithm.name() + ":" + fingerprint(secretKeys);
+    }
+
+    /**
+     * Computes the hasher key for the given algorithm and secret key.
+     *
+     * @param algorithm
+     *            the signature algorithm
+     * @param secretKey
+     *            the secret key
+     * @return the hasher key
+     */
+    private static String hasherKey(CookieSignatureAlgorithm algorithm, String secretKey) {
+        return algorithm.name() + ":" + fingerprint(secretKey);
+    }
+
+    /**
+     * Computes a digest of the given secret keys, so the registry never keeps them
+     * as plain map keys.
+     *
+     * @param secretKeys
+     *            the secret keys
+     * @return the hexadecimal digest
+     */
+    private static String fingerprint(String... secretKeys) {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance(FINGERPRINT_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (String secretKey : secretKeys) {
+            if (secretKey == null || secretKey.isEmpty()) {
+                throw new IllegalArgumentException("Unallowed null or empty secret key");
+            }
+            byte[] bytes = secretKey.getBytes(StandardCharsets.UTF_8);
+            digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) ':');
+            digest.update(bytes);
+        }
+
+        byte[] result = digest.digest();
+        StringBuilder hex = new StringBuilder();
+
+        for (byte b : result) {
+            hex.append(HEX_DIGITS[(b >> NIBBLE_BITS) & NIBBLE_MASK]).append(HEX_DIGITS[b & NIBBLE_MASK]);
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * A registered codec with the keys of the hashers it uses.
+     */
+    private static final class Entry {
+
+        /** The shared codec. */
+        private final TornadoCookieCodec codec;
+
+        /** The keys of the shared hashers used by the codec. */
+        private final List<String> hasherKeys;
+
+        /** The codec JMX bean, null when the registry is not managed. */
+        private final CodecStats stats;
+
+        /**
+         * Instantiates a new entry.
+         *
+         * @param codec
+         *            the shared codec
+         * @param hasherKeys
+         *            the keys of the shared hashers used by the codec
+         * @param stats
+         *            the codec JMX bean
+         */
+        private Entry(TornadoCookieCodec codec, List<String> hasherKeys, CodecStats stats) {
+            this.codec = codec;
+            this.hasherKeys = hasherKeys;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * A shared hasher with its reference count.
+     */
+    private static final class SharedHasher {
+
+        /** The initialized hasher. */
+        private final SignatureHasher hasher;
+
+        /** The amount of registered codecs using the hasher. */
+        private int references;
+
+        /**
+         * Instantiates a new shared hasher.
+         *
+         * @param hasher
+         *            the initialized hasher
+         */
+        private SharedHasher(SignatureHasher hasher) {
+            this.hasher = hasher;
+        }
+    }
+}
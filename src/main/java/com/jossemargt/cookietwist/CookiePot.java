@@ -23,9 +23,11 @@
  */
 package com.jossemargt.cookietwist;
 
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
 import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec.Builder;
 import com.jossemargt.cookietwist.tornado.transform.impl.V1TornadoCookieCodec;
 import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V3CompactCookieCodec;
 
 /**
  * The utility Class CookiePot facilitates any supported Cookie codec creation.
@@ -34,6 +36,24 @@ import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
  */
 public final class CookiePot {
 
+    /**
+     * The Constant MANAGEMENT_PROPERTY holds the system property that enables
+     * the shared codec metrics and JMX beans when set to true.
+     */
+    public static final String MANAGEMENT_PROPERTY = "com.jossemargt.cookietwist.jmx";
+
+    /**
+     * The Constant ALLOCATIONS_PROPERTY holds the system property that makes the
+     * shared codec metrics track the bytes allocated by each operation when set
+     * to true.
+     */
+    public static final String ALLOCATIONS_PROPERTY = "com.jossemargt.cookietwist.allocations";
+
+    /** The registry of shared codec instances. */
+    private static final CodecRegistry REGISTRY = new CodecRegistry(
+            Boolean.getBoolean(MANAGEMENT_PROPERTY),
+            Boolean.getBoolean(ALLOCATIONS_PROPERTY));
+
     /**
      * Instantiates a new cookie pot.
      */
@@ -53,10 +73,57 @@ public final class CookiePot {
         switch (supportedSignature) {
         case TORNADO_V1:
             return V1TornadoCookieCodec.builder();
+        case COMPACT_V3:
+            return V3CompactCookieCodec.builder();
         default:
         case TORNADO_V2:
             return V2TornadoCookieCodec.builder();
         }
     }
 
+    /**
+     * Gets the shared and already initialized CookieCodec for the given Signature
+     * Algorithm type and secret key ring. The codec is created on the first call
+     * and the same thread-safe instance is returned afterwards, while its
+     * signature hashers are shared with any other registered codec that uses the
+     * same algorithm and secret key. When the {@value #MANAGEMENT_PROPERTY}
+     * system property is true, the codec statistics are exposed as a
+     * {@link com.jossemargt.cookietwist.management.CodecStats} JMX bean until the
+     * codec is evicted.
+     *
+     * @param supportedSignature
+     *            the enum that represents the desired secure cookie signature
+     *            algorithm to use
+     * @param secretKeys
+     *            the secret key ring, where each position is the secret key number
+     * @return the shared codec
+     * @throws IllegalArgumentException
+     *             when the key ring is empty, has an invalid secret key or has more
+     *             than one secret key for {@link CookieSignatureAlgorithm#TORNADO_V1}
+     */
+    public static TornadoCookieCodec getCodecFor(CookieSignatureAlgorithm supportedSignature, String... secretKeys) {
+        return REGISTRY.getCodec(supportedSignature, secretKeys);
+    }
+
+    /**
+     * Evicts the shared CookieCodec for the given Signature Algorithm type and
+     * secret key ring, so the next {@link #getCodecFor} call creates a new one.
+     *
+     * @param supportedSignature
+     *            the enum that represents the secure cookie signature algorithm
+     * @param secretKeys
+     *            the secret key ring
+     * @return true, if a codec was evicted
+     */
+    public static boolean evictCodec(CookieSignatureAlgorithm supportedSignature, String... secretKeys) {
+        return REGISTRY.evict(supportedSignature, secretKeys) != null;
+    }
+
+    /**
+     * Evicts every shared CookieCodec.
+     */
+    public static void evictAllCodecs() {
+        REGISTRY.evictAll();
+    }
+
 }
@@ -32,6 +32,8 @@ public enum CookieSignatureAlgorithm {
     /** The Tornado Secure Cookie Signature algorithm V1. */
     TORNADO_V1,
     /** The Tornado Secure Cookie Signature algorithm V2. */
-    TORNADO_V2
+    TORNADO_V2,
+    /** The compact binary signed cookie format V3, not readable by Tornado. */
+    COMPACT_V3
 
 }
@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The utility Class CodecExecutors provides the {@link Executor} used by the
+ * asynchronous {@link com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec}
+ * methods when none was configured in its builder.
+ *
+ * <p>
+ * When the running JVM supports virtual threads (Java 21 or greater) the default
+ * executor starts one virtual thread per task, otherwise it falls back to the
+ * {@link ForkJoinPool#commonPool()}. The lookup is done by reflection so the
+ * library keeps running on Java 8.
+ */
+public final class CodecExecutors {
+
+    /**
+     * The Constant VIRTUAL_EXECUTOR_FACTORY holds the {@link Executors} factory
+     * method name that creates a virtual thread per task executor.
+     */
+    private static final String VIRTUAL_EXECUTOR_FACTORY = "newVirtualThreadPerTaskExecutor";
+
+    /**
+     * Instantiates a new codec executors.
+     */
+    private CodecExecutors() {
+        // Hides this utility class constructor
+    }
+
+    /**
+     * Gets the shared default executor.
+     *
+     * @return the virtual thread per task executor when available, the
+     *         {@link ForkJoinPool#commonPool()} otherwise
+     */
+    public static Executor defaultExecutor() {
+        return DefaultExecutorHolder.INSTANCE;
+    }
+
+    /**
+     * Checks if the running JVM supports virtual threads.
+     *
+     * @return true, if virtual threads are available
+     */
+    public static boolean isVirtualThreadSupported() {
+        return DefaultExecutorHolder.VIRTUAL;
+    }
+
+    /**
+     * Creates a virtual thread per task executor through reflection.
+     *
+     * @return the executor or null when the running JVM does not support virtual
+     *         threads
+     */
+    private static Executor newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod(VIRTUAL_EXECUTOR_FACTORY);
+            return (Executor) factory.invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lazy initialization holder for the default executor, so nothing is created
+     * until the first asynchronous call.
+     */
+    private static final class DefaultExecutorHolder {
+
+        /** The virtual thread executor, if supported. */
+        private static final Executor VIRTUAL_EXECUTOR = newVirtualThreadExecutor();
+
+        /** The flag that tells if the default executor uses virtual threads. */
+        private static final boolean VIRTUAL = VIRTUAL_EXECUTOR != null;
+
+        /** The default executor instance. */
+        private static final Executor INSTANCE = resolve();
+
+        /**
+         * Instantiates a new default executor holder.
+         */
+        private DefaultExecutorHolder() {
+            // Hides this utility class constructor
+        }
+
+        /**
+         * Resolves the default executor instance.
+         *
+         * @return the executor
+         */
+        private static Executor resolve() {
+            if (VIRTUAL) {
+                return VIRTUAL_EXECUTOR;
+            }
+            return ForkJoinPool.commonPool();
+        }
+    }
+}
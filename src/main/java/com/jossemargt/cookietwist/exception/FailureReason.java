@@ -0,0 +1,55 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.exception;
+
+/**
+ * The Enum FailureReason classifies why a Tornado secure cookie value could not
+ * be decoded, so failures can be counted without parsing exception messages.
+ */
+public enum FailureReason {
+
+    /** The value does not have the expected amount of fields. */
+    FIELD_COUNT,
+    /** The value format version is not supported. */
+    VERSION,
+    /** A field length prefix is invalid or does not match its content. */
+    LENGTH,
+    /** A field content is malformed, like a non numeric timestamp. */
+    FIELD_FORMAT,
+    /** The value is not valid base64. */
+    ENCODING,
+    /** The cookie name does not match the one within the signed value. */
+    NAME_MISMATCH,
+    /** The value was signed with a secret key version the codec does not have. */
+    UNKNOWN_KEY,
+    /** The value signature does not match the computed one. */
+    SIGNATURE_MISMATCH,
+    /** The value is longer than the maximum length accepted by the codec. */
+    OVERSIZED,
+    /** The compressed value is corrupt or inflates beyond the configured limits. */
+    COMPRESSION,
+    /** The failure was not classified. */
+    UNKNOWN
+
+}
@@ -35,11 +35,15 @@ public class InvalidFormatException extends RuntimeException {
      */
     private static final long serialVersionUID = 6562287543509308822L;
 
+    /** The failure classification. */
+    private final FailureReason reason;
+
     /**
      * Instantiates a new invalid format exception without message string or cause.
      */
     public InvalidFormatException() {
         super();
+        this.reason = FailureReason.UNKNOWN;
     }
 
     /**
@@ -50,7 +54,7 @@ public class InvalidFormatException extends RuntimeException {
      *            the description of the occurrence.
      */
     public InvalidFormatException(String message) {
-        super(message);
+        this(FailureReason.UNKNOWN, message);
     }
 
     /**
@@ -63,7 +67,38 @@ public class InvalidFormatException extends RuntimeException {
      *            the Exception which triggered this one.
      */
     public InvalidFormatException(String message, Throwable cause) {
+        this(FailureReason.UNKNOWN, message, cause);
+    }
+
+    /**
+     * Instantiates a new invalid format exception with its failure
+     * classification and a string message describing the occurrence.
+     *
+     * @param reason
+     *            the failure classification.
+     * @param message
+     *            the description of the occurrence.
+     */
+    public InvalidFormatException(FailureReason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    /**
+     * Instantiates a new invalid format exception with its failure
+     * classification, a string message describing the occurrence and the
+     * Exception that triggered it.
+     *
+     * @param reason
+     *            the failure classification.
+     * @param message
+     *            the description of the occurrence.
+     * @param cause
+     *            the Exception which triggered this one.
+     */
+    public InvalidFormatException(FailureReason reason, String message, Throwable cause) {
         super(message, cause);
+        this.reason = reason;
     }
 
     /**
@@ -74,6 +109,17 @@ public class InvalidFormatException extends RuntimeException {
      */
     public InvalidFormatException(Throwable cause) {
         super(cause);
+        this.reason = FailureReason.UNKNOWN;
+    }
+
+    /**
+     * Gets the failure classification.
+     *
+     * @return the failure reason, {@link FailureReason#UNKNOWN} when none was
+     *         given
+     */
+    public FailureReason getReason() {
+        return reason;
     }
 
 }
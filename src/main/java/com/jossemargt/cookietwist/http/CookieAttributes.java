@@ -0,0 +1,246 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.http;
+
+/**
+ * The Class CookieAttributes holds the RFC 6265 attributes rendered after the
+ * cookie name and value in a <code>Set-Cookie</code> header.
+ */
+public final class CookieAttributes {
+
+    /** The Constant SESSION_MAX_AGE represents a cookie without expiration. */
+    public static final int SESSION_MAX_AGE = -1;
+
+    /** The Constant DEFAULT holds the attributes of a plain session cookie. */
+    public static final CookieAttributes DEFAULT = builder().build();
+
+    /** The Domain attribute. */
+    private final String domain;
+
+    /** The Path attribute. */
+    private final String path;
+
+    /** The Max-Age attribute in seconds, negative for session cookies. */
+    private final int maxAge;
+
+    /** The Secure attribute flag. */
+    private final boolean secure;
+
+    /** The HttpOnly attribute flag. */
+    private final boolean httpOnly;
+
+    /** The SameSite attribute. */
+    private final String sameSite;
+
+    /**
+     * Instantiates new cookie attributes from its builder.
+     *
+     * @param builder
+     *            the CookieAttributesBuilder
+     */
+    private CookieAttributes(CookieAttributesBuilder builder) {
+        this.domain = builder.domain;
+        this.path = builder.path;
+        this.maxAge = builder.maxAge;
+        this.secure = builder.secure;
+        this.httpOnly = builder.httpOnly;
+        this.sameSite = builder.sameSite;
+    }
+
+    /**
+     * Instantiate a CookieAttributesBuilder.
+     *
+     * @return the CookieAttributesBuilder
+     */
+    public static CookieAttributesBuilder builder() {
+        return new CookieAttributesBuilder();
+    }
+
+    /**
+     * The CookieAttributes Builder class.
+     */
+    public static final class CookieAttributesBuilder {
+
+        /** The Domain attribute. */
+        private String domain;
+
+        /** The Path attribute. */
+        private String path;
+
+        /** The Max-Age attribute in seconds. */
+        private int maxAge;
+
+        /** The Secure attribute flag. */
+        private boolean secure;
+
+        /** The HttpOnly attribute flag. */
+        private boolean httpOnly;
+
+        /** The SameSite attribute. */
+        private String sameSite;
+
+        /**
+         * Instantiates a new builder for a session cookie without attributes.
+         */
+        private CookieAttributesBuilder() {
+            this.maxAge = SESSION_MAX_AGE;
+        }
+
+        /**
+         * Sets the Domain attribute.
+         *
+         * @param domain
+         *            the domain
+         * @return the builder
+         */
+        public CookieAttributesBuilder withDomain(String domain) {
+            this.domain = domain;
+            return this;
+        }
+
+        /**
+         * Sets the Path attribute.
+         *
+         * @param path
+         *            the path
+         * @return the builder
+         */
+        public CookieAttributesBuilder withPath(String path) {
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * Sets the Max-Age attribute.
+         *
+         * @param maxAge
+         *            the max age in seconds, zero deletes the cookie and a negative
+         *            value makes it a session cookie
+         * @return the builder
+         */
+        public CookieAttributesBuilder withMaxAge(int maxAge) {
+            this.maxAge = maxAge;
+            return this;
+        }
+
+        /**
+         * Sets the Secure attribute flag.
+         *
+         * @param secure
+         *            the flag
+         * @return the builder
+         */
+        public CookieAttributesBuilder withSecure(boolean secure) {
+            this.secure = secure;
+            return this;
+        }
+
+        /**
+         * Sets the HttpOnly attribute flag.
+         *
+         * @param httpOnly
+         *            the flag
+         * @return the builder
+         */
+        public CookieAttributesBuilder withHttpOnly(boolean httpOnly) {
+            this.httpOnly = httpOnly;
+            return this;
+        }
+
+        /**
+         * Sets the SameSite attribute.
+         *
+         * @param sameSite
+         *            <code>Strict</code>, <code>Lax</code> or <code>None</code>
+         * @return the builder
+         */
+        public CookieAttributesBuilder withSameSite(String sameSite) {
+            this.sameSite = sameSite;
+            return this;
+        }
+
+        /**
+         * Instantiates the cookie attributes.
+         *
+         * @return the cookie attributes
+         */
+        public CookieAttributes build() {
+            return new CookieAttributes(this);
+        }
+    }
+
+    /**
+     * Gets the Domain attribute.
+     *
+     * @return the domain or null
+     */
+    public String getDomain() {
+        return domain;
+    }
+
+    /**
+     * Gets the Path attribute.
+     *
+     * @return the path or null
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the Max-Age attribute.
+     *
+     * @return the max age in seconds, negative for session cookies
+     */
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Checks the Secure attribute flag.
+     *
+     * @return true, if secure
+     */
+    public boolean isSecure() {
+        return secure;
+    }
+
+    /**
+     * Checks the HttpOnly attribute flag.
+     *
+     * @return true, if http only
+     */
+    public boolean isHttpOnly() {
+        return httpOnly;
+    }
+
+    /**
+     * Gets the SameSite attribute.
+     *
+     * @return the same site or null
+     */
+    public String getSameSite() {
+        return sameSite;
+    }
+}
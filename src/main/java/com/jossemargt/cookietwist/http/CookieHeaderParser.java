@@ -0,0 +1,471 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * The Class CookieHeaderParser scans a raw RFC 6265 <code>Cookie</code> request
+ * header and extracts only the values of a fixed set of cookie names, usually
+ * the signed ones.
+ *
+ * <p>
+ * The names are precompiled into a table indexed by name length, so every
+ * cookie pair in the header is matched in place against a handful of candidates
+ * and skipped without allocating anything when it is not wanted. Only the
+ * matching values are materialized as Strings, ready for the V1/V2
+ * deserializers. Instances are immutable and thread-safe.
+ */
+public final class CookieHeaderParser {
+
+    /** The Constant NOT_FOUND holds the index of an unknown cookie name. */
+    public static final int NOT_FOUND = -1;
+
+    /** The Constant PAIR_SEPARATOR holds the cookie pair separator. */
+    private static final char PAIR_SEPARATOR = ';';
+
+    /** The Constant NAME_VALUE_SEPARATOR holds the name/value separator. */
+    private static final char NAME_VALUE_SEPARATOR = '=';
+
+    /** The Constant QUOTE holds the optional value delimiter. */
+    private static final char QUOTE = '"';
+
+    /** The Constant QUOTED_MIN_LENGTH holds the length of an empty quoted value. */
+    private static final int QUOTED_MIN_LENGTH = 2;
+
+    /** The configured cookie names, the position is the value index. */
+    private final String[] names;
+
+    /** The configured cookie names as ASCII bytes. */
+    private final byte[][] nameBytes;
+
+    /** The value indexes grouped by name length. */
+    private final int[][] indexesByLength;
+
+    /**
+     * Instantiates a new cookie header parser.
+     *
+     * @param names
+     *            the cookie names to extract
+     * @throws IllegalArgumentException
+     *             when no name, or an empty name, is given
+     */
+    public CookieHeaderParser(Collection<String> names) {
+        List<String> unique = new ArrayList<String>(new LinkedHashSet<String>(names));
+
+        if (unique.isEmpty()) {
+            throw new IllegalArgumentException("At least one cookie name is required");
+        }
+
+        this.names = unique.toArray(new String[unique.size()]);
+        this.nameBytes = new byte[this.names.length][];
+        int maxLength = 0;
+
+        for (int i = 0; i < this.names.length; i++) {
+            if (this.names[i] == null || this.names[i].isEmpty()) {
+                throw new IllegalArgumentException("Unallowed null or empty cookie name");
+            }
+            this.nameBytes[i] = this.names[i].getBytes(StandardCharsets.ISO_8859_1);
+            maxLength = Math.max(maxLength, this.names[i].length());
+        }
+
+        this.indexesByLength = new int[maxLength + 1][];
+        Arrays.fill(this.indexesByLength, new int[0]);
+
+        for (int i = 0; i < this.names.length; i++) {
+            int length = this.names[i].length();
+            int[] bucket = Arrays.copyOf(this.indexesByLength[length], this.indexesByLength[length].length + 1);
+            bucket[bucket.length - 1] = i;
+            this.indexesByLength[length] = bucket;
+        }
+    }
+
+    /**
+     * Instantiates a new cookie header parser.
+     *
+     * @param names
+     *            the cookie names to extract
+     */
+    public CookieHeaderParser(String... names) {
+        this(Arrays.asList(names));
+    }
+
+    /**
+     * Gets the configured cookie names, where each position matches the one of
+     * the values returned by the parse methods.
+     *
+     * @return the cookie names
+     */
+    public List<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * Gets the value index of the given cookie name.
+     *
+     * @param name
+     *            the cookie name
+     * @return the value index or {@link #NOT_FOUND} when the name is not configured
+     */
+    public int indexOf(String name) {
+        if (name == null) {
+            return NOT_FOUND;
+        }
+        return match(name, 0, name.length());
+    }
+
+    /**
+     * Parses a <code>Cookie</code> header value.
+     *
+     * @param header
+     *            the header value
+     * @return the raw cookie values by configured name position, null for the
+     *         missing ones
+     */
+    public String[] parse(String header) {
+        String[] values = new String[names.length];
+        parse(header, values);
+        return values;
+    }
+
+    /**
+     * Parses a <code>Cookie</code> header value into the given values array,
+     * keeping any value already found. Useful when the cookies are split among
+     * several headers.
+     *
+     * @param header
+     *            the header value
+     * @param values
+     *            the raw cookie values by configured name position
+     * @return the amount of values found by this call
+     */
+    public int parse(String header, String[] values) {
+        if (header == null) {
+            return 0;
+        }
+
+        int found = 0;
+        int length = header.length();
+        int position = 0;
+
+        while (position < length) {
+            int pairEnd = header.indexOf(PAIR_SEPARATOR, position);
+            if (pairEnd < 0) {
+                pairEnd = length;
+            }
+
+            int nameStart = skipWhitespace(header, position, pairEnd);
+            int separator = indexOf(header, NAME_VALUE_SEPARATOR, nameStart, pairEnd);
+
+            if (separator > nameStart && separator < pairEnd) {
+                int nameEnd = trimWhitespace(header, nameStart, separator);
+                int index = match(header, nameStart, nameEnd - nameStart);
+
+                if (index >= 0 && values[index] == null) {
+                    values[index] = extractValue(header, separator + 1, pairEnd);
+                    found++;
+                }
+            }
+
+            position = pairEnd + 1;
+        }
+
+        return found;
+    }
+
+    /**
+     * Parses a raw <code>Cookie</code> header value.
+     *
+     * @param header
+     *            the buffer holding the header value bytes
+     * @param offset
+     *            the header value offset
+     * @param length
+     *            the header value length
+     * @return the raw cookie values by configured name position, null for the
+     *         missing ones
+     */
+    public String[] parse(byte[] header, int offset, int length) {
+        String[] values = new String[names.length];
+        int end = offset + length;
+        int position = offset;
+
+        while (position < end) {
+            int pairEnd = indexOf(header, (byte) PAIR_SEPARATOR, position, end);
+            int nameStart = skipWhitespace(header, position, pairEnd);
+            int separator = indexOf(header, (byte) NAME_VALUE_SEPARATOR, nameStart, pairEnd);
+
+            if (separator > nameStart && separator < pairEnd) {
+                int nameEnd = trimWhitespace(header, nameStart, separator);
+                int index = match(header, nameStart, nameEnd - nameStart);
+
+                if (index >= 0 && values[index] == null) {
+                    values[index] = extractValue(header, separator + 1, pairEnd);
+                }
+            }
+
+            position = pairEnd + 1;
+        }
+
+        return values;
+    }
+
+    /**
+     * Matches a name slice against the configured names of the same length.
+     *
+     * @param source
+     *            the header
+     * @param start
+     *            the name start
+     * @param length
+     *            the name length
+     * @return the value index or {@link #NOT_FOUND} when the name is not configured
+     */
+    private int match(String source, int start, int length) {
+        if (length >= indexesByLength.length) {
+            return NOT_FOUND;
+        }
+
+        for (int index : indexesByLength[length]) {
+            if (source.regionMatches(start, names[index], 0, length)) {
+                return index;
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * Matches a name slice against the configured names of the same length.
+     *
+     * @param source
+     *            the header bytes
+     * @param start
+     *            the name start
+     * @param length
+     *            the name length
+     * @return the value index or {@link #NOT_FOUND} when the name is not configured
+     */
+    private int match(byte[] source, int start, int length) {
+        if (length >= indexesByLength.length) {
+            return NOT_FOUND;
+        }
+
+        for (int index : indexesByLength[length]) {
+            byte[] candidate = nameBytes[index];
+            int i = 0;
+            while (i < length && source[start + i] == candidate[i]) {
+                i++;
+            }
+            if (i == length) {
+                return index;
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * Extracts a value slice, trimming whitespace and the optional quotes.
+     *
+     * @param source
+     *            the header
+     * @param start
+     *            the value start
+     * @param end
+     *            the value end
+     * @return the raw value
+     */
+    private static String extractValue(String source, int start, int end) {
+        int valueStart = skipWhitespace(source, start, end);
+        int valueEnd = trimWhitespace(source, valueStart, end);
+
+        if (valueEnd - valueStart >= QUOTED_MIN_LENGTH && source.charAt(valueStart) == QUOTE
+                && source.charAt(valueEnd - 1) == QUOTE) {
+            valueStart++;
+            valueEnd--;
+        }
+
+        return source.substring(valueStart, valueEnd);
+    }
+
+    /**
+     * Extracts a value slice, trimming whitespace and the optional quotes.
+     *
+     * @param source
+     *            the header bytes
+     * @param start
+     *            the value start
+     * @param end
+     *            the value end
+     * @return the raw value
+     */
+    private static String extractValue(byte[] source, int start, int end) {
+        int valueStart = skipWhitespace(source, start, end);
+        int valueEnd = trimWhitespace(source, valueStart, end);
+
+        if (valueEnd - valueStart >= QUOTED_MIN_LENGTH && source[valueStart] == QUOTE
+                && source[valueEnd - 1] == QUOTE) {
+            valueStart++;
+            valueEnd--;
+        }
+
+        return new String(source, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Finds a character within a range.
+     *
+     * @param source
+     *            the header
+     * @param target
+     *            the character to find
+     * @param start
+     *            the range start
+     * @param end
+     *            the range end
+     * @return the character position or the range end when not found
+     */
+    private static int indexOf(String source, char target, int start, int end) {
+        int position = start;
+        while (position < end && source.charAt(position) != target) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Finds a byte within a range.
+     *
+     * @param source
+     *            the header bytes
+     * @param target
+     *            the byte to find
+     * @param start
+     *            the range start
+     * @param end
+     *            the range end
+     * @return the byte position or the range end when not found
+     */
+    private static int indexOf(byte[] source, byte target, int start, int end) {
+        int position = start;
+        while (position < end && source[position] != target) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Skips the leading whitespace of a range.
+     *
+     * @param source
+     *            the header
+     * @param start
+     *            the range start
+     * @param end
+     *            the range end
+     * @return the first non whitespace position
+     */
+    private static int skipWhitespace(String source, int start, int end) {
+        int position = start;
+        while (position < end && isWhitespace(source.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Skips the leading whitespace of a range.
+     *
+     * @param source
+     *            the header bytes
+     * @param start
+     *            the range start
+     * @param end
+     *            the range end
+     * @return the first non whitespace position
+     */
+    private static int skipWhitespace(byte[] source, int start, int end) {
+        int position = start;
+        while (position < end && isWhitespace((char) source[position])) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Trims the trailing whitespace of a range.
+     *
+     * @param source
+     *            the header
+     * @param start
+     *            the range start
+     * @param end
+     *            the range end
+     * @return the position after the last non whitespace character
+     */
+    private static int trimWhitespace(String source, int start, int end) {
+        int position = end;
+        while (position > start && isWhitespace(source.charAt(position - 1))) {
+            position--;
+        }
+        return position;
+    }
+
+    /**
+     * Trims the trailing whitespace of a range.
+     *
+     * @param source
+     *            the header bytes
+     * @param start
+     *            the range start
+     * @param end
+     *            the range end
+     * @return the position after the last non whitespace byte
+     */
+    private static int trimWhitespace(byte[] source, int start, int end) {
+        int position = end;
+        while (position > start && isWhitespace((char) source[position - 1])) {
+            position--;
+        }
+        return position;
+    }
+
+    /**
+     * Checks for optional whitespace (space or horizontal tab).
+     *
+     * @param c
+     *            the character
+     * @return true, if whitespace
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
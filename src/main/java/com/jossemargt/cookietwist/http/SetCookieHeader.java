@@ -0,0 +1,265 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.http;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * The utility Class SetCookieHeader renders a complete RFC 6265
+ * <code>Set-Cookie</code> header value in a single, presized buffer.
+ */
+public final class SetCookieHeader {
+
+    /** The Constant HEADER_NAME holds the response header name. */
+    public static final String HEADER_NAME = "Set-Cookie";
+
+    /** The Constant DOMAIN_ATTRIBUTE holds the Domain attribute prefix. */
+    private static final String DOMAIN_ATTRIBUTE = "; Domain=";
+
+    /** The Constant PATH_ATTRIBUTE holds the Path attribute prefix. */
+    private static final String PATH_ATTRIBUTE = "; Path=";
+
+    /** The Constant MAX_AGE_ATTRIBUTE holds the Max-Age attribute prefix. */
+    private static final String MAX_AGE_ATTRIBUTE = "; Max-Age=";
+
+    /** The Constant EXPIRES_ATTRIBUTE holds the Expires attribute prefix. */
+    private static final String EXPIRES_ATTRIBUTE = "; Expires=";
+
+    /** The Constant SECURE_ATTRIBUTE holds the Secure attribute. */
+    private static final String SECURE_ATTRIBUTE = "; Secure";
+
+    /** The Constant HTTP_ONLY_ATTRIBUTE holds the HttpOnly attribute. */
+    private static final String HTTP_ONLY_ATTRIBUTE = "; HttpOnly";
+
+    /** The Constant SAME_SITE_ATTRIBUTE holds the SameSite attribute prefix. */
+    private static final String SAME_SITE_ATTRIBUTE = "; SameSite=";
+
+    /** The Constant EXPIRES_FORMAT holds the RFC 1123 fixed length date format. */
+    private static final DateTimeFormatter EXPIRES_FORMAT = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    /** The Constant EXPIRES_LENGTH holds the formatted Expires date length. */
+    private static final int EXPIRES_LENGTH = 29;
+
+    /** The Constant MAX_ASCII holds the highest allowed octet. */
+    private static final char MAX_ASCII = 0x7e;
+
+    /** The Constant SAME_SITE_VALUES holds the allowed SameSite attribute values. */
+    private static final String[] SAME_SITE_VALUES = {"Strict", "Lax", "None"};
+
+    /**
+     * Instantiates a new set cookie header.
+     */
+    private SetCookieHeader() {
+        // Hides this utility class constructor
+    }
+
+    /**
+     * Renders the <code>Set-Cookie</code> header value.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie value, already signed
+     * @param attributes
+     *            the cookie attributes
+     * @return the header value
+     * @throws IllegalArgumentException
+     *             when the name is not a valid token, the value has characters
+     *             outside the RFC 6265 cookie-octet range, the Domain or Path has
+     *             a control character or a semicolon, or the SameSite is neither
+     *             Strict, Lax nor None
+     */
+    public static String render(String name, String value, CookieAttributes attributes) {
+        return render(name, value, attributes, Instant.now());
+    }
+
+    /**
+     * Renders the <code>Set-Cookie</code> header value, computing the Expires
+     * attribute from the given instant.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie value, already signed
+     * @param attributes
+     *            the cookie attributes
+     * @param now
+     *            the instant the Max-Age is counted from
+     * @return the header value
+     * @throws IllegalArgumentException
+     *             when the name is not a valid token, the value has characters
+     *             outside the RFC 6265 cookie-octet range, the Domain or Path has
+     *             a control character or a semicolon, or the SameSite is neither
+     *             Strict, Lax nor None
+     */
+    public static String render(String name, String value, CookieAttributes attributes, Instant now) {
+        validateName(name);
+        String cookieValue = value;
+        if (cookieValue == null) {
+            cookieValue = "";
+        }
+        validateValue(cookieValue);
+        validateAttribute("Domain", attributes.getDomain());
+        validateAttribute("Path", attributes.getPath());
+        String sameSite = canonicalSameSite(attributes.getSameSite());
+
+        String maxAge = null;
+        int length = name.length() + 1 + cookieValue.length();
+
+        if (attributes.getDomain() != null) {
+            length += DOMAIN_ATTRIBUTE.length() + attributes.getDomain().length();
+        }
+        if (attributes.getPath() != null) {
+            length += PATH_ATTRIBUTE.length() + attributes.getPath().length();
+        }
+        if (attributes.getMaxAge() >= 0) {
+            maxAge = Integer.toString(attributes.getMaxAge());
+            length += MAX_AGE_ATTRIBUTE.length() + maxAge.length() + EXPIRES_ATTRIBUTE.length() + EXPIRES_LENGTH;
+        }
+        if (attributes.isSecure()) {
+            length += SECURE_ATTRIBUTE.length();
+        }
+        if (attributes.isHttpOnly()) {
+            length += HTTP_ONLY_ATTRIBUTE.length();
+        }
+        if (sameSite != null) {
+            length += SAME_SITE_ATTRIBUTE.length() + sameSite.length();
+        }
+
+        StringBuilder header = new StringBuilder(length);
+        header.append(name).append('=').append(cookieValue);
+
+        if (attributes.getDomain() != null) {
+            header.append(DOMAIN_ATTRIBUTE).append(attributes.getDomain());
+        }
+        if (attributes.getPath() != null) {
+            header.append(PATH_ATTRIBUTE).append(attributes.getPath());
+        }
+        if (maxAge != null) {
+            header.append(MAX_AGE_ATTRIBUTE).append(maxAge).append(EXPIRES_ATTRIBUTE);
+            EXPIRES_FORMAT.formatTo(now.plusSeconds(attributes.getMaxAge()), header);
+        }
+        if (attributes.isSecure()) {
+            header.append(SECURE_ATTRIBUTE);
+        }
+        if (attributes.isHttpOnly()) {
+            header.append(HTTP_ONLY_ATTRIBUTE);
+        }
+        if (sameSite != null) {
+            header.append(SAME_SITE_ATTRIBUTE).append(sameSite);
+        }
+
+        return header.toString();
+    }
+
+    /**
+     * Validates the cookie name as an RFC 2616 token.
+     *
+     * @param name
+     *            the cookie name
+     * @throws IllegalArgumentException
+     *             when the name is not a valid token
+     */
+    private static void validateName(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Unallowed null or empty cookie name");
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c <= ' ' || c > MAX_ASCII || "()<>@,;:\\\"/[]?={}".indexOf(c) >= 0) {
+                throw new IllegalArgumentException(String.format("Invalid cookie name '%s'", name));
+            }
+        }
+    }
+
+    /**
+     * Validates the cookie value as a sequence of RFC 6265 cookie-octets.
+     *
+     * @param value
+     *            the cookie value
+     * @throws IllegalArgumentException
+     *             when the value has an invalid character
+     */
+    private static void validateValue(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c <= ' ' || c > MAX_ASCII || c == '"' || c == ',' || c == ';' || c == '\\') {
+                throw new IllegalArgumentException(String.format("Invalid cookie value character at %d", i));
+            }
+        }
+    }
+
+    /**
+     * Validates an attribute value as an RFC 6265 av-value, so it can not inject
+     * another attribute nor header.
+     *
+     * @param attribute
+     *            the attribute name
+     * @param value
+     *            the attribute value, null when absent
+     * @throws IllegalArgumentException
+     *             when the value has a control, non ASCII or semicolon character
+     */
+    private static void validateAttribute(String attribute, String value) {
+        if (value == null) {
+            return;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < ' ' || c > MAX_ASCII || c == ';') {
+                throw new IllegalArgumentException(
+                        String.format("Invalid cookie %s attribute character at %d", attribute, i));
+            }
+        }
+    }
+
+    /**
+     * Gets the canonical SameSite attribute value.
+     *
+     * @param sameSite
+     *            the SameSite attribute value, in any case, null when absent
+     * @return the canonical value, null when absent
+     * @throws IllegalArgumentException
+     *             when the value is neither Strict, Lax nor None
+     */
+    private static String canonicalSameSite(String sameSite) {
+        if (sameSite == null) {
+            return null;
+        }
+
+        for (String allowed : SAME_SITE_VALUES) {
+            if (allowed.equalsIgnoreCase(sameSite)) {
+                return allowed;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("Invalid cookie SameSite attribute '%s'", sameSite));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.jfr;
+
+import com.jossemargt.cookietwist.metrics.StageClock;
+
+/**
+ * The Interface CodecEventSink hides the Flight Recorder event classes from
+ * {@link CodecEvents}, so they are never loaded by a JVM without the
+ * <code>jdk.jfr</code> API. Events travel as plain objects for the same reason.
+ */
+interface CodecEventSink {
+
+    /**
+     * Begins a decode event.
+     *
+     * @return the event or null when it is not being recorded
+     */
+    Object beginDecode();
+
+    /**
+     * Completes a decode event.
+     *
+     * @param event
+     *            the event returned by {@link #beginDecode()}
+     * @param codecVersion
+     *            the codec format version
+     * @param keyVersion
+     *            the secret key version, -1 when unknown
+     * @param cookieSize
+     *            the signed value length
+     * @param outcome
+     *            the outcome, OK or the failure reason
+     * @param clock
+     *            the operation stage clock
+     */
+    void completeDecode(Object event, int codecVersion, int keyVersion, int cookieSize, String outcome,
+            StageClock clock);
+
+    /**
+     * Begins an encode event.
+     *
+     * @return the event or null when it is not being recorded
+     */
+    Object beginEncode();
+
+    /**
+     * Completes an encode event.
+     *
+     * @param event
+     *            the event returned by {@link #beginEncode()}
+     * @param codecVersion
+     *            the codec format version
+     * @param keyVersion
+     *            the secret key version
+     * @param cookieSize
+     *            the signed value length
+     * @param clock
+     *            the operation stage clock
+     */
+    void completeEncode(Object event, int codecVersion, int keyVersion, int cookieSize, StageClock clock);
+
+    /**
+     * Begins a signature computation event.
+     *
+     * @return the event or null when it is not being recorded
+     */
+    Object beginSignature();
+
+    /**
+     * Completes a signature computation event.
+     *
+     * @param event
+     *            the event returned by {@link #beginSignature()}
+     * @param codecVersion
+     *            the codec format version
+     * @param keyVersion
+     *            the secret key version
+     * @param valueSize
+     *            the signed plain value length
+     */
+    void completeSignature(Object event, int codecVersion, int keyVersion, int valueSize);
+}
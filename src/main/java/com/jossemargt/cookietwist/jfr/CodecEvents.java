@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.jfr;
+
+import com.jossemargt.cookietwist.metrics.StageClock;
+
+/**
+ * The utility Class CodecEvents is the entry point the codecs use to emit their
+ * JDK Flight Recorder events: <code>com.jossemargt.cookietwist.CookieDecode</code>,
+ * <code>com.jossemargt.cookietwist.CookieEncode</code> and
+ * <code>com.jossemargt.cookietwist.SignatureCompute</code>.
+ *
+ * <p>
+ * Each event has a 1 ms default threshold that recordings can override, for
+ * example with
+ * <code>recording.enable("com.jossemargt.cookietwist.CookieDecode").withThreshold(Duration.ZERO)</code>
+ * or a custom <code>.jfc</code> settings file. When the event is not being
+ * recorded, or the JVM lacks the <code>jdk.jfr</code> API, every begin method
+ * returns null and the codec skips any extra timing.
+ */
+public final class CodecEvents {
+
+    /** The Constant OUTCOME_OK holds the outcome of a successful decode. */
+    public static final String OUTCOME_OK = "OK";
+
+    /** The Constant FLIGHT_RECORDER_EVENT holds the JFR base event class name. */
+    private static final String FLIGHT_RECORDER_EVENT = "jdk.jfr.Event";
+
+    /** The Constant FLIGHT_RECORDER_SINK holds the JFR backed sink class name. */
+    private static final String FLIGHT_RECORDER_SINK = "com.jossemargt.cookietwist.jfr.FlightRecorderSink";
+
+    /** The Constant SINK holds the sink chosen for the running JVM, null without JFR. */
+    private static final CodecEventSink SINK = createSink();
+
+    /**
+     * Instantiates a new codec events.
+     */
+    private CodecEvents() {
+        // Hides this utility class constructor
+    }
+
+    /**
+     * Checks if the running JVM supports the Flight Recorder events.
+     *
+     * @return true, if available
+     */
+    public static boolean isAvailable() {
+        return SINK != null;
+    }
+
+    /**
+     * Begins a decode event.
+     *
+     * @return the event or null when it is not being recorded
+     */
+    public static Object beginDecode() {
+        if (SINK == null) {
+            return null;
+        }
+        return SINK.beginDecode();
+    }
+
+    /**
+     * Completes a decode event, which is committed when it lasted past its
+     * threshold.
+     *
+     * @param event
+     *            the event returned by {@link #beginDecode()}
+     * @param codecVersion
+     *            the codec format version
+     * @param keyVersion
+     *            the secret key version, -1 when unknown
+     * @param cookieSize
+     *            the signed value length
+     * @param outcome
+     *            the outcome, {@link #OUTCOME_OK} or the failure reason
+     * @param clock
+     *            the operation stage clock
+     */
+    public static void completeDecode(Object event, int codecVersion, int keyVersion, int cookieSize,
+            String outcome, StageClock clock) {
+        SINK.completeDecode(event, codecVersion, keyVersion, cookieSize, outcome, clock);
+    }
+
+    /**
+     * Begins an encode event.
+     *
+     * @return the event or null when it is not being recorded
+     */
+    public static Object beginEncode() {
+        if (SINK == null) {
+            return null;
+        }
+        return SINK.beginEncode();
+    }
+
+    /**
+     * Completes an encode event, which is committed when it lasted past its
+     * threshold.
+     *
+     * @param event
+     *            the event returned by {@link #beginEncode()}
+     * @param codecVersion
+     *            the codec format version
+     * @param keyVersion
+     *            the secret key version
+     * @param cookieSize
+     *            the signed value length
+     * @param clock
+     *            the operation stage clock
+     */
+    public static void completeEncode(Object event, int codecVersion, int keyVersion, int cookieSize,
+            StageClock clock) {
+        SINK.completeEncode(event, codecVersion, keyVersion, cookieSize, clock);
+    }
+
+    /**
+     * Begins a signature computation event.
+     *
+     * @return the event or null when it is not being recorded
+     */
+    public static Object beginSignature() {
+        if (SINK == null) {
+            return null;
+        }
+        return SINK.beginSignature();
+    }
+
+    /**
+     * Completes a signature computation event, which is committed when it lasted
+     * past its threshold.
+     *
+     * @param event
+     *            the event returned by {@link #beginSignature()}
+     * @param codecVersion
+     *            the codec format version
+     * @param keyVersion
+     *            the secret key version
+     * @param valueSize
+     *            the signed plain value length
+     */
+    public static void completeSignature(Object event, int codecVersion, int keyVersion, int valueSize) {
+        SINK.completeSignature(event, codecVersion, keyVersion, valueSize);
+    }
+
+    /**
+     * Creates the Flight Recorder backed sink when the running JVM supports it.
+     *
+     * @return the sink or null
+     */
+    private static CodecEventSink createSink() {
+        try {
+            Class.forName(FLIGHT_RECORDER_EVENT);
+            return (CodecEventSink) Class.forName(FLIGHT_RECORDER_SINK).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
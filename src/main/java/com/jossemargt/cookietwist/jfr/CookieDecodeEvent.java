@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.jfr;
+
+import com.jossemargt.cookietwist.metrics.Stage;
+import com.jossemargt.cookietwist.metrics.StageClock;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * The Class CookieDecodeEvent records a single signed cookie value decoding,
+ * successful or not.
+ */
+@Name(CookieDecodeEvent.NAME)
+@Label("Cookie Decode")
+@Category("cookie-twist")
+@Description("A Tornado secure cookie value decoding and verification")
+@StackTrace(false)
+@Threshold("1 ms")
+final class CookieDecodeEvent extends jdk.jfr.Event {
+
+    /** The Constant NAME holds the event name. */
+    static final String NAME = "com.jossemargt.cookietwist.CookieDecode";
+
+    /** The codec format version. */
+    @Label("Codec Version")
+    private int codecVersion;
+
+    /** The secret key version, -1 when unknown. */
+    @Label("Key Version")
+    private int keyVersion;
+
+    /** The signed value length. */
+    @Label("Cookie Size")
+    private int cookieSize;
+
+    /** The outcome, OK or the failure reason. */
+    @Label("Outcome")
+    private String outcome;
+
+    /** The parse stage time. */
+    @Label("Parse")
+    @Timespan
+    private long parseTime;
+
+    /** The base64 stage time. */
+    @Label("Base64")
+    @Timespan
+    private long base64Time;
+
+    /** The HMAC stage time, byte encoding and hex formatting included. */
+    @Label("HMAC")
+    @Timespan
+    private long hmacTime;
+
+    /** The signature comparison stage time. */
+    @Label("Compare")
+    @Timespan
+    private long compareTime;
+
+    /**
+     * Fills the event fields and commits it, when it lasted past its threshold.
+     *
+     * @param version
+     *            the codec format version
+     * @param key
+     *            the secret key version, -1 when unknown
+     * @param size
+     *            the signed value length
+     * @param result
+     *            the outcome, OK or the failure reason
+     * @param clock
+     *            the operation stage clock
+     */
+    void complete(int version, int key, int size, String result, StageClock clock) {
+        end();
+        if (shouldCommit()) {
+            codecVersion = version;
+            keyVersion = key;
+            cookieSize = size;
+            outcome = result;
+            parseTime = clock.get(Stage.PARSE);
+            base64Time = clock.get(Stage.BASE64);
+            hmacTime = clock.get(Stage.BYTES) + clock.get(Stage.HMAC) + clock.get(Stage.HEX);
+            compareTime = clock.get(Stage.COMPARE);
+            commit();
+        }
+    }
+}
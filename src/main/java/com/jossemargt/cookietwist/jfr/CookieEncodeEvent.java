@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.jfr;
+
+import com.jossemargt.cookietwist.metrics.Stage;
+import com.jossemargt.cookietwist.metrics.StageClock;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * The Class CookieEncodeEvent records a single cookie value encoding.
+ */
+@Name(CookieEncodeEvent.NAME)
+@Label("Cookie Encode")
+@Category("cookie-twist")
+@Description("A Tornado secure cookie value signing and serialization")
+@StackTrace(false)
+@Threshold("1 ms")
+final class CookieEncodeEvent extends jdk.jfr.Event {
+
+    /** The Constant NAME holds the event name. */
+    static final String NAME = "com.jossemargt.cookietwist.CookieEncode";
+
+    /** The codec format version. */
+    @Label("Codec Version")
+    private int codecVersion;
+
+    /** The secret key version. */
+    @Label("Key Version")
+    private int keyVersion;
+
+    /** The signed value length. */
+    @Label("Cookie Size")
+    private int cookieSize;
+
+    /** The HMAC stage time, byte encoding and hex formatting included. */
+    @Label("HMAC")
+    @Timespan
+    private long hmacTime;
+
+    /** The serialization stage time. */
+    @Label("Serialize")
+    @Timespan
+    private long serializeTime;
+
+    /**
+     * Fills the event fields and commits it, when it lasted past its threshold.
+     *
+     * @param version
+     *            the codec format version
+     * @param key
+     *            the secret key version
+     * @param size
+     *            the signed value length
+     * @param clock
+     *            the operation stage clock
+     */
+    void complete(int version, int key, int size, StageClock clock) {
+        end();
+        if (shouldCommit()) {
+            codecVersion = version;
+            keyVersion = key;
+            cookieSize = size;
+            hmacTime = clock.get(Stage.BYTES) + clock.get(Stage.HMAC) + clock.get(Stage.HEX);
+            serializeTime = clock.get(Stage.SERIALIZE);
+            commit();
+        }
+    }
+}
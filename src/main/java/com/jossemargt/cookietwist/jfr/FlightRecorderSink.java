@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.jfr;
+
+import com.jossemargt.cookietwist.metrics.StageClock;
+
+/**
+ * The Class FlightRecorderSink creates and commits the actual Flight Recorder
+ * events. A disabled event costs one short lived allocation, which the JIT
+ * usually removes.
+ */
+final class FlightRecorderSink implements CodecEventSink {
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.jfr.CodecEventSink#beginDecode()
+     */
+    @Override
+    public Object beginDecode() {
+        CookieDecodeEvent event = new CookieDecodeEvent();
+
+        if (!event.isEnabled()) {
+            return null;
+        }
+
+        event.begin();
+        return event;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.jfr.CodecEventSink#completeDecode(java.lang.
+     * Object, int, int, int, java.lang.String,
+     * com.jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    public void completeDecode(Object event, int codecVersion, int keyVersion, int cookieSize, String outcome,
+            StageClock clock) {
+        ((CookieDecodeEvent) event).complete(codecVersion, keyVersion, cookieSize, outcome, clock);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.jfr.CodecEventSink#beginEncode()
+     */
+    @Override
+    public Object beginEncode() {
+        CookieEncodeEvent event = new CookieEncodeEvent();
+
+        if (!event.isEnabled()) {
+            return null;
+        }
+
+        event.begin();
+        return event;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.jfr.CodecEventSink#completeEncode(java.lang.
+     * Object, int, int, int, com.jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    public void completeEncode(Object event, int codecVersion, int keyVersion, int cookieSize, StageClock clock) {
+        ((CookieEncodeEvent) event).complete(codecVersion, keyVersion, cookieSize, clock);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.jfr.CodecEventSink#beginSignature()
+     */
+    @Override
+    public Object beginSignature() {
+        SignatureComputeEvent event = new SignatureComputeEvent();
+
+        if (!event.isEnabled()) {
+            return null;
+        }
+
+        event.begin();
+        return event;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.jfr.CodecEventSink#completeSignature(java.
+     * lang.Object, int, int, int)
+     */
+    @Override
+    public void completeSignature(Object event, int codecVersion, int keyVersion, int valueSize) {
+        ((SignatureComputeEvent) event).complete(codecVersion, keyVersion, valueSize);
+    }
+}
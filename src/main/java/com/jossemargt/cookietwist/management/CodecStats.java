@@ -0,0 +1,496 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.management;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.metrics.LogHistogram;
+import com.jossemargt.cookietwist.metrics.Stage;
+import com.jossemargt.cookietwist.metrics.StripedCodecMetrics;
+import com.jossemargt.cookietwist.tornado.transform.EncodeCache;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class CodecStats exposes the {@link StripedCodecMetrics} and
+ * {@link EncodeCache} statistics of a codec as a JMX MXBean, registered in the
+ * platform MBean server under the {@value #DOMAIN} domain.
+ *
+ * <p>
+ * {@link com.jossemargt.cookietwist.CookiePot#getCodecFor} registers one for
+ * every shared codec when the
+ * {@value com.jossemargt.cookietwist.CookiePot#MANAGEMENT_PROPERTY} system
+ * property is true. Codecs built by hand can be exposed too, as long as they
+ * were built with a {@link StripedCodecMetrics} instance:
+ *
+ * <pre>
+ * StripedCodecMetrics metrics = new StripedCodecMetrics();
+ * TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withSecretKey(key).withMetrics(metrics).build();
+ * new CodecStats("TORNADO_V2", "session", codec, metrics).register();
+ * </pre>
+ */
+public final class CodecStats implements CodecStatsMXBean {
+
+    /** The Constant DOMAIN holds the JMX domain of the codec beans. */
+    public static final String DOMAIN = "com.jossemargt.cookietwist";
+
+    /** The Constant P50 holds the median percentile. */
+    private static final double P50 = 50.0;
+
+    /** The Constant P99 holds the 99th percentile. */
+    private static final double P99 = 99.0;
+
+    /** The Constant P999 holds the 99.9th percentile. */
+    private static final double P999 = 99.9;
+
+    /** The Constant CACHE_DISABLED holds the hit ratio of a disabled cache. */
+    private static final double CACHE_DISABLED = -1;
+
+    /** The Constant NOT_TRACKED holds the value of an untracked allocation statistic. */
+    private static final long NOT_TRACKED = -1;
+
+    /** The codec signature algorithm. */
+    private final String algorithm;
+
+    /** The codec key ring identifier. */
+    private final String keyRingId;
+
+    /** The codec encode cache, null when disabled. */
+    private final EncodeCache encodeCache;
+
+    /** The codec metrics. */
+    private final StripedCodecMetrics metrics;
+
+    /** The bean object name, with an instance key once registered under a taken name. */
+    private volatile ObjectName objectName;
+
+    /**
+     * Instantiates a new codec stats bean.
+     *
+     * @param algorithm
+     *            the codec signature algorithm
+     * @param keyRingId
+     *            an identifier of the codec key ring, never the keys themselves
+     * @param codec
+     *            the codec
+     * @param metrics
+     *            the metrics the codec was built with
+     * @throws IllegalArgumentException
+     *             when the identifiers are not valid object name values
+     */
+    public CodecStats(String algorithm, String keyRingId, TornadoCookieCodec codec, StripedCodecMetrics metrics) {
+        this.algorithm = algorithm;
+        this.keyRingId = keyRingId;
+        this.encodeCache = codec.getEncodeCache();
+        this.metrics = metrics;
+
+        try {
+            this.objectName = new ObjectName(baseName());
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid codec stats identifiers", e);
+        }
+    }
+
+    /**
+     * Gets the bean object name.
+     *
+     * @return the object name
+     */
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Registers this bean in the platform MBean server. When another bean, for
+     * example the one of another web application sharing the key ring, already
+     * took the name, an <code>instance</code> key numbered from 2 is added to the
+     * name instead of replacing that bean.
+     *
+     * @return true, if registered
+     */
+    public boolean register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            ObjectName name = new ObjectName(baseName());
+            for (int instance = 1;; instance++) {
+                if (instance > 1) {
+                    name = new ObjectName(baseName() + ",instance=" + instance);
+                }
+                try {
+                    server.registerMBean(this, name);
+                    objectName = name;
+                    return true;
+                } catch (InstanceAlreadyExistsException e) {
+                    // Taken by another bean, try the next instance number
+                }
+            }
+        } catch (JMException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Formats the object name without instance key.
+     *
+     * @return the base object name
+     */
+    private String baseName() {
+        return String.format("%s:type=TornadoCookieCodec,algorithm=%s,keyRing=%s", DOMAIN, algorithm, keyRingId);
+    }
+
+    /**
+     * Unregisters this bean from the platform MBean server.
+     *
+     * @return true, if unregistered
+     */
+    public boolean unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            return true;
+        } catch (JMException e) {
+            return false;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#getAlgorithm()
+     */
+    @Override
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#getKeyRingId()
+     */
+    @Override
+    public String getKeyRingId() {
+        return keyRingId;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#getEncodeCount()
+     */
+    @Override
+    public long getEncodeCount() {
+        return metrics.getEncodeCount();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#getDecodeCount()
+     */
+    @Override
+    public long getDecodeCount() {
+        return metrics.getDecodeCount();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#getFailureCount()
+     */
+    @Override
+    public long getFailureCount() {
+        return metrics.getFailureCount();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#getFailureCounts()
+     */
+    @Override
+    public Map<String, Long> getFailureCounts() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Map.Entry<FailureReason, Long> entry : metrics.getFailureCounts().entrySet()) {
+            result.put(entry.getKey().name(), entry.getValue());
+        }
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getEncodeCountByKeyVersion()
+     */
+    @Override
+    public Map<String, Long> getEncodeCountByKeyVersion() {
+        return byKeyVersion(metrics.getEncodeCountByKeyVersion());
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getDecodeCountByKeyVersion()
+     */
+    @Override
+    public Map<String, Long> getDecodeCountByKeyVersion() {
+        return byKeyVersion(metrics.getDecodeCountByKeyVersion());
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getDecodeLatencyP50Nanos()
+     */
+    @Override
+    public long getDecodeLatencyP50Nanos() {
+        return metrics.getDecodeLatency().getValueAtPercentile(P50);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getDecodeLatencyP99Nanos()
+     */
+    @Override
+    public long getDecodeLatencyP99Nanos() {
+        return metrics.getDecodeLatency().getValueAtPercentile(P99);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getDecodeLatencyP999Nanos()
+     */
+    @Override
+    public long getDecodeLatencyP999Nanos() {
+        return metrics.getDecodeLatency().getValueAtPercentile(P999);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getDecodeLatencyMaxNanos()
+     */
+    @Override
+    public long getDecodeLatencyMaxNanos() {
+        return metrics.getDecodeLatency().getMax();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getEncodeLatencyP99Nanos()
+     */
+    @Override
+    public long getEncodeLatencyP99Nanos() {
+        return metrics.getEncodeLatency().getValueAtPercentile(P99);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getEncodeCacheHitRatio()
+     */
+    @Override
+    public double getEncodeCacheHitRatio() {
+        if (encodeCache == null) {
+            return CACHE_DISABLED;
+        }
+
+        long hits = encodeCache.getHitCount();
+        long total = hits + encodeCache.getMissCount();
+
+        if (total == 0) {
+            return 0;
+        }
+
+        return (double) hits / total;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getEncodeAllocatedBytesMean()
+     */
+    @Override
+    public double getEncodeAllocatedBytesMean() {
+        if (!metrics.isTrackingAllocations()) {
+            return NOT_TRACKED;
+        }
+        return metrics.getEncodeAllocation().getMean();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getDecodeAllocatedBytesMean()
+     */
+    @Override
+    public double getDecodeAllocatedBytesMean() {
+        if (!metrics.isTrackingAllocations()) {
+            return NOT_TRACKED;
+        }
+        return metrics.getDecodeAllocation().getMean();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getDecodeAllocatedBytesP99()
+     */
+    @Override
+    public long getDecodeAllocatedBytesP99() {
+        if (!metrics.isTrackingAllocations()) {
+            return NOT_TRACKED;
+        }
+        return metrics.getDecodeAllocation().getValueAtPercentile(P99);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getEncodeAllocatedBytesByStage()
+     */
+    @Override
+    public Map<String, Long> getEncodeAllocatedBytesByStage() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        if (metrics.isTrackingAllocations()) {
+            for (Stage stage : Stage.values()) {
+                result.put(stage.name(), meanOf(metrics.getEncodeAllocation(stage)));
+            }
+        }
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#
+     * getDecodeAllocatedBytesByStage()
+     */
+    @Override
+    public Map<String, Long> getDecodeAllocatedBytesByStage() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        if (metrics.isTrackingAllocations()) {
+            for (Stage stage : Stage.values()) {
+                result.put(stage.name(), meanOf(metrics.getDecodeAllocation(stage)));
+            }
+        }
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#resetCounters()
+     */
+    @Override
+    public void resetCounters() {
+        metrics.reset();
+        if (encodeCache != null) {
+            encodeCache.resetStatistics();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.management.CodecStatsMXBean#dumpSnapshot()
+     */
+    @Override
+    public String dumpSnapshot() {
+        StringBuilder snapshot = new StringBuilder();
+        String lineSeparator = System.lineSeparator();
+
+        snapshot.append(objectName).append(lineSeparator);
+        snapshot.append("encodes=").append(getEncodeCount()).append(' ').append(getEncodeCountByKeyVersion())
+                .append(lineSeparator);
+        snapshot.append("decodes=").append(getDecodeCount()).append(' ').append(getDecodeCountByKeyVersion())
+                .append(lineSeparator);
+        snapshot.append("failures=").append(getFailureCount()).append(' ').append(getFailureCounts())
+                .append(lineSeparator);
+        snapshot.append(String.format("decodeLatencyNanos p50=%d p99=%d p999=%d max=%d mean=%.0f",
+                getDecodeLatencyP50Nanos(), getDecodeLatencyP99Nanos(), getDecodeLatencyP999Nanos(),
+                getDecodeLatencyMaxNanos(), metrics.getDecodeLatency().getMean())).append(lineSeparator);
+        snapshot.append(String.format("encodeLatencyNanos p99=%d max=%d", getEncodeLatencyP99Nanos(),
+                metrics.getEncodeLatency().getMax())).append(lineSeparator);
+        snapshot.append(String.format("encodeCacheHitRatio=%.3f", getEncodeCacheHitRatio()));
+        if (metrics.isTrackingAllocations()) {
+            snapshot.append(lineSeparator);
+            snapshot.append(String.format("encodeAllocatedBytes mean=%.0f %s", getEncodeAllocatedBytesMean(),
+                    getEncodeAllocatedBytesByStage())).append(lineSeparator);
+            snapshot.append(String.format("decodeAllocatedBytes mean=%.0f p99=%d %s", getDecodeAllocatedBytesMean(),
+                    getDecodeAllocatedBytesP99(), getDecodeAllocatedBytesByStage()));
+        }
+
+        return snapshot.toString();
+    }
+
+    /**
+     * Gets the rounded mean of a histogram.
+     *
+     * @param histogram
+     *            the histogram
+     * @return the rounded mean
+     */
+    private static long meanOf(LogHistogram histogram) {
+        return Math.round(histogram.getMean());
+    }
+
+    /**
+     * Converts the key version counts into open type friendly ones.
+     *
+     * @param counts
+     *            the count by key version
+     * @return the count by key version string
+     */
+    private static Map<String, Long> byKeyVersion(Map<Integer, Long> counts) {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            result.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        return result;
+    }
+}
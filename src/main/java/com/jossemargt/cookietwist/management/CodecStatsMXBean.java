@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.management;
+
+import java.util.Map;
+
+/**
+ * The Interface CodecStatsMXBean describes the JMX view of a single
+ * {@link com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec}. Every
+ * attribute is computed on read from lock-free counters, so polling it does not
+ * slow down the codec.
+ */
+public interface CodecStatsMXBean {
+
+    /**
+     * Gets the codec signature algorithm.
+     *
+     * @return the algorithm name
+     */
+    String getAlgorithm();
+
+    /**
+     * Gets the codec key ring identifier, which never derives from the keys.
+     *
+     * @return the key ring identifier
+     */
+    String getKeyRingId();
+
+    /**
+     * Gets the total encode count.
+     *
+     * @return the encode count
+     */
+    long getEncodeCount();
+
+    /**
+     * Gets the total successful decode count.
+     *
+     * @return the decode count
+     */
+    long getDecodeCount();
+
+    /**
+     * Gets the total failed decode count.
+     *
+     * @return the failure count
+     */
+    long getFailureCount();
+
+    /**
+     * Gets the failed decode count by reason.
+     *
+     * @return the failure count by reason name
+     */
+    Map<String, Long> getFailureCounts();
+
+    /**
+     * Gets the encode count by secret key version.
+     *
+     * @return the encode count by key version
+     */
+    Map<String, Long> getEncodeCountByKeyVersion();
+
+    /**
+     * Gets the successful decode, that is verify, count by secret key version.
+     *
+     * @return the decode count by key version
+     */
+    Map<String, Long> getDecodeCountByKeyVersion();
+
+    /**
+     * Gets the decode latency median.
+     *
+     * @return the p50 decode latency in nanoseconds
+     */
+    long getDecodeLatencyP50Nanos();
+
+    /**
+     * Gets the decode latency 99th percentile.
+     *
+     * @return the p99 decode latency in nanoseconds
+     */
+    long getDecodeLatencyP99Nanos();
+
+    /**
+     * Gets the decode latency 99.9th percentile.
+     *
+     * @return the p999 decode latency in nanoseconds
+     */
+    long getDecodeLatencyP999Nanos();
+
+    /**
+     * Gets the highest decode latency.
+     *
+     * @return the max decode latency in nanoseconds
+     */
+    long getDecodeLatencyMaxNanos();
+
+    /**
+     * Gets the encode latency 99th percentile.
+     *
+     * @return the p99 encode latency in nanoseconds
+     */
+    long getEncodeLatencyP99Nanos();
+
+    /**
+     * Gets the encode cache hit ratio.
+     *
+     * @return the ratio between 0 and 1, or -1 when the cache is disabled
+     */
+    double getEncodeCacheHitRatio();
+
+    /**
+     * Gets the mean bytes allocated by an encode.
+     *
+     * @return the mean allocated bytes, or -1 when allocations are not tracked
+     */
+    double getEncodeAllocatedBytesMean();
+
+    /**
+     * Gets the mean bytes allocated by a decode, failures included.
+     *
+     * @return the mean allocated bytes, or -1 when allocations are not tracked
+     */
+    double getDecodeAllocatedBytesMean();
+
+    /**
+     * Gets the decode allocated bytes 99th percentile.
+     *
+     * @return the p99 allocated bytes, or -1 when allocations are not tracked
+     */
+    long getDecodeAllocatedBytesP99();
+
+    /**
+     * Gets the mean bytes allocated by an encode during each stage.
+     *
+     * @return the mean allocated bytes by stage name, empty when allocations are
+     *         not tracked
+     */
+    Map<String, Long> getEncodeAllocatedBytesByStage();
+
+    /**
+     * Gets the mean bytes allocated by a decode during each stage.
+     *
+     * @return the mean allocated bytes by stage name, empty when allocations are
+     *         not tracked
+     */
+    Map<String, Long> getDecodeAllocatedBytesByStage();
+
+    /**
+     * Resets every counter, histogram and cache statistic.
+     */
+    void resetCounters();
+
+    /**
+     * Dumps every statistic as human readable text.
+     *
+     * @return the statistics snapshot
+     */
+    String dumpSnapshot();
+}
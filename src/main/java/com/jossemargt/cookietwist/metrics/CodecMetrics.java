@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+
+/**
+ * The Interface CodecMetrics receives the outcome of every encode and decode
+ * done by a {@link com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec}.
+ * Implementations are called from the codec hot path by many threads at once,
+ * so they must be thread-safe and should not block.
+ */
+public interface CodecMetrics {
+
+    /**
+     * Checks if the metrics are recorded at all. When false the codec skips
+     * taking any timing.
+     *
+     * @return true, if enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Records a successful encode.
+     *
+     * @param keyVersion
+     *            the secret key version used to sign the value
+     * @param size
+     *            the signed value length
+     * @param nanos
+     *            the elapsed time in nanoseconds
+     */
+    void recordEncode(int keyVersion, int size, long nanos);
+
+    /**
+     * Records a successful decode.
+     *
+     * @param keyVersion
+     *            the secret key version that verified the value
+     * @param size
+     *            the signed value length
+     * @param nanos
+     *            the elapsed time in nanoseconds
+     */
+    void recordDecode(int keyVersion, int size, long nanos);
+
+    /**
+     * Records a failed decode.
+     *
+     * @param reason
+     *            the failure classification
+     * @param size
+     *            the signed value length
+     * @param nanos
+     *            the elapsed time in nanoseconds
+     */
+    void recordFailure(FailureReason reason, int size, long nanos);
+
+    /**
+     * Checks if the allocated bytes of every operation are recorded too. When
+     * true the codec counts the allocations of each operation by {@link Stage}
+     * and reports them through {@link #recordEncodeAllocations(StageClock)} and
+     * {@link #recordDecodeAllocations(StageClock)}, which costs a few extra
+     * thread bean reads per operation.
+     *
+     * @return true, if tracking allocations
+     */
+    default boolean isTrackingAllocations() {
+        return false;
+    }
+
+    /**
+     * Records the bytes allocated by an encode.
+     *
+     * @param clock
+     *            the encode stage clock, counting allocations
+     */
+    default void recordEncodeAllocations(StageClock clock) {
+        // Allocations are not tracked by default
+    }
+
+    /**
+     * Records the bytes allocated by a decode, successful or not.
+     *
+     * @param clock
+     *            the decode stage clock, counting allocations
+     */
+    default void recordDecodeAllocations(StageClock clock) {
+        // Allocations are not tracked by default
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Class KeyUsageTracker tracks how each secret key version is used by a
+ * {@link com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec}:
+ * successful verifications, encodes, when each was last seen, the oldest and
+ * newest verified timestamps and a rolling rate. Recording is lock-free.
+ *
+ * <p>
+ * It also tells which key versions can be retired, given the maximum age the
+ * application accepts for a signed value. A key version is retirable once the
+ * tracker has observed the codec for a whole max-age, nothing was signed with
+ * it during the last max-age and no value issued within the last max-age was
+ * verified with it. The answer only holds if the application rejects older
+ * values and every encode goes through the tracked codec.
+ */
+public final class KeyUsageTracker {
+
+    /** The Constant DEFAULT_WINDOW holds the default rolling rate window. */
+    public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+
+    /** The maximum accepted signed value age, in seconds. */
+    private final long maxAgeSeconds;
+
+    /** The rolling rate window length, in seconds. */
+    private final int windowSeconds;
+
+    /** The clock that tells the current time. */
+    private final Clock clock;
+
+    /** The epoch second the tracking started. */
+    private final long startedAt;
+
+    /** The usage by key version. */
+    private final ConcurrentMap<Integer, KeyVersionUsage> usages;
+
+    /**
+     * Instantiates a new key usage tracker with the default rolling rate window.
+     *
+     * @param maxAge
+     *            the maximum accepted signed value age
+     * @throws IllegalArgumentException
+     *             when the max-age is not positive
+     */
+    public KeyUsageTracker(Duration maxAge) {
+        this(maxAge, DEFAULT_WINDOW, Clock.systemUTC());
+    }
+
+    /**
+     * Instantiates a new key usage tracker.
+     *
+     * @param maxAge
+     *            the maximum accepted signed value age
+     * @param window
+     *            the rolling rate window, at least one second long
+     * @param clock
+     *            the clock that tells the current time
+     * @throws IllegalArgumentException
+     *             when the max-age is not positive or the window is shorter
+     *             than a second
+     */
+    public KeyUsageTracker(Duration maxAge, Duration window, Clock clock) {
+        if (maxAge.isNegative() || maxAge.isZero()) {
+            throw new IllegalArgumentException("The max-age must be positive");
+        }
+        if (window.getSeconds() < 1 || window.getSeconds() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The rate window must last between a second and Integer.MAX_VALUE"
+                    + " seconds");
+        }
+
+        this.maxAgeSeconds = maxAge.getSeconds();
+        this.windowSeconds = (int) window.getSeconds();
+        this.clock = clock;
+        this.startedAt = now();
+        this.usages = new ConcurrentHashMap<Integer, KeyVersionUsage>();
+    }
+
+    /**
+     * Records a successful verification.
+     *
+     * @param keyVersion
+     *            the secret key version that verified the value
+     * @param issuedAt
+     *            the verified value timestamp, in epoch seconds
+     */
+    public void recordVerification(int keyVersion, long issuedAt) {
+        usageFor(keyVersion).recordVerification(now(), issuedAt);
+    }
+
+    /**
+     * Records an encode.
+     *
+     * @param keyVersion
+     *            the secret key version used to sign the value
+     */
+    public void recordEncode(int keyVersion) {
+        usageFor(keyVersion).recordEncode(now());
+    }
+
+    /**
+     * Gets the usage of the given key version.
+     *
+     * @param keyVersion
+     *            the secret key version
+     * @return the key version usage or null when it was never used
+     */
+    public KeyVersionUsage getUsage(int keyVersion) {
+        return usages.get(keyVersion);
+    }
+
+    /**
+     * Gets the usage of every key version used so far.
+     *
+     * @return the usage by key version, sorted by version
+     */
+    public Map<Integer, KeyVersionUsage> getUsages() {
+        return Collections.unmodifiableMap(new TreeMap<Integer, KeyVersionUsage>(usages));
+    }
+
+    /**
+     * Gets the verification and encode rate of the given key version over the
+     * rolling window.
+     *
+     * @param keyVersion
+     *            the secret key version
+     * @return the uses per second
+     */
+    public double getRate(int keyVersion) {
+        KeyVersionUsage usage = usages.get(keyVersion);
+
+        if (usage == null) {
+            return 0;
+        }
+
+        return usage.getRate(now());
+    }
+
+    /**
+     * Checks if the given key version can be retired.
+     *
+     * @param keyVersion
+     *            the secret key version
+     * @return true, if no valid signed value can depend on it
+     */
+    public boolean isRetirable(int keyVersion) {
+        long now = now();
+
+        if (now - startedAt < maxAgeSeconds) {
+            return false;
+        }
+
+        KeyVersionUsage usage = usages.get(keyVersion);
+
+        if (usage == null) {
+            return true;
+        }
+
+        return usage.getLastEncodedAt() + maxAgeSeconds <= now && usage.getNewestIssuedAt() + maxAgeSeconds <= now;
+    }
+
+    /**
+     * Gets the key versions that can be retired among the first given ones, as
+     * in the V2 codec secret key list.
+     *
+     * @param keyVersionCount
+     *            the amount of configured key versions
+     * @return the retirable key versions, in ascending order
+     */
+    public List<Integer> getRetirableVersions(int keyVersionCount) {
+        List<Integer> retirable = new ArrayList<Integer>();
+
+        for (int keyVersion = 0; keyVersion < keyVersionCount; keyVersion++) {
+            if (isRetirable(keyVersion)) {
+                retirable.add(keyVersion);
+            }
+        }
+
+        return retirable;
+    }
+
+    /**
+     * Gets the maximum accepted signed value age.
+     *
+     * @return the max-age
+     */
+    public Duration getMaxAge() {
+        return Duration.ofSeconds(maxAgeSeconds);
+    }
+
+    /**
+     * Gets the usage of the given key version, creating it on its first use.
+     *
+     * @param keyVersion
+     *            the secret key version
+     * @return the key version usage
+     */
+    private KeyVersionUsage usageFor(int keyVersion) {
+        KeyVersionUsage usage = usages.get(keyVersion);
+
+        if (usage == null) {
+            usage = usages.computeIfAbsent(keyVersion, version -> new KeyVersionUsage(version, windowSeconds));
+        }
+
+        return usage;
+    }
+
+    /**
+     * Gets the current time.
+     *
+     * @return the epoch second
+     */
+    private long now() {
+        return clock.instant().getEpochSecond();
+    }
+}
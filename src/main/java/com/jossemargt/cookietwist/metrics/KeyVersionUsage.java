@@ -0,0 +1,228 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Class KeyVersionUsage holds the live usage of a single secret key version
+ * tracked by a {@link KeyUsageTracker}. Every time is an epoch second, the same
+ * unit as the Tornado secure cookie timestamp, and {@link #NEVER} stands for an
+ * event that has not happened yet.
+ *
+ * <p>
+ * The rolling rate counts uses in one slot per second of the window. Slots are
+ * recycled without locking, so a use racing with the recycling of its slot may
+ * be lost; the rate is an estimate while the counters are exact.
+ */
+public final class KeyVersionUsage {
+
+    /** The Constant NEVER stands for an event that has not happened yet. */
+    public static final long NEVER = 0;
+
+    /** The key version. */
+    private final int keyVersion;
+
+    /** The successful verification count. */
+    private final LongAdder verifications;
+
+    /** The encode count. */
+    private final LongAdder encodes;
+
+    /** The last successful verification time. */
+    private final LongAccumulator lastVerifiedAt;
+
+    /** The last encode time. */
+    private final LongAccumulator lastEncodedAt;
+
+    /** The oldest issue timestamp among the verified values. */
+    private final LongAccumulator oldestIssuedAt;
+
+    /** The newest issue timestamp among the verified values. */
+    private final LongAccumulator newestIssuedAt;
+
+    /** The epoch second each rate slot is counting. */
+    private final AtomicLongArray slotSeconds;
+
+    /** The use count of each rate slot. */
+    private final AtomicLongArray slotCounts;
+
+    /**
+     * Instantiates a new key version usage.
+     *
+     * @param keyVersion
+     *            the key version
+     * @param windowSeconds
+     *            the rolling rate window length in seconds
+     */
+    KeyVersionUsage(int keyVersion, int windowSeconds) {
+        this.keyVersion = keyVersion;
+        this.verifications = new LongAdder();
+        this.encodes = new LongAdder();
+        this.lastVerifiedAt = new LongAccumulator(Math::max, NEVER);
+        this.lastEncodedAt = new LongAccumulator(Math::max, NEVER);
+        this.oldestIssuedAt = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        this.newestIssuedAt = new LongAccumulator(Math::max, NEVER);
+        this.slotSeconds = new AtomicLongArray(windowSeconds);
+        this.slotCounts = new AtomicLongArray(windowSeconds);
+    }
+
+    /**
+     * Records a successful verification.
+     *
+     * @param now
+     *            the current epoch second
+     * @param issuedAt
+     *            the verified value timestamp
+     */
+    void recordVerification(long now, long issuedAt) {
+        verifications.increment();
+        lastVerifiedAt.accumulate(now);
+        oldestIssuedAt.accumulate(issuedAt);
+        newestIssuedAt.accumulate(issuedAt);
+        countUse(now);
+    }
+
+    /**
+     * Records an encode.
+     *
+     * @param now
+     *            the current epoch second
+     */
+    void recordEncode(long now) {
+        encodes.increment();
+        lastEncodedAt.accumulate(now);
+        countUse(now);
+    }
+
+    /**
+     * Gets the key version.
+     *
+     * @return the key version
+     */
+    public int getKeyVersion() {
+        return keyVersion;
+    }
+
+    /**
+     * Gets the successful verification count.
+     *
+     * @return the verification count
+     */
+    public long getVerificationCount() {
+        return verifications.sum();
+    }
+
+    /**
+     * Gets the encode count.
+     *
+     * @return the encode count
+     */
+    public long getEncodeCount() {
+        return encodes.sum();
+    }
+
+    /**
+     * Gets the last successful verification time.
+     *
+     * @return the epoch second or {@link #NEVER}
+     */
+    public long getLastVerifiedAt() {
+        return lastVerifiedAt.get();
+    }
+
+    /**
+     * Gets the last encode time.
+     *
+     * @return the epoch second or {@link #NEVER}
+     */
+    public long getLastEncodedAt() {
+        return lastEncodedAt.get();
+    }
+
+    /**
+     * Gets the oldest issue timestamp among the verified values.
+     *
+     * @return the epoch second or {@link #NEVER}
+     */
+    public long getOldestIssuedAt() {
+        long oldest = oldestIssuedAt.get();
+
+        if (oldest == Long.MAX_VALUE) {
+            return NEVER;
+        }
+
+        return oldest;
+    }
+
+    /**
+     * Gets the newest issue timestamp among the verified values.
+     *
+     * @return the epoch second or {@link #NEVER}
+     */
+    public long getNewestIssuedAt() {
+        return newestIssuedAt.get();
+    }
+
+    /**
+     * Gets the verification and encode rate over the rolling window ending at
+     * the given second.
+     *
+     * @param now
+     *            the current epoch second
+     * @return the uses per second
+     */
+    double getRate(long now) {
+        long total = 0;
+
+        for (int slot = 0; slot < slotSeconds.length(); slot++) {
+            long second = slotSeconds.get(slot);
+            if (second > now - slotSeconds.length() && second <= now) {
+                total += slotCounts.get(slot);
+            }
+        }
+
+        return (double) total / slotSeconds.length();
+    }
+
+    /**
+     * Counts a use in the rate slot of the given second, recycling the slot when
+     * it still holds an older second.
+     *
+     * @param now
+     *            the current epoch second
+     */
+    private void countUse(long now) {
+        int slot = (int) (now % slotSeconds.length());
+        long second = slotSeconds.get(slot);
+
+        if (second != now && slotSeconds.compareAndSet(slot, second, now)) {
+            slotCounts.set(slot, 0);
+        }
+
+        slotCounts.incrementAndGet(slot);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Class LogHistogram counts non-negative long values, like latencies in
+ * nanoseconds or sizes in bytes, into logarithmic buckets.
+ *
+ * <p>
+ * Every power of two range is split into {@value #SUB_BUCKET_COUNT} linear
+ * sub-buckets, so any reported percentile is within 12.5% of the recorded
+ * value while the whole long range fits in a few hundred counters. Recording
+ * is lock-free and allocation free; reads walk the counters without blocking
+ * the writers, so they may miss the values being recorded meanwhile.
+ */
+public final class LogHistogram {
+
+    /** The Constant SUB_BUCKET_BITS holds the bits used to pick a sub-bucket. */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /** The Constant SUB_BUCKET_COUNT holds the sub-buckets per power of two. */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /** The Constant SUB_BUCKET_MASK selects the sub-bucket bits. */
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    /** The Constant HIGHEST_BIT holds the highest non sign bit of a long. */
+    private static final int HIGHEST_BIT = Long.SIZE - 2;
+
+    /** The Constant BUCKET_COUNT holds the amount of buckets. */
+    private static final int BUCKET_COUNT = bucketIndex(Long.MAX_VALUE) + 1;
+
+    /** The Constant MAX_PERCENTILE holds the highest percentile. */
+    private static final double MAX_PERCENTILE = 100.0;
+
+    /** The recorded value count by bucket. */
+    private final AtomicLongArray counts;
+
+    /** The sum of the recorded values. */
+    private final LongAdder sum;
+
+    /** The highest recorded value. */
+    private final LongAccumulator max;
+
+    /**
+     * Instantiates a new empty histogram.
+     */
+    public LogHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Records a value, negative ones are recorded as zero.
+     *
+     * @param value
+     *            the value
+     */
+    public void record(long value) {
+        long safeValue = Math.max(value, 0);
+        counts.incrementAndGet(bucketIndex(safeValue));
+        sum.add(safeValue);
+        max.accumulate(safeValue);
+    }
+
+    /**
+     * Adds every value recorded by another histogram, so workers can record
+     * into their own histogram and merge them once done.
+     *
+     * @param other
+     *            the histogram to add
+     */
+    public void add(LogHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count > 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        sum.add(other.sum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    /**
+     * Gets the amount of recorded values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Gets the recorded values mean.
+     *
+     * @return the mean or zero when empty
+     */
+    public double getMean() {
+        long count = getCount();
+
+        if (count == 0) {
+            return 0;
+        }
+
+        return (double) sum.sum() / count;
+    }
+
+    /**
+     * Gets the highest recorded value.
+     *
+     * @return the max value or zero when empty
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the value below which the given percentage of the recorded values
+     * fall, reported as the upper bound of its bucket.
+     *
+     * @param percentile
+     *            the percentile, between 0 and 100
+     * @return the value or zero when empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        double bounded = Math.min(Math.max(percentile, 0), MAX_PERCENTILE);
+        long rank = Math.max(1, (long) Math.ceil(bounded / MAX_PERCENTILE * total));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Clears every recorded value.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * Gets the bucket index of a non-negative value.
+     *
+     * @param value
+     *            the value
+     * @return the bucket index
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int exponent = HIGHEST_BIT + 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Gets the highest value that falls in the given bucket.
+     *
+     * @param index
+     *            the bucket index
+     * @return the bucket upper bound
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+
+/**
+ * The Class NoopCodecMetrics discards every measurement. It is the codec
+ * default, which then does not even read the clock.
+ */
+public final class NoopCodecMetrics implements CodecMetrics {
+
+    /** The Constant INSTANCE holds the shared no-op metrics. */
+    public static final NoopCodecMetrics INSTANCE = new NoopCodecMetrics();
+
+    /**
+     * Instantiates a new no-op codec metrics.
+     */
+    private NoopCodecMetrics() {
+        // Use the shared INSTANCE
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.metrics.CodecMetrics#isEnabled()
+     */
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.metrics.CodecMetrics#recordEncode(int, int,
+     * long)
+     */
+    @Override
+    public void recordEncode(int keyVersion, int size, long nanos) {
+        // Discarded
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.metrics.CodecMetrics#recordDecode(int, int,
+     * long)
+     */
+    @Override
+    public void recordDecode(int keyVersion, int size, long nanos) {
+        // Discarded
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.metrics.CodecMetrics#recordFailure(com.
+     * jossemargt.cookietwist.exception.FailureReason, int, long)
+     */
+    @Override
+    public void recordFailure(FailureReason reason, int size, long nanos) {
+        // Discarded
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+/**
+ * The Enum Stage lists the consecutive steps of a codec operation that can be
+ * timed separately by a {@link StageClock}.
+ */
+public enum Stage {
+
+    /** The signed value split and field validation, base64 decoding excluded. */
+    PARSE,
+    /** The signed value field base64 decoding. */
+    BASE64,
+    /** The signed fields encoding into bytes for the HMAC. */
+    BYTES,
+    /** The HMAC computation, the wait for the shared {@link javax.crypto.Mac} included. */
+    HMAC,
+    /** The HMAC hexadecimal, or base64url for the compact format, formatting. */
+    HEX,
+    /** The computed and received signatures comparison. */
+    COMPARE,
+    /** The signed value serialization. */
+    SERIALIZE,
+    /** The plain value deflating before signing, or inflating after verification. */
+    COMPRESSION
+
+}
@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+/**
+ * The Class StageClock splits the elapsed time of a single codec operation
+ * among its {@link Stage}s. Every {@link #lap(Stage)} charges the time passed
+ * since the previous lap to the given stage, so stages are consecutive
+ * segments and a stage may be charged more than once.
+ *
+ * <p>
+ * A clock may also count the bytes the thread allocates during each stage,
+ * when the JVM supports it; see {@link #isCountingAllocations()}.
+ *
+ * <p>
+ * Instances are not thread-safe; each one belongs to the thread running the
+ * operation and is only created while something is observing it.
+ */
+public final class StageClock {
+
+    /** The Constant STAGE_COUNT holds the amount of stages. */
+    private static final int STAGE_COUNT = Stage.values().length;
+
+    /** The elapsed nanoseconds by stage ordinal. */
+    private final long[] nanos;
+
+    /** The allocated bytes by stage ordinal, null when not counted. */
+    private final long[] bytes;
+
+    /** The time of the previous lap. */
+    private long mark;
+
+    /** The thread allocated bytes at the previous lap. */
+    private long allocationMark;
+
+    /**
+     * Instantiates a new stage clock, starting the first lap.
+     */
+    public StageClock() {
+        this(false);
+    }
+
+    /**
+     * Instantiates a new stage clock, starting the first lap.
+     *
+     * @param countAllocations
+     *            whether to count the bytes allocated by stage, ignored when the
+     *            JVM does not support it
+     */
+    public StageClock(boolean countAllocations) {
+        this.nanos = new long[STAGE_COUNT];
+        if (countAllocations && ThreadAllocations.isSupported()) {
+            this.bytes = new long[STAGE_COUNT];
+        } else {
+            this.bytes = null;
+        }
+        mark();
+    }
+
+    /**
+     * Starts a new lap without charging the time passed to any stage.
+     */
+    public void mark() {
+        if (bytes != null) {
+            allocationMark = ThreadAllocations.getAllocatedBytes();
+        }
+        mark = System.nanoTime();
+    }
+
+    /**
+     * Charges the time passed since the previous lap to the given stage and
+     * starts a new lap.
+     *
+     * @param stage
+     *            the stage that just finished
+     */
+    public void lap(Stage stage) {
+        long now = System.nanoTime();
+        nanos[stage.ordinal()] += now - mark;
+
+        if (bytes != null) {
+            long allocated = ThreadAllocations.getAllocatedBytes();
+            bytes[stage.ordinal()] += Math.max(0, allocated - allocationMark - ThreadAllocations.getReadOverhead());
+            allocationMark = allocated;
+            now = System.nanoTime();
+        }
+
+        mark = now;
+    }
+
+    /**
+     * Gets the time charged to the given stage.
+     *
+     * @param stage
+     *            the stage
+     * @return the elapsed nanoseconds
+     */
+    public long get(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    /**
+     * Gets the time charged to every stage.
+     *
+     * @return the elapsed nanoseconds
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long stageNanos : nanos) {
+            total += stageNanos;
+        }
+        return total;
+    }
+
+    /**
+     * Checks if the clock counts the allocated bytes by stage.
+     *
+     * @return true, if counting allocations
+     */
+    public boolean isCountingAllocations() {
+        return bytes != null;
+    }
+
+    /**
+     * Gets the bytes allocated during the given stage.
+     *
+     * @param stage
+     *            the stage
+     * @return the allocated bytes, zero when not counting allocations
+     */
+    public long getAllocatedBytes(Stage stage) {
+        if (bytes == null) {
+            return 0;
+        }
+        return bytes[stage.ordinal()];
+    }
+
+    /**
+     * Gets the bytes allocated during every stage.
+     *
+     * @return the allocated bytes, zero when not counting allocations
+     */
+    public long getTotalAllocatedBytes() {
+        long total = 0;
+        if (bytes != null) {
+            for (long stageBytes : bytes) {
+                total += stageBytes;
+            }
+        }
+        return total;
+    }
+}
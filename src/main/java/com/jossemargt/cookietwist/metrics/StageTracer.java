@@ -0,0 +1,360 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The Class StageTracer samples one out of every N codec operations and keeps
+ * their per {@link Stage} timing, so latency can be attributed to parsing,
+ * base64 decoding, byte encoding, the HMAC, hex formatting and so on without a
+ * profiler attached.
+ *
+ * <p>
+ * Samples are written into a fixed set of ring buffers, at most twice the
+ * available processors, each one picked by a hash of the writing thread id and
+ * created on its first sample. Threads only contend on a ring when their hashes
+ * collide, and the memory held does not grow with the amount of threads, so
+ * short lived threads, such as the virtual threads of the default executor,
+ * leave nothing behind. Reading any summary drains every ring into
+ * {@link LogHistogram} instances first; samples overwritten before a drain are
+ * dropped, which only thins the sample further.
+ */
+public final class StageTracer {
+
+    /** The Constant DEFAULT_RING_CAPACITY holds the default samples kept per ring. */
+    public static final int DEFAULT_RING_CAPACITY = 1024;
+
+    /** The Constant STAGES holds every stage. */
+    private static final Stage[] STAGES = Stage.values();
+
+    /** The Constant KIND_SLOT holds the sample slot of the operation kind. */
+    private static final int KIND_SLOT = STAGES.length;
+
+    /** The Constant SAMPLE_LENGTH holds the slots a sample takes in a ring. */
+    private static final int SAMPLE_LENGTH = STAGES.length + 1;
+
+    /** The Constant ENCODE_KIND flags an encode sample. */
+    private static final long ENCODE_KIND = 0;
+
+    /** The Constant DECODE_KIND flags a decode sample. */
+    private static final long DECODE_KIND = 1;
+
+    /** The Constant HASH_MULTIPLIER spreads sequential thread ids among the rings. */
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    /** The Constant HASH_SHIFT folds the high hash bits into the ring index. */
+    private static final int HASH_SHIFT = 16;
+
+    /** The sample one out of this amount of operations. */
+    private final int sampleRate;
+
+    /** The samples kept per ring between drains. */
+    private final int ringCapacity;
+
+    /** The rings, created on their first sample, a power of two of them. */
+    private final AtomicReferenceArray<Ring> rings;
+
+    /** The sampled time by stage, in nanoseconds. */
+    private final LogHistogram[] stageLatency;
+
+    /** The sampled encode time, in nanoseconds. */
+    private final LogHistogram encodeLatency;
+
+    /** The sampled decode time, in nanoseconds. */
+    private final LogHistogram decodeLatency;
+
+    /**
+     * Instantiates a new stage tracer with the default ring capacity.
+     *
+     * @param sampleRate
+     *            the sample one out of this amount of operations, 1 samples all
+     * @throws IllegalArgumentException
+     *             when the sample rate is not positive
+     */
+    public StageTracer(int sampleRate) {
+        this(sampleRate, DEFAULT_RING_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new stage tracer.
+     *
+     * @param sampleRate
+     *            the sample one out of this amount of operations, 1 samples all
+     * @param ringCapacity
+     *            the samples kept per ring between drains
+     * @throws IllegalArgumentException
+     *             when the sample rate or the ring capacity are not positive
+     */
+    public StageTracer(int sampleRate, int ringCapacity) {
+        if (sampleRate < 1 || ringCapacity < 1) {
+            throw new IllegalArgumentException("The sample rate and ring capacity must be positive");
+        }
+
+        this.sampleRate = sampleRate;
+        this.ringCapacity = ringCapacity;
+        this.rings = new AtomicReferenceArray<Ring>(Integer.highestOneBit(Runtime.getRuntime().availableProcessors())
+                << 1);
+        this.stageLatency = new LogHistogram[STAGES.length];
+        for (int i = 0; i < stageLatency.length; i++) {
+            stageLatency[i] = new LogHistogram();
+        }
+        this.encodeLatency = new LogHistogram();
+        this.decodeLatency = new LogHistogram();
+    }
+
+    /**
+     * Decides whether the operation about to start is sampled.
+     *
+     * @return true, if the operation should be timed and recorded
+     */
+    public boolean shouldSample() {
+        return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+    /**
+     * Records a sampled encode.
+     *
+     * @param clock
+     *            the encode stage clock
+     */
+    public void recordEncode(StageClock clock) {
+        currentRing().write(ENCODE_KIND, clock);
+    }
+
+    /**
+     * Records a sampled decode, successful or not.
+     *
+     * @param clock
+     *            the decode stage clock
+     */
+    public void recordDecode(StageClock clock) {
+        currentRing().write(DECODE_KIND, clock);
+    }
+
+    /**
+     * Gets the sampled time of the given stage, in nanoseconds. Operations that
+     * skip the stage count with zero.
+     *
+     * @param stage
+     *            the stage
+     * @return the stage latency summary
+     */
+    public LogHistogram getStageLatency(Stage stage) {
+        drain();
+        return stageLatency[stage.ordinal()];
+    }
+
+    /**
+     * Gets the sampled encode time, in nanoseconds.
+     *
+     * @return the encode latency summary
+     */
+    public LogHistogram getEncodeLatency() {
+        drain();
+        return encodeLatency;
+    }
+
+    /**
+     * Gets the sampled decode time, in nanoseconds, failures included.
+     *
+     * @return the decode latency summary
+     */
+    public LogHistogram getDecodeLatency() {
+        drain();
+        return decodeLatency;
+    }
+
+    /**
+     * Gets the sample rate.
+     *
+     * @return the sample one out of this amount of operations
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Moves every sample written so far into the summaries.
+     */
+    public synchronized void drain() {
+        long[] sample = new long[SAMPLE_LENGTH];
+
+        for (int i = 0; i < rings.length(); i++) {
+            Ring ring = rings.get(i);
+            while (ring != null && ring.read(sample)) {
+                summarize(sample);
+            }
+        }
+    }
+
+    /**
+     * Clears every summary, dropping the samples not drained yet.
+     */
+    public synchronized void reset() {
+        drain();
+        for (LogHistogram histogram : stageLatency) {
+            histogram.reset();
+        }
+        encodeLatency.reset();
+        decodeLatency.reset();
+    }
+
+    /**
+     * Records a drained sample into the summaries.
+     *
+     * @param sample
+     *            the stage times followed by the operation kind
+     */
+    private void summarize(long[] sample) {
+        long total = 0;
+
+        for (int i = 0; i < STAGES.length; i++) {
+            stageLatency[i].record(sample[i]);
+            total += sample[i];
+        }
+
+        if (sample[KIND_SLOT] == DECODE_KIND) {
+            decodeLatency.record(total);
+        } else {
+            encodeLatency.record(total);
+        }
+    }
+
+    /**
+     * Gets the amount of rings created so far.
+     *
+     * @return the ring count
+     */
+    int ringCount() {
+        int count = 0;
+        for (int i = 0; i < rings.length(); i++) {
+            if (rings.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the maximum amount of rings.
+     *
+     * @return the ring limit
+     */
+    int maxRings() {
+        return rings.length();
+    }
+
+    /**
+     * Gets the ring of the current thread, creating it on its first sample.
+     *
+     * @return the ring
+     */
+    private Ring currentRing() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> Integer.SIZE)) * HASH_MULTIPLIER;
+        int index = (hash ^ (hash >>> HASH_SHIFT)) & (rings.length() - 1);
+
+        Ring ring = rings.get(index);
+        if (ring == null) {
+            rings.compareAndSet(index, null, new Ring(ringCapacity));
+            ring = rings.get(index);
+        }
+
+        return ring;
+    }
+
+    /**
+     * The Class Ring is a sample buffer shared by the threads whose ids hash to
+     * it. Writers and the reader hold the ring lock, which is only contended
+     * when thread hashes collide or a drain is running.
+     */
+    private static final class Ring {
+
+        /** The samples, one after another. */
+        private final long[] slots;
+
+        /** The capacity in samples. */
+        private final int capacity;
+
+        /** The amount of samples written so far. */
+        private long written;
+
+        /** The amount of samples read so far. */
+        private long read;
+
+        /**
+         * Instantiates a new ring.
+         *
+         * @param capacity
+         *            the capacity in samples
+         */
+        Ring(int capacity) {
+            this.slots = new long[capacity * SAMPLE_LENGTH];
+            this.capacity = capacity;
+        }
+
+        /**
+         * Writes a sample, overwriting the oldest one when the ring is full.
+         *
+         * @param kind
+         *            the operation kind
+         * @param clock
+         *            the operation stage clock
+         */
+        synchronized void write(long kind, StageClock clock) {
+            int offset = (int) (written % capacity) * SAMPLE_LENGTH;
+
+            for (int i = 0; i < STAGES.length; i++) {
+                slots[offset + i] = clock.get(STAGES[i]);
+            }
+            slots[offset + KIND_SLOT] = kind;
+
+            written++;
+            if (written - read > capacity) {
+                read = written - capacity;
+            }
+        }
+
+        /**
+         * Reads the oldest sample not read yet.
+         *
+         * @param sample
+         *            the array receiving the sample
+         * @return true, if a sample was read
+         */
+        synchronized boolean read(long[] sample) {
+            if (read == written) {
+                return false;
+            }
+
+            int offset = (int) (read % capacity) * SAMPLE_LENGTH;
+            System.arraycopy(slots, offset, sample, 0, SAMPLE_LENGTH);
+            read++;
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+
+/**
+ * The Class StripedCodecMetrics is the default {@link CodecMetrics}
+ * implementation. Counters are {@link LongAdder} instances, which stripe their
+ * updates among threads, and latencies and sizes go into lock-free
+ * {@link LogHistogram} instances, so recording never blocks the codec.
+ *
+ * <p>
+ * As an opt-in diagnostic, it can also track the bytes allocated by each
+ * operation and {@link Stage}, to attribute the garbage produced by the
+ * codecs in a live system.
+ */
+public final class StripedCodecMetrics implements CodecMetrics {
+
+    /** The encode count by secret key version. */
+    private final ConcurrentMap<Integer, LongAdder> encodesByKeyVersion;
+
+    /** The successful decode count by secret key version. */
+    private final ConcurrentMap<Integer, LongAdder> decodesByKeyVersion;
+
+    /** The failed decode count by reason. */
+    private final LongAdder[] failures;
+
+    /** The encode latency in nanoseconds. */
+    private final LogHistogram encodeLatency;
+
+    /** The decode latency in nanoseconds, failures included. */
+    private final LogHistogram decodeLatency;
+
+    /** The signed value length of the encoded cookies. */
+    private final LogHistogram encodeSize;
+
+    /** The signed value length of the decoded cookies, failures included. */
+    private final LogHistogram decodeSize;
+
+    /** Whether the allocated bytes are tracked. */
+    private final boolean trackingAllocations;
+
+    /** The bytes allocated by each encode. */
+    private final LogHistogram encodeAllocation;
+
+    /** The bytes allocated by each decode, failures included. */
+    private final LogHistogram decodeAllocation;
+
+    /** The bytes allocated by each encode, by stage ordinal. */
+    private final LogHistogram[] encodeStageAllocation;
+
+    /** The bytes allocated by each decode, by stage ordinal. */
+    private final LogHistogram[] decodeStageAllocation;
+
+    /**
+     * Instantiates a new striped codec metrics.
+     */
+    public StripedCodecMetrics() {
+        this(false);
+    }
+
+    /**
+     * Instantiates a new striped codec metrics.
+     *
+     * @param trackAllocations
+     *            whether to track the bytes allocated by each operation, ignored
+     *            when the JVM cannot count the bytes allocated by a thread
+     */
+    public StripedCodecMetrics(boolean trackAllocations) {
+        this.encodesByKeyVersion = new ConcurrentHashMap<Integer, LongAdder>();
+        this.decodesByKeyVersion = new ConcurrentHashMap<Integer, LongAdder>();
+        this.failures = new LongAdder[FailureReason.values().length];
+        for (int i = 0; i < failures.length; i++) {
+            failures[i] = new LongAdder();
+        }
+        this.encodeLatency = new LogHistogram();
+        this.decodeLatency = new LogHistogram();
+        this.encodeSize = new LogHistogram();
+        this.decodeSize = new LogHistogram();
+        this.trackingAllocations = trackAllocations && ThreadAllocations.isSupported();
+        this.encodeAllocation = new LogHistogram();
+        this.decodeAllocation = new LogHistogram();
+        this.encodeStageAllocation = new LogHistogram[Stage.values().length];
+        this.decodeStageAllocation = new LogHistogram[Stage.values().length];
+        for (int i = 0; i < encodeStageAllocation.length; i++) {
+            encodeStageAllocation[i] = new LogHistogram();
+            decodeStageAllocation[i] = new LogHistogram();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.metrics.CodecMetrics#isEnabled()
+     */
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.metrics.CodecMetrics#recordEncode(int, int,
+     * long)
+     */
+    @Override
+    public void recordEncode(int keyVersion, int size, long nanos) {
+        counterFor(encodesByKeyVersion, keyVersion).increment();
+        encodeLatency.record(nanos);
+        encodeSize.record(size);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.metrics.CodecMetrics#recordDecode(int, int,
+     * long)
+     */
+    @Override
+    public void recordDecode(int keyVersion, int size, long nanos) {
+        counterFor(decodesByKeyVersion, keyVersion).increment();
+        decodeLatency.record(nanos);
+        decodeSize.record(size);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.metrics.CodecMetrics#recordFailure(com.
+     * jossemargt.cookietwist.exception.FailureReason, int, long)
+     */
+    @Override
+    public void recordFailure(FailureReason reason, int size, long nanos) {
+        failures[reason.ordinal()].increment();
+        decodeLatency.record(nanos);
+        decodeSize.record(size);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.metrics.CodecMetrics#isTrackingAllocations()
+     */
+    @Override
+    public boolean isTrackingAllocations() {
+        return trackingAllocations;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.jossemargt.cookietwist.metrics.CodecMetrics#recordEncodeAllocations(com.
+     * jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    public void recordEncodeAllocations(StageClock clock) {
+        recordAllocations(clock, encodeAllocation, encodeStageAllocation);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.jossemargt.cookietwist.metrics.CodecMetrics#recordDecodeAllocations(com.
+     * jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    public void recordDecodeAllocations(StageClock clock) {
+        recordAllocations(clock, decodeAllocation, decodeStageAllocation);
+    }
+
+    /**
+     * Gets the total encode count.
+     *
+     * @return the encode count
+     */
+    public long getEncodeCount() {
+        return sum(encodesByKeyVersion);
+    }
+
+    /**
+     * Gets the total successful decode count.
+     *
+     * @return the decode count
+     */
+    public long getDecodeCount() {
+        return sum(decodesByKeyVersion);
+    }
+
+    /**
+     * Gets the total failed decode count.
+     *
+     * @return the failure count
+     */
+    public long getFailureCount() {
+        long total = 0;
+        for (LongAdder counter : failures) {
+            total += counter.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the failed decode count for the given reason.
+     *
+     * @param reason
+     *            the failure reason
+     * @return the failure count
+     */
+    public long getFailureCount(FailureReason reason) {
+        return failures[reason.ordinal()].sum();
+    }
+
+    /**
+     * Gets the failed decode count by reason.
+     *
+     * @return the failure count by reason, every reason included
+     */
+    public Map<FailureReason, Long> getFailureCounts() {
+        Map<FailureReason, Long> result = new EnumMap<FailureReason, Long>(FailureReason.class);
+        for (FailureReason reason : FailureReason.values()) {
+            result.put(reason, getFailureCount(reason));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Gets the encode count by secret key version.
+     *
+     * @return the encode count by key version, sorted by version
+     */
+    public Map<Integer, Long> getEncodeCountByKeyVersion() {
+        return snapshot(encodesByKeyVersion);
+    }
+
+    /**
+     * Gets the successful decode count by secret key version.
+     *
+     * @return the decode count by key version, sorted by version
+     */
+    public Map<Integer, Long> getDecodeCountByKeyVersion() {
+        return snapshot(decodesByKeyVersion);
+    }
+
+    /**
+     * Gets the encode latency histogram, in nanoseconds.
+     *
+     * @return the encode latency
+     */
+    public LogHistogram getEncodeLatency() {
+        return encodeLatency;
+    }
+
+    /**
+     * Gets the decode latency histogram, in nanoseconds, failures included.
+     *
+     * @return the decode latency
+     */
+    public LogHistogram getDecodeLatency() {
+        return decodeLatency;
+    }
+
+    /**
+     * Gets the encoded signed value length histogram.
+     *
+     * @return the encoded cookie size
+     */
+    public LogHistogram getEncodeSize() {
+        return encodeSize;
+    }
+
+    /**
+     * Gets the decoded signed value length histogram, failures included.
+     *
+     * @return the decoded cookie size
+     */
+    public LogHistogram getDecodeSize() {
+        return decodeSize;
+    }
+
+    /**
+     * Gets the bytes allocated by each encode, empty unless tracking
+     * allocations.
+     *
+     * @return the encode allocation
+     */
+    public LogHistogram getEncodeAllocation() {
+        return encodeAllocation;
+    }
+
+    /**
+     * Gets the bytes allocated by each decode, failures included, empty unless
+     * tracking allocations.
+     *
+     * @return the decode allocation
+     */
+    public LogHistogram getDecodeAllocation() {
+        return decodeAllocation;
+    }
+
+    /**
+     * Gets the bytes allocated by each encode during the given stage, empty
+     * unless tracking allocations.
+     *
+     * @param stage
+     *            the stage
+     * @return the encode stage allocation
+     */
+    public LogHistogram getEncodeAllocation(Stage stage) {
+        return encodeStageAllocation[stage.ordinal()];
+    }
+
+    /**
+     * Gets the bytes allocated by each decode during the given stage, empty
+     * unless tracking allocations.
+     *
+     * @param stage
+     *            the stage
+     * @return the decode stage allocation
+     */
+    public LogHistogram getDecodeAllocation(Stage stage) {
+        return decodeStageAllocation[stage.ordinal()];
+    }
+
+    /**
+     * Clears every counter and histogram.
+     */
+    public void reset() {
+        for (LongAdder counter : encodesByKeyVersion.values()) {
+            counter.reset();
+        }
+        for (LongAdder counter : decodesByKeyVersion.values()) {
+            counter.reset();
+        }
+        for (LongAdder counter : failures) {
+            counter.reset();
+        }
+        encodeLatency.reset();
+        decodeLatency.reset();
+        encodeSize.reset();
+        decodeSize.reset();
+        encodeAllocation.reset();
+        decodeAllocation.reset();
+        for (int i = 0; i < encodeStageAllocation.length; i++) {
+            encodeStageAllocation[i].reset();
+            decodeStageAllocation[i].reset();
+        }
+    }
+
+    /**
+     * Records the allocated bytes of an operation and each of its stages.
+     *
+     * @param clock
+     *            the operation stage clock
+     * @param total
+     *            the operation allocation histogram
+     * @param byStage
+     *            the stage allocation histograms
+     */
+    private static void recordAllocations(StageClock clock, LogHistogram total, LogHistogram[] byStage) {
+        if (!clock.isCountingAllocations()) {
+            return;
+        }
+
+        total.record(clock.getTotalAllocatedBytes());
+        for (Stage stage : Stage.values()) {
+            byStage[stage.ordinal()].record(clock.getAllocatedBytes(stage));
+        }
+    }
+
+    /**
+     * Gets the counter of the given key version, creating it on its first use.
+     *
+     * @param counters
+     *            the counters by key version
+     * @param keyVersion
+     *            the secret key version
+     * @return the counter
+     */
+    private static LongAdder counterFor(ConcurrentMap<Integer, LongAdder> counters, int keyVersion) {
+        LongAdder counter = counters.get(keyVersion);
+
+        if (counter == null) {
+            counter = counters.computeIfAbsent(keyVersion, version -> new LongAdder());
+        }
+
+        return counter;
+    }
+
+    /**
+     * Sums every counter.
+     *
+     * @param counters
+     *            the counters by key version
+     * @return the total
+     */
+    private static long sum(ConcurrentMap<Integer, LongAdder> counters) {
+        long total = 0;
+        for (LongAdder counter : counters.values()) {
+            total += counter.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Copies the counters current values.
+     *
+     * @param counters
+     *            the counters by key version
+     * @return the values by key version, sorted by version
+     */
+    private static Map<Integer, Long> snapshot(ConcurrentMap<Integer, LongAdder> counters) {
+        Map<Integer, Long> result = new TreeMap<Integer, Long>();
+        for (Map.Entry<Integer, LongAdder> entry : counters.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
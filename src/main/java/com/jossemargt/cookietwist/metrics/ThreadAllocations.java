@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * The utility Class ThreadAllocations reads the bytes allocated by the current
+ * thread through the HotSpot <code>com.sun.management.ThreadMXBean</code>
+ * extension, enabling it when needed.
+ *
+ * <p>
+ * On Java 8 every read allocates a couple of small arrays itself; that
+ * overhead is measured once so callers can subtract it, and an idle stage reads
+ * as zero.
+ */
+final class ThreadAllocations {
+
+    /** The Constant CALIBRATION_READS holds the reads used to measure the read overhead. */
+    private static final int CALIBRATION_READS = 16;
+
+    /** The Constant THREADS holds the extended thread bean, null when unsupported. */
+    private static final com.sun.management.ThreadMXBean THREADS = findThreadBean();
+
+    /** The Constant READ_OVERHEAD holds the bytes allocated by a single read. */
+    private static final long READ_OVERHEAD = measureReadOverhead();
+
+    /**
+     * Instantiates a new thread allocations.
+     */
+    private ThreadAllocations() {
+        // Hides this utility class constructor
+    }
+
+    /**
+     * Checks if the running JVM can count the bytes allocated by a thread.
+     *
+     * @return true, if supported
+     */
+    static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * Gets the bytes allocated so far by the current thread, the allocations of
+     * the reads themselves included.
+     *
+     * @return the allocated bytes
+     */
+    static long getAllocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Gets the bytes allocated by a single read, which the difference between
+     * two consecutive readings always includes.
+     *
+     * @return the read overhead in bytes
+     */
+    static long getReadOverhead() {
+        return READ_OVERHEAD;
+    }
+
+    /**
+     * Finds the extended thread bean and enables the allocation counting.
+     *
+     * @return the thread bean or null when unsupported
+     */
+    private static com.sun.management.ThreadMXBean findThreadBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+
+            if (!threads.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            if (!threads.isThreadAllocatedMemoryEnabled()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+
+            return threads;
+        } catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Measures the bytes allocated by a single read, keeping the lowest of
+     * several consecutive reads.
+     *
+     * @return the read overhead in bytes
+     */
+    private static long measureReadOverhead() {
+        if (THREADS == null) {
+            return 0;
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long overhead = Long.MAX_VALUE;
+        long previous = THREADS.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < CALIBRATION_READS; i++) {
+            long current = THREADS.getThreadAllocatedBytes(threadId);
+            overhead = Math.min(overhead, current - previous);
+            previous = current;
+        }
+
+        return overhead;
+    }
+}
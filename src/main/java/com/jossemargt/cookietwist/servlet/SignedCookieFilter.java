@@ -0,0 +1,224 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.servlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.jossemargt.cookietwist.CookiePot;
+import com.jossemargt.cookietwist.CookieSignatureAlgorithm;
+import com.jossemargt.cookietwist.http.CookieHeaderParser;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class SignedCookieFilter wraps every HTTP request into a
+ * {@link SignedCookieRequestWrapper}, so the configured signed cookies are
+ * decoded once per request at most, and only when some layer asks for them. The
+ * HTTP response is wrapped into a {@link SignedCookieResponseWrapper} which
+ * signs and writes the <code>Set-Cookie</code> headers itself.
+ *
+ * <p>
+ * The filter could be registered programmatically with an already built codec,
+ * or declared in the deployment descriptor with the following init parameters:
+ *
+ * <ul>
+ *  <li><code>cookieNames</code>: comma separated signed cookie names (required)
+ *  <li><code>secretKeys</code>: comma separated secret key ring (required)
+ *  <li><code>algorithm</code>: a {@link CookieSignatureAlgorithm} name,
+ *  <code>TORNADO_V2</code> by default
+ * </ul>
+ *
+ * <p>
+ * Codecs created from init parameters are taken from the {@link CookiePot}
+ * shared registry and evicted from it when the filter is destroyed, so an
+ * undeployed web application leaves neither the codec nor its JMX bean behind.
+ * Filters sharing a key ring in the same class loader keep using their codec
+ * instance after another one evicted it.
+ */
+public class SignedCookieFilter implements Filter {
+
+    /** The Constant PARAM_COOKIE_NAMES holds the cookie names init parameter. */
+    public static final String PARAM_COOKIE_NAMES = "cookieNames";
+
+    /** The Constant PARAM_SECRET_KEYS holds the secret key ring init parameter. */
+    public static final String PARAM_SECRET_KEYS = "secretKeys";
+
+    /** The Constant PARAM_ALGORITHM holds the signature algorithm init parameter. */
+    public static final String PARAM_ALGORITHM = "algorithm";
+
+    /** The Constant LIST_SEPARATOR holds the init parameter list separator. */
+    private static final String LIST_SEPARATOR = ",";
+
+    /** The codec used to decode the signed cookies. */
+    private TornadoCookieCodec codec;
+
+    /** The parser precompiled with the signed cookie names. */
+    private CookieHeaderParser parser;
+
+    /** The algorithm of the codec taken from the shared registry, null for a provided codec. */
+    private CookieSignatureAlgorithm sharedAlgorithm;
+
+    /** The key ring of the codec taken from the shared registry, null for a provided codec. */
+    private String[] sharedSecretKeys;
+
+    /**
+     * Instantiates a new signed cookie filter configured through its init
+     * parameters.
+     */
+    public SignedCookieFilter() {
+        this.parser = null;
+    }
+
+    /**
+     * Instantiates a new signed cookie filter with an already built codec.
+     *
+     * @param codec
+     *            the codec used to decode the signed cookies
+     * @param signedNames
+     *            the signed cookie names
+     */
+    public SignedCookieFilter(TornadoCookieCodec codec, String... signedNames) {
+        this.codec = codec;
+        this.parser = SignedCookieRequestWrapper.createParser(new LinkedHashSet<String>(Arrays.asList(signedNames)));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        if (codec != null) {
+            return;
+        }
+
+        List<String> names = splitParameter(filterConfig, PARAM_COOKIE_NAMES);
+        List<String> secretKeys = splitParameter(filterConfig, PARAM_SECRET_KEYS);
+        String algorithm = filterConfig.getInitParameter(PARAM_ALGORITHM);
+        CookieSignatureAlgorithm signature = CookieSignatureAlgorithm.TORNADO_V2;
+
+        try {
+            if (algorithm != null && !algorithm.trim().isEmpty()) {
+                signature = CookieSignatureAlgorithm.valueOf(algorithm.trim());
+            }
+            String[] keyRing = secretKeys.toArray(new String[secretKeys.size()]);
+            codec = CookiePot.getCodecFor(signature, keyRing);
+            sharedAlgorithm = signature;
+            sharedSecretKeys = keyRing;
+        } catch (IllegalArgumentException e) {
+            throw new ServletException("Invalid signed cookie filter configuration", e);
+        }
+
+        parser = SignedCookieRequestWrapper.createParser(new LinkedHashSet<String>(names));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+     * javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        ServletRequest forwardedRequest = request;
+        ServletResponse forwardedResponse = response;
+        SignedCookieResponseWrapper responseWrapper = null;
+
+        if (request instanceof HttpServletRequest && SignedCookieRequestWrapper.from(request) == null) {
+            forwardedRequest = new SignedCookieRequestWrapper((HttpServletRequest) request, codec, parser);
+        }
+
+        if (response instanceof HttpServletResponse && SignedCookieResponseWrapper.from(response) == null) {
+            responseWrapper = new SignedCookieResponseWrapper((HttpServletResponse) response, codec);
+            forwardedResponse = responseWrapper;
+        }
+
+        chain.doFilter(forwardedRequest, forwardedResponse);
+
+        if (responseWrapper != null) {
+            responseWrapper.emitSignedCookies();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.servlet.Filter#destroy()
+     */
+    @Override
+    public void destroy() {
+        if (sharedSecretKeys == null) {
+            return;
+        }
+
+        CookiePot.evictCodec(sharedAlgorithm, sharedSecretKeys);
+        codec = null;
+        sharedAlgorithm = null;
+        sharedSecretKeys = null;
+    }
+
+    /**
+     * Splits a comma separated init parameter, ignoring blank items.
+     *
+     * @param filterConfig
+     *            the filter configuration
+     * @param name
+     *            the init parameter name
+     * @return the parameter items
+     * @throws ServletException
+     *             when the parameter is missing or blank
+     */
+    private static List<String> splitParameter(FilterConfig filterConfig, String name) throws ServletException {
+        String value = filterConfig.getInitParameter(name);
+        List<String> items = new ArrayList<String>();
+
+        if (value != null) {
+            for (String item : value.split(LIST_SEPARATOR)) {
+                if (!item.trim().isEmpty()) {
+                    items.add(item.trim());
+                }
+            }
+        }
+
+        if (items.isEmpty()) {
+            throw new ServletException(String.format("Missing init parameter '%s'", name));
+        }
+
+        return items;
+    }
+}
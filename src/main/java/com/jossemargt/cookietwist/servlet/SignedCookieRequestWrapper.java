@@ -0,0 +1,364 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.servlet;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.http.CookieHeaderParser;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class SignedCookieRequestWrapper decodes the configured signed cookies of
+ * a request lazily, on their first access, and memoizes the outcome for the rest
+ * of the request. No matter how many filters or servlets ask for the same
+ * cookie, its signature is verified at most once per request.
+ *
+ * <p>
+ * The decoded cookies are available through {@link #getSignedCookie(String)}
+ * or as the request attribute {@value #ATTRIBUTE_PREFIX} followed by the cookie
+ * name, which is resolved on read and therefore not listed by
+ * {@link #getAttributeNames()}.
+ *
+ * <p>
+ * The raw <code>Cookie</code> header is scanned once, on the first signed
+ * cookie access, with a {@link CookieHeaderParser} that only materializes the
+ * signed cookie values; the container cookie array is only used when the
+ * request carries no such header.
+ */
+public class SignedCookieRequestWrapper extends HttpServletRequestWrapper {
+
+    /**
+     * The Constant ATTRIBUTE_PREFIX holds the request attribute name prefix used
+     * to expose the decoded cookies.
+     */
+    public static final String ATTRIBUTE_PREFIX = "com.jossemargt.cookietwist.signed.";
+
+    /** The Constant COOKIE_HEADER holds the request cookie header name. */
+    private static final String COOKIE_HEADER = "Cookie";
+
+    /** The codec used to decode the signed cookies. */
+    private final TornadoCookieCodec codec;
+
+    /** The signed cookie names. */
+    private final Set<String> signedNames;
+
+    /** The parser locating the signed cookie raw values. */
+    private final CookieHeaderParser parser;
+
+    /** The decoding outcome by cookie name. */
+    private final ConcurrentMap<String, DecodedCookie> decodedCookies;
+
+    /** The signed cookie raw values, by parser name position. */
+    private volatile String[] rawValues;
+
+    /**
+     * Instantiates a new signed cookie request wrapper.
+     *
+     * @param request
+     *            the wrapped request
+     * @param codec
+     *            the codec used to decode the signed cookies
+     * @param signedNames
+     *            the signed cookie names
+     */
+    public SignedCookieRequestWrapper(HttpServletRequest request, TornadoCookieCodec codec,
+            Set<String> signedNames) {
+        this(request, codec, createParser(signedNames));
+    }
+
+    /**
+     * Instantiates a new signed cookie request wrapper with a precompiled parser,
+     * which can be shared among requests.
+     *
+     * @param request
+     *            the wrapped request
+     * @param codec
+     *            the codec used to decode the signed cookies
+     * @param parser
+     *            the parser configured with the signed cookie names, or null
+     *            when there is none
+     */
+    public SignedCookieRequestWrapper(HttpServletRequest request, TornadoCookieCodec codec,
+            CookieHeaderParser parser) {
+        super(request);
+        this.codec = codec;
+        this.parser = parser;
+        this.decodedCookies = new ConcurrentHashMap<String, DecodedCookie>();
+
+        if (parser == null) {
+            this.signedNames = Collections.emptySet();
+        } else {
+            this.signedNames = Collections.unmodifiableSet(new LinkedHashSet<String>(parser.getNames()));
+        }
+    }
+
+    /**
+     * Creates the parser for the given signed cookie names.
+     *
+     * @param signedNames
+     *            the signed cookie names
+     * @return the parser or null when there is no name
+     */
+    static CookieHeaderParser createParser(Set<String> signedNames) {
+        if (signedNames == null || signedNames.isEmpty()) {
+            return null;
+        }
+        return new CookieHeaderParser(signedNames);
+    }
+
+    /**
+     * Finds the signed cookie request wrapper in the given request wrapping chain.
+     *
+     * @param request
+     *            the request, as seen by any filter or servlet
+     * @return the signed cookie request wrapper or null when the request was not
+     *         wrapped by a {@link SignedCookieFilter}
+     */
+    public static SignedCookieRequestWrapper from(ServletRequest request) {
+        ServletRequest current = request;
+
+        while (current != null) {
+            if (current instanceof SignedCookieRequestWrapper) {
+                return (SignedCookieRequestWrapper) current;
+            }
+            if (!(current instanceof ServletRequestWrapper)) {
+                return null;
+            }
+            current = ((ServletRequestWrapper) current).getRequest();
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the decoded signed cookie.
+     *
+     * @param name
+     *            the signed cookie name
+     * @return the cookie with the plain value, or null when the cookie is not
+     *         configured as signed, not present or failed the verification
+     */
+    public Cookie getSignedCookie(String name) {
+        DecodedCookie decoded = decode(name);
+
+        if (decoded == null) {
+            return null;
+        }
+
+        return decoded.cookie;
+    }
+
+    /**
+     * Gets the decoded signed cookie plain value.
+     *
+     * @param name
+     *            the signed cookie name
+     * @return the plain value, or null when the cookie is not configured as
+     *         signed, not present or failed the verification
+     */
+    public String getSignedCookieValue(String name) {
+        Cookie cookie = getSignedCookie(name);
+
+        if (cookie == null) {
+            return null;
+        }
+
+        return cookie.getValue();
+    }
+
+    /**
+     * Gets the reason why a present signed cookie could not be decoded.
+     *
+     * @param name
+     *            the signed cookie name
+     * @return the failure or null when the cookie was decoded, is not present or
+     *         is not configured as signed
+     */
+    public InvalidFormatException getSignedCookieFailure(String name) {
+        DecodedCookie decoded = decode(name);
+
+        if (decoded == null) {
+            return null;
+        }
+
+        return decoded.failure;
+    }
+
+    /**
+     * Gets the signed cookie names handled by this wrapper.
+     *
+     * @return the signed cookie names
+     */
+    public Set<String> getSignedCookieNames() {
+        return signedNames;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.servlet.ServletRequestWrapper#getAttribute(java.lang.String)
+     */
+    @Override
+    public Object getAttribute(String name) {
+        if (name != null && name.startsWith(ATTRIBUTE_PREFIX)) {
+            String cookieName = name.substring(ATTRIBUTE_PREFIX.length());
+            if (signedNames.contains(cookieName)) {
+                return getSignedCookie(cookieName);
+            }
+        }
+
+        return super.getAttribute(name);
+    }
+
+    /**
+     * Decodes the signed cookie on its first access.
+     *
+     * @param name
+     *            the signed cookie name
+     * @return the memoized outcome, or null when the name is not configured
+     */
+    private DecodedCookie decode(String name) {
+        if (!signedNames.contains(name)) {
+            return null;
+        }
+
+        DecodedCookie decoded = decodedCookies.get(name);
+
+        if (decoded == null) {
+            decoded = decodedCookies.computeIfAbsent(name, this::verify);
+        }
+
+        return decoded;
+    }
+
+    /**
+     * Verifies and decodes the named signed cookie.
+     *
+     * @param name
+     *            the signed cookie name
+     * @return the decoding outcome
+     */
+    private DecodedCookie verify(String name) {
+        String source = findRawValues()[parser.indexOf(name)];
+
+        if (source == null) {
+            return DecodedCookie.ABSENT;
+        }
+
+        try {
+            return new DecodedCookie(new Cookie(name, codec.decodeValue(name, source)), null);
+        } catch (InvalidFormatException e) {
+            return new DecodedCookie(null, e);
+        }
+    }
+
+    /**
+     * Finds the raw values of every signed cookie in a single pass over the
+     * wrapped request, on the first call.
+     *
+     * @return the raw values by parser name position, null for the missing ones
+     */
+    protected String[] findRawValues() {
+        String[] values = rawValues;
+
+        if (values == null) {
+            values = new String[signedNames.size()];
+            Enumeration<String> headers = getHeaders(COOKIE_HEADER);
+
+            if (headers != null && headers.hasMoreElements()) {
+                while (headers.hasMoreElements()) {
+                    parser.parse(headers.nextElement(), values);
+                }
+            } else {
+                copyCookieValues(values);
+            }
+
+            rawValues = values;
+        }
+
+        return values;
+    }
+
+    /**
+     * Copies the signed cookie values from the container cookie array, keeping
+     * the first occurrence of each name.
+     *
+     * @param values
+     *            the raw values by parser name position
+     */
+    private void copyCookieValues(String[] values) {
+        Cookie[] cookies = getCookies();
+
+        if (cookies == null) {
+            return;
+        }
+
+        for (Cookie cookie : cookies) {
+            int index = parser.indexOf(cookie.getName());
+            if (index != CookieHeaderParser.NOT_FOUND && values[index] == null) {
+                values[index] = cookie.getValue();
+            }
+        }
+    }
+
+    /**
+     * The memoized outcome of a signed cookie decoding.
+     */
+    private static final class DecodedCookie {
+
+        /** The Constant ABSENT represents a signed cookie missing in the request. */
+        private static final DecodedCookie ABSENT = new DecodedCookie(null, null);
+
+        /** The decoded cookie. */
+        private final Cookie cookie;
+
+        /** The decoding failure. */
+        private final InvalidFormatException failure;
+
+        /**
+         * Instantiates a new decoded cookie.
+         *
+         * @param cookie
+         *            the decoded cookie
+         * @param failure
+         *            the decoding failure
+         */
+        private DecodedCookie(Cookie cookie, InvalidFormatException failure) {
+            this.cookie = cookie;
+            this.failure = failure;
+        }
+    }
+}
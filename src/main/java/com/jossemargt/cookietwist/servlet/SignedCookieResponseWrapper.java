@@ -0,0 +1,304 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.servlet;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import com.jossemargt.cookietwist.http.CookieAttributes;
+import com.jossemargt.cookietwist.http.SetCookieHeader;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class SignedCookieResponseWrapper signs cookies and writes their
+ * <code>Set-Cookie</code> headers directly, without cloning a
+ * {@link javax.servlet.http.Cookie} nor letting the container render it again.
+ *
+ * <p>
+ * Signed cookies are kept pending until the response body is about to be
+ * written (or {@link #emitSignedCookies()} is called), so setting the same
+ * cookie (name, domain and path) several times within a response only signs and
+ * emits the last value. A cookie added once the body has started is emitted
+ * right away, while the response is not committed yet.
+ */
+public class SignedCookieResponseWrapper extends HttpServletResponseWrapper {
+
+    /** The codec used to sign the cookies. */
+    private final TornadoCookieCodec codec;
+
+    /** The pending signed cookies by cookie identity. */
+    private final Map<String, PendingCookie> pendingCookies;
+
+    /** Whether the body has started, so no cookie is kept pending anymore. */
+    private volatile boolean bodyStarted;
+
+    /**
+     * Instantiates a new signed cookie response wrapper.
+     *
+     * @param response
+     *            the wrapped response
+     * @param codec
+     *            the codec used to sign the cookies
+     */
+    public SignedCookieResponseWrapper(HttpServletResponse response, TornadoCookieCodec codec) {
+        super(response);
+        this.codec = codec;
+        this.pendingCookies = new LinkedHashMap<String, PendingCookie>();
+    }
+
+    /**
+     * Finds the signed cookie response wrapper in the given response wrapping
+     * chain.
+     *
+     * @param response
+     *            the response, as seen by any filter or servlet
+     * @return the signed cookie response wrapper or null when the response was not
+     *         wrapped by a {@link SignedCookieFilter}
+     */
+    public static SignedCookieResponseWrapper from(ServletResponse response) {
+        ServletResponse current = response;
+
+        while (current != null) {
+            if (current instanceof SignedCookieResponseWrapper) {
+                return (SignedCookieResponseWrapper) current;
+            }
+            if (!(current instanceof ServletResponseWrapper)) {
+                return null;
+            }
+            current = ((ServletResponseWrapper) current).getResponse();
+        }
+
+        return null;
+    }
+
+    /**
+     * Adds a signed session cookie, signed with the default secret key number.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie plain value
+     */
+    public void addSignedCookie(String name, String value) {
+        addSignedCookie(name, value, CookieAttributes.DEFAULT);
+    }
+
+    /**
+     * Adds a signed cookie, signed with the default secret key number.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie plain value
+     * @param attributes
+     *            the cookie attributes
+     */
+    public void addSignedCookie(String name, String value, CookieAttributes attributes) {
+        addSignedCookie(name, value, attributes, 0);
+    }
+
+    /**
+     * Adds a signed cookie, replacing any pending one with the same name, domain
+     * and path.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie plain value
+     * @param attributes
+     *            the cookie attributes
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign the value
+     * @throws IllegalStateException
+     *             when the response is already committed
+     */
+    public void addSignedCookie(String name, String value, CookieAttributes attributes, int secretKeyNumber) {
+        if (isCommitted()) {
+            throw new IllegalStateException(
+                    String.format("Can not add the signed cookie '%s' to a committed response", name));
+        }
+
+        String identity = name + ';' + attributes.getDomain() + ';' + attributes.getPath();
+
+        synchronized (pendingCookies) {
+            pendingCookies.put(identity, new PendingCookie(name, value, attributes, secretKeyNumber));
+        }
+
+        if (bodyStarted) {
+            emitSignedCookies();
+        }
+    }
+
+    /**
+     * Signs every pending cookie and adds its <code>Set-Cookie</code> header to
+     * the wrapped response.
+     */
+    public void emitSignedCookies() {
+        emitSignedCookies(false);
+    }
+
+    /**
+     * Signs every pending cookie and adds its <code>Set-Cookie</code> header to
+     * the wrapped response, marking the body as started when required.
+     *
+     * @param startingBody
+     *            whether the response body is about to be written
+     */
+    private void emitSignedCookies(boolean startingBody) {
+        if (startingBody) {
+            bodyStarted = true;
+        }
+
+        List<PendingCookie> toEmit;
+
+        synchronized (pendingCookies) {
+            if (pendingCookies.isEmpty()) {
+                return;
+            }
+            toEmit = new ArrayList<PendingCookie>(pendingCookies.values());
+            pendingCookies.clear();
+        }
+
+        for (PendingCookie cookie : toEmit) {
+            String signedValue = codec.encodeValue(cookie.name, cookie.value, cookie.secretKeyNumber);
+            addHeader(SetCookieHeader.HEADER_NAME, SetCookieHeader.render(cookie.name, signedValue,
+                    cookie.attributes));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.servlet.ServletResponseWrapper#getOutputStream()
+     */
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        emitSignedCookies(true);
+        return super.getOutputStream();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.servlet.ServletResponseWrapper#getWriter()
+     */
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        emitSignedCookies(true);
+        return super.getWriter();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.servlet.ServletResponseWrapper#flushBuffer()
+     */
+    @Override
+    public void flushBuffer() throws IOException {
+        emitSignedCookies(true);
+        super.flushBuffer();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.servlet.http.HttpServletResponseWrapper#sendError(int)
+     */
+    @Override
+    public void sendError(int sc) throws IOException {
+        emitSignedCookies(true);
+        super.sendError(sc);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.servlet.http.HttpServletResponseWrapper#sendError(int,
+     * java.lang.String)
+     */
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        emitSignedCookies(true);
+        super.sendError(sc, msg);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * javax.servlet.http.HttpServletResponseWrapper#sendRedirect(java.lang.String)
+     */
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        emitSignedCookies(true);
+        super.sendRedirect(location);
+    }
+
+    /**
+     * A signed cookie waiting to be emitted.
+     */
+    private static final class PendingCookie {
+
+        /** The cookie name. */
+        private final String name;
+
+        /** The cookie plain value. */
+        private final String value;
+
+        /** The cookie attributes. */
+        private final CookieAttributes attributes;
+
+        /** The secret key number. */
+        private final int secretKeyNumber;
+
+        /**
+         * Instantiates a new pending cookie.
+         *
+         * @param name
+         *            the cookie name
+         * @param value
+         *            the cookie plain value
+         * @param attributes
+         *            the cookie attributes
+         * @param secretKeyNumber
+         *            the secret key number
+         */
+        private PendingCookie(String name, String value, CookieAttributes attributes, int secretKeyNumber) {
+            this.name = name;
+            this.value = value;
+            this.attributes = attributes;
+            this.secretKeyNumber = secretKeyNumber;
+        }
+    }
+}
@@ -23,18 +23,46 @@
  */
 package com.jossemargt.cookietwist.signature;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
-import java.util.Formatter;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.crypto.Mac;
 
+import com.jossemargt.cookietwist.metrics.Stage;
+import com.jossemargt.cookietwist.metrics.StageClock;
+
 /**
  * The abstract Class SignatureHasher handles the cryptographic signature
  * calculation regardless the symmetric algorithm to be use, which has to be
  * provided by any child class in the init method.
+ *
+ * <p>
+ * The {@link Mac} is guarded by a lock, which a {@link SignatureSession} can
+ * hold across several signatures. The values signed while the lock is held are
+ * encoded into buffers owned by the hasher, and so is the hexadecimal
+ * signature, so a batch of signatures under a session reuses the same buffers.
  */
 public abstract class SignatureHasher {
 
+    /** The Constant INITIAL_BUFFER_LENGTH holds the initial encoding buffer length. */
+    private static final int INITIAL_BUFFER_LENGTH = 256;
+
+    /** The Constant HEX_DIGITS holds the lower case hexadecimal digits. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** The Constant NIBBLE_BITS holds the bits of a hexadecimal digit. */
+    private static final int NIBBLE_BITS = 4;
+
+    /** The Constant NIBBLE_MASK masks a hexadecimal digit. */
+    private static final int NIBBLE_MASK = 0x0F;
+
+    /** The Constant DIGITS_PER_BYTE holds the hexadecimal digits of a byte. */
+    private static final int DIGITS_PER_BYTE = 2;
+
     /** The hmac secret key byte array. */
     protected byte[] hmacSecretKey;
 
@@ -44,6 +72,18 @@ public abstract class SignatureHasher {
     /** The initialized variable flags the hasher instance state. **/
     protected boolean initialized = false;
 
+    /** The lock guarding the {@link Mac} and the buffers. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The UTF-8 encoder, only used while holding the lock. */
+    private CharsetEncoder encoder;
+
+    /** The value encoding buffer, only used while holding the lock. */
+    private ByteBuffer encodeBuffer;
+
+    /** The hexadecimal signature buffer, only used while holding the lock. */
+    private char[] hexBuffer;
+
     /**
      * Instantiates a new signature hasher with a secret key String and a
      * un-initialized {@link Mac} instance.
@@ -75,17 +115,117 @@ public abstract class SignatureHasher {
             throw new IllegalStateException("Un-initialized signature hasher");
         }
 
+        lock.lock();
+        try {
+            for (String v : values) {
+                hasher.update(encode(v), 0, encodeBuffer.position());
+            }
+
+            return toHexString(hasher.doFinal());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Compute HMAC signature for the given sequence of Strings, charging the
+     * byte encoding, the HMAC itself and the hex formatting to the given clock.
+     * Values are encoded before taking the {@link Mac} lock, so the
+     * {@link Stage#HMAC} stage holds the lock wait and the digest only.
+     *
+     * @param clock
+     *            the stage clock, null when nothing observes the operation
+     * @param values
+     *            the sequence of values from where the signature will be computed
+     * @return the formatted hexadecimal string
+     * @throws IllegalStateException
+     *             when this method is called from an un-initialized signature
+     *             hasher
+     */
+    public String computeSignature(StageClock clock, String... values) {
+        if (clock == null) {
+            return computeSignature(values);
+        }
+        if (!initialized) {
+            throw new IllegalStateException("Un-initialized signature hasher");
+        }
+
+        byte[][] encodedValues = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encodedValues[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        clock.lap(Stage.BYTES);
+
         byte[] result;
 
-        synchronized (hasher) {
-            for (String v : values) {
-                hasher.update(v.getBytes(StandardCharsets.UTF_8));
+        lock.lock();
+        try {
+            for (byte[] v : encodedValues) {
+                hasher.update(v);
             }
 
             result = hasher.doFinal();
+        } finally {
+            lock.unlock();
         }
+        clock.lap(Stage.HMAC);
 
-        return toHexString(result);
+        String signature = new String(toHex(result, new char[result.length * DIGITS_PER_BYTE]));
+        clock.lap(Stage.HEX);
+
+        return signature;
+    }
+
+    /**
+     * Compute the raw HMAC digest for the given sequence of byte arrays, for the
+     * binary formats that carry the signature bytes as they are instead of their
+     * hexadecimal representation.
+     *
+     * @param values
+     *            the sequence of values from where the digest will be computed
+     * @return the digest bytes
+     * @throws IllegalStateException
+     *             when this method is called from an un-initialized signature
+     *             hasher
+     */
+    public byte[] computeDigest(byte[]... values) {
+        if (!initialized) {
+            throw new IllegalStateException("Un-initialized signature hasher");
+        }
+
+        lock.lock();
+        try {
+            for (byte[] v : values) {
+                hasher.update(v);
+            }
+
+            return hasher.doFinal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Compute the raw HMAC digest for the given sequence of byte arrays, charging
+     * it to the {@link Stage#HMAC} stage of the given clock.
+     *
+     * @param clock
+     *            the stage clock, null when nothing observes the operation
+     * @param values
+     *            the sequence of values from where the digest will be computed
+     * @return the digest bytes
+     * @throws IllegalStateException
+     *             when this method is called from an un-initialized signature
+     *             hasher
+     */
+    public byte[] computeDigest(StageClock clock, byte[]... values) {
+        byte[] result = computeDigest(values);
+
+        if (clock != null) {
+            clock.lap(Stage.HMAC);
+        }
+
+        return result;
     }
 
     /**
@@ -97,24 +237,92 @@ public abstract class SignatureHasher {
      */
     public abstract void init();
 
+    /**
+     * Checks if the {@link Mac} instance was already initialized, so a shared
+     * hasher is not initialized twice.
+     *
+     * @return true, if initialized
+     */
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * Acquires the hasher lock, on behalf of a {@link SignatureSession}.
+     */
+    void acquire() {
+        lock.lock();
+    }
+
+    /**
+     * Releases the hasher lock, on behalf of a {@link SignatureSession}.
+     */
+    void release() {
+        lock.unlock();
+    }
+
+    /**
+     * Encodes a value as UTF-8 into the encoding buffer, replacing the unpaired
+     * surrogates as {@link String#getBytes(java.nio.charset.Charset)} does. Must
+     * be called while holding the lock.
+     *
+     * @param value
+     *            the value to encode
+     * @return the encoding buffer array, holding the bytes up to its position
+     */
+    private byte[] encode(String value) {
+        if (encoder == null) {
+            encoder = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            encodeBuffer = ByteBuffer.allocate(INITIAL_BUFFER_LENGTH);
+        }
+
+        int maxLength = (int) (value.length() * (double) encoder.maxBytesPerChar());
+        if (encodeBuffer.capacity() < maxLength) {
+            encodeBuffer = ByteBuffer.allocate(maxLength);
+        }
+
+        encodeBuffer.clear();
+        encoder.reset();
+        CharBuffer chars = CharBuffer.wrap(value);
+        encoder.encode(chars, encodeBuffer, true);
+        encoder.flush(encodeBuffer);
+
+        return encodeBuffer.array();
+    }
+
     /**
      * To hex string, transforms a byte array to its hexadecimal String
-     * representation byte per byte.
+     * representation through the hexadecimal buffer. Must be called while holding
+     * the lock.
      *
      * @param bytes
      *            the byte array to be formatted
      * @return the formated string
      */
     private String toHexString(byte[] bytes) {
-        Formatter formatter = new Formatter();
-
-        for (byte b : bytes) {
-            formatter.format("%02x", b);
+        if (hexBuffer == null || hexBuffer.length != bytes.length * DIGITS_PER_BYTE) {
+            hexBuffer = new char[bytes.length * DIGITS_PER_BYTE];
         }
 
-        String result = formatter.toString();
-        formatter.close();
+        return new String(toHex(bytes, hexBuffer));
+    }
 
-        return result;
+    /**
+     * Writes the lower case hexadecimal representation of a byte array.
+     *
+     * @param bytes
+     *            the byte array to be formatted
+     * @param target
+     *            the array receiving two digits per byte
+     * @return the target array
+     */
+    private static char[] toHex(byte[] bytes, char[] target) {
+        for (int i = 0; i < bytes.length; i++) {
+            target[DIGITS_PER_BYTE * i] = HEX_DIGITS[(bytes[i] >> NIBBLE_BITS) & NIBBLE_MASK];
+            target[DIGITS_PER_BYTE * i + 1] = HEX_DIGITS[bytes[i] & NIBBLE_MASK];
+        }
+
+        return target;
     }
 }
@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.signature;
+
+/**
+ * The Class SignatureSession holds a {@link SignatureHasher} lock across
+ * several signatures, so a batch of values signed with the same secret key
+ * takes the lock once and reuses the hasher buffers.
+ *
+ * <p>
+ * A session holds at most one lock at a time: entering a different hasher
+ * releases the held one first, so sessions never wait on each other while
+ * holding a lock. Other threads signing with the held hasher wait until the
+ * session moves on or is closed, which is why sessions are meant for short
+ * bounded batches. Sessions are not thread-safe.
+ */
+public final class SignatureSession implements AutoCloseable {
+
+    /** The hasher whose lock is held, null when none. */
+    private SignatureHasher held;
+
+    /**
+     * Enters the given hasher, taking its lock unless this session already holds
+     * it.
+     *
+     * @param hasher
+     *            the hasher about to sign, null to only release the held lock
+     */
+    public void enter(SignatureHasher hasher) {
+        if (hasher == held) {
+            return;
+        }
+
+        close();
+
+        if (hasher != null) {
+            hasher.acquire();
+            held = hasher;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close() {
+        if (held != null) {
+            SignatureHasher released = held;
+            held = null;
+            released.release();
+        }
+    }
+}
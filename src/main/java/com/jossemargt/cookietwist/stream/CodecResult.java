@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.stream;
+
+import javax.servlet.http.Cookie;
+
+/**
+ * The Class CodecResult holds the outcome of a single {@link Cookie}
+ * transformation done by a {@link CookieCodecProcessor}, so a faulty cookie does
+ * not terminate the whole stream.
+ */
+public final class CodecResult {
+
+    /** The cookie received by the processor. */
+    private final Cookie source;
+
+    /** The transformed cookie, null when the transformation failed. */
+    private final Cookie cookie;
+
+    /** The transformation failure, null when it succeeded. */
+    private final RuntimeException failure;
+
+    /**
+     * Instantiates a new codec result.
+     *
+     * @param source
+     *            the cookie received by the processor
+     * @param cookie
+     *            the transformed cookie
+     * @param failure
+     *            the transformation failure
+     */
+    private CodecResult(Cookie source, Cookie cookie, RuntimeException failure) {
+        this.source = source;
+        this.cookie = cookie;
+        this.failure = failure;
+    }
+
+    /**
+     * Instantiates a successful codec result.
+     *
+     * @param source
+     *            the cookie received by the processor
+     * @param cookie
+     *            the transformed cookie
+     * @return the codec result
+     */
+    public static CodecResult success(Cookie source, Cookie cookie) {
+        return new CodecResult(source, cookie, null);
+    }
+
+    /**
+     * Instantiates a failed codec result.
+     *
+     * @param source
+     *            the cookie received by the processor
+     * @param failure
+     *            the transformation failure, usually an
+     *            {@link com.jossemargt.cookietwist.exception.InvalidFormatException}
+     * @return the codec result
+     */
+    public static CodecResult failure(Cookie source, RuntimeException failure) {
+        return new CodecResult(source, null, failure);
+    }
+
+    /**
+     * Checks if the transformation succeeded.
+     *
+     * @return true, if successful
+     */
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * Gets the cookie received by the processor.
+     *
+     * @return the source cookie
+     */
+    public Cookie getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the transformed cookie.
+     *
+     * @return the transformed cookie or null when the transformation failed
+     */
+    public Cookie getCookie() {
+        return cookie;
+    }
+
+    /**
+     * Gets the transformation failure.
+     *
+     * @return the failure or null when the transformation succeeded
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,491 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import javax.servlet.http.Cookie;
+
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.jossemargt.cookietwist.tornado.transform.CodecBatch;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class CookieCodecProcessor is a Reactive Streams {@link Processor} stage
+ * that encodes or decodes every received {@link Cookie} with a
+ * {@link TornadoCookieCodec} and emits a {@link CodecResult} per cookie, so an
+ * {@link com.jossemargt.cookietwist.exception.InvalidFormatException} never
+ * terminates the stream.
+ *
+ * <p>
+ * The processor honors the downstream demand: it only requests a new batch from
+ * the upstream once the previous one was delivered and the downstream still
+ * wants more, so it never holds more than one batch of results. Each batch is
+ * transformed in a single pass on the thread that completes it.
+ *
+ * <p>
+ * Each batch goes through a single {@link CodecBatch}: consecutive cookies
+ * signed with the same secret key take the
+ * {@link com.jossemargt.cookietwist.signature.SignatureHasher} lock once and
+ * reuse its encoding buffers, while every cookie keeps its own
+ * {@link CodecResult}. The lock is released before any result is emitted.
+ *
+ * <p>
+ * The Reactive Streams interfaces are used as they are available on Java 8;
+ * Java 9+ applications can bridge them to {@code java.util.concurrent.Flow}
+ * with {@code org.reactivestreams.FlowAdapters}. The
+ * {@code org.reactivestreams:reactive-streams} artifact is an optional
+ * dependency that has to be provided by the application.
+ */
+public final class CookieCodecProcessor implements Processor<Cookie, CodecResult> {
+
+    /** The Constant DEFAULT_BATCH_SIZE holds the default micro-batch size. */
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
+    /** The codec opening the batch of each flush. */
+    private final TornadoCookieCodec codec;
+
+    /** The transformation applied to each received cookie. */
+    private final BiFunction<CodecBatch, Cookie, Cookie> operation;
+
+    /** The amount of cookies requested from the upstream per batch. */
+    private final int batchSize;
+
+    /** The cookies received for the current batch, only touched by the upstream. */
+    private final List<Cookie> batch;
+
+    /** The transformed results waiting for downstream demand. */
+    private final Queue<CodecResult> results;
+
+    /** The downstream demand not yet fulfilled. */
+    private final AtomicLong demand;
+
+    /** The amount of cookies requested from the upstream but not yet processed. */
+    private final AtomicLong outstanding;
+
+    /** The work in progress counter that serializes the downstream signals. */
+    private final AtomicInteger wip;
+
+    /** The upstream subscription. */
+    private volatile Subscription upstream;
+
+    /** The downstream subscriber. */
+    private volatile Subscriber<? super CodecResult> downstream;
+
+    /** The flag that tells if the upstream is terminated. */
+    private volatile boolean done;
+
+    /** The upstream error, if any. */
+    private volatile Throwable error;
+
+    /** The flag that tells if the downstream cancelled or was terminated. */
+    private volatile boolean cancelled;
+
+    /**
+     * Instantiates a new cookie codec processor.
+     *
+     * @param codec
+     *            the codec opening the batch of each flush
+     * @param operation
+     *            the transformation applied to each received cookie
+     * @param batchSize
+     *            the amount of cookies requested from the upstream per batch
+     * @throws IllegalArgumentException
+     *             when the batch size is not positive
+     */
+    private CookieCodecProcessor(TornadoCookieCodec codec, BiFunction<CodecBatch, Cookie, Cookie> operation,
+            int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.codec = codec;
+        this.operation = operation;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<Cookie>(batchSize);
+        this.results = new ConcurrentLinkedQueue<CodecResult>();
+        this.demand = new AtomicLong();
+        this.outstanding = new AtomicLong();
+        this.wip = new AtomicInteger();
+    }
+
+    /**
+     * Creates a processor that decodes every received signed {@link Cookie}.
+     *
+     * @param codec
+     *            the codec used to decode
+     * @return the processor
+     */
+    public static CookieCodecProcessor decoder(TornadoCookieCodec codec) {
+        return decoder(codec, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a processor that decodes every received signed {@link Cookie}.
+     *
+     * @param codec
+     *            the codec used to decode
+     * @param batchSize
+     *            the amount of cookies requested from the upstream per batch
+     * @return the processor
+     */
+    public static CookieCodecProcessor decoder(TornadoCookieCodec codec, int batchSize) {
+        return new CookieCodecProcessor(codec, CodecBatch::decodeCookie, batchSize);
+    }
+
+    /**
+     * Creates a processor that encodes every received plain {@link Cookie} with
+     * the given secret key number.
+     *
+     * @param codec
+     *            the codec used to encode
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign
+     * @return the processor
+     */
+    public static CookieCodecProcessor encoder(TornadoCookieCodec codec, int secretKeyNumber) {
+        return encoder(codec, secretKeyNumber, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a processor that encodes every received plain {@link Cookie} with
+     * the given secret key number.
+     *
+     * @param codec
+     *            the codec used to encode
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign
+     * @param batchSize
+     *            the amount of cookies requested from the upstream per batch
+     * @return the processor
+     */
+    public static CookieCodecProcessor encoder(TornadoCookieCodec codec, int secretKeyNumber, int batchSize) {
+        return new CookieCodecProcessor(codec,
+                (codecBatch, source) -> codecBatch.encodeCookie(source, secretKeyNumber), batchSize);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.reactivestreams.Publisher#subscribe(org.reactivestreams.Subscriber)
+     */
+    @Override
+    public void subscribe(Subscriber<? super CodecResult> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber must not be null");
+        }
+
+        synchronized (this) {
+            if (downstream != null) {
+                subscriber.onSubscribe(new RejectedSubscription());
+                subscriber.onError(new IllegalStateException("This processor allows a single subscriber"));
+                return;
+            }
+            downstream = subscriber;
+        }
+
+        subscriber.onSubscribe(new DownstreamSubscription());
+        drain();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * org.reactivestreams.Subscriber#onSubscribe(org.reactivestreams.Subscription)
+     */
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException("Subscription must not be null");
+        }
+
+        synchronized (this) {
+            if (upstream != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+
+        drain();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.reactivestreams.Subscriber#onNext(java.lang.Object)
+     */
+    @Override
+    public void onNext(Cookie item) {
+        if (item == null) {
+            throw new NullPointerException("Item must not be null");
+        }
+
+        if (done || cancelled) {
+            return;
+        }
+
+        batch.add(item);
+
+        if (batch.size() >= outstanding.get()) {
+            flushBatch();
+            drain();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.reactivestreams.Subscriber#onError(java.lang.Throwable)
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        if (throwable == null) {
+            throw new NullPointerException("Throwable must not be null");
+        }
+
+        flushBatch();
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.reactivestreams.Subscriber#onComplete()
+     */
+    @Override
+    public void onComplete() {
+        flushBatch();
+        done = true;
+        drain();
+    }
+
+    /**
+     * Transforms every cookie in the current batch within a single
+     * {@link CodecBatch} and queues their results.
+     */
+    private void flushBatch() {
+        int processed = batch.size();
+
+        if (processed == 0) {
+            return;
+        }
+
+        try (CodecBatch codecBatch = codec.openBatch()) {
+            for (Cookie source : batch) {
+                results.offer(transform(codecBatch, source));
+            }
+        }
+
+        batch.clear();
+        outstanding.addAndGet(-processed);
+    }
+
+    /**
+     * Transforms a single cookie, capturing any failure.
+     *
+     * @param codecBatch
+     *            the batch of the current flush
+     * @param source
+     *            the cookie to transform
+     * @return the codec result
+     */
+    private CodecResult transform(CodecBatch codecBatch, Cookie source) {
+        try {
+            return CodecResult.success(source, operation.apply(codecBatch, source));
+        } catch (RuntimeException e) {
+            return CodecResult.failure(source, e);
+        }
+    }
+
+    /**
+     * Emits the queued results as far the downstream demand allows, signals the
+     * termination once every result was delivered and requests the next upstream
+     * batch when needed. Only one thread at a time runs the drain loop.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+
+        do {
+            Subscriber<? super CodecResult> subscriber = downstream;
+
+            if (subscriber != null && !cancelled) {
+                emit(subscriber);
+            }
+
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Drain loop body for a subscribed downstream.
+     *
+     * @param subscriber
+     *            the downstream subscriber
+     */
+    private void emit(Subscriber<? super CodecResult> subscriber) {
+        long requested = demand.get();
+        long emitted = 0;
+
+        while (emitted != requested && !cancelled) {
+            CodecResult result = results.poll();
+            if (result == null) {
+                break;
+            }
+            subscriber.onNext(result);
+            emitted++;
+        }
+
+        if (emitted != 0 && requested != Long.MAX_VALUE) {
+            demand.addAndGet(-emitted);
+        }
+
+        if (cancelled || !results.isEmpty()) {
+            return;
+        }
+
+        if (done) {
+            cancelled = true;
+            Throwable failure = error;
+            if (failure == null) {
+                subscriber.onComplete();
+            } else {
+                subscriber.onError(failure);
+            }
+            return;
+        }
+
+        Subscription subscription = upstream;
+
+        if (subscription != null && demand.get() > 0 && outstanding.compareAndSet(0, batchSize)) {
+            subscription.request(batchSize);
+        }
+    }
+
+    /**
+     * Adds the given amount to the downstream demand, capping at
+     * {@link Long#MAX_VALUE}.
+     *
+     * @param n
+     *            the amount requested by the downstream
+     */
+    private void addDemand(long n) {
+        long current;
+        long next;
+
+        do {
+            current = demand.get();
+            next = current + n;
+            if (next < 0) {
+                next = Long.MAX_VALUE;
+            }
+        } while (!demand.compareAndSet(current, next));
+    }
+
+    /**
+     * The downstream {@link Subscription} handed to the processor subscriber.
+     */
+    private final class DownstreamSubscription implements Subscription {
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.reactivestreams.Subscription#request(long)
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested amount must be positive, got " + n);
+                done = true;
+                results.clear();
+                cancelUpstream();
+            } else {
+                addDemand(n);
+            }
+            drain();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.reactivestreams.Subscription#cancel()
+         */
+        @Override
+        public void cancel() {
+            cancelled = true;
+            cancelUpstream();
+        }
+
+        /**
+         * Cancels the upstream subscription, if any.
+         */
+        private void cancelUpstream() {
+            Subscription subscription = upstream;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    /**
+     * The no-op {@link Subscription} handed to rejected subscribers.
+     */
+    private static final class RejectedSubscription implements Subscription {
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.reactivestreams.Subscription#request(long)
+         */
+        @Override
+        public void request(long n) {
+            // Nothing will be emitted
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.reactivestreams.Subscription#cancel()
+         */
+        @Override
+        public void cancel() {
+            // Nothing to cancel
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+
+/**
+ * The Class CookiePayload is a small string map meant to be a signed cookie
+ * plain value, so a handful of fields (user id, roles, flags) can share a
+ * single cookie without a JSON round trip.
+ *
+ * <p>
+ * Each key and value is written with the "length:field" pattern of the Tornado
+ * signed values, one after the other, in a single string. Parsing only scans the
+ * length prefixes once to build an offset index; a value is only extracted when
+ * it is read. Lookups are linear, which is the fastest option for the few keys a
+ * cookie holds.
+ */
+public final class CookiePayload {
+
+    /** The Constant LENGTH_SEPARATOR holds the length prefix separator. */
+    private static final char LENGTH_SEPARATOR = ':';
+
+    /** The Constant ENTRY_SLOTS holds the index slots of an entry: key start and end, value start and end. */
+    private static final int ENTRY_SLOTS = 4;
+
+    /** The Constant FIELD_SLOTS holds the index slots of a field: start and end. */
+    private static final int FIELD_SLOTS = 2;
+
+    /** The Constant INITIAL_ENTRIES holds the entry capacity first allocated by the parser. */
+    private static final int INITIAL_ENTRIES = 8;
+
+    /** The Constant GROWTH_FACTOR holds the factor the parser entry capacity grows by. */
+    private static final int GROWTH_FACTOR = 2;
+
+    /** The Constant NOT_FOUND holds the entry position of a missing key. */
+    private static final int NOT_FOUND = -1;
+
+    /** The Constant VALUE_START_SLOT holds the index slot of an entry value start. */
+    private static final int VALUE_START_SLOT = 2;
+
+    /** The Constant VALUE_END_SLOT holds the index slot of an entry value end. */
+    private static final int VALUE_END_SLOT = 3;
+
+    /** The Constant TRUE holds the boolean true representation. */
+    private static final String TRUE = "true";
+
+    /** The Constant FALSE holds the boolean false representation. */
+    private static final String FALSE = "false";
+
+    /** The encoded payload. */
+    private final String encoded;
+
+    /** The entry offsets, {@value #ENTRY_SLOTS} slots per entry. */
+    private final int[] offsets;
+
+    /** The entry count. */
+    private final int size;
+
+    /**
+     * Instantiates a new cookie payload.
+     *
+     * @param encoded
+     *            the encoded payload
+     * @param offsets
+     *            the entry offsets
+     * @param size
+     *            the entry count
+     */
+    private CookiePayload(String encoded, int[] offsets, int size) {
+        this.encoded = encoded;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    /**
+     * Parses an encoded payload, usually a verified cookie plain value, into its
+     * offset index.
+     *
+     * @param encoded
+     *            the encoded payload
+     * @return the cookie payload
+     * @throws InvalidFormatException
+     *             when a length prefix is malformed or exceeds the payload, or a
+     *             key is repeated
+     */
+    public static CookiePayload parse(String encoded) {
+        if (encoded == null) {
+            encoded = "";
+        }
+
+        int[] offsets = new int[INITIAL_ENTRIES * ENTRY_SLOTS];
+        int position = 0;
+        int size = 0;
+
+        while (position < encoded.length()) {
+            int slot = size * ENTRY_SLOTS;
+            if (slot == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * GROWTH_FACTOR);
+            }
+            position = readField(encoded, position, offsets, slot);
+            if (position >= encoded.length()) {
+                throw new InvalidFormatException(FailureReason.FIELD_COUNT, "Missing value for the last key");
+            }
+            position = readField(encoded, position, offsets, slot + VALUE_START_SLOT);
+
+            if (indexOf(encoded, offsets, size, encoded, offsets[slot], offsets[slot + 1]) != NOT_FOUND) {
+                throw new InvalidFormatException(FailureReason.FIELD_FORMAT, String.format("Duplicate key '%s'",
+                        encoded.substring(offsets[slot], offsets[slot + 1])));
+            }
+            size++;
+        }
+
+        return new CookiePayload(encoded, offsets, size);
+    }
+
+    /**
+     * Reads a "length:field" field, storing its start and end offsets.
+     *
+     * @param encoded
+     *            the encoded payload
+     * @param start
+     *            the field length prefix start
+     * @param offsets
+     *            the entry offsets
+     * @param slot
+     *            the slot receiving the field start, followed by its end
+     * @return the next field start
+     * @throws InvalidFormatException
+     *             when the length prefix is malformed or exceeds the payload
+     */
+    private static int readField(String encoded, int start, int[] offsets, int slot) {
+        int position = start;
+        long length = 0;
+
+        while (position < encoded.length() && encoded.charAt(position) != LENGTH_SEPARATOR) {
+            char digit = encoded.charAt(position);
+            if (digit < '0' || digit > '9' || (position > start && length == 0)) {
+                throw new InvalidFormatException(FailureReason.FIELD_FORMAT,
+                        String.format("Invalid field length format at %d", start));
+            }
+            length = length * 10 + (digit - '0');
+            if (length > encoded.length()) {
+                throw new InvalidFormatException(FailureReason.LENGTH,
+                        String.format("Field length at %d exceeds the payload", start));
+            }
+            position++;
+        }
+
+        if (position == start || position >= encoded.length() || encoded.charAt(position) != LENGTH_SEPARATOR) {
+            throw new InvalidFormatException(FailureReason.FIELD_FORMAT,
+                    String.format("Invalid field length format at %d", start));
+        }
+
+        int fieldStart = position + 1;
+        if (length > encoded.length() - fieldStart) {
+            throw new InvalidFormatException(FailureReason.LENGTH,
+                    String.format("Field length at %d exceeds the payload", start));
+        }
+
+        offsets[slot] = fieldStart;
+        offsets[slot + 1] = fieldStart + (int) length;
+        return offsets[slot + 1];
+    }
+
+    /**
+     * Finds the entry of a key among the first entries.
+     *
+     * @param encoded
+     *            the encoded payload
+     * @param offsets
+     *            the entry offsets
+     * @param size
+     *            the entry count to search
+     * @param key
+     *            the string holding the key
+     * @param keyStart
+     *            the key start within its string
+     * @param keyEnd
+     *            the key end within its string
+     * @return the entry position or {@link #NOT_FOUND} when the key is missing
+     */
+    private static int indexOf(String encoded, int[] offsets, int size, String key, int keyStart, int keyEnd) {
+        int keyLength = keyEnd - keyStart;
+
+        for (int i = 0; i < size; i++) {
+            int slot = i * ENTRY_SLOTS;
+            if (offsets[slot + 1] - offsets[slot] == keyLength
+                    && encoded.regionMatches(offsets[slot], key, keyStart, keyLength)) {
+                return i;
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * Gets the string value of a key, extracting it from the encoded payload.
+     *
+     * @param key
+     *            the key
+     * @return the value or null when the key is missing
+     */
+    public String getString(String key) {
+        int entry = indexOf(encoded, offsets, size, key, 0, key.length());
+
+        if (entry == NOT_FOUND) {
+            return null;
+        }
+
+        int slot = entry * ENTRY_SLOTS;
+        return encoded.substring(offsets[slot + VALUE_START_SLOT], offsets[slot + VALUE_END_SLOT]);
+    }
+
+    /**
+     * Gets the long value of a key.
+     *
+     * @param key
+     *            the key
+     * @return the value or null when the key is missing
+     * @throws InvalidFormatException
+     *             when the value is not a decimal long
+     */
+    public Long getLong(String key) {
+        String value = getString(key);
+
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidFormatException(FailureReason.FIELD_FORMAT,
+                    String.format("Invalid numeric value for key '%s'", key), e);
+        }
+    }
+
+    /**
+     * Gets the boolean value of a key.
+     *
+     * @param key
+     *            the key
+     * @return the value or null when the key is missing
+     * @throws InvalidFormatException
+     *             when the value is neither "true" nor "false"
+     */
+    public Boolean getBoolean(String key) {
+        String value = getString(key);
+
+        if (value == null) {
+            return null;
+        }
+        if (TRUE.equals(value)) {
+            return Boolean.TRUE;
+        }
+        if (FALSE.equals(value)) {
+            return Boolean.FALSE;
+        }
+
+        throw new InvalidFormatException(FailureReason.FIELD_FORMAT,
+                String.format("Invalid boolean value for key '%s'", key));
+    }
+
+    /**
+     * Checks whether the payload holds a key.
+     *
+     * @param key
+     *            the key
+     * @return true, if the key is present
+     */
+    public boolean containsKey(String key) {
+        return indexOf(encoded, offsets, size, key, 0, key.length()) != NOT_FOUND;
+    }
+
+    /**
+     * Gets the keys, in encoding order.
+     *
+     * @return the keys
+     */
+    public List<String> keys() {
+        List<String> keys = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            int slot = i * ENTRY_SLOTS;
+            keys.add(encoded.substring(offsets[slot], offsets[slot + 1]));
+        }
+        return Collections.unmodifiableList(keys);
+    }
+
+    /**
+     * Gets the entry count.
+     *
+     * @return the entry count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the encoded payload, to be used as a cookie plain value.
+     *
+     * @return the encoded payload
+     */
+    public String encode() {
+        return encoded;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return encoded;
+    }
+
+    /**
+     * Factory method for {@link CookiePayload.Builder}.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * As its name suggests the Class Builder handles the {@link CookiePayload}
+     * creation process.
+     */
+    public static final class Builder {
+
+        /** The entries, in insertion order. */
+        private final Map<String, String> entries;
+
+        /**
+         * Instantiates a new builder.
+         */
+        private Builder() {
+            this.entries = new LinkedHashMap<String, String>();
+        }
+
+        /**
+         * Puts a string value, replacing any previous value of the key.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         * @return the builder
+         * @throws IllegalArgumentException
+         *             when the key or the value is null
+         */
+        public Builder put(String key, String value) {
+            if (key == null || value == null) {
+                throw new IllegalArgumentException("The payload keys and values can not be null");
+            }
+            entries.put(key, value);
+            return this;
+        }
+
+        /**
+         * Puts a long value, replacing any previous value of the key.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         * @return the builder
+         */
+        public Builder put(String key, long value) {
+            return put(key, Long.toString(value));
+        }
+
+        /**
+         * Puts a boolean value, replacing any previous value of the key.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         * @return the builder
+         */
+        public Builder put(String key, boolean value) {
+            return put(key, Boolean.toString(value));
+        }
+
+        /**
+         * Builds the {@link CookiePayload} instance, encoding every entry in a
+         * single pass over a buffer sized beforehand.
+         *
+         * @return the cookie payload
+         */
+        public CookiePayload build() {
+            int length = 0;
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                length += fieldLength(entry.getKey()) + fieldLength(entry.getValue());
+            }
+
+            StringBuilder encoded = new StringBuilder(length);
+            int[] offsets = new int[entries.size() * ENTRY_SLOTS];
+            int slot = 0;
+
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                slot = appendField(encoded, entry.getKey(), offsets, slot);
+                slot = appendField(encoded, entry.getValue(), offsets, slot);
+            }
+
+            return new CookiePayload(encoded.toString(), offsets, entries.size());
+        }
+
+        /**
+         * Appends a field with the "length:field" pattern, storing its offsets.
+         *
+         * @param encoded
+         *            the buffer
+         * @param field
+         *            the field
+         * @param offsets
+         *            the entry offsets
+         * @param slot
+         *            the slot receiving the field start, followed by its end
+         * @return the next free slot
+         */
+        private static int appendField(StringBuilder encoded, String field, int[] offsets, int slot) {
+            encoded.append(field.length()).append(LENGTH_SEPARATOR);
+            offsets[slot] = encoded.length();
+            encoded.append(field);
+            offsets[slot + 1] = encoded.length();
+            return slot + FIELD_SLOTS;
+        }
+
+        /**
+         * Gets the encoded length of a field, its length prefix included.
+         *
+         * @param field
+         *            the field
+         * @return the encoded length
+         */
+        private static int fieldLength(String field) {
+            int digits = 1;
+            for (int remaining = field.length(); remaining >= 10; remaining /= 10) {
+                digits++;
+            }
+            return digits + 1 + field.length();
+        }
+    }
+}
@@ -46,6 +46,9 @@ public final class TornadoCookieValue {
     /** The signature key version number for Tornado Signed Value V2. */
     private int signatureKeyVersion;
 
+    /** Whether the value string holds deflated bytes, one ISO-8859-1 character per byte. */
+    private boolean compressed;
+
     /**
      * Instantiates a new cookie model from its builder.
      *
@@ -58,6 +61,7 @@ public final class TornadoCookieValue {
         this.timestamp = builder.timestamp;
         this.signatureKeyVersion = builder.signatureKeyVersion;
         this.signature = builder.signature;
+        this.compressed = builder.compressed;
     }
 
     /**
@@ -103,6 +107,9 @@ public final class TornadoCookieValue {
         /** The signature key version number for Tornado Signed Value V2. */
         private int signatureKeyVersion;
 
+        /** Whether the value string holds deflated bytes. */
+        private boolean compressed;
+
         /**
          * Instantiates a new builder with the TornadoCookieValue initial field values.
          */
@@ -128,6 +135,7 @@ public final class TornadoCookieValue {
             this.timestamp = cookieValue.getTimestamp();
             this.signature = cookieValue.getSignature();
             this.signatureKeyVersion = cookieValue.getSignatureKeyVersion();
+            this.compressed = cookieValue.isCompressed();
         }
 
         /**
@@ -154,6 +162,18 @@ public final class TornadoCookieValue {
             return this;
         }
 
+        /**
+         * Sets the CookieModel plain value string to the encoded payload.
+         *
+         * @param payload
+         *            the key and value payload
+         * @return the builder
+         */
+        public TornadoCookieValueBuilder withPayload(CookiePayload payload) {
+            this.value = payload.encode();
+            return this;
+        }
+
         /**
          * Sets the CookieModel signature.
          *
@@ -207,6 +227,20 @@ public final class TornadoCookieValue {
             return this;
         }
 
+        /**
+         * Sets whether the value string holds deflated bytes, one ISO-8859-1
+         * character per byte. It is only supported by Tornado signed values version
+         * 2.
+         *
+         * @param compressed
+         *            true when the value is compressed
+         * @return the builder
+         */
+        public TornadoCookieValueBuilder withCompressed(boolean compressed) {
+            this.compressed = compressed;
+            return this;
+        }
+
         /**
          * Instanteates a new CookieModel.
          *
@@ -235,6 +269,18 @@ public final class TornadoCookieValue {
         return value;
     }
 
+    /**
+     * Parses the plain value string as a {@link CookiePayload}, whose values are
+     * only extracted when read.
+     *
+     * @return the payload
+     * @throws com.jossemargt.cookietwist.exception.InvalidFormatException
+     *             when the value is not an encoded payload
+     */
+    public CookiePayload getPayload() {
+        return CookiePayload.parse(value);
+    }
+
     /**
      * Gets the signature string.
      *
@@ -261,4 +307,13 @@ public final class TornadoCookieValue {
     public int getSignatureKeyVersion() {
         return signatureKeyVersion;
     }
+
+    /**
+     * Checks whether the value string holds deflated bytes.
+     *
+     * @return true, if the value is compressed
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform;
+
+import javax.servlet.http.Cookie;
+
+import com.jossemargt.cookietwist.signature.SignatureSession;
+
+/**
+ * The Class CodecBatch encodes and decodes a batch of cookies with a
+ * {@link TornadoCookieCodec} within a single {@link SignatureSession}:
+ * consecutive cookies signed with the same secret key take the hasher lock
+ * once and share the hasher encoding buffers.
+ *
+ * <p>
+ * The hasher lock is held until the batch moves to another secret key or is
+ * closed, so batches should be short and always closed, typically with a
+ * try-with-resources block. A batch is not thread-safe.
+ */
+public final class CodecBatch implements AutoCloseable {
+
+    /** The codec encoding and decoding the cookies. */
+    private final TornadoCookieCodec codec;
+
+    /** The signature session shared by the batch cookies. */
+    private final SignatureSession session = new SignatureSession();
+
+    /**
+     * Instantiates a new batch of the given codec.
+     *
+     * @param codec
+     *            the codec encoding and decoding the cookies
+     */
+    CodecBatch(TornadoCookieCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Encode a {@link Cookie} value string into its Tornado secure cookie
+     * representation using the given secret key number.
+     *
+     * @param source
+     *            the {@link Cookie} to be signed
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign the given {@link Cookie}
+     * @return the {@link Cookie} with the value signed
+     * @see TornadoCookieCodec#encodeCookie(Cookie, int)
+     */
+    public Cookie encodeCookie(Cookie source, int secretKeyNumber) {
+        return codec.encodeCookie(source, secretKeyNumber, session);
+    }
+
+    /**
+     * Decode a {@link Cookie} from its Tornado secure cookie representation into a
+     * plain text one.
+     *
+     * @param source
+     *            the signed {@link Cookie} to be transformed
+     * @throws com.jossemargt.cookietwist.exception.InvalidFormatException
+     *             if the secure cookie value String does not comply with a format
+     *             rule.
+     * @return the {@link Cookie} with the plain text value
+     * @see TornadoCookieCodec#decodeCookie(Cookie)
+     */
+    public Cookie decodeCookie(Cookie source) {
+        return codec.decodeCookie(source, session);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close() {
+        session.close();
+    }
+}
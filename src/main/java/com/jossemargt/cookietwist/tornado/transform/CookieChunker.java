@@ -0,0 +1,434 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.Cookie;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+
+/**
+ * The Class CookieChunker splits the signed values too large for a single
+ * browser cookie into the <code>name.0</code> to <code>name.N</code> cookies,
+ * and reassembles them back.
+ *
+ * <p>
+ * The value is signed once, as a whole, under the name <code>name[count]</code>
+ * where the count is the number of chunks, so both the chunk count and their
+ * order are covered by the single signature: a missing, extra or reordered
+ * chunk fails the verification. Brackets are not cookie name token characters,
+ * so no ordinary cookie is ever signed under that name and neither can be
+ * replayed as the other. Decoding scans the request cookies once,
+ * keeps at most the maximum number of chunks, each no longer than the maximum
+ * chunk length, and verifies the reassembled value once.
+ *
+ * <p>
+ * The codec decoding the reassembled values must accept them, see
+ * {@link TornadoCookieCodec.Builder#withMaxValueLength(int)}.
+ */
+public final class CookieChunker {
+
+    /** The Constant DEFAULT_MAX_CHUNK_LENGTH holds the default longest chunk, in characters. */
+    public static final int DEFAULT_MAX_CHUNK_LENGTH = 3800;
+
+    /** The Constant DEFAULT_MAX_CHUNKS holds the default maximum chunk count. */
+    public static final int DEFAULT_MAX_CHUNKS = 8;
+
+    /** The Constant CHUNK_SEPARATOR holds the separator between the cookie name and the chunk index. */
+    public static final char CHUNK_SEPARATOR = '.';
+
+    /** The Constant SIGNED_COUNT_START holds the character opening the chunk count of a signed name. */
+    private static final char SIGNED_COUNT_START = '[';
+
+    /** The Constant SIGNED_COUNT_END holds the character closing the chunk count of a signed name. */
+    private static final char SIGNED_COUNT_END = ']';
+
+    /** The Constant NOT_CHUNK holds the index of a cookie that is not a chunk. */
+    private static final int NOT_CHUNK = -1;
+
+    /** The codec signing and verifying the whole values. */
+    private final TornadoCookieCodec codec;
+
+    /** The longest chunk, in characters. */
+    private final int maxChunkLength;
+
+    /** The maximum chunk count. */
+    private final int maxChunks;
+
+    /**
+     * Instantiates a new cookie chunker.
+     *
+     * @param builder
+     *            the {@link Builder} instance
+     */
+    private CookieChunker(Builder builder) {
+        this.codec = builder.codec;
+        this.maxChunkLength = builder.maxChunkLength;
+        this.maxChunks = builder.maxChunks;
+    }
+
+    /**
+     * Signs the {@link Cookie} value with the default secret key number and
+     * splits it into chunk cookies.
+     *
+     * @param source
+     *            the {@link Cookie} to be signed
+     * @return the chunk cookies, in index order, followed by the expiring cookies
+     *         of the unused indexes
+     * @throws IllegalArgumentException
+     *             when the signed value needs more than the maximum chunk count
+     */
+    public List<Cookie> encodeCookie(Cookie source) {
+        return encodeCookie(source, TornadoCookieCodec.DEFAULT_SECRET_KEY_NUMBER);
+    }
+
+    /**
+     * Signs the {@link Cookie} value with the given secret key number and splits
+     * it into chunk cookies, which keep the source attributes. The chunks are
+     * followed by cookies expiring every unused index up to the maximum chunk
+     * count, so the chunks left over by a longer previous value do not make the
+     * browser send a value that no longer verifies.
+     *
+     * @param source
+     *            the {@link Cookie} to be signed
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign the value
+     * @return the chunk cookies, in index order, followed by the expiring cookies
+     *         of the unused indexes
+     * @throws IllegalArgumentException
+     *             when the signed value needs more than the maximum chunk count
+     */
+    public List<Cookie> encodeCookie(Cookie source, int secretKeyNumber) {
+        String[] chunks = encodeValue(source.getName(), source.getValue(), secretKeyNumber);
+        List<Cookie> result = new ArrayList<Cookie>(maxChunks);
+
+        for (int i = 0; i < chunks.length; i++) {
+            result.add(chunkCookie(source, i, chunks[i], source.getMaxAge()));
+        }
+        for (int i = chunks.length; i < maxChunks; i++) {
+            result.add(chunkCookie(source, i, "", 0));
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a chunk cookie with the source attributes.
+     *
+     * @param source
+     *            the {@link Cookie} being chunked
+     * @param index
+     *            the chunk index
+     * @param value
+     *            the chunk value
+     * @param maxAge
+     *            the chunk max age, 0 to expire it
+     * @return the chunk cookie
+     */
+    private static Cookie chunkCookie(Cookie source, int index, String value, int maxAge) {
+        Cookie chunk = new Cookie(chunkName(source.getName(), index), value);
+        if (source.getDomain() != null) {
+            chunk.setDomain(source.getDomain());
+        }
+        chunk.setPath(source.getPath());
+        chunk.setMaxAge(maxAge);
+        chunk.setSecure(source.getSecure());
+        chunk.setHttpOnly(source.isHttpOnly());
+        chunk.setComment(source.getComment());
+        chunk.setVersion(source.getVersion());
+        return chunk;
+    }
+
+    /**
+     * Signs the plain value with the given secret key number and splits it into
+     * chunk values, the one at index <code>i</code> being meant for the
+     * <code>name.i</code> cookie.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie plain value string
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign the value
+     * @return the chunk values, in index order
+     * @throws IllegalArgumentException
+     *             when the signed value needs more than the maximum chunk count
+     */
+    public String[] encodeValue(String name, String value, int secretKeyNumber) {
+        long issuedAt = codec.getTimestamp();
+        int count = 1;
+        String signedValue = codec.encodeValue(signedName(name, count), value, secretKeyNumber, issuedAt);
+        int needed = chunkCount(signedValue);
+
+        // The count is part of the signed name, so the signed value grows with it
+        while (needed != count) {
+            if (needed > maxChunks) {
+                throw new IllegalArgumentException(String.format(
+                        "The signed value needs %d chunks, the maximum is %d", needed, maxChunks));
+            }
+            count = needed;
+            signedValue = codec.encodeValue(signedName(name, count), value, secretKeyNumber, issuedAt);
+            needed = chunkCount(signedValue);
+        }
+
+        String[] chunks = new String[count];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = signedValue.substring(i * maxChunkLength,
+                    Math.min(signedValue.length(), (i + 1) * maxChunkLength));
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Reassembles and verifies the named chunked cookie from the request cookies,
+     * in a single pass.
+     *
+     * @param name
+     *            the cookie name, without chunk index
+     * @param cookies
+     *            the request cookies, may be null
+     * @return the {@link Cookie} with the plain value, or null when no chunk is
+     *         present
+     * @throws InvalidFormatException
+     *             when a chunk is missing, duplicated, too long or beyond the
+     *             maximum chunk count, or the reassembled value does not verify
+     */
+    public Cookie decodeCookie(String name, Cookie[] cookies) {
+        if (cookies == null) {
+            return null;
+        }
+
+        String[] chunks = new String[maxChunks];
+        int count = 0;
+        int length = 0;
+
+        for (Cookie cookie : cookies) {
+            int index = chunkIndex(name, cookie.getName());
+            if (index == NOT_CHUNK) {
+                continue;
+            }
+
+            String chunk = cookie.getValue();
+            if (chunk == null) {
+                chunk = "";
+            }
+            if (chunk.length() > maxChunkLength) {
+                throw new InvalidFormatException(FailureReason.OVERSIZED, String.format(
+                        "Chunk %d length %d exceeds the maximum of %d", index, chunk.length(), maxChunkLength));
+            }
+            if (chunks[index] != null) {
+                throw new InvalidFormatException(FailureReason.FIELD_COUNT,
+                        String.format("Duplicate chunk %d", index));
+            }
+
+            chunks[index] = chunk;
+            count = Math.max(count, index + 1);
+            length += chunk.length();
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        StringBuilder signedValue = new StringBuilder(length);
+        for (int i = 0; i < count; i++) {
+            if (chunks[i] == null) {
+                throw new InvalidFormatException(FailureReason.FIELD_COUNT, String.format("Missing chunk %d", i));
+            }
+            signedValue.append(chunks[i]);
+        }
+
+        return new Cookie(name, codec.decodeValue(signedName(name, count), signedValue.toString()));
+    }
+
+    /**
+     * Gets the chunk index of a cookie name.
+     *
+     * @param name
+     *            the chunked cookie name
+     * @param cookieName
+     *            the request cookie name
+     * @return the chunk index or {@link #NOT_CHUNK} when the cookie is not one of its chunks
+     * @throws InvalidFormatException
+     *             when the index reaches the maximum chunk count
+     */
+    private int chunkIndex(String name, String cookieName) {
+        int start = name.length() + 1;
+        if (cookieName.length() <= start || !cookieName.startsWith(name)
+                || cookieName.charAt(name.length()) != CHUNK_SEPARATOR) {
+            return NOT_CHUNK;
+        }
+
+        // Only canonical decimal indexes, without sign nor leading zeros
+        if (cookieName.charAt(start) == '0' && cookieName.length() > start + 1) {
+            return NOT_CHUNK;
+        }
+
+        long index = 0;
+        for (int i = start; i < cookieName.length(); i++) {
+            char digit = cookieName.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return NOT_CHUNK;
+            }
+            index = index * 10 + (digit - '0');
+            if (index >= maxChunks) {
+                throw new InvalidFormatException(FailureReason.OVERSIZED,
+                        String.format("Chunk index exceeds the maximum count of %d", maxChunks));
+            }
+        }
+
+        return (int) index;
+    }
+
+    /**
+     * Gets the chunk count of a signed value.
+     *
+     * @param signedValue
+     *            the signed value
+     * @return the chunk count
+     */
+    private int chunkCount(String signedValue) {
+        return Math.max(1, (signedValue.length() + maxChunkLength - 1) / maxChunkLength);
+    }
+
+    /**
+     * Gets the name a chunked value is signed under, which is never a valid
+     * cookie name.
+     *
+     * @param name
+     *            the cookie name
+     * @param count
+     *            the chunk count
+     * @return the signed name
+     */
+    private static String signedName(String name, int count) {
+        return name + SIGNED_COUNT_START + count + SIGNED_COUNT_END;
+    }
+
+    /**
+     * Gets the name of a chunk cookie.
+     *
+     * @param name
+     *            the cookie name
+     * @param index
+     *            the chunk index
+     * @return the chunk cookie name
+     */
+    public static String chunkName(String name, int index) {
+        return name + CHUNK_SEPARATOR + index;
+    }
+
+    /**
+     * Factory method for {@link CookieChunker.Builder}.
+     *
+     * @param codec
+     *            the codec signing and verifying the whole values
+     * @return the builder
+     */
+    public static Builder builder(TornadoCookieCodec codec) {
+        return new Builder(codec);
+    }
+
+    /**
+     * As its name suggests the Class Builder handles the {@link CookieChunker}
+     * creation process.
+     */
+    public static final class Builder {
+
+        /** The codec signing and verifying the whole values. */
+        private final TornadoCookieCodec codec;
+
+        /** The longest chunk, in characters. */
+        private int maxChunkLength;
+
+        /** The maximum chunk count. */
+        private int maxChunks;
+
+        /**
+         * Instantiates a new builder.
+         *
+         * @param codec
+         *            the codec signing and verifying the whole values
+         */
+        private Builder(TornadoCookieCodec codec) {
+            if (codec == null) {
+                throw new IllegalArgumentException("The codec can not be null");
+            }
+            this.codec = codec;
+            this.maxChunkLength = DEFAULT_MAX_CHUNK_LENGTH;
+            this.maxChunks = DEFAULT_MAX_CHUNKS;
+        }
+
+        /**
+         * Set the longest chunk value, in characters. Defaults to
+         * {@value CookieChunker#DEFAULT_MAX_CHUNK_LENGTH}, which leaves room for the
+         * cookie name and attributes within the 4096 bytes browsers store per
+         * cookie.
+         *
+         * @param length
+         *            the maximum chunk length
+         * @return the builder
+         * @throws IllegalArgumentException
+         *             when the length is not positive
+         */
+        public Builder withMaxChunkLength(int length) {
+            if (length < 1) {
+                throw new IllegalArgumentException("The maximum chunk length must be positive");
+            }
+            this.maxChunkLength = length;
+            return this;
+        }
+
+        /**
+         * Set the maximum chunk count, which bounds the memory held while
+         * reassembling a value. Defaults to {@value CookieChunker#DEFAULT_MAX_CHUNKS}.
+         *
+         * @param count
+         *            the maximum chunk count
+         * @return the builder
+         * @throws IllegalArgumentException
+         *             when the count is not positive
+         */
+        public Builder withMaxChunks(int count) {
+            if (count < 1) {
+                throw new IllegalArgumentException("The maximum chunk count must be positive");
+            }
+            this.maxChunks = count;
+            return this;
+        }
+
+        /**
+         * Builds the {@link CookieChunker} instance.
+         *
+         * @return the cookie chunker
+         */
+        public CookieChunker build() {
+            return new CookieChunker(this);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Class EncodeCache memoizes the Tornado secure cookie value strings signed
+ * by a {@link TornadoCookieCodec}, keyed by cookie name, plain value and secret
+ * key number within the same timestamp second.
+ *
+ * <p>
+ * The cache is bounded: once the maximum size is reached new entries are not
+ * stored until the next timestamp second, when every entry is dropped at once.
+ * Each cache belongs to a single codec instance, so a key ring change (which
+ * always means building a new codec) starts with an empty cache too.
+ */
+public final class EncodeCache {
+
+    /** The maximum amount of entries per timestamp second. */
+    private final int maximumSize;
+
+    /** The entries signed within the current timestamp second. */
+    private final AtomicReference<Generation> generation;
+
+    /** The cache hit counter. */
+    private final LongAdder hits;
+
+    /** The cache miss counter. */
+    private final LongAdder misses;
+
+    /**
+     * Instantiates a new encode cache.
+     *
+     * @param maximumSize
+     *            the maximum amount of entries per timestamp second
+     * @throws IllegalArgumentException
+     *             when the maximum size is not positive
+     */
+    public EncodeCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Encode cache maximum size must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.generation = new AtomicReference<Generation>(new Generation(Long.MIN_VALUE));
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Gets a previously signed value string.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie plain value
+     * @param secretKeyNumber
+     *            the secret key number
+     * @param timestamp
+     *            the epoch timestamp (in seconds) of the value to sign
+     * @return the signed value string or null when it was not cached
+     */
+    public String get(String name, String value, int secretKeyNumber, long timestamp) {
+        Generation current = generation.get();
+        String result = null;
+
+        if (current.timestamp == timestamp) {
+            result = current.entries.get(new Key(name, value, secretKeyNumber));
+        }
+
+        if (result == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+
+        return result;
+    }
+
+    /**
+     * Stores a signed value string, unless the cache is full.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie plain value
+     * @param secretKeyNumber
+     *            the secret key number
+     * @param timestamp
+     *            the epoch timestamp (in seconds) of the signed value
+     * @param signedValue
+     *            the signed value string
+     */
+    public void put(String name, String value, int secretKeyNumber, long timestamp, String signedValue) {
+        Generation current = generation.get();
+
+        if (current.timestamp != timestamp) {
+            if (timestamp < current.timestamp) {
+                return;
+            }
+            Generation next = new Generation(timestamp);
+            if (!generation.compareAndSet(current, next)) {
+                current = generation.get();
+                if (current.timestamp != timestamp) {
+                    return;
+                }
+            } else {
+                current = next;
+            }
+        }
+
+        if (current.size.get() >= maximumSize) {
+            return;
+        }
+
+        if (current.entries.putIfAbsent(new Key(name, value, secretKeyNumber), signedValue) == null) {
+            current.size.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drops every cached entry.
+     */
+    public void invalidateAll() {
+        generation.set(new Generation(Long.MIN_VALUE));
+    }
+
+    /**
+     * Gets the amount of entries cached for the current timestamp second.
+     *
+     * @return the entry count
+     */
+    public int size() {
+        return generation.get().size.get();
+    }
+
+    /**
+     * Gets the cache hit count.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the cache miss count.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * The entries signed within a single timestamp second.
+     */
+    private static final class Generation {
+
+        /** The epoch timestamp (in seconds) shared by every entry. */
+        private final long timestamp;
+
+        /** The signed values. */
+        private final ConcurrentMap<Key, String> entries;
+
+        /** The amount of stored entries. */
+        private final AtomicInteger size;
+
+        /**
+         * Instantiates a new generation.
+         *
+         * @param timestamp
+         *            the epoch timestamp (in seconds)
+         */
+        private Generation(long timestamp) {
+            this.timestamp = timestamp;
+            this.entries = new ConcurrentHashMap<Key, String>();
+            this.size = new AtomicInteger();
+        }
+    }
+
+    /**
+     * The cache entry key.
+     */
+    private static final class Key {
+
+        /** The Constant HASH_MULTIPLIER holds the hash code combination factor. */
+        private static final int HASH_MULTIPLIER = 31;
+
+        /** The cookie name. */
+        private final String name;
+
+        /** The cookie plain value. */
+        private final String value;
+
+        /** The secret key number. */
+        private final int secretKeyNumber;
+
+        /**
+         * Instantiates a new key.
+         *
+         * @param name
+         *            the cookie name
+         * @param value
+         *            the cookie plain value
+         * @param secretKeyNumber
+         *            the secret key number
+         */
+        private Key(String name, String value, int secretKeyNumber) {
+            this.name = name;
+            this.value = value;
+            this.secretKeyNumber = secretKeyNumber;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            int result = Objects.hashCode(name);
+            result = HASH_MULTIPLIER * result + Objects.hashCode(value);
+            return HASH_MULTIPLIER * result + secretKeyNumber;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return secretKeyNumber == other.secretKeyNumber && Objects.equals(name, other.name)
+                    && Objects.equals(value, other.value);
+        }
+    }
+}
@@ -24,10 +24,27 @@
 package com.jossemargt.cookietwist.tornado.transform;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.UnaryOperator;
 
 import javax.servlet.http.Cookie;
 
+import com.jossemargt.cookietwist.concurrent.CodecExecutors;
+import com.jossemargt.cookietwist.exception.FailureReason;
 import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.jfr.CodecEvents;
+import com.jossemargt.cookietwist.metrics.CodecMetrics;
+import com.jossemargt.cookietwist.metrics.KeyUsageTracker;
+import com.jossemargt.cookietwist.metrics.NoopCodecMetrics;
+import com.jossemargt.cookietwist.metrics.Stage;
+import com.jossemargt.cookietwist.metrics.StageClock;
+import com.jossemargt.cookietwist.metrics.StageTracer;
+import com.jossemargt.cookietwist.signature.SignatureHasher;
+import com.jossemargt.cookietwist.signature.SignatureSession;
 import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
 
 /**
@@ -48,6 +65,19 @@ public abstract class TornadoCookieCodec {
      */
     private static final long TIMESTAMP_NOW = 0;
 
+    /**
+     * The Constant ASYNC_BATCH_VALUE_LENGTH holds the accumulated cookie value
+     * length (in characters) that closes an asynchronous batch, so small cookies
+     * share a single executor task.
+     */
+    private static final int ASYNC_BATCH_VALUE_LENGTH = 4096;
+
+    /**
+     * The Constant UNKNOWN_KEY_VERSION is reported as the key version of a value
+     * that failed before its key version was known.
+     */
+    private static final int UNKNOWN_KEY_VERSION = -1;
+
     /**
      * The serializer is a {@link TornadoCookieValueSerializer} instance that will
      * transform a cookie plain text into a Tornado secure cookie string
@@ -68,6 +98,33 @@ public abstract class TornadoCookieCodec {
      */
     private long timestamp;
 
+    /**
+     * The executor that runs the asynchronous operations, when null the
+     * {@link CodecExecutors#defaultExecutor()} is used.
+     */
+    private Executor executor;
+
+    /** The optional cache of signed values, null when disabled. */
+    private EncodeCache encodeCache;
+
+    /** The metrics receiving every encode and decode outcome. */
+    private CodecMetrics metrics;
+
+    /** Whether the metrics are enabled, cached to keep the no-op path free. */
+    private boolean metricsEnabled;
+
+    /** Whether the metrics track the bytes allocated by each operation. */
+    private boolean allocationsTracked;
+
+    /** The optional secret key version usage tracker, null when disabled. */
+    private KeyUsageTracker keyUsage;
+
+    /** The optional sampling stage tracer, null when disabled. */
+    private StageTracer tracer;
+
+    /** The optional compression of large plain values, null when disabled. */
+    private ValueCompression compression;
+
     /**
      * Instantiates a new TornadoCookieCodec from its builder.
      *
@@ -78,6 +135,16 @@ public abstract class TornadoCookieCodec {
         this.serializer = builder.serializer;
         this.deserializer = builder.deserializer;
         this.timestamp = builder.timestamp;
+        this.executor = builder.executor;
+        if (builder.encodeCacheSize > 0) {
+            this.encodeCache = new EncodeCache(builder.encodeCacheSize);
+        }
+        this.metrics = builder.metrics;
+        this.metricsEnabled = builder.metrics.isEnabled();
+        this.allocationsTracked = metricsEnabled && builder.metrics.isTrackingAllocations();
+        this.keyUsage = builder.keyUsage;
+        this.tracer = builder.tracer;
+        this.compression = builder.compression;
     }
 
     /**
@@ -103,20 +170,176 @@ public abstract class TornadoCookieCodec {
      * @return the {@link Cookie} with the value signed
      */
     public Cookie encodeCookie(Cookie source, int secretKeyNumber) {
-        TornadoCookieValue toEncode = TornadoCookieValue.builder().withName(source.getName())
-                .withValue(source.getValue()).withTimestamp(getTimestamp()).withSignatureKeyVersion(secretKeyNumber)
-                .build();
+        return encodeCookie(source, secretKeyNumber, null);
+    }
+
+    /**
+     * Encode a {@link Cookie} value string into its Tornado secure cookie
+     * representation using the given secret key number, signing within the given
+     * session.
+     *
+     * @param source
+     *            the {@link Cookie} to be signed
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign the given {@link Cookie}
+     * @param session
+     *            the signature session, null to sign on its own
+     * @return the {@link Cookie} with the value signed
+     */
+    Cookie encodeCookie(Cookie source, int secretKeyNumber, SignatureSession session) {
+        String serializedValue = encodeValue(source.getName(), source.getValue(), secretKeyNumber, getTimestamp(),
+                session);
+
+        Cookie encodedCookie = (Cookie) source.clone();
+        encodedCookie.setValue(serializedValue);
+
+        return encodedCookie;
+    }
+
+    /**
+     * Encode a cookie plain value string into its Tornado secure cookie value
+     * string representation using the given secret key number.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie plain value string
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign the value
+     * @return the Tornado secure cookie value string
+     */
+    public String encodeValue(String name, String value, int secretKeyNumber) {
+        return encodeValue(name, value, secretKeyNumber, getTimestamp());
+    }
+
+    /**
+     * Encode a cookie plain value string into its Tornado secure cookie value
+     * string representation using the given secret key number and issue
+     * timestamp, as when re-signing a value without extending its life.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie plain value string
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign the value
+     * @param issuedAt
+     *            the epoch timestamp, in seconds, the value was issued at
+     * @return the Tornado secure cookie value string
+     */
+    public String encodeValue(String name, String value, int secretKeyNumber, long issuedAt) {
+        return encodeValue(name, value, secretKeyNumber, issuedAt, null);
+    }
+
+    /**
+     * Encode a cookie plain value string into its Tornado secure cookie value
+     * string representation, signing within the given session.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie plain value string
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign the value
+     * @param issuedAt
+     *            the epoch timestamp, in seconds, the value was issued at
+     * @param session
+     *            the signature session, null to sign on its own
+     * @return the Tornado secure cookie value string
+     */
+    private String encodeValue(String name, String value, int secretKeyNumber, long issuedAt,
+            SignatureSession session) {
+        Object event = CodecEvents.beginEncode();
+        boolean sampled = tracer != null && tracer.shouldSample();
+
+        if (!metricsEnabled && event == null && !sampled) {
+            String signedValue = signValue(name, value, secretKeyNumber, issuedAt, null, session);
+            if (keyUsage != null) {
+                keyUsage.recordEncode(secretKeyNumber);
+            }
+            return signedValue;
+        }
+
+        StageClock clock = new StageClock(allocationsTracked);
+        String signedValue = signValue(name, value, secretKeyNumber, issuedAt, clock, session);
+
+        if (keyUsage != null) {
+            keyUsage.recordEncode(secretKeyNumber);
+        }
+
+        if (metricsEnabled) {
+            metrics.recordEncode(secretKeyNumber, signedValue.length(), clock.getTotal());
+            if (allocationsTracked) {
+                metrics.recordEncodeAllocations(clock);
+            }
+        }
+        if (event != null) {
+            CodecEvents.completeEncode(event, getFormatVersion(), secretKeyNumber, signedValue.length(), clock);
+        }
+        if (sampled) {
+            tracer.recordEncode(clock);
+        }
+
+        return signedValue;
+    }
+
+    /**
+     * Signs and serializes a cookie plain value string, going through the encode
+     * cache when enabled.
+     *
+     * @param name
+     *            the cookie name
+     * @param value
+     *            the cookie plain value string
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign the value
+     * @param issuedAt
+     *            the epoch timestamp the value is issued at
+     * @param clock
+     *            the stage clock, null when nothing observes the operation
+     * @param session
+     *            the signature session, null to sign on its own
+     * @return the Tornado secure cookie value string
+     */
+    private String signValue(String name, String value, int secretKeyNumber, long issuedAt, StageClock clock,
+            SignatureSession session) {
+        if (encodeCache != null) {
+            String cachedValue = encodeCache.get(name, value, secretKeyNumber, issuedAt);
+            if (cachedValue != null) {
+                if (clock != null) {
+                    clock.lap(Stage.SERIALIZE);
+                }
+                return cachedValue;
+            }
+        }
 
-        String signature = computeSignature(toEncode);
+        TornadoCookieValue toEncode = TornadoCookieValue.builder().withName(name).withValue(value)
+                .withTimestamp(issuedAt).withSignatureKeyVersion(secretKeyNumber).build();
+
+        if (compression != null) {
+            String compressed = compression.compress(value);
+            if (compressed != null) {
+                toEncode = TornadoCookieValue.builderFrom(toEncode).withValue(compressed).withCompressed(true).build();
+            }
+            if (clock != null) {
+                clock.lap(Stage.COMPRESSION);
+            }
+        }
+
+        String signature = sign(toEncode, clock, session);
 
         TornadoCookieValue toSerialize = TornadoCookieValue.builderFrom(toEncode).withSignature(signature).build();
 
         String serializedValue = serializer.serialize(toSerialize);
 
-        Cookie encodedCookie = (Cookie) source.clone();
-        encodedCookie.setValue(serializedValue);
+        if (encodeCache != null) {
+            encodeCache.put(name, value, secretKeyNumber, issuedAt, serializedValue);
+        }
+        if (clock != null) {
+            clock.lap(Stage.SERIALIZE);
+        }
 
-        return encodedCookie;
+        return serializedValue;
     }
 
     /**
@@ -131,20 +354,316 @@ public abstract class TornadoCookieCodec {
      * @return the {@link Cookie} with the plain text value
      */
     public Cookie decodeCookie(Cookie source) {
-        TornadoCookieValue toDecode = getTornadoCookieValueFrom(source);
-
-        String computedSignature = computeSignature(toDecode);
+        return decodeCookie(source, null);
+    }
 
-        if (!computedSignature.equals(toDecode.getSignature())) {
-            throw new InvalidFormatException("Cookie signature mismatch");
-        }
+    /**
+     * Decode a {@link Cookie} from its Tornado secure cookie representation into a
+     * plain text one, verifying its signature within the given session.
+     *
+     * @param source
+     *            the signed {@link Cookie} to be transformed
+     * @param session
+     *            the signature session, null to verify on its own
+     * @throws InvalidFormatException
+     *             if the secure cookie value String does not comply with a format
+     *             rule.
+     * @return the {@link Cookie} with the plain text value
+     */
+    Cookie decodeCookie(Cookie source, SignatureSession session) {
+        String plainValue = decodeTornadoCookieValue(source.getName(), source.getValue(), session).getValue();
 
         Cookie decodedCookie = (Cookie) source.clone();
-        decodedCookie.setValue(toDecode.getValue());
+        decodedCookie.setValue(plainValue);
 
         return decodedCookie;
     }
 
+    /**
+     * Decode a Tornado secure cookie value string into its plain text value,
+     * verifying its signature.
+     *
+     * @param name
+     *            the cookie name
+     * @param signedValue
+     *            the Tornado secure cookie value string
+     * @throws InvalidFormatException
+     *             if the secure cookie value String does not comply with a format
+     *             rule.
+     * @return the plain text value
+     */
+    public String decodeValue(String name, String signedValue) {
+        return decodeTornadoCookieValue(name, signedValue).getValue();
+    }
+
+    /**
+     * Decode a Tornado secure cookie value string into its
+     * {@link TornadoCookieValue}, verifying its signature. Unlike
+     * {@link #decodeValue(String, String)}, the issue timestamp and the secret
+     * key version are kept.
+     *
+     * @param name
+     *            the cookie name
+     * @param signedValue
+     *            the Tornado secure cookie value string
+     * @throws InvalidFormatException
+     *             if the secure cookie value String does not comply with a format
+     *             rule.
+     * @return the verified {@link TornadoCookieValue}
+     */
+    public TornadoCookieValue decodeTornadoCookieValue(String name, String signedValue) {
+        return decodeTornadoCookieValue(name, signedValue, null);
+    }
+
+    /**
+     * Decode a Tornado secure cookie value string into its
+     * {@link TornadoCookieValue}, verifying its signature within the given
+     * session.
+     *
+     * @param name
+     *            the cookie name
+     * @param signedValue
+     *            the Tornado secure cookie value string
+     * @param session
+     *            the signature session, null to verify on its own
+     * @throws InvalidFormatException
+     *             if the secure cookie value String does not comply with a format
+     *             rule.
+     * @return the verified {@link TornadoCookieValue}
+     */
+    private TornadoCookieValue decodeTornadoCookieValue(String name, String signedValue, SignatureSession session) {
+        Object event = CodecEvents.beginDecode();
+
+        boolean sampled = tracer != null && tracer.shouldSample();
+
+        if (!metricsEnabled && event == null && !sampled) {
+            return verifyValue(name, signedValue, null, session);
+        }
+
+        StageClock clock = new StageClock(allocationsTracked);
+        int size = 0;
+        if (signedValue != null) {
+            size = signedValue.length();
+        }
+
+        TornadoCookieValue verified;
+        try {
+            verified = verifyValue(name, signedValue, clock, session);
+        } catch (InvalidFormatException e) {
+            clock.lap(Stage.PARSE);
+            if (metricsEnabled) {
+                metrics.recordFailure(e.getReason(), size, clock.getTotal());
+                if (allocationsTracked) {
+                    metrics.recordDecodeAllocations(clock);
+                }
+            }
+            if (event != null) {
+                CodecEvents.completeDecode(event, getFormatVersion(), UNKNOWN_KEY_VERSION, size,
+                        e.getReason().name(), clock);
+            }
+            if (sampled) {
+                tracer.recordDecode(clock);
+            }
+            throw e;
+        }
+
+        if (metricsEnabled) {
+            metrics.recordDecode(verified.getSignatureKeyVersion(), size, clock.getTotal());
+            if (allocationsTracked) {
+                metrics.recordDecodeAllocations(clock);
+            }
+        }
+        if (event != null) {
+            CodecEvents.completeDecode(event, getFormatVersion(), verified.getSignatureKeyVersion(), size,
+                    CodecEvents.OUTCOME_OK, clock);
+        }
+        if (sampled) {
+            tracer.recordDecode(clock);
+        }
+
+        return verified;
+    }
+
+    /**
+     * Deserializes a Tornado secure cookie value string and verifies its
+     * signature.
+     *
+     * @param name
+     *            the cookie name
+     * @param signedValue
+     *            the Tornado secure cookie value string
+     * @param clock
+     *            the stage clock, null when nothing observes the operation
+     * @param session
+     *            the signature session, null to verify on its own
+     * @throws InvalidFormatException
+     *             if the secure cookie value String does not comply with a format
+     *             rule.
+     * @return the verified {@link TornadoCookieValue}
+     */
+    private TornadoCookieValue verifyValue(String name, String signedValue, StageClock clock,
+            SignatureSession session) {
+        TornadoCookieValue toDecode = getTornadoCookieValueFrom(name, signedValue, clock);
+
+        if (clock != null) {
+            clock.lap(Stage.PARSE);
+        }
+
+        String computedSignature = sign(toDecode, clock, session);
+        boolean matches = computedSignature.equals(toDecode.getSignature());
+
+        if (clock != null) {
+            clock.lap(Stage.COMPARE);
+        }
+
+        if (!matches) {
+            throw new InvalidFormatException(FailureReason.SIGNATURE_MISMATCH, "Cookie signature mismatch");
+        }
+
+        if (toDecode.isCompressed()) {
+            toDecode = inflate(toDecode, clock);
+        }
+
+        if (keyUsage != null) {
+            keyUsage.recordVerification(toDecode.getSignatureKeyVersion(), toDecode.getTimestamp());
+        }
+
+        return toDecode;
+    }
+
+    /**
+     * Inflates a verified compressed value, within the limits of the configured
+     * compression.
+     *
+     * @param compressedValue
+     *            the verified {@link TornadoCookieValue} holding a compressed value
+     * @param clock
+     *            the stage clock, null when nothing observes the operation
+     * @throws InvalidFormatException
+     *             with {@link FailureReason#COMPRESSION} when the value can not be
+     *             inflated within the limits
+     * @return the {@link TornadoCookieValue} holding the plain value
+     */
+    private TornadoCookieValue inflate(TornadoCookieValue compressedValue, StageClock clock) {
+        String value = compression.decompress(compressedValue.getValue());
+
+        if (clock != null) {
+            clock.lap(Stage.COMPRESSION);
+        }
+
+        return TornadoCookieValue.builderFrom(compressedValue).withValue(value).withCompressed(false).build();
+    }
+
+    /**
+     * Computes the cookie value signature, charging it to the HMAC stage when a
+     * clock observes the operation. Its Flight Recorder event is emitted whenever
+     * a recording enables it, even if no encode or decode event is recorded,
+     * timed by the event itself. Within a session, the session enters the hasher
+     * of the value secret key version first.
+     *
+     * @param cookieValue
+     *            the cookie value to be signed
+     * @param clock
+     *            the stage clock, null when nothing observes the operation
+     * @param session
+     *            the signature session, null to sign on its own
+     * @return the signature string of the given {@link TornadoCookieValue}
+     */
+    private String sign(TornadoCookieValue cookieValue, StageClock clock, SignatureSession session) {
+        if (session != null) {
+            session.enter(getSignatureHasher(cookieValue.getSignatureKeyVersion()));
+        }
+
+        Object event = CodecEvents.beginSignature();
+
+        String signature;
+        if (clock == null) {
+            signature = computeSignature(cookieValue);
+        } else {
+            signature = computeSignature(cookieValue, clock);
+        }
+
+        if (event != null) {
+            int valueSize = 0;
+            if (cookieValue.getValue() != null) {
+                valueSize = cookieValue.getValue().length();
+            }
+            CodecEvents.completeSignature(event, getFormatVersion(), cookieValue.getSignatureKeyVersion(), valueSize);
+        }
+
+        return signature;
+    }
+
+    /**
+     * Asynchronously encode a {@link Cookie} value string into its Tornado secure
+     * cookie representation using the default secret key number.
+     *
+     * @param source
+     *            the {@link Cookie} to be signed
+     * @return the future {@link Cookie} with the value signed
+     * @see #encodeCookie(Cookie)
+     */
+    public CompletableFuture<Cookie> encodeAsync(Cookie source) {
+        return encodeAsync(source, DEFAULT_SECRET_KEY_NUMBER);
+    }
+
+    /**
+     * Asynchronously encode a {@link Cookie} value string into its Tornado secure
+     * cookie representation using the given secret key number.
+     *
+     * @param source
+     *            the {@link Cookie} to be signed
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign the given {@link Cookie}
+     * @return the future {@link Cookie} with the value signed
+     * @see #encodeCookie(Cookie, int)
+     */
+    public CompletableFuture<Cookie> encodeAsync(Cookie source, int secretKeyNumber) {
+        return CompletableFuture.supplyAsync(() -> encodeCookie(source, secretKeyNumber), getExecutor());
+    }
+
+    /**
+     * Asynchronously decode a {@link Cookie} from its Tornado secure cookie
+     * representation into a plain text one. Any {@link InvalidFormatException}
+     * completes the returned future exceptionally.
+     *
+     * @param source
+     *            the signed {@link Cookie} to be transformed
+     * @return the future {@link Cookie} with the plain text value
+     * @see #decodeCookie(Cookie)
+     */
+    public CompletableFuture<Cookie> decodeAsync(Cookie source) {
+        return CompletableFuture.supplyAsync(() -> decodeCookie(source), getExecutor());
+    }
+
+    /**
+     * Asynchronously encode every given {@link Cookie} using the given secret key
+     * number. Consecutive small cookies are grouped into a single executor task
+     * to reduce the hand-off overhead.
+     *
+     * @param sources
+     *            the {@link Cookie} list to be signed
+     * @param secretKeyNumber
+     *            the number of the secret key used to sign the given cookies
+     * @return one future per given {@link Cookie}, in the same order
+     */
+    public List<CompletableFuture<Cookie>> encodeAllAsync(List<Cookie> sources, int secretKeyNumber) {
+        return submitInBatches(sources, source -> encodeCookie(source, secretKeyNumber));
+    }
+
+    /**
+     * Asynchronously decode every given {@link Cookie}. Consecutive small cookies
+     * are grouped into a single executor task to reduce the hand-off overhead,
+     * while each one keeps its own outcome.
+     *
+     * @param sources
+     *            the signed {@link Cookie} list to be transformed
+     * @return one future per given {@link Cookie}, in the same order
+     */
+    public List<CompletableFuture<Cookie>> decodeAllAsync(List<Cookie> sources) {
+        return submitInBatches(sources, this::decodeCookie);
+    }
+
     /**
      * Compute the cookie value string signature.
      *
@@ -157,6 +676,46 @@ public abstract class TornadoCookieCodec {
      */
     protected abstract String computeSignature(TornadoCookieValue cookieValue);
 
+    /**
+     * Compute the cookie value string signature, charging its stages to the given
+     * clock. The default implementation charges the whole computation to the
+     * {@link Stage#HMAC} stage.
+     *
+     * @param cookieValue
+     *            the cookie value to be signed
+     * @param clock
+     *            the stage clock
+     * @throws InvalidFormatException
+     *             (Tornado V2 only) when the required hasher version by the secure
+     *             Cookie value representation could not be found
+     * @return the signature string of the given {@link TornadoCookieValue}
+     */
+    protected String computeSignature(TornadoCookieValue cookieValue, StageClock clock) {
+        String signature = computeSignature(cookieValue);
+        clock.lap(Stage.HMAC);
+        return signature;
+    }
+
+    /**
+     * Gets the signature hasher of the given secret key number.
+     *
+     * @param secretKeyNumber
+     *            the secret key number
+     * @return the signature hasher, null when there is no such secret key
+     */
+    protected abstract SignatureHasher getSignatureHasher(int secretKeyNumber);
+
+    /**
+     * Opens a batch that signs and verifies cookies holding the signature hasher
+     * lock across consecutive cookies of the same secret key, instead of taking it
+     * once per cookie.
+     *
+     * @return the {@link CodecBatch}, to be closed once the batch is done
+     */
+    public CodecBatch openBatch() {
+        return new CodecBatch(this);
+    }
+
     /**
      * Gets the tornado cookie value from a {@link Cookie} instance.
      *
@@ -170,6 +729,31 @@ public abstract class TornadoCookieCodec {
      */
     protected abstract TornadoCookieValue getTornadoCookieValueFrom(Cookie source);
 
+    /**
+     * Gets the tornado cookie value from a cookie name and its Tornado signed value
+     * string.
+     *
+     * @param name
+     *            the cookie name
+     * @param signedValue
+     *            the Tornado signed value string
+     * @param clock
+     *            the stage clock, null when nothing observes the operation
+     * @throws InvalidFormatException
+     *             (Tornado V2 only) when the cookie name doesn't match with the
+     *             secure Cookie value representation
+     * @return the {@link TornadoCookieValue} from the Tornado signed value
+     */
+    protected abstract TornadoCookieValue getTornadoCookieValueFrom(String name, String signedValue,
+            StageClock clock);
+
+    /**
+     * Gets the Tornado secure cookie format version handled by this codec.
+     *
+     * @return the format version
+     */
+    public abstract int getFormatVersion();
+
     /**
      * Gets the timestamp to be used by a {@link TornadoCookieValue}, it could be
      * the epoch representation of the current time or a fixed value based on the
@@ -177,7 +761,7 @@ public abstract class TornadoCookieCodec {
      *
      * @return the epoch timestamp
      */
-    private long getTimestamp() {
+    long getTimestamp() {
         if (timestamp == TIMESTAMP_NOW) {
             return Instant.now().getEpochSecond();
         }
@@ -185,6 +769,129 @@ public abstract class TornadoCookieCodec {
         return timestamp;
     }
 
+    /**
+     * Gets the cache of signed values.
+     *
+     * @return the encode cache or null when it is disabled
+     */
+    public EncodeCache getEncodeCache() {
+        return encodeCache;
+    }
+
+    /**
+     * Gets the metrics receiving every encode and decode outcome.
+     *
+     * @return the codec metrics, {@link NoopCodecMetrics#INSTANCE} when disabled
+     */
+    public CodecMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the secret key version usage tracker.
+     *
+     * @return the key usage tracker or null when it is disabled
+     */
+    public KeyUsageTracker getKeyUsageTracker() {
+        return keyUsage;
+    }
+
+    /**
+     * Gets the sampling stage tracer.
+     *
+     * @return the stage tracer or null when it is disabled
+     */
+    public StageTracer getStageTracer() {
+        return tracer;
+    }
+
+    /**
+     * Gets the executor for the asynchronous operations.
+     *
+     * @return the configured executor or the library default one
+     */
+    private Executor getExecutor() {
+        if (executor == null) {
+            return CodecExecutors.defaultExecutor();
+        }
+
+        return executor;
+    }
+
+    /**
+     * Splits the given cookies into batches bounded by their accumulated value
+     * length and submits each batch as a single executor task.
+     *
+     * @param sources
+     *            the cookies to transform
+     * @param operation
+     *            the transformation to apply to each cookie
+     * @return one future per given {@link Cookie}, in the same order
+     */
+    private List<CompletableFuture<Cookie>> submitInBatches(List<Cookie> sources, UnaryOperator<Cookie> operation) {
+        List<Cookie> pending = new ArrayList<Cookie>(sources);
+        List<CompletableFuture<Cookie>> results = new ArrayList<CompletableFuture<Cookie>>(pending.size());
+        int batchStart = 0;
+        int batchLength = 0;
+
+        // Every future exists before the first batch is submitted, so no task
+        // sees the results list change under its sublist
+        for (int i = 0; i < pending.size(); i++) {
+            results.add(new CompletableFuture<Cookie>());
+        }
+
+        for (int i = 0; i < pending.size(); i++) {
+            String value = pending.get(i).getValue();
+
+            if (value != null) {
+                batchLength += value.length();
+            }
+
+            if (batchLength >= ASYNC_BATCH_VALUE_LENGTH) {
+                submitBatch(pending.subList(batchStart, i + 1), results.subList(batchStart, i + 1), operation);
+                batchStart = i + 1;
+                batchLength = 0;
+            }
+        }
+
+        if (batchStart < pending.size()) {
+            submitBatch(pending.subList(batchStart, pending.size()), results.subList(batchStart, pending.size()),
+                    operation);
+        }
+
+        return results;
+    }
+
+    /**
+     * Submits a single executor task that transforms the given batch, completing
+     * each future with its own result or failure.
+     *
+     * @param batch
+     *            the cookies to transform
+     * @param futures
+     *            the futures to complete, one per cookie
+     * @param operation
+     *            the transformation to apply to each cookie
+     */
+    private void submitBatch(List<Cookie> batch, List<CompletableFuture<Cookie>> futures,
+            UnaryOperator<Cookie> operation) {
+        try {
+            getExecutor().execute(() -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        futures.get(i).complete(operation.apply(batch.get(i)));
+                    } catch (RuntimeException e) {
+                        futures.get(i).completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            for (CompletableFuture<Cookie> future : futures) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
     /**
      * As its name suggests the Class Builder handles the {@link TornadoCookieCodec}
      * creation process.
@@ -203,11 +910,34 @@ public abstract class TornadoCookieCodec {
         /** The timestamp to be used by the {@link TornadoCookieCodec} instance. */
         protected long timestamp;
 
+        /** The executor for the {@link TornadoCookieCodec} asynchronous methods. */
+        protected Executor executor;
+
+        /** The maximum entries of the encode cache, zero disables it. */
+        protected int encodeCacheSize;
+
+        /** The metrics for the {@link TornadoCookieCodec} instance. */
+        protected CodecMetrics metrics;
+
+        /** The secret key version usage tracker, null when disabled. */
+        protected KeyUsageTracker keyUsage;
+
+        /** The sampling stage tracer, null when disabled. */
+        protected StageTracer tracer;
+
+        /** The longest signed value the deserializer accepts. */
+        protected int maxValueLength;
+
+        /** The compression of large plain values, null when disabled. */
+        protected ValueCompression compression;
+
         /**
          * Instantiates a new {@link TornadoCookieCodec} builder.
          */
         protected Builder() {
             this.timestamp = 0;
+            this.metrics = NoopCodecMetrics.INSTANCE;
+            this.maxValueLength = TornadoCookieValueDeserializer.DEFAULT_MAX_LENGTH;
         }
 
         /**
@@ -222,6 +952,99 @@ public abstract class TornadoCookieCodec {
             return self();
         }
 
+        /**
+         * Set the executor that runs the {@link TornadoCookieCodec} asynchronous
+         * operations. When not set, the {@link CodecExecutors#defaultExecutor()} is
+         * used.
+         *
+         * @param executor
+         *            the executor instance
+         * @return the generic type that extends from this class
+         */
+        public T withExecutor(Executor executor) {
+            this.executor = executor;
+            return self();
+        }
+
+        /**
+         * Enables the memoization of signed values, so encoding the same cookie
+         * name, value and secret key number within the same timestamp second
+         * returns the previously signed string. Disabled by default.
+         *
+         * @param maximumSize
+         *            the maximum amount of cached entries, zero disables the cache
+         * @return the generic type that extends from this class
+         * @see EncodeCache
+         */
+        public T withEncodeCache(int maximumSize) {
+            this.encodeCacheSize = maximumSize;
+            return self();
+        }
+
+        /**
+         * Set the metrics that receive every encode and decode outcome, like a
+         * {@link com.jossemargt.cookietwist.metrics.StripedCodecMetrics}. When not
+         * set, nothing is measured.
+         *
+         * @param metrics
+         *            the codec metrics, null disables them
+         * @return the generic type that extends from this class
+         */
+        public T withMetrics(CodecMetrics metrics) {
+            if (metrics == null) {
+                this.metrics = NoopCodecMetrics.INSTANCE;
+            } else {
+                this.metrics = metrics;
+            }
+            return self();
+        }
+
+        /**
+         * Set the tracker that follows every secret key version usage, to tell
+         * when an old key version can be retired. Disabled by default.
+         *
+         * @param tracker
+         *            the key usage tracker, null disables it
+         * @return the generic type that extends from this class
+         * @see KeyUsageTracker#getRetirableVersions(int)
+         */
+        public T withKeyUsageTracker(KeyUsageTracker tracker) {
+            this.keyUsage = tracker;
+            return self();
+        }
+
+        /**
+         * Set the tracer that samples the encode and decode operations to break
+         * their time down by {@link Stage}. Disabled by default.
+         *
+         * @param tracer
+         *            the stage tracer, null disables it
+         * @return the generic type that extends from this class
+         */
+        public T withStageTracer(StageTracer tracer) {
+            this.tracer = tracer;
+            return self();
+        }
+
+        /**
+         * Set the longest signed value to decode, in characters. Longer values
+         * fail with {@link FailureReason#OVERSIZED} before any parsing. Defaults to
+         * {@link TornadoCookieValueDeserializer#DEFAULT_MAX_LENGTH}.
+         *
+         * @param maxLength
+         *            the maximum signed value length
+         * @return the generic type that extends from this class
+         * @throws IllegalArgumentException
+         *             when the maximum length is not positive
+         */
+        public T withMaxValueLength(int maxLength) {
+            if (maxLength < 1) {
+                throw new IllegalArgumentException("The maximum value length must be positive");
+            }
+            this.maxValueLength = maxLength;
+            return self();
+        }
+
         /**
          * Adds a SignatureHasher object with the given secret key in the hasherList to
          * be use by the {@link TornadoCookieCodec} instance.
@@ -232,6 +1055,19 @@ public abstract class TornadoCookieCodec {
          */
         public abstract T withSecretKey(String secretKey);
 
+        /**
+         * Adds an already created SignatureHasher object in the hasherList to be use
+         * by the {@link TornadoCookieCodec} instance, which allows sharing a single
+         * hasher among several codecs. An initialized hasher is not initialized
+         * again.
+         *
+         * @param hasher
+         *            the signature hasher for the algorithm required by the codec
+         *            version
+         * @return the builder
+         */
+        public abstract T withSignatureHasher(SignatureHasher hasher);
+
         /**
          * Builds the {@link TornadoCookieCodec} instance.
          *
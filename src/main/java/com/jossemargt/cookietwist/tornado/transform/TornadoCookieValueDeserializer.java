@@ -23,6 +23,7 @@
  */
 package com.jossemargt.cookietwist.tornado.transform;
 
+import com.jossemargt.cookietwist.metrics.StageClock;
 import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
 
 /**
@@ -38,11 +39,22 @@ import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
  * number.
  *
  * <p>
+ * Cookie values come from the client, so implementations reject the values
+ * longer than their maximum length, {@value #DEFAULT_MAX_LENGTH} characters by
+ * default, before parsing them, and parse the rest in linear time.
+ *
+ * <p>
  * <strong>Note:</strong> The cookie value signature integrity should checked by
  * another object before transforming it into a {@link TornadoCookieValue}.
  */
 public interface TornadoCookieValueDeserializer {
 
+    /**
+     * The Constant DEFAULT_MAX_LENGTH holds the default longest raw value
+     * accepted, twice the 4096 bytes browsers store per cookie.
+     */
+    int DEFAULT_MAX_LENGTH = 8192;
+
     /**
      * Transforms a Tornado secure cookie value String into a
      * {@link TornadoCookieValue}.
@@ -56,4 +68,23 @@ public interface TornadoCookieValueDeserializer {
      */
     TornadoCookieValue deserialize(String value);
 
+    /**
+     * Transforms a Tornado secure cookie value String into a
+     * {@link TornadoCookieValue}, charging its decoding stages to the given clock.
+     * The default implementation charges nothing, leaving the whole
+     * de-serialization to the caller's parse stage.
+     *
+     * @param value
+     *            the Tornado secure cookie value String
+     * @param clock
+     *            the stage clock, null when nothing observes the operation
+     * @return the cookie value model
+     * @throws com.jossemargt.cookietwist.exception.InvalidFormatException
+     *             if the secure cookie value String does not comply with a format
+     *             rule.
+     */
+    default TornadoCookieValue deserialize(String value, StageClock clock) {
+        return deserialize(value);
+    }
+
 }
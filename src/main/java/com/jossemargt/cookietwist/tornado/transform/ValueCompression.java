@@ -0,0 +1,375 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+
+/**
+ * The Class ValueCompression deflates the large plain values before they are
+ * signed and inflates them back once their signature is verified, so a forged
+ * value is never inflated. The compressed bytes travel within the
+ * {@link com.jossemargt.cookietwist.tornado.TornadoCookieValue} as an ISO-8859-1
+ * string, one character per byte, flagged by
+ * {@link com.jossemargt.cookietwist.tornado.TornadoCookieValue#isCompressed()}.
+ *
+ * <p>
+ * The {@link Deflater} and {@link Inflater} instances are borrowed from small
+ * bounded pools and returned after each call, since building them allocates
+ * native zlib buffers. Instances that do not fit back into a full pool are
+ * ended right away, so the native memory stays bounded however many threads,
+ * virtual ones included, go through the compression. Inflating stops as soon as the
+ * output exceeds the maximum inflated length, or the maximum ratio times the
+ * compressed length, whichever is smaller.
+ */
+public final class ValueCompression {
+
+    /** The Constant DEFAULT_THRESHOLD holds the default shortest value compressed, in bytes. */
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    /** The Constant DEFAULT_MAX_INFLATED_LENGTH holds the default longest inflated value, in bytes. */
+    public static final int DEFAULT_MAX_INFLATED_LENGTH = 64 * 1024;
+
+    /** The Constant DEFAULT_MAX_RATIO holds the default highest inflated to compressed length ratio. */
+    public static final int DEFAULT_MAX_RATIO = 100;
+
+    /** The Constant BUFFER_SIZE holds the inflate buffer size. */
+    private static final int BUFFER_SIZE = 4096;
+
+    /** The Constant FLAG_LENGTH holds the bytes flagging a compressed value. */
+    private static final int FLAG_LENGTH = 1;
+
+    /** The Constant POOL_SIZE holds the most idle deflaters, and inflaters, kept. */
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    /** The shortest UTF-8 value compressed, in bytes. */
+    private final int threshold;
+
+    /** The longest inflated value, in bytes. */
+    private final int maxInflatedLength;
+
+    /** The highest inflated to compressed length ratio. */
+    private final int maxRatio;
+
+    /** The deflate compression level. */
+    private final int level;
+
+    /** The idle deflaters. */
+    private final BlockingQueue<Deflater> deflaters;
+
+    /** The idle inflaters. */
+    private final BlockingQueue<Inflater> inflaters;
+
+    /**
+     * Instantiates a new value compression.
+     *
+     * @param builder
+     *            the {@link Builder} instance
+     */
+    private ValueCompression(Builder builder) {
+        this.level = builder.level;
+        this.threshold = builder.threshold;
+        this.maxInflatedLength = builder.maxInflatedLength;
+        this.maxRatio = builder.maxRatio;
+        this.deflaters = new ArrayBlockingQueue<Deflater>(POOL_SIZE);
+        this.inflaters = new ArrayBlockingQueue<Inflater>(POOL_SIZE);
+    }
+
+    /**
+     * Deflates the given plain value when it reaches the threshold.
+     *
+     * @param value
+     *            the plain value
+     * @return the compressed bytes as an ISO-8859-1 string, or null when the value
+     *         is shorter than the threshold or compressing it saves no byte
+     */
+    public String compress(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        byte[] input = value.getBytes(StandardCharsets.UTF_8);
+        // The compressed value and its flag byte must save at least a byte
+        int capacity = input.length - FLAG_LENGTH - 1;
+        if (input.length < threshold || capacity < 1) {
+            return null;
+        }
+
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level);
+        }
+
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+
+            byte[] output = new byte[capacity];
+            int length = 0;
+            while (!deflater.finished() && length < output.length) {
+                length += deflater.deflate(output, length, output.length - length);
+            }
+
+            if (!deflater.finished()) {
+                return null;
+            }
+
+            return new String(output, 0, length, StandardCharsets.ISO_8859_1);
+        } finally {
+            deflater.reset();
+            if (!deflaters.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Inflates the given compressed value.
+     *
+     * @param compressed
+     *            the compressed bytes as an ISO-8859-1 string
+     * @return the plain value
+     * @throws InvalidFormatException
+     *             with {@link FailureReason#COMPRESSION} when the compressed
+     *             bytes are corrupt or inflate beyond the limits
+     */
+    public String decompress(String compressed) {
+        byte[] input = compressed.getBytes(StandardCharsets.ISO_8859_1);
+        long limit = Math.min(maxInflatedLength, (long) input.length * maxRatio);
+
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+
+        try {
+            return inflate(inflater, input, limit);
+        } finally {
+            inflater.reset();
+            if (!inflaters.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Inflates the given compressed bytes with the given inflater.
+     *
+     * @param inflater
+     *            the borrowed inflater
+     * @param input
+     *            the compressed bytes
+     * @param limit
+     *            the longest inflated value, in bytes
+     * @return the plain value
+     * @throws InvalidFormatException
+     *             with {@link FailureReason#COMPRESSION} when the compressed
+     *             bytes are corrupt or inflate beyond the limit
+     */
+    private static String inflate(Inflater inflater, byte[] input, long limit) {
+        inflater.setInput(input);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream((int) Math.min(limit, BUFFER_SIZE));
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try {
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new InvalidFormatException(FailureReason.COMPRESSION, "Truncated compressed value");
+                }
+                if (output.size() + length > limit) {
+                    throw new InvalidFormatException(FailureReason.COMPRESSION,
+                            String.format("Compressed value inflates beyond %d bytes", limit));
+                }
+                output.write(buffer, 0, length);
+            }
+        } catch (DataFormatException e) {
+            throw new InvalidFormatException(FailureReason.COMPRESSION, "Corrupt compressed value", e);
+        }
+
+        if (inflater.getRemaining() > 0) {
+            throw new InvalidFormatException(FailureReason.COMPRESSION, "Trailing bytes after the compressed value");
+        }
+
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the shortest UTF-8 value compressed, in bytes.
+     *
+     * @return the threshold
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Gets the amount of idle deflaters and inflaters kept by the pools.
+     *
+     * @return the idle instances count
+     */
+    int idleCount() {
+        return deflaters.size() + inflaters.size();
+    }
+
+    /**
+     * Gets the most idle deflaters, and inflaters, kept by each pool.
+     *
+     * @return the pool size
+     */
+    static int poolSize() {
+        return POOL_SIZE;
+    }
+
+    /**
+     * Factory method for {@link ValueCompression.Builder}.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * As its name suggests the Class Builder handles the {@link ValueCompression}
+     * creation process.
+     */
+    public static final class Builder {
+
+        /** The shortest UTF-8 value compressed, in bytes. */
+        private int threshold;
+
+        /** The deflate compression level. */
+        private int level;
+
+        /** The longest inflated value, in bytes. */
+        private int maxInflatedLength;
+
+        /** The highest inflated to compressed length ratio. */
+        private int maxRatio;
+
+        /**
+         * Instantiates a new builder.
+         */
+        private Builder() {
+            this.threshold = DEFAULT_THRESHOLD;
+            this.level = Deflater.DEFAULT_COMPRESSION;
+            this.maxInflatedLength = DEFAULT_MAX_INFLATED_LENGTH;
+            this.maxRatio = DEFAULT_MAX_RATIO;
+        }
+
+        /**
+         * Set the shortest plain value compressed, in UTF-8 bytes. Use
+         * {@link Integer#MAX_VALUE} to only inflate. Defaults to
+         * {@value ValueCompression#DEFAULT_THRESHOLD}.
+         *
+         * @param bytes
+         *            the threshold in bytes
+         * @return the builder
+         * @throws IllegalArgumentException
+         *             when the threshold is negative
+         */
+        public Builder withThreshold(int bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("The compression threshold can not be negative");
+            }
+            this.threshold = bytes;
+            return this;
+        }
+
+        /**
+         * Set the deflate compression level, from {@link Deflater#BEST_SPEED} to
+         * {@link Deflater#BEST_COMPRESSION}. Defaults to
+         * {@link Deflater#DEFAULT_COMPRESSION}.
+         *
+         * @param level
+         *            the compression level
+         * @return the builder
+         * @throws IllegalArgumentException
+         *             when the level is out of range
+         */
+        public Builder withLevel(int level) {
+            if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+                    && level != Deflater.DEFAULT_COMPRESSION) {
+                throw new IllegalArgumentException(String.format("Invalid compression level: %d", level));
+            }
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * Set the longest inflated value, in bytes, against decompression bombs.
+         * Defaults to {@value ValueCompression#DEFAULT_MAX_INFLATED_LENGTH}.
+         *
+         * @param bytes
+         *            the maximum inflated length
+         * @return the builder
+         * @throws IllegalArgumentException
+         *             when the length is not positive
+         */
+        public Builder withMaxInflatedLength(int bytes) {
+            if (bytes < 1) {
+                throw new IllegalArgumentException("The maximum inflated length must be positive");
+            }
+            this.maxInflatedLength = bytes;
+            return this;
+        }
+
+        /**
+         * Set the highest inflated to compressed length ratio, against
+         * decompression bombs. Defaults to {@value ValueCompression#DEFAULT_MAX_RATIO}.
+         *
+         * @param ratio
+         *            the maximum ratio
+         * @return the builder
+         * @throws IllegalArgumentException
+         *             when the ratio is not positive
+         */
+        public Builder withMaxRatio(int ratio) {
+            if (ratio < 1) {
+                throw new IllegalArgumentException("The maximum compression ratio must be positive");
+            }
+            this.maxRatio = ratio;
+            return this;
+        }
+
+        /**
+         * Builds the {@link ValueCompression} instance.
+         *
+         * @return the value compression
+         */
+        public ValueCompression build() {
+            return new ValueCompression(this);
+        }
+    }
+}
@@ -25,6 +25,7 @@ package com.jossemargt.cookietwist.tornado.transform.impl;
 
 import javax.servlet.http.Cookie;
 
+import com.jossemargt.cookietwist.metrics.StageClock;
 import com.jossemargt.cookietwist.signature.SignatureHasher;
 import com.jossemargt.cookietwist.signature.impl.Sha1SignatureHasher;
 import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
@@ -36,6 +37,9 @@ import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
  */
 public final class V1TornadoCookieCodec extends TornadoCookieCodec {
 
+    /** The Constant FORMAT_VERSION holds the Tornado secure cookie format version. */
+    private static final int FORMAT_VERSION = 1;
+
     /** The hasher instance for cookie value signature. */
     private SignatureHasher hasher;
 
@@ -58,9 +62,32 @@ public final class V1TornadoCookieCodec extends TornadoCookieCodec {
      */
     @Override
     public TornadoCookieValue getTornadoCookieValueFrom(Cookie source) {
-        TornadoCookieValue cookieValue = deserializer.deserialize(source.getValue());
+        return getTornadoCookieValueFrom(source.getName(), source.getValue(), null);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * getTornadoCookieValueFrom(java.lang.String, java.lang.String,
+     * com.jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    protected TornadoCookieValue getTornadoCookieValueFrom(String name, String signedValue, StageClock clock) {
+        TornadoCookieValue cookieValue = deserializer.deserialize(signedValue, clock);
+
+        return TornadoCookieValue.builderFrom(cookieValue).withName(name).build();
+    }
 
-        return TornadoCookieValue.builderFrom(cookieValue).withName(source.getName()).build();
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * getFormatVersion()
+     */
+    @Override
+    public int getFormatVersion() {
+        return FORMAT_VERSION;
     }
 
     /*
@@ -76,6 +103,30 @@ public final class V1TornadoCookieCodec extends TornadoCookieCodec {
 
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * computeSignature(com.jossemargt.cookietwist.tornado.TornadoCookieValue,
+     * com.jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    protected String computeSignature(TornadoCookieValue cookieValue, StageClock clock) {
+        return hasher.computeSignature(clock, cookieValue.getName(), cookieValue.getValue(),
+                String.valueOf(cookieValue.getTimestamp()));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * getSignatureHasher(int)
+     */
+    @Override
+    protected SignatureHasher getSignatureHasher(int secretKeyNumber) {
+        return hasher;
+    }
+
     /**
      * Factory method for {@link V1TornadoCookieCodec.Builder}.
      *
@@ -102,7 +153,6 @@ public final class V1TornadoCookieCodec extends TornadoCookieCodec {
         private Builder() {
             super();
             this.serializer = new V1TornadoCookieValueSerializer();
-            this.deserializer = new V1TornadoCookieValueDeserializer();
         }
 
         /*
@@ -117,6 +167,18 @@ public final class V1TornadoCookieCodec extends TornadoCookieCodec {
             return self();
         }
 
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec.Builder#
+         * withSignatureHasher()
+         */
+        @Override
+        public Builder withSignatureHasher(SignatureHasher signatureHasher) {
+            hasher = signatureHasher;
+            return self();
+        }
+
         /*
          * (non-Javadoc)
          *
@@ -125,7 +187,10 @@ public final class V1TornadoCookieCodec extends TornadoCookieCodec {
          */
         @Override
         public TornadoCookieCodec build() {
-            hasher.init();
+            if (!hasher.isInitialized()) {
+                hasher.init();
+            }
+            deserializer = new V1TornadoCookieValueDeserializer(maxValueLength);
             return new V1TornadoCookieCodec(this);
         }
 
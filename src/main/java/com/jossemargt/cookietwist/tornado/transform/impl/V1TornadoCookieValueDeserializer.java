@@ -23,15 +23,21 @@
  */
 package com.jossemargt.cookietwist.tornado.transform.impl;
 
+import com.jossemargt.cookietwist.exception.FailureReason;
 import com.jossemargt.cookietwist.exception.InvalidFormatException;
 import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
-import com.jossemargt.cookietwist.tornado.TornadoCookieValue.TornadoCookieValueBuilder;
 import com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueDeserializer;
 
 /**
  * The Class V1TornadoCookieValueDeserializer instantiate a
  * {@link TornadoCookieValue} from a Tornado secure cookie value string using
  * the version 1 format.
+ *
+ * <p>
+ * The value field may hold any amount of <code>|</code>, so the timestamp and
+ * signature fields are found scanning back from the end of the string once. The
+ * raw length is checked before anything else, so the parsing time is linear and
+ * bounded whatever the content.
  */
 public class V1TornadoCookieValueDeserializer implements TornadoCookieValueDeserializer {
 
@@ -41,17 +47,37 @@ public class V1TornadoCookieValueDeserializer implements TornadoCookieValueDeser
      */
     private static final int COOKIE_VALUE_TOKEN_MIN_COUNT = 3;
 
+    /** The Constant FIELD_SEPARATOR holds the field separator. */
+    private static final char FIELD_SEPARATOR = '|';
+
+    /** The Constant NOT_FOUND holds the index of a missing separator. */
+    private static final int NOT_FOUND = -1;
+
+    /** The longest raw value accepted. */
+    private final int maxLength;
+
     /**
-     * The Constant COOKIE_FIELD_SIGNATURE_REVERSE_POS holds the signature field
-     * position from the end to the start.
+     * Instantiates a new deserializer accepting raw values up to
+     * {@link TornadoCookieValueDeserializer#DEFAULT_MAX_LENGTH} characters.
      */
-    private static final int COOKIE_FIELD_SIGNATURE_REVERSE_POS = 0;
+    public V1TornadoCookieValueDeserializer() {
+        this(DEFAULT_MAX_LENGTH);
+    }
 
     /**
-     * The Constant COOKIE_FIELD_TIMESTAMP_REVERSE_POS holds the timestamp field
-     * position from the end to the start.
+     * Instantiates a new deserializer.
+     *
+     * @param maxLength
+     *            the longest raw value accepted, in characters
+     * @throws IllegalArgumentException
+     *             when the maximum length is not positive
      */
-    private static final int COOKIE_FIELD_TIMESTAMP_REVERSE_POS = 1;
+    public V1TornadoCookieValueDeserializer(int maxLength) {
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("The maximum value length must be positive");
+        }
+        this.maxLength = maxLength;
+    }
 
     /*
      * (non-Javadoc)
@@ -62,46 +88,67 @@ public class V1TornadoCookieValueDeserializer implements TornadoCookieValueDeser
      */
     @Override
     public TornadoCookieValue deserialize(String value) {
-        String[] tokens = value.split("\\|");
-        TornadoCookieValueBuilder modelBuilder = TornadoCookieValue.builder();
-        StringBuilder valueBuilder = new StringBuilder();
+        if (value.length() > maxLength) {
+            throw new InvalidFormatException(FailureReason.OVERSIZED,
+                    String.format("Value length %d exceeds the maximum of %d", value.length(), maxLength));
+        }
+
+        // Trailing empty fields are ignored, as String#split does
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == FIELD_SEPARATOR) {
+            end--;
+        }
 
-        int tokenCount = tokens.length;
+        int signatureSeparator = NOT_FOUND;
+        int timestampSeparator = NOT_FOUND;
 
-        if (tokenCount < V1TornadoCookieValueDeserializer.COOKIE_VALUE_TOKEN_MIN_COUNT) {
-            throw new InvalidFormatException(String.format("Invalid field quantity: %d", tokenCount));
+        if (end > 0) {
+            signatureSeparator = value.lastIndexOf(FIELD_SEPARATOR, end - 1);
+        }
+        if (signatureSeparator > 0) {
+            timestampSeparator = value.lastIndexOf(FIELD_SEPARATOR, signatureSeparator - 1);
+        }
+
+        if (timestampSeparator == NOT_FOUND) {
+            throw new InvalidFormatException(FailureReason.FIELD_COUNT,
+                    String.format("Invalid field quantity: %d", fieldCount(value, end, signatureSeparator)));
         }
 
-        int offset;
-        String field;
-        for (int i = tokenCount; i > 0; i--) {
-            offset = tokenCount - i;
-            field = tokens[i - 1];
-
-            switch (offset) {
-            case COOKIE_FIELD_SIGNATURE_REVERSE_POS:
-                modelBuilder.withSignature(field);
-                break;
-            case COOKIE_FIELD_TIMESTAMP_REVERSE_POS:
-                long timestamp;
-                try {
-                    timestamp = Long.parseLong(field, 10);
-                } catch (NumberFormatException e) {
-                    throw new InvalidFormatException(String.format("Invalid timestamp format: '%s'", field), e);
-                }
-                modelBuilder.withTimestamp(timestamp);
-                break;
-            default:
-                if (i == 1) {
-                    valueBuilder.insert(0, field);
-                    modelBuilder.withValue(valueBuilder.toString());
-                } else {
-                    valueBuilder.insert(0, "|").insert(1, field);
-                }
-                break;
-            }
+        String field = value.substring(timestampSeparator + 1, signatureSeparator);
+        long timestamp;
+        try {
+            timestamp = Long.parseLong(field, 10);
+        } catch (NumberFormatException e) {
+            throw new InvalidFormatException(FailureReason.FIELD_FORMAT,
+                    String.format("Invalid timestamp format: '%s'", field), e);
         }
 
-        return modelBuilder.build();
+        return TornadoCookieValue.builder()
+                .withValue(value.substring(0, timestampSeparator))
+                .withTimestamp(timestamp)
+                .withSignature(value.substring(signatureSeparator + 1, end))
+                .build();
+    }
+
+    /**
+     * Counts the fields of a value with less than
+     * {@value #COOKIE_VALUE_TOKEN_MIN_COUNT} of them, for the failure message.
+     *
+     * @param value
+     *            the raw value
+     * @param end
+     *            the end of the last non empty field
+     * @param signatureSeparator
+     *            the last separator position, negative when there is none
+     * @return the field count
+     */
+    private static int fieldCount(String value, int end, int signatureSeparator) {
+        if (end == 0 && !value.isEmpty()) {
+            return 0;
+        }
+        if (signatureSeparator == NOT_FOUND) {
+            return 1;
+        }
+        return COOKIE_VALUE_TOKEN_MIN_COUNT - 1;
     }
 }
@@ -27,11 +27,15 @@ import java.util.ArrayList;
 
 import javax.servlet.http.Cookie;
 
+import com.jossemargt.cookietwist.exception.FailureReason;
 import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.metrics.Stage;
+import com.jossemargt.cookietwist.metrics.StageClock;
 import com.jossemargt.cookietwist.signature.SignatureHasher;
 import com.jossemargt.cookietwist.signature.impl.Sha256SignatureHasher;
 import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
 import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.ValueCompression;
 
 /**
  * The Class V2TornadoCookieCodec contains the serializer, de-serializer and
@@ -39,6 +43,9 @@ import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
  */
 public final class V2TornadoCookieCodec extends TornadoCookieCodec {
 
+    /** The Constant FORMAT_VERSION holds the Tornado secure cookie format version. */
+    private static final int FORMAT_VERSION = 2;
+
     /** The hasher list for cookie value signature. */
     private ArrayList<SignatureHasher> hasherList;
 
@@ -61,15 +68,38 @@ public final class V2TornadoCookieCodec extends TornadoCookieCodec {
      */
     @Override
     public TornadoCookieValue getTornadoCookieValueFrom(Cookie source) {
-        TornadoCookieValue cookieValue = deserializer.deserialize(source.getValue());
+        return getTornadoCookieValueFrom(source.getName(), source.getValue(), null);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * getTornadoCookieValueFrom(java.lang.String, java.lang.String,
+     * com.jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    protected TornadoCookieValue getTornadoCookieValueFrom(String name, String signedValue, StageClock clock) {
+        TornadoCookieValue cookieValue = deserializer.deserialize(signedValue, clock);
 
-        if (!cookieValue.getName().equals(source.getName())) {
-            throw new InvalidFormatException("Cookie name mismatch");
+        if (!cookieValue.getName().equals(name)) {
+            throw new InvalidFormatException(FailureReason.NAME_MISMATCH, "Cookie name mismatch");
         }
 
         return cookieValue;
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * getFormatVersion()
+     */
+    @Override
+    public int getFormatVersion() {
+        return FORMAT_VERSION;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -78,19 +108,65 @@ public final class V2TornadoCookieCodec extends TornadoCookieCodec {
      */
     @Override
     protected String computeSignature(TornadoCookieValue cookieValue) {
-        int signatureNumber = cookieValue.getSignatureKeyVersion();
+        SignatureHasher hasher = getHasher(cookieValue);
+        TornadoCookieValue temp = TornadoCookieValue.builderFrom(cookieValue).withSignature("").build();
 
-        if (signatureNumber < 0 || signatureNumber >= hasherList.size()) {
-            throw new InvalidFormatException("Required signature key does not exist");
-        }
+        String serializedValue = serializer.serialize(temp);
+
+        return hasher.computeSignature(serializedValue, "|");
+
+    }
 
-        SignatureHasher hasher = hasherList.get(signatureNumber);
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * computeSignature(com.jossemargt.cookietwist.tornado.TornadoCookieValue,
+     * com.jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    protected String computeSignature(TornadoCookieValue cookieValue, StageClock clock) {
+        SignatureHasher hasher = getHasher(cookieValue);
         TornadoCookieValue temp = TornadoCookieValue.builderFrom(cookieValue).withSignature("").build();
 
         String serializedValue = serializer.serialize(temp);
+        clock.lap(Stage.SERIALIZE);
 
-        return hasher.computeSignature(serializedValue, "|");
+        return hasher.computeSignature(clock, serializedValue, "|");
+    }
 
+    /**
+     * Gets the hasher for the cookie value secret key version.
+     *
+     * @param cookieValue
+     *            the cookie value to be signed
+     * @throws InvalidFormatException
+     *             when the required hasher version could not be found
+     * @return the signature hasher
+     */
+    private SignatureHasher getHasher(TornadoCookieValue cookieValue) {
+        SignatureHasher hasher = getSignatureHasher(cookieValue.getSignatureKeyVersion());
+
+        if (hasher == null) {
+            throw new InvalidFormatException(FailureReason.UNKNOWN_KEY, "Required signature key does not exist");
+        }
+
+        return hasher;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * getSignatureHasher(int)
+     */
+    @Override
+    protected SignatureHasher getSignatureHasher(int secretKeyNumber) {
+        if (secretKeyNumber < 0 || secretKeyNumber >= hasherList.size()) {
+            return null;
+        }
+
+        return hasherList.get(secretKeyNumber);
     }
 
     /**
@@ -117,7 +193,6 @@ public final class V2TornadoCookieCodec extends TornadoCookieCodec {
         private Builder() {
             super();
             this.serializer = new V2TornadoCookieValueSerializer();
-            this.deserializer = new V2TornadoCookieValueDeserializer();
             this.hasherList = new ArrayList<SignatureHasher>();
         }
 
@@ -133,6 +208,34 @@ public final class V2TornadoCookieCodec extends TornadoCookieCodec {
             return self();
         }
 
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec.Builder#
+         * withSignatureHasher()
+         */
+        @Override
+        public Builder withSignatureHasher(SignatureHasher hasher) {
+            hasherList.add(hasher);
+            return self();
+        }
+
+        /**
+         * Enables the deflate compression of the plain values reaching the
+         * {@link ValueCompression} threshold. Compressed values are flagged within
+         * the signed value field, and only the codecs built with a compression
+         * decode them; neither Tornado nor the other codecs do. The compression
+         * limits also bound the inflating of received values.
+         *
+         * @param compression
+         *            the value compression
+         * @return the builder
+         */
+        public Builder withCompression(ValueCompression compression) {
+            this.compression = compression;
+            return self();
+        }
+
         /*
          * (non-Javadoc)
          *
@@ -142,8 +245,11 @@ public final class V2TornadoCookieCodec extends TornadoCookieCodec {
         @Override
         public TornadoCookieCodec build() {
             for (SignatureHasher hasher : hasherList) {
-                hasher.init();
+                if (!hasher.isInitialized()) {
+                    hasher.init();
+                }
             }
+            deserializer = new V2TornadoCookieValueDeserializer(maxValueLength, compression != null);
             return new V2TornadoCookieCodec(this);
         }
 
@@ -26,7 +26,10 @@ package com.jossemargt.cookietwist.tornado.transform.impl;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
+import com.jossemargt.cookietwist.exception.FailureReason;
 import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.metrics.Stage;
+import com.jossemargt.cookietwist.metrics.StageClock;
 import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
 import com.jossemargt.cookietwist.tornado.TornadoCookieValue.TornadoCookieValueBuilder;
 import com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueDeserializer;
@@ -35,6 +38,12 @@ import com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueDeserializ
  * The Class V2TornadoCookieValueDeserializer instantiate a
  * {@link TornadoCookieValue} from a Tornado secure cookie value string using
  * the version 2 format.
+ *
+ * <p>
+ * Fields are located with forward scans that never backtrack, and a length
+ * prefix is only compared with the actual field length, never used to size a
+ * buffer. The raw length is checked before anything else, so the parsing time
+ * is linear and bounded whatever the content.
  */
 public class V2TornadoCookieValueDeserializer implements TornadoCookieValueDeserializer {
 
@@ -44,12 +53,6 @@ public class V2TornadoCookieValueDeserializer implements TornadoCookieValueDeser
      */
     private static final int COOKIE_VALUE_TOKEN_COUNT = 6;
 
-    /**
-     * The Constant COOKIE_FIELD_TOKEN_COUNT holds the expected token amount in a
-     * field.
-     */
-    private static final int COOKIE_FIELD_TOKEN_COUNT = 2;
-
     /**
      * The Constant TORNADO_SECURE_COOKIE_VERSION holds the Tornado secure cookie
      * value string format version.
@@ -86,6 +89,64 @@ public class V2TornadoCookieValueDeserializer implements TornadoCookieValueDeser
      */
     private static final int COOKIE_FIELD_SIGNATURE_POS = 5;
 
+    /** The Constant FIELD_SEPARATOR holds the field separator. */
+    private static final char FIELD_SEPARATOR = '|';
+
+    /** The Constant LENGTH_SEPARATOR holds the length prefix separator. */
+    private static final char LENGTH_SEPARATOR = ':';
+
+    /** The Constant NOT_FOUND holds the index of a missing separator. */
+    private static final int NOT_FOUND = -1;
+
+    /** The longest raw value accepted. */
+    private final int maxLength;
+
+    /** Whether value fields led by the compressed value flag are kept compressed. */
+    private final boolean compressedValues;
+
+    /**
+     * Instantiates a new deserializer accepting raw values up to
+     * {@link TornadoCookieValueDeserializer#DEFAULT_MAX_LENGTH} characters.
+     */
+    public V2TornadoCookieValueDeserializer() {
+        this(DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Instantiates a new deserializer.
+     *
+     * @param maxLength
+     *            the longest raw value accepted, in characters
+     * @throws IllegalArgumentException
+     *             when the maximum length is not positive
+     */
+    public V2TornadoCookieValueDeserializer(int maxLength) {
+        this(maxLength, false);
+    }
+
+    /**
+     * Instantiates a new deserializer, which may recognize compressed values.
+     * Tornado signs arbitrary bytes, so the compressed value flag is only
+     * honoured when the codec compresses values itself; otherwise a value led by
+     * that byte is decoded as plain UTF-8, as Tornado does.
+     *
+     * @param maxLength
+     *            the longest raw value accepted, in characters
+     * @param compressedValues
+     *            whether value fields led by the
+     *            {@link V2TornadoCookieValueSerializer#COMPRESSED_VALUE_FLAG} are
+     *            kept compressed
+     * @throws IllegalArgumentException
+     *             when the maximum length is not positive
+     */
+    public V2TornadoCookieValueDeserializer(int maxLength, boolean compressedValues) {
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("The maximum value length must be positive");
+        }
+        this.maxLength = maxLength;
+        this.compressedValues = compressedValues;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -95,22 +156,48 @@ public class V2TornadoCookieValueDeserializer implements TornadoCookieValueDeser
      */
     @Override
     public TornadoCookieValue deserialize(String value) {
-        String[] tokens = value.split("\\|");
+        return deserialize(value, null);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueDeserializer#
+     * deserialize(java.lang.String, com.jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    public TornadoCookieValue deserialize(String value, StageClock clock) {
+        if (value.length() > maxLength) {
+            throw new InvalidFormatException(FailureReason.OVERSIZED,
+                    String.format("Value length %d exceeds the maximum of %d", value.length(), maxLength));
+        }
 
-        if (tokens.length < V2TornadoCookieValueDeserializer.COOKIE_VALUE_TOKEN_COUNT) {
-            throw new InvalidFormatException(String.format("Invalid field quantity. Expected %d, got %d",
-                    V2TornadoCookieValueDeserializer.COOKIE_VALUE_TOKEN_COUNT, tokens.length));
+        // Trailing empty fields are ignored, as String#split does
+        int end = trimTrailing(value, 0, value.length(), FIELD_SEPARATOR);
+        int fieldCount = countFields(value, end);
+
+        if (fieldCount < V2TornadoCookieValueDeserializer.COOKIE_VALUE_TOKEN_COUNT) {
+            throw new InvalidFormatException(FailureReason.FIELD_COUNT,
+                    String.format("Invalid field quantity. Expected %d, got %d",
+                            V2TornadoCookieValueDeserializer.COOKIE_VALUE_TOKEN_COUNT, fieldCount));
         }
 
         TornadoCookieValueBuilder builder = TornadoCookieValue.builder();
-        String field;
+        int fieldStart = 0;
+
+        for (int i = 0; i < V2TornadoCookieValueDeserializer.COOKIE_VALUE_TOKEN_COUNT; i++) {
+            int fieldEnd = value.indexOf(FIELD_SEPARATOR, fieldStart);
+            if (fieldEnd == NOT_FOUND || fieldEnd > end) {
+                fieldEnd = end;
+            }
+            String field = value.substring(fieldStart, fieldEnd);
 
-        for (int i = 0; i < tokens.length; i++) {
-            field = tokens[i];
             switch (i) {
             case COOKIE_FIELD_VERSION_POS:
                 if (!String.valueOf(TORNADO_SECURE_COOKIE_VERSION).equals(field)) {
-                    throw new InvalidFormatException(String.format("Invalid format version '%s'", field));
+                    throw new InvalidFormatException(FailureReason.VERSION,
+                            String.format("Invalid format version '%s'", field));
                 }
                 break;
             case COOKIE_FIELD_KEYVERSION_POS:
@@ -123,14 +210,26 @@ public class V2TornadoCookieValueDeserializer implements TornadoCookieValueDeser
                 builder.withName(extractString(field));
                 break;
             case COOKIE_FIELD_VALUE_POS:
-                builder.withValue(decodeValue(extractString(field)));
+                String encodedValue = extractString(field);
+                if (clock != null) {
+                    clock.lap(Stage.PARSE);
+                }
+                decodeValue(encodedValue, builder);
+                if (clock != null) {
+                    clock.lap(Stage.BASE64);
+                }
                 break;
             case COOKIE_FIELD_SIGNATURE_POS:
+            default:
                 builder.withSignature(field);
                 break;
-            default:
-                throw new InvalidFormatException("Invalid field amount");
             }
+
+            fieldStart = fieldEnd + 1;
+        }
+
+        if (fieldCount > V2TornadoCookieValueDeserializer.COOKIE_VALUE_TOKEN_COUNT) {
+            throw new InvalidFormatException(FailureReason.FIELD_COUNT, "Invalid field amount");
         }
 
         return builder.build();
@@ -155,7 +254,8 @@ public class V2TornadoCookieValueDeserializer implements TornadoCookieValueDeser
         try {
             result = Long.parseLong(fieldValue, 10);
         } catch (NumberFormatException e) {
-            throw new InvalidFormatException(String.format("Invalid timestamp field format: %s", fieldValue), e);
+            throw new InvalidFormatException(FailureReason.FIELD_FORMAT,
+                    String.format("Invalid timestamp field format: %s", fieldValue), e);
         }
 
         return result;
@@ -180,7 +280,8 @@ public class V2TornadoCookieValueDeserializer implements TornadoCookieValueDeser
         try {
             result = Integer.parseInt(fieldValue, 10);
         } catch (NumberFormatException e) {
-            throw new InvalidFormatException(String.format("Invalid numeric field format: %s", fieldValue), e);
+            throw new InvalidFormatException(FailureReason.FIELD_FORMAT,
+                    String.format("Invalid numeric field format: %s", fieldValue), e);
         }
 
         return result;
@@ -198,42 +299,128 @@ public class V2TornadoCookieValueDeserializer implements TornadoCookieValueDeser
      *             value length does not match with the given one.
      */
     private String extractString(String field) throws InvalidFormatException {
-        String[] tokens = field.split(":");
+        // Trailing empty tokens are ignored, as String#split does
+        int end = trimTrailing(field, 0, field.length(), LENGTH_SEPARATOR);
+        int separator = field.indexOf(LENGTH_SEPARATOR);
+        int lengthEnd = end;
+
+        if (separator != NOT_FOUND && separator < end) {
+            lengthEnd = separator;
+        } else {
+            separator = NOT_FOUND;
+        }
+
         int expectedLength;
 
         try {
-            expectedLength = Integer.parseInt(tokens[0], 10);
+            expectedLength = Integer.parseInt(field.substring(0, lengthEnd), 10);
         } catch (NumberFormatException e) {
-            throw new InvalidFormatException("Invalid field length format", e);
+            throw new InvalidFormatException(FailureReason.LENGTH, "Invalid field length format", e);
         }
 
-        if (expectedLength == 0 && tokens.length == 1) {
+        if (expectedLength == 0 && separator == NOT_FOUND) {
             return "";
         }
 
-        if (tokens.length != V2TornadoCookieValueDeserializer.COOKIE_FIELD_TOKEN_COUNT) {
-            throw new InvalidFormatException(String.format("Invalid field format '%s'", field));
+        boolean singleSeparator = separator != NOT_FOUND;
+        if (singleSeparator) {
+            int next = field.indexOf(LENGTH_SEPARATOR, separator + 1);
+            singleSeparator = next == NOT_FOUND || next >= end;
+        }
+
+        if (!singleSeparator) {
+            throw new InvalidFormatException(FailureReason.FIELD_FORMAT,
+                    String.format("Invalid field format '%s'", field));
         }
 
-        String fieldValue = tokens[1];
+        int valueLength = end - separator - 1;
 
-        if (fieldValue.length() != expectedLength) {
-            throw new InvalidFormatException(String.format("Field length mismatch. Expected %d characters, got %d",
-                    expectedLength, fieldValue.length()));
+        if (valueLength != expectedLength) {
+            throw new InvalidFormatException(FailureReason.LENGTH,
+                    String.format("Field length mismatch. Expected %d characters, got %d",
+                            expectedLength, valueLength));
         }
 
-        return fieldValue;
+        return field.substring(separator + 1, end);
     }
 
     /**
-     * Decodes the value string from its base64 representation.
+     * Gets the end of a string region once its trailing separators are dropped.
+     *
+     * @param value
+     *            the string
+     * @param start
+     *            the region start
+     * @param end
+     *            the region end, exclusive
+     * @param separator
+     *            the separator to drop
+     * @return the new region end, exclusive
+     */
+    private static int trimTrailing(String value, int start, int end, char separator) {
+        int trimmed = end;
+        while (trimmed > start && value.charAt(trimmed - 1) == separator) {
+            trimmed--;
+        }
+        return trimmed;
+    }
+
+    /**
+     * Counts the fields of a value the way String#split does, so an empty
+     * value has a single field and a value made of separators has none.
+     *
+     * @param value
+     *            the raw value
+     * @param end
+     *            the end of the last non empty field
+     * @return the field count
+     */
+    private static int countFields(String value, int end) {
+        if (end == 0) {
+            if (value.isEmpty()) {
+                return 1;
+            }
+            return 0;
+        }
+
+        int count = 1;
+        for (int i = 0; i < end; i++) {
+            if (value.charAt(i) == FIELD_SEPARATOR) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Decodes the value string from its base64 representation into the builder.
+     * When compressed values are enabled, bytes led by the
+     * {@link V2TornadoCookieValueSerializer#COMPRESSED_VALUE_FLAG} are kept as a
+     * compressed ISO-8859-1 value string, to be inflated only once the signature
+     * is verified.
      *
      * @param value
      *            the base64 encoded string
-     * @return the decoded string
+     * @param builder
+     *            the builder receiving the value
+     * @throws InvalidFormatException
+     *             when the value is not valid base64
      */
-    private String decodeValue(String value) {
-        return new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+    private void decodeValue(String value, TornadoCookieValueBuilder builder) {
+        byte[] decoded;
+        try {
+            decoded = Base64.getDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFormatException(FailureReason.ENCODING, "Invalid base64 value field", e);
+        }
+
+        if (compressedValues && decoded.length > 0
+                && decoded[0] == V2TornadoCookieValueSerializer.COMPRESSED_VALUE_FLAG) {
+            builder.withCompressed(true)
+                   .withValue(new String(decoded, 1, decoded.length - 1, StandardCharsets.ISO_8859_1));
+        } else {
+            builder.withValue(new String(decoded, StandardCharsets.UTF_8));
+        }
     }
 
 }
@@ -35,6 +35,13 @@ import com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueSerializer
  */
 public class V2TornadoCookieValueSerializer implements TornadoCookieValueSerializer {
 
+    /**
+     * The Constant COMPRESSED_VALUE_FLAG leads the value bytes of a compressed
+     * value. It never starts a valid UTF-8 sequence, so plain values are never
+     * mistaken for compressed ones.
+     */
+    public static final byte COMPRESSED_VALUE_FLAG = (byte) 0xFF;
+
     /* (non-Javadoc)
      * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueSerializer#serialize
      */
@@ -45,7 +52,7 @@ public class V2TornadoCookieValueSerializer implements TornadoCookieValueSeriali
         result.append("|").append(formatField(model.getSignatureKeyVersion()));
         result.append("|").append(formatField(model.getTimestamp()));
         result.append("|").append(formatField(model.getName()));
-        result.append("|").append(formatField(encodeValue(model.getValue())));
+        result.append("|").append(formatField(encodeValue(model)));
 
         if (model.getSignature() != null && !model.getSignature().isEmpty()) {
             result.append("|").append(model.getSignature());
@@ -55,17 +62,28 @@ public class V2TornadoCookieValueSerializer implements TornadoCookieValueSeriali
     }
 
     /**
-     * Encodes the given string into a base64 one.
+     * Encodes the model value string into a base64 one. A compressed value is
+     * encoded from its ISO-8859-1 bytes led by the {@link #COMPRESSED_VALUE_FLAG}.
      *
-     * @param value the string to encode
+     * @param model the model holding the value string to encode
      * @return the base64 encoded string
      */
-    private String encodeValue(String value) {
+    private String encodeValue(TornadoCookieValue model) {
+        String value = model.getValue();
         if (value == null) {
             value = "";
         }
-        return Base64.getEncoder()
-                     .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+
+        if (!model.isCompressed()) {
+            return Base64.getEncoder()
+                         .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] compressed = value.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] flagged = new byte[compressed.length + 1];
+        flagged[0] = COMPRESSED_VALUE_FLAG;
+        System.arraycopy(compressed, 0, flagged, 1, compressed.length);
+        return Base64.getEncoder().encodeToString(flagged);
     }
 
     /**
@@ -0,0 +1,344 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.servlet.http.Cookie;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.metrics.Stage;
+import com.jossemargt.cookietwist.metrics.StageClock;
+import com.jossemargt.cookietwist.signature.SignatureHasher;
+import com.jossemargt.cookietwist.signature.impl.Sha256SignatureHasher;
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class V3CompactCookieCodec contains the serializer, de-serializer and
+ * signature hasher(s) needed to encode or decode a compact V3 signed cookie.
+ * Unlike the Tornado formats, the value is a single base64url string holding
+ * varint fields and the raw, optionally truncated, HMAC-SHA256 bytes computed
+ * over the binary fields followed by the cookie name.
+ */
+public final class V3CompactCookieCodec extends TornadoCookieCodec {
+
+    /** The Constant DEFAULT_SIGNATURE_LENGTH holds the untruncated HMAC-SHA256 length in bytes. */
+    public static final int DEFAULT_SIGNATURE_LENGTH = 32;
+
+    /**
+     * The Constant MIN_SIGNATURE_LENGTH holds the shortest signature allowed in
+     * bytes, half the HMAC-SHA256 length as RFC 2104 recommends.
+     */
+    public static final int MIN_SIGNATURE_LENGTH = 16;
+
+    /** The Constant FORMAT_VERSION holds the compact cookie format version. */
+    private static final int FORMAT_VERSION = V3CompactCookieValueSerializer.FORMAT_VERSION;
+
+    /** The hasher list for cookie value signature. */
+    private final ArrayList<SignatureHasher> hasherList;
+
+    /** The serializer of the signed binary fields. */
+    private final V3CompactCookieValueSerializer payloadSerializer;
+
+    /** The signature length in bytes. */
+    private final int signatureLength;
+
+    /**
+     * Instantiates a new compact cookie codec V3.
+     *
+     * @param builder
+     *            the {@link Builder} instance
+     */
+    private V3CompactCookieCodec(Builder builder) {
+        super(builder);
+        this.hasherList = builder.hasherList;
+        this.payloadSerializer = builder.payloadSerializer;
+        this.signatureLength = builder.signatureLength;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * getTornadoCookieValueFrom(javax.servlet.http.Cookie)
+     */
+    @Override
+    public TornadoCookieValue getTornadoCookieValueFrom(Cookie source) {
+        return getTornadoCookieValueFrom(source.getName(), source.getValue(), null);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * getTornadoCookieValueFrom(java.lang.String, java.lang.String,
+     * com.jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    protected TornadoCookieValue getTornadoCookieValueFrom(String name, String signedValue, StageClock clock) {
+        TornadoCookieValue cookieValue = deserializer.deserialize(signedValue, clock);
+
+        return TornadoCookieValue.builderFrom(cookieValue).withName(name).build();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * getFormatVersion()
+     */
+    @Override
+    public int getFormatVersion() {
+        return FORMAT_VERSION;
+    }
+
+    /**
+     * Gets the signature length in bytes.
+     *
+     * @return the signature length
+     */
+    public int getSignatureLength() {
+        return signatureLength;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * computeSignature(com.jossemargt.cookietwist.tornado.TornadoCookieValue)
+     */
+    @Override
+    protected String computeSignature(TornadoCookieValue cookieValue) {
+        SignatureHasher hasher = getHasher(cookieValue);
+        byte[] digest = hasher.computeDigest(payloadSerializer.serializePayload(cookieValue), nameBytes(cookieValue));
+
+        return encodeSignature(digest);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * computeSignature(com.jossemargt.cookietwist.tornado.TornadoCookieValue,
+     * com.jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    protected String computeSignature(TornadoCookieValue cookieValue, StageClock clock) {
+        SignatureHasher hasher = getHasher(cookieValue);
+
+        byte[] payload = payloadSerializer.serializePayload(cookieValue);
+        byte[] name = nameBytes(cookieValue);
+        clock.lap(Stage.BYTES);
+
+        byte[] digest = hasher.computeDigest(clock, payload, name);
+
+        String signature = encodeSignature(digest);
+        clock.lap(Stage.HEX);
+
+        return signature;
+    }
+
+    /**
+     * Truncates the digest to the signature length and encodes it as base64url,
+     * the representation the de-serialized cookie values hold.
+     *
+     * @param digest
+     *            the HMAC digest
+     * @return the signature string
+     */
+    private String encodeSignature(byte[] digest) {
+        byte[] signature = digest;
+
+        if (digest.length > signatureLength) {
+            signature = Arrays.copyOf(digest, signatureLength);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    /**
+     * Gets the cookie name UTF-8 bytes.
+     *
+     * @param cookieValue
+     *            the cookie value to be signed
+     * @return the name bytes, empty when there is no name
+     */
+    private static byte[] nameBytes(TornadoCookieValue cookieValue) {
+        if (cookieValue.getName() == null) {
+            return new byte[0];
+        }
+        return cookieValue.getName().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the hasher for the cookie value secret key version.
+     *
+     * @param cookieValue
+     *            the cookie value to be signed
+     * @throws InvalidFormatException
+     *             when the required hasher version could not be found
+     * @return the signature hasher
+     */
+    private SignatureHasher getHasher(TornadoCookieValue cookieValue) {
+        SignatureHasher hasher = getSignatureHasher(cookieValue.getSignatureKeyVersion());
+
+        if (hasher == null) {
+            throw new InvalidFormatException(FailureReason.UNKNOWN_KEY, "Required signature key does not exist");
+        }
+
+        return hasher;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec#
+     * getSignatureHasher(int)
+     */
+    @Override
+    protected SignatureHasher getSignatureHasher(int secretKeyNumber) {
+        if (secretKeyNumber < 0 || secretKeyNumber >= hasherList.size()) {
+            return null;
+        }
+
+        return hasherList.get(secretKeyNumber);
+    }
+
+    /**
+     * Factory method for {@link V3CompactCookieCodec.Builder}.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * As its name suggests the Class Builder handles the {@link TornadoCookieCodec}
+     * creation process.
+     */
+    public static final class Builder extends TornadoCookieCodec.Builder<Builder> {
+
+        /** The hasher list to be used by the {@link V3CompactCookieCodec} instance. */
+        private ArrayList<SignatureHasher> hasherList;
+
+        /** The serializer of the signed binary fields. */
+        private V3CompactCookieValueSerializer payloadSerializer;
+
+        /** The signature length in bytes. */
+        private int signatureLength;
+
+        /**
+         * Instantiates a new builder.
+         */
+        private Builder() {
+            super();
+            this.payloadSerializer = new V3CompactCookieValueSerializer();
+            this.serializer = payloadSerializer;
+            this.hasherList = new ArrayList<SignatureHasher>();
+            this.signatureLength = DEFAULT_SIGNATURE_LENGTH;
+        }
+
+        /**
+         * Truncates the HMAC-SHA256 signature to the given amount of bytes, trading
+         * forgery resistance for a shorter cookie. Every codec that shares the
+         * cookies must use the same length, since the cookies signed with a
+         * different one do not verify.
+         *
+         * @param length
+         *            the signature length in bytes, from
+         *            {@value V3CompactCookieCodec#MIN_SIGNATURE_LENGTH} to
+         *            {@value V3CompactCookieCodec#DEFAULT_SIGNATURE_LENGTH}
+         * @return the builder
+         * @throws IllegalArgumentException
+         *             when the length is out of range
+         */
+        public Builder withSignatureLength(int length) {
+            if (length < MIN_SIGNATURE_LENGTH || length > DEFAULT_SIGNATURE_LENGTH) {
+                throw new IllegalArgumentException(String.format("The signature length must be between %d and %d",
+                        MIN_SIGNATURE_LENGTH, DEFAULT_SIGNATURE_LENGTH));
+            }
+            this.signatureLength = length;
+            return self();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec.Builder#
+         * withSecretKey()
+         */
+        @Override
+        public Builder withSecretKey(String secretKey) {
+            hasherList.add(new Sha256SignatureHasher(secretKey));
+            return self();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec.Builder#
+         * withSignatureHasher()
+         */
+        @Override
+        public Builder withSignatureHasher(SignatureHasher hasher) {
+            hasherList.add(hasher);
+            return self();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see
+         * com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec.Builder#build
+         */
+        @Override
+        public TornadoCookieCodec build() {
+            for (SignatureHasher hasher : hasherList) {
+                if (!hasher.isInitialized()) {
+                    hasher.init();
+                }
+            }
+            deserializer = new V3CompactCookieValueDeserializer(maxValueLength);
+            return new V3CompactCookieCodec(this);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see
+         * com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec.Builder#self
+         */
+        @Override
+        protected Builder self() {
+            return this;
+        }
+    }
+
+}
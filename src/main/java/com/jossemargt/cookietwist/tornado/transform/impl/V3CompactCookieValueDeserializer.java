@@ -0,0 +1,226 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform.impl;
+
+import static com.jossemargt.cookietwist.tornado.transform.impl.V3CompactCookieValueSerializer.FORMAT_VERSION;
+import static com.jossemargt.cookietwist.tornado.transform.impl.V3CompactCookieValueSerializer.VARINT_CONTINUATION;
+import static com.jossemargt.cookietwist.tornado.transform.impl.V3CompactCookieValueSerializer.VARINT_PAYLOAD_BITS;
+import static com.jossemargt.cookietwist.tornado.transform.impl.V3CompactCookieValueSerializer.VARINT_PAYLOAD_MASK;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.metrics.Stage;
+import com.jossemargt.cookietwist.metrics.StageClock;
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueDeserializer;
+
+/**
+ * The Class V3CompactCookieValueDeserializer instantiate a
+ * {@link TornadoCookieValue} from its compact binary representation, as written
+ * by {@link V3CompactCookieValueSerializer}. Non canonical varints are parsed,
+ * but never verify, since the signature is computed over the re-serialized
+ * fields.
+ */
+public class V3CompactCookieValueDeserializer implements TornadoCookieValueDeserializer {
+
+    /** The Constant MAX_VARINT_SIZE holds the longest varint, in bytes, a long takes. */
+    private static final int MAX_VARINT_SIZE = 10;
+
+    /** The Constant BYTE_MASK masks a signed byte into its unsigned value. */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** The maximum raw value length accepted. */
+    private final int maxLength;
+
+    /**
+     * Instantiates a new V3 deserializer that accepts values up to
+     * {@link TornadoCookieValueDeserializer#DEFAULT_MAX_LENGTH} characters.
+     */
+    public V3CompactCookieValueDeserializer() {
+        this(DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Instantiates a new V3 deserializer that accepts values up to the given
+     * length.
+     *
+     * @param maxLength
+     *            the maximum raw value length, in characters
+     * @throws IllegalArgumentException
+     *             when the maximum length is not positive
+     */
+    public V3CompactCookieValueDeserializer(int maxLength) {
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("The maximum value length must be positive");
+        }
+        this.maxLength = maxLength;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueDeserializer#
+     * deserialize
+     */
+    @Override
+    public TornadoCookieValue deserialize(String value) {
+        return deserialize(value, null);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueDeserializer#
+     * deserialize(java.lang.String, com.jossemargt.cookietwist.metrics.StageClock)
+     */
+    @Override
+    public TornadoCookieValue deserialize(String value, StageClock clock) {
+        if (value.length() > maxLength) {
+            throw new InvalidFormatException(FailureReason.OVERSIZED,
+                    String.format("Value length %d exceeds the maximum of %d", value.length(), maxLength));
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFormatException(FailureReason.ENCODING, "Invalid base64url value", e);
+        }
+        if (clock != null) {
+            clock.lap(Stage.BASE64);
+        }
+
+        if (bytes.length == 0) {
+            throw new InvalidFormatException(FailureReason.FIELD_COUNT, "Empty value");
+        }
+
+        int version = bytes[0] & BYTE_MASK;
+        if (version != FORMAT_VERSION) {
+            throw new InvalidFormatException(FailureReason.VERSION,
+                    String.format("Invalid format version '%d'", version));
+        }
+
+        Reader reader = new Reader(bytes, 1);
+
+        long keyVersion = reader.readVarint();
+        if (keyVersion < 0 || keyVersion > Integer.MAX_VALUE) {
+            throw new InvalidFormatException(FailureReason.FIELD_FORMAT,
+                    String.format("Invalid key version: %s", Long.toUnsignedString(keyVersion)));
+        }
+
+        long zigZagTimestamp = reader.readVarint();
+        long timestamp = (zigZagTimestamp >>> 1) ^ -(zigZagTimestamp & 1);
+
+        long valueLength = reader.readVarint();
+        if (valueLength < 0 || valueLength > reader.remaining()) {
+            throw new InvalidFormatException(FailureReason.LENGTH,
+                    String.format("Value length mismatch. Expected %s bytes, got %d",
+                            Long.toUnsignedString(valueLength), reader.remaining()));
+        }
+
+        String plainValue = new String(bytes, reader.position, (int) valueLength, StandardCharsets.UTF_8);
+        reader.position += (int) valueLength;
+
+        if (reader.remaining() == 0) {
+            throw new InvalidFormatException(FailureReason.FIELD_COUNT, "Missing signature");
+        }
+
+        String signature = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                Arrays.copyOfRange(bytes, reader.position, bytes.length));
+
+        return TornadoCookieValue.builder()
+                .withSignatureKeyVersion((int) keyVersion)
+                .withTimestamp(timestamp)
+                .withValue(plainValue)
+                .withSignature(signature)
+                .build();
+    }
+
+    /**
+     * The Class Reader walks the decoded bytes, keeping the parsing state out of
+     * the thread-safe deserializer.
+     */
+    private static final class Reader {
+
+        /** The decoded bytes. */
+        private final byte[] bytes;
+
+        /** The next byte position. */
+        private int position;
+
+        /**
+         * Instantiates a new reader.
+         *
+         * @param bytes
+         *            the decoded bytes
+         * @param position
+         *            the first byte position
+         */
+        private Reader(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        /**
+         * Gets the amount of bytes left.
+         *
+         * @return the remaining bytes
+         */
+        private int remaining() {
+            return bytes.length - position;
+        }
+
+        /**
+         * Reads an unsigned variable length integer.
+         *
+         * @return the number, to be taken as unsigned
+         * @throws InvalidFormatException
+         *             when the varint is truncated or longer than a long
+         */
+        private long readVarint() {
+            long result = 0;
+
+            for (int i = 0; i < MAX_VARINT_SIZE; i++) {
+                if (position == bytes.length) {
+                    throw new InvalidFormatException(FailureReason.FIELD_COUNT, "Truncated value");
+                }
+
+                int current = bytes[position++] & BYTE_MASK;
+                result |= (long) (current & VARINT_PAYLOAD_MASK) << (VARINT_PAYLOAD_BITS * i);
+
+                if ((current & VARINT_CONTINUATION) == 0) {
+                    return result;
+                }
+            }
+
+            throw new InvalidFormatException(FailureReason.FIELD_FORMAT, "Invalid varint field, too long");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueSerializer;
+
+/**
+ * The Class V3CompactCookieValueSerializer transforms a
+ * {@link TornadoCookieValue} object into its compact binary representation,
+ * base64url encoded without padding as a whole. The layout is:
+ *
+ * <pre>
+ * version (1 byte, 3) | key version (varint) | timestamp (zig-zag varint)
+ *     | value length (varint) | value (UTF-8) | signature (raw bytes, up to the end)
+ * </pre>
+ *
+ * The cookie name is not written, the signature binds it instead.
+ */
+public class V3CompactCookieValueSerializer implements TornadoCookieValueSerializer {
+
+    /** The Constant FORMAT_VERSION holds the compact format version byte. */
+    static final int FORMAT_VERSION = 3;
+
+    /** The Constant VARINT_PAYLOAD_BITS holds the value bits carried by each varint byte. */
+    static final int VARINT_PAYLOAD_BITS = 7;
+
+    /** The Constant VARINT_PAYLOAD_MASK masks the value bits of a varint byte. */
+    static final int VARINT_PAYLOAD_MASK = 0x7F;
+
+    /** The Constant VARINT_CONTINUATION flags a varint byte followed by another one. */
+    static final int VARINT_CONTINUATION = 0x80;
+
+    /** The Constant SIGN_SHIFT holds the shift that spreads a long sign bit. */
+    private static final int SIGN_SHIFT = 63;
+
+    /** The Constant MAX_HEADER_SIZE holds the longest version, key version and timestamp prefix. */
+    private static final int MAX_HEADER_SIZE = 16;
+
+    /* (non-Javadoc)
+     * @see com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueSerializer#serialize
+     */
+    @Override
+    public String serialize(TornadoCookieValue model) {
+        byte[] signature = new byte[0];
+
+        if (model.getSignature() != null && !model.getSignature().isEmpty()) {
+            signature = Base64.getUrlDecoder().decode(model.getSignature());
+        }
+
+        ByteArrayOutputStream result = writePayload(model, signature.length);
+        result.write(signature, 0, signature.length);
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(result.toByteArray());
+    }
+
+    /**
+     * Serializes the signed part of the given model, that is every field but the
+     * signature, as raw bytes.
+     *
+     * @param model
+     *            the cookie value model
+     * @return the payload bytes
+     * @throws IllegalArgumentException
+     *             when the key version is negative
+     */
+    public byte[] serializePayload(TornadoCookieValue model) {
+        return writePayload(model, 0).toByteArray();
+    }
+
+    /**
+     * Writes the signed part of the given model, leaving room for the signature.
+     *
+     * @param model
+     *            the cookie value model
+     * @param signatureLength
+     *            the signature length in bytes
+     * @return the stream holding the payload
+     */
+    private ByteArrayOutputStream writePayload(TornadoCookieValue model, int signatureLength) {
+        if (model.getSignatureKeyVersion() < 0) {
+            throw new IllegalArgumentException("Unallowed negative key version");
+        }
+
+        byte[] value = new byte[0];
+        if (model.getValue() != null) {
+            value = model.getValue().getBytes(StandardCharsets.UTF_8);
+        }
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(MAX_HEADER_SIZE + value.length + signatureLength);
+        result.write(FORMAT_VERSION);
+        writeVarint(result, model.getSignatureKeyVersion());
+        writeVarint(result, (model.getTimestamp() << 1) ^ (model.getTimestamp() >> SIGN_SHIFT));
+        writeVarint(result, value.length);
+        result.write(value, 0, value.length);
+
+        return result;
+    }
+
+    /**
+     * Writes an unsigned variable length integer, seven bits per byte starting
+     * from the least significant ones.
+     *
+     * @param out
+     *            the target stream
+     * @param number
+     *            the number, taken as unsigned
+     */
+    private static void writeVarint(ByteArrayOutputStream out, long number) {
+        long remaining = number;
+
+        while ((remaining & ~VARINT_PAYLOAD_MASK) != 0) {
+            out.write((int) (remaining & VARINT_PAYLOAD_MASK) | VARINT_CONTINUATION);
+            remaining >>>= VARINT_PAYLOAD_BITS;
+        }
+        out.write((int) remaining);
+    }
+
+}
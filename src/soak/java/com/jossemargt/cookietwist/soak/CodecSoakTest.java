@@ -0,0 +1,390 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.soak;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.Test;
+
+import com.jossemargt.cookietwist.CookiePot;
+import com.jossemargt.cookietwist.CookieSignatureAlgorithm;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.metrics.KeyUsageTracker;
+import com.jossemargt.cookietwist.metrics.StageTracer;
+import com.jossemargt.cookietwist.metrics.StripedCodecMetrics;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+/**
+ * The Class CodecSoakTest hammers a shared V2 codec from many threads while its
+ * secret keys rotate, then checks that neither its retained heap nor its
+ * throughput drifted.
+ *
+ * <p>
+ * Every rotation replaces one of two key slots, builds a codec with an encode
+ * cache, metrics, a key usage tracker and a stage tracer shared across
+ * rotations, and swaps the {@link CookiePot} shared codec, registering and
+ * unregistering its JMX bean. Each sample period measures the throughput and
+ * the heap left after a full collection. The medians of the first third of the
+ * samples taken after the warm up are the baseline the medians of the last third
+ * are compared with.
+ *
+ * <p>
+ * Configured through system properties: <code>soak.duration</code>,
+ * <code>soak.warmup</code>, <code>soak.sample</code> and
+ * <code>soak.rotation</code> in seconds, <code>soak.threads</code>,
+ * <code>soak.maxHeapGrowth</code> in MiB and
+ * <code>soak.maxThroughputDrop</code> in percent.
+ */
+public class CodecSoakTest {
+
+    /** The Constant DEFAULT_DURATION holds the default soak seconds. */
+    private static final int DEFAULT_DURATION = 300;
+
+    /** The Constant DEFAULT_WARMUP holds the default seconds left out of the comparison. */
+    private static final int DEFAULT_WARMUP = 30;
+
+    /** The Constant DEFAULT_SAMPLE holds the default seconds between samples. */
+    private static final int DEFAULT_SAMPLE = 10;
+
+    /** The Constant DEFAULT_ROTATION holds the default seconds between key rotations. */
+    private static final int DEFAULT_ROTATION = 5;
+
+    /** The Constant DEFAULT_MAX_HEAP_GROWTH holds the default tolerated heap growth, in MiB. */
+    private static final int DEFAULT_MAX_HEAP_GROWTH = 16;
+
+    /** The Constant DEFAULT_MAX_THROUGHPUT_DROP holds the default tolerated throughput drop, in percent. */
+    private static final int DEFAULT_MAX_THROUGHPUT_DROP = 20;
+
+    /** The Constant COMPARED_PARTS splits the samples so the first and last parts are compared. */
+    private static final int COMPARED_PARTS = 3;
+
+    /** The Constant MIN_SAMPLES holds the samples needed after the warm up. */
+    private static final int MIN_SAMPLES = COMPARED_PARTS + COMPARED_PARTS;
+
+    /** The Constant DEFAULT_THREADS_PER_CORE holds the default worker threads per core. */
+    private static final int DEFAULT_THREADS_PER_CORE = 2;
+
+    /** The Constant KEY_SLOTS holds the key ring size. */
+    private static final int KEY_SLOTS = 2;
+
+    /** The Constant ENCODE_CACHE_SIZE holds the encode cache entries. */
+    private static final int ENCODE_CACHE_SIZE = 4096;
+
+    /** The Constant TRACER_SAMPLE_RATE holds the stage tracer sample rate. */
+    private static final int TRACER_SAMPLE_RATE = 64;
+
+    /** The Constant RECENT_COOKIES holds the recently signed cookies kept for decoding. */
+    private static final int RECENT_COOKIES = 4096;
+
+    /** The Constant DISTINCT_VALUES holds the distinct plain values, so the cache gets hits. */
+    private static final int DISTINCT_VALUES = 512;
+
+    /** The Constant PERCENT holds the total of a percentage. */
+    private static final int PERCENT = 100;
+
+    /** The Constant ENCODE_PERCENT holds the share of encodes. */
+    private static final int ENCODE_PERCENT = 40;
+
+    /** The Constant SHARED_PERCENT holds the share of operations through the shared codec. */
+    private static final int SHARED_PERCENT = 15;
+
+    /** The Constant MALFORMED_PERCENT holds the share of malformed decodes. */
+    private static final int MALFORMED_PERCENT = 5;
+
+    /** The Constant NANOS_PER_SECOND holds the nanoseconds in a second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** The Constant BYTES_PER_MIB holds the bytes in a MiB. */
+    private static final double BYTES_PER_MIB = 1024.0 * 1024;
+
+    /** The Constant NAMES holds the cookie names. */
+    private static final String[] NAMES = {"session", "prefs", "cart", "csrf" };
+
+    /** The metrics shared by every rotation. */
+    private final StripedCodecMetrics metrics = new StripedCodecMetrics();
+
+    /** The key usage tracker shared by every rotation. */
+    private final KeyUsageTracker keyUsage = new KeyUsageTracker(Duration.ofDays(1));
+
+    /** The stage tracer shared by every rotation. */
+    private final StageTracer tracer = new StageTracer(TRACER_SAMPLE_RATE);
+
+    /** The current key ring and its codecs. */
+    private final AtomicReference<Ring> ring = new AtomicReference<Ring>();
+
+    /** The recently signed cookies, as name and value pairs. */
+    private final AtomicReferenceArray<String[]> recent = new AtomicReferenceArray<String[]>(RECENT_COOKIES);
+
+    /** The operation count. */
+    private final LongAdder operations = new LongAdder();
+
+    /** The decodes rejected, expected for cookies signed two rotations ago. */
+    private final LongAdder rejected = new LongAdder();
+
+    /** Whether the workers keep running. */
+    private volatile boolean running = true;
+
+    /**
+     * Soaks the codecs and compares the first and last samples.
+     *
+     * @throws InterruptedException
+     *             when interrupted while sampling
+     */
+    @Test
+    public void testHeapAndThroughputStayStable() throws InterruptedException {
+        long durationNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("soak.duration", DEFAULT_DURATION));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("soak.warmup", DEFAULT_WARMUP));
+        long sampleMillis = TimeUnit.SECONDS.toMillis(Integer.getInteger("soak.sample", DEFAULT_SAMPLE));
+        int rotationSeconds = Integer.getInteger("soak.rotation", DEFAULT_ROTATION);
+        int threads = Integer.getInteger("soak.threads",
+                Runtime.getRuntime().availableProcessors() * DEFAULT_THREADS_PER_CORE);
+        double maxHeapGrowth = Integer.getInteger("soak.maxHeapGrowth", DEFAULT_MAX_HEAP_GROWTH) * BYTES_PER_MIB;
+        double maxThroughputDrop = Integer.getInteger("soak.maxThroughputDrop", DEFAULT_MAX_THROUGHPUT_DROP)
+                / (double) PERCENT;
+
+        rotate(0);
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService rotator = Executors.newSingleThreadScheduledExecutor();
+        long[] rotations = {1 };
+        List<double[]> samples = new ArrayList<double[]>();
+
+        for (int i = 0; i < threads; i++) {
+            workers.execute(this::work);
+        }
+        rotator.scheduleAtFixedRate(() -> rotate(rotations[0]++), rotationSeconds, rotationSeconds, TimeUnit.SECONDS);
+
+        long startedAt = System.nanoTime();
+        long sampledAt = startedAt;
+        long sampledOperations = 0;
+
+        try {
+            System.out.printf("%8s %14s %14s%n", "seconds", "ops/s", "heap MiB");
+            while (System.nanoTime() - startedAt < durationNanos) {
+                Thread.sleep(sampleMillis);
+
+                long now = System.nanoTime();
+                long total = operations.sum();
+                double throughput = (total - sampledOperations) * NANOS_PER_SECOND / (now - sampledAt);
+                tracer.drain();
+                double heap = heapAfterGc();
+
+                System.out.printf("%8d %14.0f %14.2f%n", TimeUnit.NANOSECONDS.toSeconds(now - startedAt), throughput,
+                        heap / BYTES_PER_MIB);
+                if (now - startedAt >= warmupNanos) {
+                    samples.add(new double[] {throughput, heap });
+                }
+
+                sampledAt = System.nanoTime();
+                sampledOperations = operations.sum();
+            }
+        } finally {
+            running = false;
+            rotator.shutdownNow();
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+            CookiePot.evictCodec(CookieSignatureAlgorithm.TORNADO_V2, ring.get().secretKeys);
+        }
+
+        System.out.printf("operations: %d, rejected decodes: %d, rotations: %d%n", operations.sum(),
+                rejected.sum(), rotations[0]);
+
+        assertTrue(String.format("Expected at least %d samples after the warm up, got %d", MIN_SAMPLES,
+                samples.size()), samples.size() >= MIN_SAMPLES);
+
+        List<double[]> first = samples.subList(0, samples.size() / COMPARED_PARTS);
+        List<double[]> last = samples.subList(samples.size() - first.size(), samples.size());
+        double firstHeap = median(first, 1);
+        double lastHeap = median(last, 1);
+        double firstThroughput = median(first, 0);
+        double lastThroughput = median(last, 0);
+
+        assertTrue(String.format("Retained heap grew from %.2f MiB to %.2f MiB", firstHeap / BYTES_PER_MIB,
+                lastHeap / BYTES_PER_MIB), lastHeap - firstHeap <= maxHeapGrowth);
+        assertTrue(String.format("Throughput dropped from %.0f ops/s to %.0f ops/s", firstThroughput, lastThroughput),
+                lastThroughput >= firstThroughput * (1 - maxThroughputDrop));
+    }
+
+    /**
+     * Runs random operations until stopped.
+     */
+    private void work() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (running) {
+            Ring current = ring.get();
+            int draw = random.nextInt(PERCENT);
+            TornadoCookieCodec codec = current.codec;
+
+            if (draw < SHARED_PERCENT) {
+                codec = current.shared;
+            }
+
+            try {
+                if (draw < MALFORMED_PERCENT) {
+                    codec.decodeValue(NAMES[0], "2|1:0|10:1521518443|" + random.nextInt());
+                } else if (random.nextInt(PERCENT) < ENCODE_PERCENT) {
+                    String name = NAMES[random.nextInt(NAMES.length)];
+                    String value = "value-" + random.nextInt(DISTINCT_VALUES);
+                    String signed = codec.encodeValue(name, value, current.version);
+                    recent.set(random.nextInt(RECENT_COOKIES), new String[] {name, signed });
+                } else {
+                    String[] cookie = recent.get(random.nextInt(RECENT_COOKIES));
+                    if (cookie != null) {
+                        codec.decodeValue(cookie[0], cookie[1]);
+                    }
+                }
+            } catch (InvalidFormatException e) {
+                rejected.increment();
+            }
+
+            operations.increment();
+        }
+    }
+
+    /**
+     * Replaces the oldest key slot with a new secret key, keeping the other one so
+     * the cookies signed during the previous rotation still verify.
+     *
+     * @param rotation
+     *            the rotation number
+     */
+    private void rotate(long rotation) {
+        Ring previous = ring.get();
+        int version = (int) (rotation % KEY_SLOTS);
+        String[] secretKeys = new String[KEY_SLOTS];
+
+        if (previous == null) {
+            Arrays.fill(secretKeys, "soak-secret-initial");
+        } else {
+            secretKeys = previous.secretKeys.clone();
+        }
+        secretKeys[version] = "soak-secret-" + rotation;
+
+        V2TornadoCookieCodec.Builder builder = V2TornadoCookieCodec.builder().withEncodeCache(ENCODE_CACHE_SIZE)
+                .withMetrics(metrics).withKeyUsageTracker(keyUsage).withStageTracer(tracer);
+        for (String secretKey : secretKeys) {
+            builder.withSecretKey(secretKey);
+        }
+
+        ring.set(new Ring(secretKeys, version, builder.build(),
+                CookiePot.getCodecFor(CookieSignatureAlgorithm.TORNADO_V2, secretKeys)));
+
+        if (previous != null) {
+            CookiePot.evictCodec(CookieSignatureAlgorithm.TORNADO_V2, previous.secretKeys);
+        }
+    }
+
+    /**
+     * Collects the garbage and gets the heap the collection left.
+     *
+     * @return the retained heap, in bytes
+     */
+    private static double heapAfterGc() {
+        System.gc();
+
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && afterGc != null) {
+                used += afterGc.getUsed();
+            }
+        }
+
+        return used;
+    }
+
+    /**
+     * Gets the median of a sample column.
+     *
+     * @param samples
+     *            the samples
+     * @param column
+     *            the column, 0 for the throughput and 1 for the heap
+     * @return the median
+     */
+    private static double median(List<double[]> samples, int column) {
+        double[] values = new double[samples.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = samples.get(i)[column];
+        }
+        Arrays.sort(values);
+        return values[values.length >>> 1];
+    }
+
+    /**
+     * The Class Ring holds a key ring and the codecs built with it.
+     */
+    private static final class Ring {
+
+        /** The secret keys, by key version. */
+        private final String[] secretKeys;
+
+        /** The key version the encodes use. */
+        private final int version;
+
+        /** The codec with caches and metrics. */
+        private final TornadoCookieCodec codec;
+
+        /** The shared codec handed by the cookie pot. */
+        private final TornadoCookieCodec shared;
+
+        /**
+         * Instantiates a new ring.
+         *
+         * @param secretKeys
+         *            the secret keys, by key version
+         * @param version
+         *            the key version the encodes use
+         * @param codec
+         *            the codec with caches and metrics
+         * @param shared
+         *            the shared codec handed by the cookie pot
+         */
+        Ring(String[] secretKeys, int version, TornadoCookieCodec codec, TornadoCookieCodec shared) {
+            this.secretKeys = secretKeys;
+            this.version = version;
+            this.codec = codec;
+            this.shared = shared;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import javax.servlet.http.Cookie;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V1TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+public class CodecRegistryTest {
+
+    private static String secretKey = "not-so-secret";
+    private static String anotherSecretKey = "like-a-ninja";
+    private static String signedOne = "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+            + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb";
+
+    private MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    private CodecRegistry subject;
+
+    @Before
+    public void setUp() {
+        subject = new CodecRegistry();
+    }
+
+    @Test
+    public void testGetCodecReturnsSharedInstance() {
+        TornadoCookieCodec first = subject.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey, anotherSecretKey);
+        TornadoCookieCodec second = subject.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey,
+                anotherSecretKey);
+
+        assertSame(first, second);
+        assertTrue(first instanceof V2TornadoCookieCodec);
+        assertTrue(subject.getCodec(CookieSignatureAlgorithm.TORNADO_V1, secretKey) instanceof V1TornadoCookieCodec);
+    }
+
+    @Test
+    public void testKeyRingOrderMatters() {
+        TornadoCookieCodec first = subject.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey, anotherSecretKey);
+        TornadoCookieCodec second = subject.getCodec(CookieSignatureAlgorithm.TORNADO_V2, anotherSecretKey,
+                secretKey);
+
+        assertNotSame(first, second);
+        assertEquals(2, subject.codecCount());
+        assertEquals(2, subject.hasherCount());
+    }
+
+    @Test
+    public void testEvictReleasesUnusedHashers() {
+        TornadoCookieCodec first = subject.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey);
+        subject.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey, anotherSecretKey);
+
+        assertSame(first, subject.evict(CookieSignatureAlgorithm.TORNADO_V2, secretKey));
+        assertNull(subject.evict(CookieSignatureAlgorithm.TORNADO_V2, secretKey));
+        assertEquals(2, subject.hasherCount());
+
+        subject.evict(CookieSignatureAlgorithm.TORNADO_V2, secretKey, anotherSecretKey);
+        assertEquals(0, subject.hasherCount());
+        assertNotSame(first, subject.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey));
+    }
+
+    @Test
+    public void testSharedHashersSignConsistently() {
+        TornadoCookieCodec single = subject.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey);
+        TornadoCookieCodec ring = subject.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey, anotherSecretKey);
+
+        Cookie signed = ring.encodeCookie(new Cookie("one", "simple value"));
+
+        assertEquals("simple value", single.decodeCookie(signed).getValue());
+        assertEquals(2, subject.hasherCount());
+    }
+
+    @Test
+    public void testKeyRingIdDoesNotDeriveFromTheKeys() {
+        CodecRegistry managed = new CodecRegistry(true);
+        CodecRegistry another = new CodecRegistry(true);
+
+        try {
+            managed.getCodec(CookieSignatureAlgorithm.TORNADO_V2, anotherSecretKey);
+            managed.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey);
+            another.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey);
+
+            assertEquals("1", managed.getStats(CookieSignatureAlgorithm.TORNADO_V2, anotherSecretKey).getKeyRingId());
+            assertEquals("2", managed.getStats(CookieSignatureAlgorithm.TORNADO_V2, secretKey).getKeyRingId());
+            assertEquals("1", another.getStats(CookieSignatureAlgorithm.TORNADO_V2, secretKey).getKeyRingId());
+
+            managed.evict(CookieSignatureAlgorithm.TORNADO_V2, secretKey);
+            managed.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey);
+
+            assertEquals("3", managed.getStats(CookieSignatureAlgorithm.TORNADO_V2, secretKey).getKeyRingId());
+        } finally {
+            managed.evict(CookieSignatureAlgorithm.TORNADO_V2, anotherSecretKey);
+            managed.evict(CookieSignatureAlgorithm.TORNADO_V2, secretKey);
+            another.evict(CookieSignatureAlgorithm.TORNADO_V2, secretKey);
+        }
+    }
+
+    @Test
+    public void testManagedCodecIsExposed() throws JMException {
+        CodecRegistry managed = new CodecRegistry(true);
+        TornadoCookieCodec codec = managed.getCodec(CookieSignatureAlgorithm.TORNADO_V2, "not-so-secret");
+        ObjectName name = managed.getStats(CookieSignatureAlgorithm.TORNADO_V2, "not-so-secret").getObjectName();
+
+        codec.decodeValue("one", signedOne);
+        try {
+            codec.decodeValue("two", signedOne);
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            // Expected name mismatch
+        }
+
+        assertEquals("TORNADO_V2", server.getAttribute(name, "Algorithm"));
+        assertEquals(1L, server.getAttribute(name, "DecodeCount"));
+        assertEquals(1L, server.getAttribute(name, "FailureCount"));
+        assertEquals(1L, countOf((TabularData) server.getAttribute(name, "FailureCounts"), "NAME_MISMATCH"));
+        assertEquals(1L, countOf((TabularData) server.getAttribute(name, "DecodeCountByKeyVersion"), "0"));
+        assertTrue((Long) server.getAttribute(name, "DecodeLatencyP99Nanos") > 0);
+        assertEquals(-1.0, server.getAttribute(name, "EncodeCacheHitRatio"));
+        assertEquals(-1.0, server.getAttribute(name, "DecodeAllocatedBytesMean"));
+        assertTrue(((TabularData) server.getAttribute(name, "DecodeAllocatedBytesByStage")).isEmpty());
+
+        server.invoke(name, "resetCounters", null, null);
+
+        assertEquals(0L, server.getAttribute(name, "DecodeCount"));
+        assertTrue(((String) server.invoke(name, "dumpSnapshot", null, null)).contains("decodes=0"));
+
+        assertSame(codec, managed.evict(CookieSignatureAlgorithm.TORNADO_V2, "not-so-secret"));
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testV1RejectsKeyRing() {
+        subject.getCodec(CookieSignatureAlgorithm.TORNADO_V1, secretKey, anotherSecretKey);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsEmptyKeyRing() {
+        subject.getCodec(CookieSignatureAlgorithm.TORNADO_V2);
+    }
+
+    @Test
+    public void testRejectsEmptySecretKeyWithoutLeakingHashers() {
+        try {
+            subject.getCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey, "");
+            fail("Expected exception to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unallowed null or empty secret key", e.getMessage());
+        }
+
+        assertEquals(0, subject.codecCount());
+        assertEquals(0, subject.hasherCount());
+    }
+
+    private static long countOf(TabularData table, String key) {
+        CompositeData row = table.get(new Object[] { key });
+        return (Long) row.get("value");
+    }
+}
@@ -23,6 +23,7 @@
  */
 package com.jossemargt.cookietwist;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -33,6 +34,7 @@ import org.junit.Test;
 import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
 import com.jossemargt.cookietwist.tornado.transform.impl.V1TornadoCookieCodec;
 import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V3CompactCookieCodec;
 
 public class CookiePotTest {
 
@@ -52,9 +54,24 @@ public class CookiePotTest {
                 tcc = CookiePot.getBuilderFor(algorithm).withSecretKey(secretKey).build();
                 assertTrue(tcc instanceof V2TornadoCookieCodec);
                 break;
+            case COMPACT_V3:
+                tcc = CookiePot.getBuilderFor(algorithm).withSecretKey(secretKey).build();
+                assertTrue(tcc instanceof V3CompactCookieCodec);
+                break;
             default:
                 fail(String.format("Unexpected signature algorithm: %s", algorithm));
             }
         }
     }
+
+    @Test
+    public void testSharedCodecsAreNotManagedByDefault() {
+        TornadoCookieCodec tcc = CookiePot.getCodecFor(CookieSignatureAlgorithm.TORNADO_V2, secretKey);
+
+        try {
+            assertFalse(tcc.getMetrics().isEnabled());
+        } finally {
+            CookiePot.evictCodec(CookieSignatureAlgorithm.TORNADO_V2, secretKey);
+        }
+    }
 }
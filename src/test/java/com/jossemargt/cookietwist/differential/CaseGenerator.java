@@ -0,0 +1,164 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.differential;
+
+import java.util.Random;
+
+/**
+ * Seeded source of cookie names, values, timestamps and raw cookie strings,
+ * biased towards the inputs the formats are sensitive to: separators, length
+ * prefixes, multi-byte and astral characters, lone surrogates and empty fields.
+ */
+final class CaseGenerator {
+
+    private static final String PIPE_HEAVY = "||::|0123456789|:2|a";
+    private static final String MUTATIONS = "|:0123456789-+=/aZ";
+    private static final long[] EDGE_TIMESTAMPS = { 0L, 1L, -1L, 1521518443L, Integer.MAX_VALUE,
+            Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+
+    private final Random random;
+
+    CaseGenerator(Random random) {
+        this.random = random;
+    }
+
+    String name() {
+        return string(32);
+    }
+
+    String value() {
+        return string(256);
+    }
+
+    String timestamp() {
+        if (random.nextInt(4) == 0) {
+            return String.valueOf(EDGE_TIMESTAMPS[random.nextInt(EDGE_TIMESTAMPS.length)]);
+        }
+        return String.valueOf(1000000000L + random.nextInt(Integer.MAX_VALUE));
+    }
+
+    String keyVersion(int keyCount) {
+        return String.valueOf(random.nextInt(keyCount));
+    }
+
+    String signature() {
+        if (random.nextInt(4) == 0) {
+            return "";
+        }
+        return string(64);
+    }
+
+    boolean chance(int oneIn) {
+        return random.nextInt(oneIn) == 0;
+    }
+
+    String string(int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        if (random.nextInt(8) == 0) {
+            length = 0;
+        }
+
+        StringBuilder result = new StringBuilder(length);
+        int flavor = random.nextInt(5);
+
+        while (result.length() < length) {
+            switch (flavor) {
+            case 0:
+                result.append((char) (' ' + random.nextInt('~' - ' ' + 1)));
+                break;
+            case 1:
+                result.append(PIPE_HEAVY.charAt(random.nextInt(PIPE_HEAVY.length())));
+                break;
+            case 2:
+                result.append(bmpChar());
+                break;
+            case 3:
+                if (random.nextBoolean()) {
+                    result.appendCodePoint(Character.MIN_SUPPLEMENTARY_CODE_POINT
+                            + random.nextInt(Character.MAX_CODE_POINT - Character.MIN_SUPPLEMENTARY_CODE_POINT));
+                } else {
+                    result.append(PIPE_HEAVY.charAt(random.nextInt(PIPE_HEAVY.length())));
+                }
+                break;
+            default:
+                result.append(anyChar());
+                break;
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Applies a few random edits to a well formed raw cookie string, so most
+     * cases land close to the accept/reject boundary instead of far from it.
+     */
+    String mutate(String raw) {
+        StringBuilder result = new StringBuilder(raw);
+        int edits = 1 + random.nextInt(3);
+
+        for (int i = 0; i < edits; i++) {
+            int position = random.nextInt(result.length() + 1);
+            switch (random.nextInt(6)) {
+            case 0:
+                result.insert(position, MUTATIONS.charAt(random.nextInt(MUTATIONS.length())));
+                break;
+            case 1:
+                if (position < result.length()) {
+                    result.deleteCharAt(position);
+                }
+                break;
+            case 2:
+                if (position < result.length()) {
+                    result.setCharAt(position, MUTATIONS.charAt(random.nextInt(MUTATIONS.length())));
+                }
+                break;
+            case 3:
+                result.setLength(position);
+                break;
+            case 4:
+                int end = Math.min(result.length(), position + random.nextInt(16));
+                result.insert(position, result.substring(position, end));
+                break;
+            default:
+                result.insert(position, anyChar());
+                break;
+            }
+        }
+
+        return result.toString();
+    }
+
+    private char bmpChar() {
+        char c;
+        do {
+            c = (char) (0x80 + random.nextInt(Character.MAX_VALUE - 0x80));
+        } while (Character.isSurrogate(c));
+        return c;
+    }
+
+    private char anyChar() {
+        return (char) random.nextInt(Character.MAX_VALUE + 1);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.differential;
+
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Runs a property over seeded random cases and, on the first disagreement,
+ * shrinks it to a minimal case before failing. The amount of cases and the seed
+ * come from the {@code differential.iterations} and {@code differential.seed}
+ * system properties, so a failure can be replayed and long runs are opt-in.
+ */
+final class DifferentialHarness {
+
+    static final String ITERATIONS_PROPERTY = "differential.iterations";
+    static final String SEED_PROPERTY = "differential.seed";
+
+    private static final int DEFAULT_ITERATIONS = 2000;
+    private static final long DEFAULT_SEED = 1521518443L;
+
+    /**
+     * A property compares the legacy and current implementations on a single
+     * case, returning null when both agree or a description of the difference.
+     */
+    interface Property {
+        String difference(String[] input);
+    }
+
+    private final int iterations;
+    private final long seed;
+
+    DifferentialHarness() {
+        this(Integer.getInteger(ITERATIONS_PROPERTY, DEFAULT_ITERATIONS),
+                Long.getLong(SEED_PROPERTY, DEFAULT_SEED));
+    }
+
+    DifferentialHarness(int iterations, long seed) {
+        this.iterations = iterations;
+        this.seed = seed;
+    }
+
+    void check(String name, Function<CaseGenerator, String[]> cases, Property property) {
+        CaseGenerator generator = new CaseGenerator(new Random(seed ^ name.hashCode()));
+
+        for (int i = 0; i < iterations; i++) {
+            String[] input = cases.apply(generator);
+            String difference = evaluate(property, input);
+
+            if (difference != null) {
+                String[] minimal = new Shrinker(candidate -> evaluate(property, candidate) != null).shrink(input);
+                throw new AssertionError(String.format(
+                        "%s: legacy and current implementations differ on case %d (seed %d)%n"
+                                + "  original: %s%n    %s%n  minimal:  %s%n    %s",
+                        name, i, seed, describe(input), difference, describe(minimal), evaluate(property, minimal)));
+            }
+        }
+    }
+
+    private static String evaluate(Property property, String[] input) {
+        try {
+            return property.difference(input);
+        } catch (RuntimeException e) {
+            return "property failed: " + e;
+        }
+    }
+
+    static String describe(String[] input) {
+        StringBuilder result = new StringBuilder("[");
+
+        for (int i = 0; i < input.length; i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append('"').append(escape(input[i])).append('"');
+        }
+
+        return result.append(']').toString();
+    }
+
+    static String escape(String value) {
+        StringBuilder result = new StringBuilder();
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < ' ' || c > '~' || c == '"' || c == '\\') {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.differential;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.metrics.StageClock;
+import com.jossemargt.cookietwist.metrics.StripedCodecMetrics;
+import com.jossemargt.cookietwist.signature.SignatureHasher;
+import com.jossemargt.cookietwist.signature.impl.Sha1SignatureHasher;
+import com.jossemargt.cookietwist.signature.impl.Sha256SignatureHasher;
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueDeserializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V1TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V1TornadoCookieValueDeserializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V1TornadoCookieValueSerializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieValueDeserializer;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieValueSerializer;
+
+/*
+ * Run longer with ./gradlew test --tests '*DifferentialTest' -Pdifferential.iterations=1000000
+ * and replay a reported failure with -Pdifferential.seed=<seed>.
+ */
+public class DifferentialTest {
+
+    private static final String V1_SECRET = "not-so-secret";
+    private static final List<String> V2_SECRETS = Arrays.asList("not-so-secret", "second-secret", "third-secret");
+    private static final List<String> ROGUE_SECRETS = Arrays.asList("not-so-secret", "second-secret", "third-secret",
+            "unknown-secret");
+
+    private final DifferentialHarness harness = new DifferentialHarness();
+
+    private final V1TornadoCookieValueSerializer v1Serializer = new V1TornadoCookieValueSerializer();
+    private final V2TornadoCookieValueSerializer v2Serializer = new V2TornadoCookieValueSerializer();
+    private final TornadoCookieValueDeserializer v1Deserializer = new V1TornadoCookieValueDeserializer();
+    private final TornadoCookieValueDeserializer v2Deserializer = new V2TornadoCookieValueDeserializer();
+
+    private final TornadoCookieCodec v1Codec = V1TornadoCookieCodec.builder().withSecretKey(V1_SECRET).build();
+    private final TornadoCookieCodec v1ObservedCodec = V1TornadoCookieCodec.builder().withSecretKey(V1_SECRET)
+            .withMetrics(new StripedCodecMetrics(true)).withEncodeCache(64).build();
+    private final TornadoCookieCodec v2Codec = v2Builder().build();
+    private final TornadoCookieCodec v2ObservedCodec = v2Builder().withMetrics(new StripedCodecMetrics(true))
+            .withEncodeCache(64).build();
+
+    @Test
+    public void testV1SerializerMatchesLegacy() {
+        harness.check("V1 serializer",
+                gen -> new String[] { gen.value(), gen.timestamp(), gen.signature() },
+                input -> {
+                    TornadoCookieValue model = TornadoCookieValue.builder().withValue(input[0])
+                            .withTimestamp(Long.parseLong(input[1])).withSignature(input[2]).build();
+                    return compare(outcome(() -> LegacyCodecs.serializeV1(model)),
+                            outcome(() -> v1Serializer.serialize(model)));
+                });
+    }
+
+    @Test
+    public void testV2SerializerMatchesLegacy() {
+        harness.check("V2 serializer",
+                gen -> new String[] { gen.name(), gen.value(), gen.timestamp(), gen.keyVersion(V2_SECRETS.size()),
+                    gen.signature() },
+                input -> {
+                    TornadoCookieValue model = TornadoCookieValue.builder().withName(input[0]).withValue(input[1])
+                            .withTimestamp(Long.parseLong(input[2])).withSignatureKeyVersion(Integer.parseInt(input[3]))
+                            .withSignature(input[4]).build();
+                    return compare(outcome(() -> LegacyCodecs.serializeV2(model)),
+                            outcome(() -> v2Serializer.serialize(model)));
+                });
+    }
+
+    @Test
+    public void testV1DeserializerMatchesLegacy() {
+        harness.check("V1 deserializer", gen -> new String[] { rawV1(gen) },
+                input -> compareDecoded(outcome(() -> LegacyCodecs.deserializeV1(input[0])),
+                        outcome(() -> v1Deserializer.deserialize(input[0]))));
+    }
+
+    @Test
+    public void testV2DeserializerMatchesLegacy() {
+        harness.check("V2 deserializer", gen -> new String[] { rawV2(gen) },
+                input -> compareDecoded(outcome(() -> LegacyCodecs.deserializeV2(input[0])),
+                        outcome(() -> v2Deserializer.deserialize(input[0]))));
+    }
+
+    @Test
+    public void testSignatureHashersMatchLegacy() {
+        harness.check("Signature hashers",
+                gen -> new String[] { gen.string(32), gen.name(), gen.value(), gen.timestamp() },
+                input -> {
+                    if (input[0].isEmpty()) {
+                        return null;
+                    }
+                    String[] values = Arrays.copyOfRange(input, 1, input.length);
+                    String difference = compareHasher(LegacyCodecs.HMAC_SHA1, new Sha1SignatureHasher(input[0]),
+                            input[0], values);
+                    if (difference == null) {
+                        difference = compareHasher(LegacyCodecs.HMAC_SHA256, new Sha256SignatureHasher(input[0]),
+                                input[0], values);
+                    }
+                    return difference;
+                });
+    }
+
+    @Test
+    public void testV1CodecEncodeMatchesLegacy() {
+        harness.check("V1 codec encode", gen -> new String[] { gen.name(), gen.value(), gen.timestamp() },
+                input -> {
+                    long timestamp = Long.parseLong(input[2]);
+                    String legacy = outcome(() -> LegacyCodecs.encodeV1(V1_SECRET, input[0], input[1], timestamp));
+                    String difference = compare(legacy,
+                            outcome(() -> v1Codec.encodeValue(input[0], input[1], 0, timestamp)));
+                    if (difference == null) {
+                        difference = compare(legacy,
+                                outcome(() -> v1ObservedCodec.encodeValue(input[0], input[1], 0, timestamp)));
+                    }
+                    return difference;
+                });
+    }
+
+    @Test
+    public void testV1CodecDecodeMatchesLegacy() {
+        harness.check("V1 codec decode", gen -> {
+            String name = gen.name();
+            String signed = LegacyCodecs.encodeV1(V1_SECRET, name, gen.value(), Long.parseLong(gen.timestamp()));
+            return new String[] { renamed(gen, name), tampered(gen, signed) };
+        }, input -> compareDecoded(outcome(() -> LegacyCodecs.decodeV1(V1_SECRET, input[0], input[1])),
+                outcome(() -> v1Codec.decodeTornadoCookieValue(input[0], input[1])),
+                outcome(() -> v1ObservedCodec.decodeTornadoCookieValue(input[0], input[1]))));
+    }
+
+    @Test
+    public void testV2CodecEncodeMatchesLegacy() {
+        harness.check("V2 codec encode",
+                gen -> new String[] { gen.name(), gen.value(), gen.timestamp(), gen.keyVersion(V2_SECRETS.size()) },
+                input -> {
+                    long timestamp = Long.parseLong(input[2]);
+                    int keyVersion = Integer.parseInt(input[3]);
+                    String legacy = outcome(
+                            () -> LegacyCodecs.encodeV2(V2_SECRETS, input[0], input[1], keyVersion, timestamp));
+                    String difference = compare(legacy,
+                            outcome(() -> v2Codec.encodeValue(input[0], input[1], keyVersion, timestamp)));
+                    if (difference == null) {
+                        difference = compare(legacy,
+                                outcome(() -> v2ObservedCodec.encodeValue(input[0], input[1], keyVersion, timestamp)));
+                    }
+                    return difference;
+                });
+    }
+
+    @Test
+    public void testV2CodecDecodeMatchesLegacy() {
+        harness.check("V2 codec decode", gen -> {
+            String name = gen.name();
+            String signed = LegacyCodecs.encodeV2(ROGUE_SECRETS, name, gen.value(),
+                    Integer.parseInt(gen.keyVersion(ROGUE_SECRETS.size())), Long.parseLong(gen.timestamp()));
+            return new String[] { renamed(gen, name), tampered(gen, signed) };
+        }, input -> compareDecoded(outcome(() -> LegacyCodecs.decodeV2(V2_SECRETS, input[0], input[1])),
+                outcome(() -> v2Codec.decodeTornadoCookieValue(input[0], input[1])),
+                outcome(() -> v2ObservedCodec.decodeTornadoCookieValue(input[0], input[1]))));
+    }
+
+    @Test
+    public void testShrinkerReducesToMinimalCase() {
+        String[] minimal = new Shrinker(input -> input[0].contains("||") && input[1].length() > 2)
+                .shrink(new String[] { "2|1:0|10:1521518443||3:one", "🍪 cookie" });
+
+        assertArrayEquals(new String[] { "||", "000" }, minimal);
+    }
+
+    @Test
+    public void testHarnessReportsShrunkDifference() {
+        DifferentialHarness failing = new DifferentialHarness(100, 1L);
+
+        try {
+            failing.check("Pipes", gen -> new String[] { gen.value() },
+                    input -> compare(outcome(() -> input[0]), outcome(() -> input[0].replace("|", ""))));
+            fail("Expected the difference to be reported");
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("minimal:  [\"|\"]"));
+        }
+    }
+
+    private static V2TornadoCookieCodec.Builder v2Builder() {
+        V2TornadoCookieCodec.Builder builder = V2TornadoCookieCodec.builder();
+        for (String secret : V2_SECRETS) {
+            builder.withSecretKey(secret);
+        }
+        return builder;
+    }
+
+    private static String rawV1(CaseGenerator gen) {
+        if (gen.chance(3)) {
+            return gen.string(64);
+        }
+        TornadoCookieValue model = TornadoCookieValue.builder().withValue(gen.value())
+                .withTimestamp(Long.parseLong(gen.timestamp())).withSignature(gen.signature()).build();
+        return tampered(gen, LegacyCodecs.serializeV1(model));
+    }
+
+    private static String rawV2(CaseGenerator gen) {
+        if (gen.chance(3)) {
+            return gen.string(64);
+        }
+        TornadoCookieValue model = TornadoCookieValue.builder().withName(gen.name()).withValue(gen.value())
+                .withTimestamp(Long.parseLong(gen.timestamp())).withSignatureKeyVersion(gen.chance(8) ? -1 : 0)
+                .withSignature(gen.signature()).build();
+        return tampered(gen, LegacyCodecs.serializeV2(model));
+    }
+
+    private static String renamed(CaseGenerator gen, String name) {
+        if (gen.chance(8)) {
+            return gen.name();
+        }
+        return name;
+    }
+
+    private static String tampered(CaseGenerator gen, String raw) {
+        if (gen.chance(2)) {
+            return raw;
+        }
+        return gen.mutate(raw);
+    }
+
+    private static String compareHasher(String algorithm, SignatureHasher hasher, String secret, String[] values) {
+        hasher.init();
+        String legacy = outcome(() -> LegacyCodecs.computeSignature(algorithm, secret, values));
+        String difference = compare(legacy, outcome(() -> hasher.computeSignature(values)));
+        if (difference == null) {
+            difference = compare(legacy, outcome(() -> hasher.computeSignature(new StageClock(), values)));
+        }
+        return difference;
+    }
+
+    /*
+     * Outcomes are compared as strings: "ok ..." for a result, "rejected ..."
+     * with the InvalidFormatException message, or "crashed ..." for any other
+     * exception.
+     */
+    private static String outcome(Supplier<?> operation) {
+        Object result;
+        try {
+            result = operation.get();
+        } catch (InvalidFormatException e) {
+            return "rejected " + e.getMessage();
+        } catch (RuntimeException e) {
+            return "crashed " + e.getClass().getName();
+        }
+
+        if (result instanceof TornadoCookieValue) {
+            TornadoCookieValue value = (TornadoCookieValue) result;
+            result = String.format("name=%s value=%s timestamp=%d keyVersion=%d signature=%s", value.getName(),
+                    value.getValue(), value.getTimestamp(), value.getSignatureKeyVersion(), value.getSignature());
+        }
+        return "ok " + DifferentialHarness.escape(String.valueOf(result));
+    }
+
+    private static String compare(String legacy, String current) {
+        if (legacy.equals(current)) {
+            return null;
+        }
+        return String.format("legacy %s, current %s", legacy, current);
+    }
+
+    /*
+     * The legacy parsers crash on some malformed values (a bare ":" field, an
+     * invalid base64 value); those must now be rejected with an
+     * InvalidFormatException, any rejection message being fine.
+     */
+    private static String compareDecoded(String legacy, String... currents) {
+        for (String current : currents) {
+            if (legacy.startsWith("crashed ")) {
+                if (!current.startsWith("rejected ")) {
+                    return String.format("legacy %s, current %s", legacy, current);
+                }
+            } else if (!legacy.equals(current)) {
+                return String.format("legacy %s, current %s", legacy, current);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.differential;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Formatter;
+import java.util.List;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue.TornadoCookieValueBuilder;
+
+/**
+ * Frozen copies of the original, unoptimized serializers, deserializers, hasher
+ * and codec signing logic. They are the reference the current implementations
+ * are compared against, so they must never be optimized themselves.
+ */
+final class LegacyCodecs {
+
+    static final String HMAC_SHA1 = "HmacSHA1";
+    static final String HMAC_SHA256 = "HmacSHA256";
+
+    private LegacyCodecs() {
+    }
+
+    static String serializeV1(TornadoCookieValue model) {
+        String value = "";
+
+        if (model.getValue() != null) {
+            value = model.getValue();
+        }
+
+        String result = String.format("%s|%d", value, model.getTimestamp());
+
+        if (model.getSignature() != null && !model.getSignature().isEmpty()) {
+            result = result + "|" + model.getSignature();
+        }
+
+        return result;
+    }
+
+    static String serializeV2(TornadoCookieValue model) {
+        String value = "";
+
+        if (model.getValue() != null) {
+            value = model.getValue();
+        }
+
+        String encodedValue = Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+
+        String result = "2|" + formatField(String.valueOf(model.getSignatureKeyVersion())) + "|"
+                + formatField(String.valueOf(model.getTimestamp())) + "|" + formatField(model.getName()) + "|"
+                + formatField(encodedValue);
+
+        if (model.getSignature() != null && !model.getSignature().isEmpty()) {
+            result = result + "|" + model.getSignature();
+        }
+
+        return result;
+    }
+
+    private static String formatField(String value) {
+        return String.format("%d:%s", value.length(), value);
+    }
+
+    static TornadoCookieValue deserializeV1(String value) {
+        String[] tokens = value.split("\\|");
+        TornadoCookieValueBuilder modelBuilder = TornadoCookieValue.builder();
+        StringBuilder valueBuilder = new StringBuilder();
+
+        int tokenCount = tokens.length;
+
+        if (tokenCount < 3) {
+            throw new InvalidFormatException(String.format("Invalid field quantity: %d", tokenCount));
+        }
+
+        for (int i = tokenCount; i > 0; i--) {
+            String field = tokens[i - 1];
+
+            switch (tokenCount - i) {
+            case 0:
+                modelBuilder.withSignature(field);
+                break;
+            case 1:
+                long timestamp;
+                try {
+                    timestamp = Long.parseLong(field, 10);
+                } catch (NumberFormatException e) {
+                    throw new InvalidFormatException(String.format("Invalid timestamp format: '%s'", field), e);
+                }
+                modelBuilder.withTimestamp(timestamp);
+                break;
+            default:
+                if (i == 1) {
+                    valueBuilder.insert(0, field);
+                    modelBuilder.withValue(valueBuilder.toString());
+                } else {
+                    valueBuilder.insert(0, "|").insert(1, field);
+                }
+                break;
+            }
+        }
+
+        return modelBuilder.build();
+    }
+
+    static TornadoCookieValue deserializeV2(String value) {
+        String[] tokens = value.split("\\|");
+
+        if (tokens.length < 6) {
+            throw new InvalidFormatException(
+                    String.format("Invalid field quantity. Expected %d, got %d", 6, tokens.length));
+        }
+
+        TornadoCookieValueBuilder builder = TornadoCookieValue.builder();
+
+        for (int i = 0; i < tokens.length; i++) {
+            String field = tokens[i];
+            switch (i) {
+            case 0:
+                if (!"2".equals(field)) {
+                    throw new InvalidFormatException(String.format("Invalid format version '%s'", field));
+                }
+                break;
+            case 1:
+                String keyVersion = extractString(field);
+                try {
+                    builder.withSignatureKeyVersion(Integer.parseInt(keyVersion, 10));
+                } catch (NumberFormatException e) {
+                    throw new InvalidFormatException(String.format("Invalid numeric field format: %s", keyVersion), e);
+                }
+                break;
+            case 2:
+                String timestamp = extractString(field);
+                try {
+                    builder.withTimestamp(Long.parseLong(timestamp, 10));
+                } catch (NumberFormatException e) {
+                    throw new InvalidFormatException(
+                            String.format("Invalid timestamp field format: %s", timestamp), e);
+                }
+                break;
+            case 3:
+                builder.withName(extractString(field));
+                break;
+            case 4:
+                builder.withValue(new String(Base64.getDecoder().decode(extractString(field)), StandardCharsets.UTF_8));
+                break;
+            case 5:
+                builder.withSignature(field);
+                break;
+            default:
+                throw new InvalidFormatException("Invalid field amount");
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static String extractString(String field) {
+        String[] tokens = field.split(":");
+        int expectedLength;
+
+        try {
+            expectedLength = Integer.parseInt(tokens[0], 10);
+        } catch (NumberFormatException e) {
+            throw new InvalidFormatException("Invalid field length format", e);
+        }
+
+        if (expectedLength == 0 && tokens.length == 1) {
+            return "";
+        }
+
+        if (tokens.length != 2) {
+            throw new InvalidFormatException(String.format("Invalid field format '%s'", field));
+        }
+
+        String fieldValue = tokens[1];
+
+        if (fieldValue.length() != expectedLength) {
+            throw new InvalidFormatException(String.format("Field length mismatch. Expected %d characters, got %d",
+                    expectedLength, fieldValue.length()));
+        }
+
+        return fieldValue;
+    }
+
+    static String computeSignature(String algorithm, String secret, String... values) {
+        Mac hasher;
+        try {
+            hasher = Mac.getInstance(algorithm);
+            hasher.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm));
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (String value : values) {
+            hasher.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Formatter formatter = new Formatter();
+        for (byte b : hasher.doFinal()) {
+            formatter.format("%02x", b);
+        }
+
+        String signature = formatter.toString();
+        formatter.close();
+        return signature;
+    }
+
+    static String encodeV1(String secret, String name, String value, long timestamp) {
+        TornadoCookieValue toEncode = TornadoCookieValue.builder().withName(name).withValue(value)
+                .withTimestamp(timestamp).build();
+        String signature = computeSignature(HMAC_SHA1, secret, name, value, String.valueOf(timestamp));
+
+        return serializeV1(TornadoCookieValue.builderFrom(toEncode).withSignature(signature).build());
+    }
+
+    static String encodeV2(List<String> secrets, String name, String value, int keyVersion, long timestamp) {
+        TornadoCookieValue toEncode = TornadoCookieValue.builder().withName(name).withValue(value)
+                .withTimestamp(timestamp).withSignatureKeyVersion(keyVersion).build();
+
+        return serializeV2(TornadoCookieValue.builderFrom(toEncode).withSignature(signV2(secrets, toEncode)).build());
+    }
+
+    static TornadoCookieValue decodeV1(String secret, String name, String signedValue) {
+        TornadoCookieValue decoded = TornadoCookieValue.builderFrom(deserializeV1(signedValue)).withName(name)
+                .build();
+        String signature = computeSignature(HMAC_SHA1, secret, decoded.getName(), decoded.getValue(),
+                String.valueOf(decoded.getTimestamp()));
+
+        if (!signature.equals(decoded.getSignature())) {
+            throw new InvalidFormatException("Cookie signature mismatch");
+        }
+
+        return decoded;
+    }
+
+    static TornadoCookieValue decodeV2(List<String> secrets, String name, String signedValue) {
+        TornadoCookieValue decoded = deserializeV2(signedValue);
+
+        if (!decoded.getName().equals(name)) {
+            throw new InvalidFormatException("Cookie name mismatch");
+        }
+
+        if (!signV2(secrets, decoded).equals(decoded.getSignature())) {
+            throw new InvalidFormatException("Cookie signature mismatch");
+        }
+
+        return decoded;
+    }
+
+    private static String signV2(List<String> secrets, TornadoCookieValue cookieValue) {
+        int keyVersion = cookieValue.getSignatureKeyVersion();
+
+        if (keyVersion < 0 || keyVersion >= secrets.size()) {
+            throw new InvalidFormatException("Required signature key does not exist");
+        }
+
+        String serializedValue = serializeV2(TornadoCookieValue.builderFrom(cookieValue).withSignature("").build());
+
+        return computeSignature(HMAC_SHA256, secrets.get(keyVersion), serializedValue, "|");
+    }
+}
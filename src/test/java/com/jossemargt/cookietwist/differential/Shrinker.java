@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.differential;
+
+import java.util.function.Predicate;
+
+/**
+ * Greedy shrinker for failing cases made of string fields. It removes ever
+ * smaller chunks from each field and then simplifies the remaining characters,
+ * keeping every candidate that still fails, until no step makes progress.
+ */
+final class Shrinker {
+
+    private static final int MAX_ATTEMPTS = 20000;
+
+    private final Predicate<String[]> failing;
+    private int attempts;
+
+    Shrinker(Predicate<String[]> failing) {
+        this.failing = failing;
+    }
+
+    String[] shrink(String[] input) {
+        String[] current = input.clone();
+        boolean progress = true;
+
+        while (progress && attempts < MAX_ATTEMPTS) {
+            progress = false;
+            for (int field = 0; field < current.length; field++) {
+                progress |= removeChunks(current, field);
+                progress |= simplifyChars(current, field);
+            }
+        }
+
+        return current;
+    }
+
+    private boolean removeChunks(String[] current, int field) {
+        boolean progress = false;
+
+        for (int chunk = current[field].length(); chunk > 0; chunk /= 2) {
+            int start = 0;
+            while (start < current[field].length() && attempts < MAX_ATTEMPTS) {
+                String value = current[field];
+                int end = Math.min(value.length(), start + chunk);
+                if (tryReplace(current, field, value.substring(0, start) + value.substring(end))) {
+                    progress = true;
+                } else {
+                    start += chunk;
+                }
+            }
+        }
+
+        return progress;
+    }
+
+    private boolean simplifyChars(String[] current, int field) {
+        boolean progress = false;
+
+        for (int i = 0; i < current[field].length() && attempts < MAX_ATTEMPTS; i++) {
+            String value = current[field];
+            char c = value.charAt(i);
+            int end = i + 1;
+            if (Character.isHighSurrogate(c) && end < value.length() && Character.isLowSurrogate(value.charAt(end))) {
+                end++;
+            }
+
+            for (String simpler : new String[] { "0", "a" }) {
+                if (value.substring(i, end).equals(simpler) || simpler.charAt(0) > c && end == i + 1) {
+                    continue;
+                }
+                if (tryReplace(current, field, value.substring(0, i) + simpler + value.substring(end))) {
+                    progress = true;
+                    break;
+                }
+            }
+        }
+
+        return progress;
+    }
+
+    private boolean tryReplace(String[] current, int field, String candidate) {
+        attempts++;
+        String[] next = current.clone();
+        next[field] = candidate;
+
+        if (failing.test(next)) {
+            current[field] = candidate;
+            return true;
+        }
+        return false;
+    }
+}
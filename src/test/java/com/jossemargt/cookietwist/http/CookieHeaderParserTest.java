@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class CookieHeaderParserTest {
+
+    private CookieHeaderParser subject = new CookieHeaderParser("one", "two", "session");
+
+    @SuppressWarnings("unused")
+    private Object[] parametersForTestParse() {
+        return new Object[] {
+                new Object[] { "one=1; two=2; session=3", new String[] { "1", "2", "3" } },
+                new Object[] { "session=3;one=1", new String[] { "1", null, "3" } },
+                new Object[] { "  one = 1 ;\ttwo=\"2|x\"  ", new String[] { "1", "2|x", null } },
+                new Object[] { "onetwo=1; tw=2; ses=3; sessions=4", new String[] { null, null, null } },
+                new Object[] { "one=first; one=second", new String[] { "first", null, null } },
+                new Object[] { "broken; one; =x; two=", new String[] { null, "", null } },
+                new Object[] { "one;two;session; two=2", new String[] { null, "2", null } },
+                new Object[] { "", new String[] { null, null, null } },
+        };
+    }
+
+    @Test
+    @Parameters
+    public void testParse(String header, String[] expected) {
+        assertArrayEquals(expected, subject.parse(header));
+    }
+
+    @Test
+    @Parameters(method = "parametersForTestParse")
+    public void testParseBytes(String header, String[] expected) {
+        byte[] raw = ("Cookie: " + header).getBytes(StandardCharsets.ISO_8859_1);
+
+        assertArrayEquals(expected, subject.parse(raw, 8, raw.length - 8));
+    }
+
+    @Test
+    public void testParseAcrossHeaders() {
+        String[] values = new String[3];
+
+        assertEquals(1, subject.parse("one=1; two=2", new String[] { null, "kept", null }));
+        assertEquals(2, subject.parse("one=1; two=2", values));
+        assertEquals(1, subject.parse("one=other; session=3", values));
+        assertArrayEquals(new String[] { "1", "2", "3" }, values);
+    }
+
+    @Test
+    public void testIndexOf() {
+        assertEquals(2, subject.indexOf("session"));
+        assertEquals(CookieHeaderParser.NOT_FOUND, subject.indexOf("Session"));
+        assertEquals(CookieHeaderParser.NOT_FOUND, subject.indexOf(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequiresNames() {
+        new CookieHeaderParser();
+    }
+}
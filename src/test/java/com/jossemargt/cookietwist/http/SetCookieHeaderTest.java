@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class SetCookieHeaderTest {
+
+    private static Instant frozenInstant = Instant.ofEpochSecond(1521518443L);
+
+    @Test
+    public void testRenderSessionCookie() {
+        assertEquals("one=2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|sig", SetCookieHeader.render("one",
+                "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|sig", CookieAttributes.DEFAULT, frozenInstant));
+    }
+
+    @Test
+    public void testRenderEveryAttribute() {
+        CookieAttributes attributes = CookieAttributes.builder().withDomain("example.com").withPath("/")
+                .withMaxAge(3600).withSecure(true).withHttpOnly(true).withSameSite("Lax").build();
+
+        assertEquals("one=value; Domain=example.com; Path=/; Max-Age=3600; Expires=Tue, 20 Mar 2018 05:00:43 GMT;"
+                + " Secure; HttpOnly; SameSite=Lax", SetCookieHeader.render("one", "value", attributes, frozenInstant));
+    }
+
+    @Test
+    @Parameters
+    public void testRenderRejectsInvalidInput(String name, String value) {
+        try {
+            SetCookieHeader.render(name, value, CookieAttributes.DEFAULT, frozenInstant);
+            fail("Expected exception to be thrown");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestRenderRejectsInvalidInput() {
+        return new Object[] {
+                new Object[] { "", "value" },
+                new Object[] { "na;me", "value" },
+                new Object[] { "name", "simple value" },
+                new Object[] { "name", "semi;colon" },
+                new Object[] { "name", "unw@nt€d" }
+        };
+    }
+
+    @Test
+    public void testRenderCanonicalSameSite() {
+        CookieAttributes attributes = CookieAttributes.builder().withSameSite("strict").build();
+
+        assertEquals("one=value; SameSite=Strict", SetCookieHeader.render("one", "value", attributes, frozenInstant));
+    }
+
+    @Test
+    @Parameters
+    public void testRenderRejectsInvalidAttributes(CookieAttributes attributes) {
+        try {
+            SetCookieHeader.render("one", "value", attributes, frozenInstant);
+            fail("Expected exception to be thrown");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestRenderRejectsInvalidAttributes() {
+        return new Object[] {
+                new Object[] { CookieAttributes.builder().withDomain("example.com; Secure").build() },
+                new Object[] { CookieAttributes.builder().withDomain("example.com\r\nX-Injected: 1").build() },
+                new Object[] { CookieAttributes.builder().withPath("/; HttpOnly").build() },
+                new Object[] { CookieAttributes.builder().withPath("/\n").build() },
+                new Object[] { CookieAttributes.builder().withSameSite("Lax; Secure").build() },
+                new Object[] { CookieAttributes.builder().withSameSite("Sometimes").build() }
+        };
+    }
+}
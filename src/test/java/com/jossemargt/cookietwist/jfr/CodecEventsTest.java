@@ -0,0 +1,167 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class CodecEventsTest {
+
+    private static String signedOne = "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+            + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb";
+
+    private TornadoCookieCodec codec;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(CodecEvents.isAvailable());
+        codec = V2TornadoCookieCodec.builder().withTimestamp(1521518443L).withSecretKey("not-so-secret").build();
+    }
+
+    @Test
+    public void testEventsAreSkippedWhenNotRecording() {
+        assertNull(CodecEvents.beginDecode());
+        assertNull(CodecEvents.beginEncode());
+        assertNull(CodecEvents.beginSignature());
+    }
+
+    @Test
+    public void testDecodeEventsAreRecorded() throws IOException {
+        List<RecordedEvent> events;
+
+        try (Recording recording = new Recording()) {
+            recording.enable(CookieDecodeEvent.NAME).withThreshold(Duration.ZERO);
+            recording.enable(SignatureComputeEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+
+            codec.decodeValue("one", signedOne);
+            try {
+                codec.decodeValue("two", signedOne);
+                fail("Expected exception to be thrown");
+            } catch (InvalidFormatException e) {
+                // Expected name mismatch
+            }
+
+            recording.stop();
+            events = readEvents(recording);
+        }
+
+        RecordedEvent success = findEvent(events, CookieDecodeEvent.NAME, "OK");
+        assertEquals(2, success.getInt("codecVersion"));
+        assertEquals(0, success.getInt("keyVersion"));
+        assertEquals(signedOne.length(), success.getInt("cookieSize"));
+        assertTrue(success.getDuration("hmacTime").toNanos() > 0);
+
+        RecordedEvent failure = findEvent(events, CookieDecodeEvent.NAME, "NAME_MISMATCH");
+        assertEquals(-1, failure.getInt("keyVersion"));
+
+        assertEquals(1, events.stream().filter(e -> e.getEventType().getName().equals(SignatureComputeEvent.NAME))
+                .count());
+    }
+
+    @Test
+    public void testEncodeEventIsRecorded() throws IOException {
+        List<RecordedEvent> events;
+
+        try (Recording recording = new Recording()) {
+            recording.enable(CookieEncodeEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+
+            codec.encodeValue("one", "simple value", 0);
+
+            recording.stop();
+            events = readEvents(recording);
+        }
+
+        RecordedEvent encode = findEvent(events, CookieEncodeEvent.NAME, null);
+        assertEquals(signedOne.length(), encode.getInt("cookieSize"));
+        assertTrue(encode.getDuration("serializeTime").toNanos() > 0);
+    }
+
+    @Test
+    public void testSignatureEventIsRecordedOnItsOwn() throws IOException {
+        List<RecordedEvent> events;
+
+        try (Recording recording = new Recording()) {
+            recording.disable(CookieEncodeEvent.NAME);
+            recording.disable(CookieDecodeEvent.NAME);
+            recording.enable(SignatureComputeEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+
+            codec.encodeValue("one", "simple value", 0);
+            codec.decodeValue("one", signedOne);
+
+            recording.stop();
+            events = readEvents(recording);
+        }
+
+        assertEquals(2, events.size());
+        for (RecordedEvent event : events) {
+            assertEquals(SignatureComputeEvent.NAME, event.getEventType().getName());
+            assertEquals(2, event.getInt("codecVersion"));
+            assertEquals(0, event.getInt("keyVersion"));
+            assertEquals("simple value".length(), event.getInt("valueSize"));
+        }
+    }
+
+    private static List<RecordedEvent> readEvents(Recording recording) throws IOException {
+        Path dump = Files.createTempFile("cookie-twist", ".jfr");
+        try {
+            recording.dump(dump);
+            return RecordingFile.readAllEvents(dump);
+        } finally {
+            Files.delete(dump);
+        }
+    }
+
+    private static RecordedEvent findEvent(List<RecordedEvent> events, String name, String outcome) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)
+                    && (outcome == null || outcome.equals(event.getString("outcome")))) {
+                return event;
+            }
+        }
+        throw new AssertionError("Missing event " + name + " " + outcome);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.management;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.jossemargt.cookietwist.metrics.StripedCodecMetrics;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+public class CodecStatsTest {
+
+    private static String signedOne = "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+            + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb";
+
+    private MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @Test
+    public void testHandBuiltCodecWithCache() throws JMException {
+        StripedCodecMetrics metrics = new StripedCodecMetrics();
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withTimestamp(1521518443L)
+                .withSecretKey("not-so-secret").withEncodeCache(16).withMetrics(metrics).build();
+        CodecStats subject = new CodecStats("TORNADO_V2", "hand-built", codec, metrics);
+
+        assertTrue(subject.register());
+
+        codec.encodeValue("one", "simple value", 0);
+        codec.encodeValue("one", "simple value", 0);
+
+        assertEquals(2L, server.getAttribute(subject.getObjectName(), "EncodeCount"));
+        assertEquals(0.5, server.getAttribute(subject.getObjectName(), "EncodeCacheHitRatio"));
+        assertTrue(subject.unregister());
+    }
+
+    @Test
+    public void testNameCollisionKeepsTheOtherBean() throws JMException {
+        StripedCodecMetrics metrics = new StripedCodecMetrics();
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withSecretKey("not-so-secret").withMetrics(metrics)
+                .build();
+        CodecStats first = new CodecStats("TORNADO_V2", "collision", codec, metrics);
+        CodecStats second = new CodecStats("TORNADO_V2", "collision", codec, metrics);
+
+        assertTrue(first.register());
+        assertTrue(second.register());
+
+        assertEquals(new ObjectName(CodecStats.DOMAIN + ":type=TornadoCookieCodec,algorithm=TORNADO_V2,"
+                + "keyRing=collision"), first.getObjectName());
+        assertEquals("2", second.getObjectName().getKeyProperty("instance"));
+        assertTrue(server.isRegistered(first.getObjectName()));
+        assertTrue(server.isRegistered(second.getObjectName()));
+        assertTrue(first.unregister());
+        assertTrue(second.unregister());
+    }
+
+    @Test
+    public void testHandBuiltCodecTrackingAllocations() throws JMException {
+        StripedCodecMetrics metrics = new StripedCodecMetrics(true);
+        Assume.assumeTrue(metrics.isTrackingAllocations());
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withSecretKey("not-so-secret").withMetrics(metrics)
+                .build();
+        CodecStats subject = new CodecStats("TORNADO_V2", "allocations", codec, metrics);
+
+        assertTrue(subject.register());
+
+        codec.decodeValue("one", signedOne);
+
+        ObjectName name = subject.getObjectName();
+        assertTrue((Double) server.getAttribute(name, "DecodeAllocatedBytesMean") > 0);
+        assertTrue(countOf((TabularData) server.getAttribute(name, "DecodeAllocatedBytesByStage"), "BASE64") > 0);
+        assertTrue(((String) server.invoke(name, "dumpSnapshot", null, null)).contains("decodeAllocatedBytes"));
+        assertTrue(subject.unregister());
+    }
+
+    private static long countOf(TabularData table, String key) {
+        CompositeData row = table.get(new Object[] { key });
+        return (Long) row.get("value");
+    }
+}
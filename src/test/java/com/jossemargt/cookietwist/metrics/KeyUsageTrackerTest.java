@@ -0,0 +1,172 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+public class KeyUsageTrackerTest {
+
+    private static long frozentimestamp = 1521518443L;
+    private static String signedOne = "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+            + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb";
+
+    private MutableClock clock;
+    private KeyUsageTracker tracker;
+    private TornadoCookieCodec subject;
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock(frozentimestamp);
+        tracker = new KeyUsageTracker(Duration.ofHours(1), Duration.ofSeconds(10), clock);
+        subject = V2TornadoCookieCodec.builder().withTimestamp(frozentimestamp).withSecretKey("not-so-secret")
+                .withSecretKey("newer-secret").withKeyUsageTracker(tracker).build();
+    }
+
+    @Test
+    public void testTracksVerificationsAndEncodes() {
+        subject.decodeValue("one", signedOne);
+        clock.advance(5);
+        subject.decodeValue("one", signedOne);
+        subject.encodeValue("one", "simple value", 1);
+
+        KeyVersionUsage oldKey = tracker.getUsage(0);
+        assertEquals(2, oldKey.getVerificationCount());
+        assertEquals(0, oldKey.getEncodeCount());
+        assertEquals(frozentimestamp + 5, oldKey.getLastVerifiedAt());
+        assertEquals(KeyVersionUsage.NEVER, oldKey.getLastEncodedAt());
+        assertEquals(frozentimestamp, oldKey.getOldestIssuedAt());
+
+        KeyVersionUsage newKey = tracker.getUsage(1);
+        assertEquals(1, newKey.getEncodeCount());
+        assertEquals(KeyVersionUsage.NEVER, newKey.getOldestIssuedAt());
+        assertEquals(Arrays.asList(0, 1), Arrays.asList(tracker.getUsages().keySet().toArray()));
+    }
+
+    @Test
+    public void testFailedVerificationIsNotTracked() {
+        subject.decodeValue("one", signedOne);
+        try {
+            subject.decodeValue("one", signedOne.replace("94639b", "00000b"));
+        } catch (RuntimeException e) {
+            // Expected signature mismatch
+        }
+
+        assertEquals(1, tracker.getUsage(0).getVerificationCount());
+        assertNull(tracker.getUsage(1));
+    }
+
+    @Test
+    public void testFailedEncodeIsNotTracked() {
+        try {
+            subject.encodeValue("one", "simple value", 5);
+        } catch (RuntimeException e) {
+            // Expected unknown key
+        }
+
+        assertNull(tracker.getUsage(5));
+    }
+
+    @Test
+    public void testRateOnlyCountsTheWindow() {
+        tracker.recordEncode(0);
+        tracker.recordEncode(0);
+        clock.advance(9);
+        tracker.recordEncode(0);
+
+        assertEquals(0.3, tracker.getRate(0), 0.0001);
+
+        clock.advance(1);
+        assertEquals(0.1, tracker.getRate(0), 0.0001);
+
+        clock.advance(10);
+        tracker.recordEncode(0);
+        assertEquals(0.1, tracker.getRate(0), 0.0001);
+        assertEquals(0, tracker.getRate(1), 0.0001);
+    }
+
+    @Test
+    public void testRetirableVersions() {
+        subject.decodeValue("one", signedOne);
+        subject.encodeValue("one", "simple value", 1);
+
+        assertEquals(Collections.emptyList(), tracker.getRetirableVersions(3));
+
+        clock.advance(Duration.ofMinutes(59).getSeconds());
+        subject.encodeValue("one", "simple value", 1);
+        clock.advance(Duration.ofMinutes(1).getSeconds());
+
+        assertTrue(tracker.isRetirable(0));
+        assertFalse(tracker.isRetirable(1));
+        assertEquals(Arrays.asList(0, 2), tracker.getRetirableVersions(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxAgeMustBePositive() {
+        new KeyUsageTracker(Duration.ZERO);
+    }
+
+    private static final class MutableClock extends Clock {
+        private long epochSecond;
+
+        MutableClock(long epochSecond) {
+            this.epochSecond = epochSecond;
+        }
+
+        void advance(long seconds) {
+            epochSecond += seconds;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochSecond(epochSecond);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
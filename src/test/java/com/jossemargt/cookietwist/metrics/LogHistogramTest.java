@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class LogHistogramTest {
+
+    @SuppressWarnings("unused")
+    private Object[] parametersForTestBucketBounds() {
+        return new Object[] {
+                new Object[] { 0L, 0, 0L },
+                new Object[] { 7L, 7, 7L },
+                new Object[] { 8L, 8, 8L },
+                new Object[] { 17L, 16, 17L },
+                new Object[] { 1000L, 63, 1023L },
+                new Object[] { Long.MAX_VALUE, 487, Long.MAX_VALUE },
+        };
+    }
+
+    @Test
+    @Parameters
+    public void testBucketBounds(long value, int expectedIndex, long expectedUpperBound) {
+        int index = LogHistogram.bucketIndex(value);
+
+        assertEquals(expectedIndex, index);
+        assertEquals(expectedUpperBound, LogHistogram.bucketUpperBound(index));
+        assertTrue(LogHistogram.bucketUpperBound(index) >= value);
+    }
+
+    @Test
+    public void testPercentiles() {
+        LogHistogram subject = new LogHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            subject.record(value * 1000);
+        }
+
+        assertEquals(1000, subject.getCount());
+        assertEquals(500500.0, subject.getMean(), 0.001);
+        assertEquals(1000000L, subject.getMax());
+        assertWithin(500000L, subject.getValueAtPercentile(50));
+        assertWithin(990000L, subject.getValueAtPercentile(99));
+        assertEquals(1000000L, subject.getValueAtPercentile(100));
+
+        subject.reset();
+
+        assertEquals(0, subject.getCount());
+        assertEquals(0L, subject.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testAdd() {
+        LogHistogram subject = new LogHistogram();
+        LogHistogram other = new LogHistogram();
+        subject.record(10);
+        other.record(30);
+        other.record(5000);
+
+        subject.add(other);
+
+        assertEquals(3, subject.getCount());
+        assertEquals(5040.0 / 3, subject.getMean(), 0.001);
+        assertEquals(5000L, subject.getMax());
+        assertEquals(2, other.getCount());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(String.format("Expected %d to be within 12.5%% of %d", actual, expected),
+                actual >= expected && actual <= expected * 1.125);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.Test;
+
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V1TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+public class StageTracerTest {
+
+    private static String signedOne = "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+            + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb";
+
+    @Test
+    public void testBreaksDecodeDownByStage() {
+        StageTracer tracer = new StageTracer(1);
+        TornadoCookieCodec subject = V2TornadoCookieCodec.builder().withTimestamp(1521518443L)
+                .withSecretKey("not-so-secret").withStageTracer(tracer).build();
+
+        for (int i = 0; i < 10; i++) {
+            subject.decodeValue("one", signedOne);
+        }
+
+        assertEquals(10, tracer.getDecodeLatency().getCount());
+        assertEquals(0, tracer.getEncodeLatency().getCount());
+        assertTrue(tracer.getStageLatency(Stage.HMAC).getMax() > 0);
+        assertTrue(tracer.getStageLatency(Stage.BYTES).getMax() > 0);
+        assertTrue(tracer.getStageLatency(Stage.BASE64).getMax() > 0);
+        assertEquals(10, tracer.getStageLatency(Stage.COMPARE).getCount());
+    }
+
+    @Test
+    public void testBreaksV1EncodeDownByStage() {
+        StageTracer tracer = new StageTracer(1);
+        TornadoCookieCodec subject = V1TornadoCookieCodec.builder().withSecretKey("not-so-secret")
+                .withStageTracer(tracer).build();
+
+        subject.encodeValue("one", "simple value", 0);
+
+        assertEquals(1, tracer.getEncodeLatency().getCount());
+        assertTrue(tracer.getStageLatency(Stage.HEX).getMax() > 0);
+        assertTrue(tracer.getStageLatency(Stage.SERIALIZE).getMax() > 0);
+    }
+
+    @Test
+    public void testKeepsTheNewestSamplesOfAFullRing() {
+        StageTracer tracer = new StageTracer(1, 4);
+        StageClock clock = new StageClock();
+
+        for (int i = 0; i < 10; i++) {
+            tracer.recordDecode(clock);
+        }
+
+        assertEquals(4, tracer.getDecodeLatency().getCount());
+
+        tracer.recordEncode(clock);
+        assertEquals(1, tracer.getEncodeLatency().getCount());
+        assertEquals(4, tracer.getDecodeLatency().getCount());
+    }
+
+    @Test
+    public void testDrainsEveryThread() throws InterruptedException {
+        StageTracer tracer = new StageTracer(1);
+        Thread[] threads = new Thread[4];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    tracer.recordDecode(new StageClock());
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400, tracer.getDecodeLatency().getCount());
+    }
+
+    @Test
+    public void testRingsStayBoundedOnTheDefaultExecutor() {
+        StageTracer tracer = new StageTracer(1);
+        TornadoCookieCodec subject = V2TornadoCookieCodec.builder().withTimestamp(1521518443L)
+                .withSecretKey("not-so-secret").withStageTracer(tracer).build();
+        List<CompletableFuture<Cookie>> futures = new ArrayList<CompletableFuture<Cookie>>();
+
+        for (int i = 0; i < 500; i++) {
+            futures.add(subject.decodeAsync(new Cookie("one", signedOne)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        assertTrue(tracer.maxRings() <= 2 * Runtime.getRuntime().availableProcessors());
+        assertTrue(tracer.ringCount() <= tracer.maxRings());
+        assertEquals(500, tracer.getDecodeLatency().getCount());
+    }
+
+    @Test
+    public void testSamplesOneOutOfN() {
+        StageTracer tracer = new StageTracer(100);
+        int sampled = 0;
+
+        for (int i = 0; i < 100000; i++) {
+            if (tracer.shouldSample()) {
+                sampled++;
+            }
+        }
+
+        assertTrue("Sampled " + sampled, sampled > 500 && sampled < 1500);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSampleRateMustBePositive() {
+        new StageTracer(0);
+    }
+}
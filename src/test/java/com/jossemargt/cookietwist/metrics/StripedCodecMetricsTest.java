@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class StripedCodecMetricsTest {
+
+    private static String signedOne = "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+            + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb";
+
+    private StripedCodecMetrics metrics;
+    private TornadoCookieCodec subject;
+
+    @Before
+    public void setUp() {
+        metrics = new StripedCodecMetrics();
+        subject = V2TornadoCookieCodec.builder().withTimestamp(1521518443L).withSecretKey("not-so-secret")
+                .withSecretKey("newer-secret").withMetrics(metrics).build();
+    }
+
+    @SuppressWarnings("unused")
+    private Object[] parametersForTestRecordsFailureReason() {
+        return new Object[] {
+                new Object[] { "one", "2|1:0|10:1521518443|3:one", FailureReason.FIELD_COUNT },
+                new Object[] { "one", signedOne.replaceFirst("2", "3"), FailureReason.VERSION },
+                new Object[] { "one", signedOne.replace("3:one", "4:one"), FailureReason.LENGTH },
+                new Object[] { "one", signedOne.replace("10:1521518443", "10:152151844x"),
+                        FailureReason.FIELD_FORMAT },
+                new Object[] { "one", signedOne.replace("16:c2ltcGxlIHZhbHVl", "16:c2ltcGxlIHZhbHV!"),
+                        FailureReason.ENCODING },
+                new Object[] { "two", signedOne, FailureReason.NAME_MISMATCH },
+                new Object[] { "one", signedOne.replace("1:0", "1:7"), FailureReason.UNKNOWN_KEY },
+                new Object[] { "one", signedOne.replace("94639b", "00000b"), FailureReason.SIGNATURE_MISMATCH },
+        };
+    }
+
+    @Test
+    @Parameters
+    public void testRecordsFailureReason(String name, String signedValue, FailureReason expected) {
+        try {
+            subject.decodeValue(name, signedValue);
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(expected, e.getReason());
+        }
+
+        assertEquals(1, metrics.getFailureCount());
+        assertEquals(1, metrics.getFailureCount(expected));
+        assertEquals(0, metrics.getDecodeCount());
+        assertEquals(1, metrics.getDecodeLatency().getCount());
+        assertEquals(signedValue.length(), metrics.getDecodeSize().getMax());
+    }
+
+    @Test
+    public void testRecordsEncodeAndDecode() {
+        String signedNewer = subject.encodeValue("one", "simple value", 1);
+
+        assertEquals("simple value", subject.decodeValue("one", signedOne));
+        assertEquals("simple value", subject.decodeValue("one", signedNewer));
+        assertEquals("simple value", subject.decodeValue("one", signedNewer));
+
+        assertEquals(1, metrics.getEncodeCount());
+        assertEquals(Collections.singletonMap(1, 1L), metrics.getEncodeCountByKeyVersion());
+        assertEquals(3, metrics.getDecodeCount());
+        assertEquals(1L, metrics.getDecodeCountByKeyVersion().get(0).longValue());
+        assertEquals(2L, metrics.getDecodeCountByKeyVersion().get(1).longValue());
+        assertEquals(signedNewer.length(), metrics.getEncodeSize().getMax());
+        assertEquals(3, metrics.getDecodeLatency().getCount());
+
+        metrics.reset();
+
+        assertEquals(0, metrics.getDecodeCount());
+        assertEquals(0, metrics.getDecodeLatency().getCount());
+    }
+
+    @Test
+    public void testTracksAllocationsWhenEnabled() {
+        StripedCodecMetrics tracking = new StripedCodecMetrics(true);
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withTimestamp(1521518443L)
+                .withSecretKey("not-so-secret").withMetrics(tracking).build();
+        Assume.assumeTrue(tracking.isTrackingAllocations());
+
+        for (int i = 0; i < 10; i++) {
+            codec.decodeValue("one", signedOne);
+        }
+        codec.encodeValue("one", "simple value", 0);
+
+        assertEquals(10, tracking.getDecodeAllocation().getCount());
+        assertTrue(tracking.getDecodeAllocation().getMean() > 0);
+        assertTrue(tracking.getDecodeAllocation(Stage.BASE64).getMax() > 0);
+        assertEquals(1, tracking.getEncodeAllocation().getCount());
+        assertTrue(tracking.getEncodeAllocation(Stage.SERIALIZE).getMax() > 0);
+
+        tracking.reset();
+
+        assertEquals(0, tracking.getDecodeAllocation().getCount());
+    }
+
+    @Test
+    public void testAllocationsAreNotTrackedByDefault() {
+        subject.decodeValue("one", signedOne);
+
+        assertFalse(metrics.isTrackingAllocations());
+        assertEquals(0, metrics.getDecodeAllocation().getCount());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.servlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jossemargt.cookietwist.CookiePot;
+import com.jossemargt.cookietwist.CookieSignatureAlgorithm;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+public class SignedCookieFilterTest {
+
+    private static String signedOne = "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+            + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb";
+
+    private HttpServletRequest request;
+    private FilterChain chain;
+    private AtomicReference<ServletRequest> forwarded;
+
+    @Before
+    public void setUp() throws IOException, ServletException {
+        request = mock(HttpServletRequest.class);
+        when(request.getCookies()).thenReturn(new Cookie[] { new Cookie("analytics", "x"),
+                new Cookie("one", signedOne), new Cookie("two", signedOne) });
+
+        forwarded = new AtomicReference<ServletRequest>();
+        chain = mock(FilterChain.class);
+        doAnswer(invocation -> {
+            forwarded.set(invocation.getArgument(0));
+            return null;
+        }).when(chain).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+    }
+
+    @Test
+    public void testDecodesLazilyOncePerRequest() throws IOException, ServletException {
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withSecretKey("not-so-secret").build();
+        SignedCookieFilter subject = new SignedCookieFilter(codec, "one", "two", "missing");
+
+        subject.doFilter(request, mock(HttpServletResponse.class), chain);
+        verify(request, times(0)).getCookies();
+
+        ServletRequest nested = new HttpServletRequestWrapper((HttpServletRequest) forwarded.get());
+        SignedCookieRequestWrapper wrapper = SignedCookieRequestWrapper.from(nested);
+
+        assertNotNull(wrapper);
+        assertEquals("simple value", wrapper.getSignedCookieValue("one"));
+        assertEquals("simple value", ((Cookie) nested.getAttribute(SignedCookieRequestWrapper.ATTRIBUTE_PREFIX
+                + "one")).getValue());
+        assertSame(wrapper.getSignedCookie("one"), wrapper.getSignedCookie("one"));
+        verify(request, times(1)).getCookies();
+
+        assertNull(wrapper.getSignedCookie("two"));
+        assertEquals("Cookie name mismatch", wrapper.getSignedCookieFailure("two").getMessage());
+        assertNull(wrapper.getSignedCookie("missing"));
+        assertNull(wrapper.getSignedCookieFailure("missing"));
+        assertNull(wrapper.getSignedCookie("analytics"));
+        verify(request, times(1)).getCookies();
+    }
+
+    @Test
+    public void testPrefersRawCookieHeader() throws IOException, ServletException {
+        when(request.getHeaders("Cookie")).thenReturn(Collections.enumeration(Arrays.asList(
+                "analytics=x; two=\"" + signedOne + "\"", "one=" + signedOne + "; one=ignored")));
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withSecretKey("not-so-secret").build();
+        SignedCookieFilter subject = new SignedCookieFilter(codec, "one", "two");
+
+        subject.doFilter(request, mock(HttpServletResponse.class), chain);
+        SignedCookieRequestWrapper wrapper = SignedCookieRequestWrapper.from(forwarded.get());
+
+        assertEquals("simple value", wrapper.getSignedCookieValue("one"));
+        assertEquals("Cookie name mismatch", wrapper.getSignedCookieFailure("two").getMessage());
+        verify(request, times(1)).getHeaders("Cookie");
+        verify(request, times(0)).getCookies();
+    }
+
+    @Test
+    public void testInitFromParameters() throws IOException, ServletException {
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter(SignedCookieFilter.PARAM_COOKIE_NAMES)).thenReturn("one, two");
+        when(config.getInitParameter(SignedCookieFilter.PARAM_SECRET_KEYS)).thenReturn("not-so-secret");
+
+        SignedCookieFilter subject = new SignedCookieFilter();
+        subject.init(config);
+        subject.doFilter(request, mock(HttpServletResponse.class), chain);
+
+        SignedCookieRequestWrapper wrapper = SignedCookieRequestWrapper.from(forwarded.get());
+        assertEquals("simple value", wrapper.getSignedCookieValue("one"));
+    }
+
+    @Test
+    public void testDestroyEvictsTheSharedCodec() throws ServletException {
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter(SignedCookieFilter.PARAM_COOKIE_NAMES)).thenReturn("one");
+        when(config.getInitParameter(SignedCookieFilter.PARAM_SECRET_KEYS)).thenReturn("filter-secret");
+
+        SignedCookieFilter subject = new SignedCookieFilter();
+        subject.init(config);
+        subject.destroy();
+
+        assertFalse(CookiePot.evictCodec(CookieSignatureAlgorithm.TORNADO_V2, "filter-secret"));
+    }
+
+    @Test
+    public void testDestroyKeepsAProvidedCodec() {
+        TornadoCookieCodec codec = CookiePot.getCodecFor(CookieSignatureAlgorithm.TORNADO_V2, "provided-secret");
+
+        new SignedCookieFilter(codec, "one").destroy();
+
+        assertTrue(CookiePot.evictCodec(CookieSignatureAlgorithm.TORNADO_V2, "provided-secret"));
+    }
+
+    @Test(expected = ServletException.class)
+    public void testInitRequiresSecretKeys() throws ServletException {
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter(SignedCookieFilter.PARAM_COOKIE_NAMES)).thenReturn("one");
+
+        new SignedCookieFilter().init(config);
+    }
+}
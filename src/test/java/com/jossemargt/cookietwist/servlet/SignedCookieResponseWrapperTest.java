@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.servlet;
+
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import com.jossemargt.cookietwist.http.CookieAttributes;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+public class SignedCookieResponseWrapperTest {
+
+    private static String signedOne = "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+            + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb";
+
+    private HttpServletResponse response;
+    private SignedCookieResponseWrapper subject;
+
+    @Before
+    public void setUp() {
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withTimestamp(1521518443L)
+                .withSecretKey("not-so-secret").build();
+        response = mock(HttpServletResponse.class);
+        subject = new SignedCookieResponseWrapper(response, codec);
+    }
+
+    @Test
+    public void testCoalescesDuplicateCookies() {
+        CookieAttributes attributes = CookieAttributes.builder().withPath("/").withHttpOnly(true).build();
+
+        subject.addSignedCookie("one", "first value", attributes);
+        subject.addSignedCookie("one", "simple value", attributes);
+        subject.addSignedCookie("one", "simple value", CookieAttributes.builder().withPath("/admin").build());
+        subject.emitSignedCookies();
+        subject.emitSignedCookies();
+
+        verify(response, times(2)).addHeader(eq("Set-Cookie"), anyString());
+        verify(response).addHeader("Set-Cookie", "one=" + signedOne + "; Path=/; HttpOnly");
+        verify(response).addHeader("Set-Cookie", "one=" + signedOne + "; Path=/admin");
+    }
+
+    @Test
+    public void testEmitsBeforeTheBodyIsWritten() throws IOException {
+        subject.addSignedCookie("one", "simple value");
+        verify(response, never()).addHeader("Set-Cookie", "one=" + signedOne);
+
+        subject.getWriter();
+
+        InOrder inOrder = inOrder(response);
+        inOrder.verify(response).addHeader("Set-Cookie", "one=" + signedOne);
+        inOrder.verify(response).getWriter();
+    }
+
+    @Test
+    public void testEmitsRightAwayOnceTheBodyStarted() throws IOException {
+        subject.getOutputStream();
+        subject.addSignedCookie("one", "simple value");
+
+        verify(response).addHeader("Set-Cookie", "one=" + signedOne);
+    }
+
+    @Test
+    public void testRejectsCookiesOnCommittedResponse() {
+        when(response.isCommitted()).thenReturn(true);
+
+        try {
+            subject.addSignedCookie("one", "simple value");
+            fail("Expected exception to be thrown");
+        } catch (IllegalStateException e) {
+            verify(response, never()).addHeader(eq("Set-Cookie"), anyString());
+        }
+    }
+}
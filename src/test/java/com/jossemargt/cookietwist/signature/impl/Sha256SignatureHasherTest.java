@@ -27,8 +27,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -36,6 +38,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.jossemargt.cookietwist.metrics.StageClock;
 import com.jossemargt.cookietwist.signature.SignatureHasher;
 
 import junitparams.JUnitParamsRunner;
@@ -70,6 +73,33 @@ public class Sha256SignatureHasherTest {
                         "|", "1:0", "|", "10:1521518443", "|", "3:one", "|", "16:c2ltcGxlIHZhbHVl", "|" } } };
     }
 
+    @Test
+    public void testComputeDigest() {
+        byte[] digest = subject.computeDigest("2|1:0|10:1521518443|3:one|".getBytes(StandardCharsets.UTF_8),
+                "16:c2ltcGxlIHZhbHVl|".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("lGObOd9IxXi2OW9-AsrQyzxJanoUQBB-8Bgsj7Nez7s",
+                Base64.getUrlEncoder().withoutPadding().encodeToString(digest));
+    }
+
+    @Test
+    @Parameters
+    public void testBufferedEncodingMatchesStringBytes(String[] values) {
+        assertEquals(subject.computeSignature(new StageClock(), values), subject.computeSignature(values));
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestBufferedEncodingMatchesStringBytes() {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            longValue.append("caf\u00e9 \u20ac ");
+        }
+        return new Object[] { new Object[] { new String[] { "" } },
+                new Object[] { new String[] { "caf\u00e9", "|", "\uD83C\uDF6A" } },
+                new Object[] { new String[] { "unpaired \uD800 high", "unpaired \uDC00 low", "\uD800" } },
+                new Object[] { new String[] { "short", longValue.toString(), "short" } } };
+    }
+
     @Test
     @Parameters
     public void testInit(String secret) {
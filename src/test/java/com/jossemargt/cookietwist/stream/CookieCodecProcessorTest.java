@@ -0,0 +1,191 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+public class CookieCodecProcessorTest {
+
+    private static TornadoCookieCodec codec;
+    private static String signedOne = "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+            + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb";
+
+    @BeforeClass
+    public static void setUp() {
+        codec = V2TornadoCookieCodec.builder().withTimestamp(1521518443L).withSecretKey("not-so-secret").build();
+    }
+
+    @Test
+    public void testDecoderEmitsFailuresWithoutTerminating() {
+        ListPublisher publisher = new ListPublisher(Arrays.asList(new Cookie("one", signedOne),
+                new Cookie("two", signedOne), new Cookie("one", signedOne)));
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        CookieCodecProcessor subject = CookieCodecProcessor.decoder(codec, 2);
+
+        subject.subscribe(subscriber);
+        publisher.subscribe(subject);
+
+        assertEquals(3, subscriber.received.size());
+        assertTrue(subscriber.received.get(0).isSuccess());
+        assertEquals("simple value", subscriber.received.get(0).getCookie().getValue());
+        assertFalse(subscriber.received.get(1).isSuccess());
+        assertTrue(subscriber.received.get(1).getFailure() instanceof InvalidFormatException);
+        assertNull(subscriber.received.get(1).getCookie());
+        assertTrue(subscriber.received.get(2).isSuccess());
+        assertTrue(subscriber.completed);
+        assertEquals(Arrays.asList(2L, 2L), publisher.requests);
+    }
+
+    @Test
+    public void testEncoderHonorsBackpressure() {
+        List<Cookie> source = new ArrayList<Cookie>();
+        for (int i = 0; i < 10; i++) {
+            source.add(new Cookie("one", "simple value"));
+        }
+        ListPublisher publisher = new ListPublisher(source);
+        RecordingSubscriber subscriber = new RecordingSubscriber(3);
+        CookieCodecProcessor subject = CookieCodecProcessor.encoder(codec, 0, 4);
+
+        subject.subscribe(subscriber);
+        publisher.subscribe(subject);
+
+        assertEquals(3, subscriber.received.size());
+        assertEquals(Arrays.asList(4L), publisher.requests);
+        assertEquals(signedOne, subscriber.received.get(0).getCookie().getValue());
+
+        subscriber.subscription.request(7);
+
+        assertEquals(10, subscriber.received.size());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void testUpstreamErrorIsForwardedAfterPendingResults() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        CookieCodecProcessor subject = CookieCodecProcessor.decoder(codec);
+        subject.subscribe(subscriber);
+
+        subject.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                subject.onNext(new Cookie("one", signedOne));
+                subject.onError(new IllegalStateException("boom"));
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+
+        assertEquals(1, subscriber.received.size());
+        assertEquals("boom", subscriber.error.getMessage());
+        assertFalse(subscriber.completed);
+    }
+
+    private static final class ListPublisher implements Publisher<Cookie> {
+        private final List<Cookie> items;
+        private final List<Long> requests = new ArrayList<Long>();
+
+        ListPublisher(List<Cookie> items) {
+            this.items = items;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super Cookie> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                private int index;
+                private boolean finished;
+
+                @Override
+                public void request(long n) {
+                    requests.add(n);
+                    for (long i = 0; i < n && index < items.size(); i++) {
+                        subscriber.onNext(items.get(index++));
+                    }
+                    if (index == items.size() && !finished) {
+                        finished = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    finished = true;
+                }
+            });
+        }
+    }
+
+    private static final class RecordingSubscriber implements Subscriber<CodecResult> {
+        private final long initialRequest;
+        private final List<CodecResult> received = new ArrayList<CodecResult>();
+        private Subscription subscription;
+        private boolean completed;
+        private Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            s.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(CodecResult item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
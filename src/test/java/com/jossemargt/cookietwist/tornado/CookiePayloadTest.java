@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class CookiePayloadTest {
+
+    @Test
+    public void testBuild() {
+        CookiePayload subject = CookiePayload.builder().put("uid", 1234L).put("roles", "admin|editor")
+                .put("beta", true).put("uid", 42L).put("", "€").build();
+
+        assertEquals("3:uid2:425:roles12:admin|editor4:beta4:true0:1:€", subject.encode());
+        assertEquals(subject.encode(), subject.toString());
+        assertEquals(4, subject.size());
+        assertEquals(Arrays.asList("uid", "roles", "beta", ""), subject.keys());
+        assertEquals(Long.valueOf(42L), subject.getLong("uid"));
+        assertEquals("admin|editor", subject.getString("roles"));
+        assertEquals(Boolean.TRUE, subject.getBoolean("beta"));
+        assertEquals("€", subject.getString(""));
+        assertNull(subject.getString("missing"));
+        assertNull(subject.getLong("missing"));
+        assertNull(subject.getBoolean("missing"));
+        assertFalse(subject.containsKey("role"));
+    }
+
+    @Test
+    public void testParse() {
+        String encoded = CookiePayload.builder().put("uid", 1234L).put("note", "10:a:b|c").put("beta", false).build()
+                .encode();
+
+        CookiePayload subject = CookiePayload.parse(encoded);
+
+        assertEquals(3, subject.size());
+        assertEquals(Long.valueOf(1234L), subject.getLong("uid"));
+        assertEquals("10:a:b|c", subject.getString("note"));
+        assertEquals(Boolean.FALSE, subject.getBoolean("beta"));
+        assertTrue(subject.containsKey("note"));
+    }
+
+    @Test
+    public void testParseManyEntries() {
+        CookiePayload.Builder builder = CookiePayload.builder();
+        for (int i = 0; i < 100; i++) {
+            builder.put("key" + i, i);
+        }
+
+        CookiePayload subject = CookiePayload.parse(builder.build().encode());
+
+        assertEquals(100, subject.size());
+        assertEquals(Long.valueOf(99L), subject.getLong("key99"));
+    }
+
+    @Test
+    public void testParseEmpty() {
+        assertEquals(0, CookiePayload.parse("").size());
+        assertEquals(0, CookiePayload.parse(null).size());
+        assertEquals("", CookiePayload.builder().build().encode());
+    }
+
+    @Test
+    public void testCodecRoundTrip() {
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withSecretKey("not-so-secret").build();
+        CookiePayload payload = CookiePayload.builder().put("uid", 1234L).put("roles", "admin").build();
+
+        String signed = codec.encodeValue("session", TornadoCookieValue.builder().withPayload(payload).build()
+                .getValue(), 0);
+        CookiePayload decoded = codec.decodeTornadoCookieValue("session", signed).getPayload();
+
+        assertEquals(Long.valueOf(1234L), decoded.getLong("uid"));
+        assertEquals("admin", decoded.getString("roles"));
+    }
+
+    @Test
+    @Parameters
+    public void testParseThrowsInvalidFormatException(FailureReason expectedReason, String expectedMessage,
+            String encoded) {
+        try {
+            CookiePayload.parse(encoded);
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(expectedReason, e.getReason());
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestParseThrowsInvalidFormatException() {
+        return new Object[] {
+                new Object[] { FailureReason.FIELD_COUNT, "Missing value for the last key", "3:uid" },
+                new Object[] { FailureReason.FIELD_FORMAT, "Invalid field length format at 0", "uid" },
+                new Object[] { FailureReason.FIELD_FORMAT, "Invalid field length format at 0", ":uid" },
+                new Object[] { FailureReason.FIELD_FORMAT, "Invalid field length format at 0", "03:uid1:1" },
+                new Object[] { FailureReason.FIELD_FORMAT, "Invalid field length format at 5", "3:uid-1:1" },
+                new Object[] { FailureReason.FIELD_FORMAT, "Invalid field length format at 5", "3:uid1" },
+                new Object[] { FailureReason.LENGTH, "Field length at 5 exceeds the payload", "3:uid2:1" },
+                new Object[] { FailureReason.LENGTH, "Field length at 5 exceeds the payload",
+                        "3:uid99999999999999999999:1" },
+                new Object[] { FailureReason.FIELD_FORMAT, "Duplicate key 'uid'", "3:uid1:13:uid1:2" }, };
+    }
+
+    @Test
+    public void testTypedValuesAreOnlyCheckedWhenRead() {
+        CookiePayload subject = CookiePayload.parse("3:uid1:x4:beta3:yes");
+
+        assertEquals("x", subject.getString("uid"));
+        try {
+            subject.getLong("uid");
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals("Invalid numeric value for key 'uid'", e.getMessage());
+        }
+        try {
+            subject.getBoolean("beta");
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals("Invalid boolean value for key 'beta'", e.getMessage());
+        }
+    }
+}
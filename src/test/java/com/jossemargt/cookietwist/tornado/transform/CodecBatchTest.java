@@ -0,0 +1,130 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.transform.impl.V1TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V3CompactCookieCodec;
+
+public class CodecBatchTest {
+
+    private static long frozentimestamp = 1521518443L;
+
+    private static List<TornadoCookieCodec> codecs;
+
+    @BeforeClass
+    public static void setUp() {
+        codecs = Arrays.asList(
+                V1TornadoCookieCodec.builder().withTimestamp(frozentimestamp).withSecretKey("not-so-secret").build(),
+                V2TornadoCookieCodec.builder().withTimestamp(frozentimestamp).withSecretKey("not-so-secret")
+                        .withSecretKey("another-secret").build(),
+                V3CompactCookieCodec.builder().withTimestamp(frozentimestamp).withSecretKey("not-so-secret")
+                        .withSecretKey("another-secret").build());
+    }
+
+    @Test
+    public void testBatchMatchesSingleCookieCalls() {
+        for (TornadoCookieCodec codec : codecs) {
+            List<Cookie> plain = Arrays.asList(new Cookie("one", "simple value"), new Cookie("two", "café"),
+                    new Cookie("one", "simple value"), new Cookie("three", ""));
+            int[] keys = new int[] { 0, 1, 1, 0 };
+            if (codec.getFormatVersion() == 1) {
+                keys = new int[] { 0, 0, 0, 0 };
+            }
+
+            List<Cookie> signed = new ArrayList<Cookie>();
+            try (CodecBatch batch = codec.openBatch()) {
+                for (int i = 0; i < plain.size(); i++) {
+                    signed.add(batch.encodeCookie(plain.get(i), keys[i]));
+                }
+            }
+
+            try (CodecBatch batch = codec.openBatch()) {
+                for (int i = 0; i < plain.size(); i++) {
+                    assertEquals(codec.encodeCookie(plain.get(i), keys[i]).getValue(), signed.get(i).getValue());
+                    assertEquals(plain.get(i).getValue(), batch.decodeCookie(signed.get(i)).getValue());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFailuresDoNotBreakTheBatch() {
+        TornadoCookieCodec codec = codecs.get(1);
+        Cookie signed = codec.encodeCookie(new Cookie("one", "simple value"), 1);
+        Cookie unknownKey = new Cookie("one", signed.getValue().replace("2|1:1|", "2|1:7|"));
+        String value = signed.getValue();
+        Cookie tampered = new Cookie("one", value.substring(0, value.length() - 1) + "x");
+
+        try (CodecBatch batch = codec.openBatch()) {
+            assertEquals("simple value", batch.decodeCookie(signed).getValue());
+            try {
+                batch.decodeCookie(unknownKey);
+                fail("Expected exception to be thrown");
+            } catch (InvalidFormatException e) {
+                assertEquals(FailureReason.UNKNOWN_KEY, e.getReason());
+            }
+            try {
+                batch.decodeCookie(tampered);
+                fail("Expected exception to be thrown");
+            } catch (InvalidFormatException e) {
+                assertEquals(FailureReason.SIGNATURE_MISMATCH, e.getReason());
+            }
+            assertEquals("simple value", batch.decodeCookie(signed).getValue());
+        }
+    }
+
+    @Test
+    public void testClosingReleasesTheHasher() throws Exception {
+        TornadoCookieCodec codec = codecs.get(1);
+        Cookie plain = new Cookie("one", "simple value");
+        CompletableFuture<Cookie> concurrent;
+
+        try (CodecBatch batch = codec.openBatch()) {
+            batch.encodeCookie(plain, 0);
+            concurrent = CompletableFuture.supplyAsync(() -> codec.encodeCookie(plain, 0));
+            Thread.sleep(50);
+            assertTrue("Expected the batch to hold the hasher", !concurrent.isDone());
+        }
+
+        assertEquals(codec.encodeCookie(plain, 0).getValue(), concurrent.get(10, TimeUnit.SECONDS).getValue());
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.impl.V3CompactCookieCodec;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class CookieChunkerTest {
+
+    private static String secretkey = "not-so-secret";
+    private static long frozentimestamp = 1521518443L;
+
+    private static CookieChunker subject;
+    private static String largeValue;
+
+    @BeforeClass
+    public static void setUp() {
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withTimestamp(frozentimestamp)
+                .withSecretKey(secretkey).withMaxValueLength(32 * 1024).build();
+        subject = CookieChunker.builder(codec).withMaxChunkLength(1000).withMaxChunks(8).build();
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 120; i++) {
+            value.append("{\"item\":\"café\",\"qty\":").append(i).append("},");
+        }
+        largeValue = value.toString();
+    }
+
+    private static String repeat(String chunk, int times) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            result.append(chunk);
+        }
+        return result.toString();
+    }
+
+    private static Cookie[] jar(Collection<Cookie> cookies) {
+        return kept(cookies).toArray(new Cookie[0]);
+    }
+
+    // The cookies a browser keeps, the expiring ones are dropped
+    private static List<Cookie> kept(Collection<Cookie> cookies) {
+        List<Cookie> result = new ArrayList<Cookie>();
+        for (Cookie cookie : cookies) {
+            if (cookie.getMaxAge() != 0) {
+                result.add(cookie);
+            }
+        }
+        return result;
+    }
+
+    private static void store(Map<String, Cookie> browser, List<Cookie> cookies) {
+        for (Cookie cookie : cookies) {
+            if (cookie.getMaxAge() == 0) {
+                browser.remove(cookie.getName());
+            } else {
+                browser.put(cookie.getName(), cookie);
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Cookie source = new Cookie("session", largeValue);
+        source.setPath("/app");
+        source.setHttpOnly(true);
+        source.setMaxAge(3600);
+
+        List<Cookie> chunks = subject.encodeCookie(source);
+
+        assertEquals(8, chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            assertEquals("session." + i, chunks.get(i).getName());
+            assertEquals("/app", chunks.get(i).getPath());
+            assertTrue(chunks.get(i).isHttpOnly());
+            assertTrue(chunks.get(i).getValue().length() <= 1000);
+            if (i < 5) {
+                assertEquals(3600, chunks.get(i).getMaxAge());
+            } else {
+                assertEquals(0, chunks.get(i).getMaxAge());
+                assertEquals("", chunks.get(i).getValue());
+            }
+        }
+        assertTrue(chunks.get(0).getValue().startsWith("2|1:0|10:1521518443|10:session[5]|"));
+
+        List<Cookie> requestJar = kept(chunks);
+        requestJar.add(new Cookie("sessions.0", "unrelated"));
+        requestJar.add(new Cookie("session.x", "unrelated"));
+        requestJar.add(new Cookie("session.01", "unrelated"));
+        requestJar.add(new Cookie("session", "unrelated"));
+        Collections.reverse(requestJar);
+
+        Cookie decoded = subject.decodeCookie("session", jar(requestJar));
+
+        assertEquals("session", decoded.getName());
+        assertEquals(largeValue, decoded.getValue());
+    }
+
+    @Test
+    public void testSmallValueTakesSingleChunk() {
+        String[] chunks = subject.encodeValue("one", "simple value", 0);
+
+        assertEquals(1, chunks.length);
+        assertEquals("simple value",
+                subject.decodeCookie("one", new Cookie[] { new Cookie("one.0", chunks[0]) }).getValue());
+    }
+
+    @Test
+    public void testCompactCodecRoundTrip() {
+        TornadoCookieCodec compact = V3CompactCookieCodec.builder().withTimestamp(frozentimestamp)
+                .withSecretKey(secretkey).withMaxValueLength(32 * 1024).build();
+        CookieChunker chunker = CookieChunker.builder(compact).withMaxChunkLength(1000).build();
+
+        List<Cookie> chunks = chunker.encodeCookie(new Cookie("session", largeValue));
+
+        assertEquals(5, kept(chunks).size());
+        assertEquals(largeValue, chunker.decodeCookie("session", jar(chunks)).getValue());
+    }
+
+    @Test
+    public void testOrdinaryAndChunkedCookiesCanNotBeSwapped() {
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withTimestamp(frozentimestamp)
+                .withSecretKey(secretkey).build();
+        CookieChunker chunker = CookieChunker.builder(codec).build();
+
+        Cookie ordinary = codec.encodeCookie(new Cookie("prefs.1", "ordinary value"));
+        try {
+            chunker.decodeCookie("prefs", new Cookie[] { new Cookie("prefs.0", ordinary.getValue()) });
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(FailureReason.NAME_MISMATCH, e.getReason());
+        }
+
+        Cookie chunk = chunker.encodeCookie(new Cookie("prefs", "chunked value")).get(0);
+        try {
+            codec.decodeCookie(new Cookie("prefs.1", chunk.getValue()));
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(FailureReason.NAME_MISMATCH, e.getReason());
+        }
+
+        TornadoCookieCodec compact = V3CompactCookieCodec.builder().withTimestamp(frozentimestamp)
+                .withSecretKey(secretkey).build();
+        CookieChunker compactChunker = CookieChunker.builder(compact).build();
+        Cookie compactOrdinary = compact.encodeCookie(new Cookie("prefs.1", "ordinary value"));
+        try {
+            compactChunker.decodeCookie("prefs", new Cookie[] { new Cookie("prefs.0", compactOrdinary.getValue()) });
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(FailureReason.SIGNATURE_MISMATCH, e.getReason());
+        }
+    }
+
+    @Test
+    public void testShrinkingValueExpiresUnusedChunks() {
+        Map<String, Cookie> browser = new LinkedHashMap<String, Cookie>();
+
+        store(browser, subject.encodeCookie(new Cookie("session", largeValue.substring(0, 1800))));
+        assertEquals(3, browser.size());
+
+        store(browser, subject.encodeCookie(new Cookie("session", "simple value")));
+        assertEquals(1, browser.size());
+        assertEquals("simple value", subject.decodeCookie("session", jar(browser.values())).getValue());
+    }
+
+    @Test
+    public void testAbsentCookie() {
+        assertNull(subject.decodeCookie("session", null));
+        assertNull(subject.decodeCookie("session", new Cookie[] { new Cookie("other.0", "value") }));
+    }
+
+    @Test
+    public void testEncodeValueThrowsWhenTooManyChunksAreNeeded() {
+        try {
+            subject.encodeValue("session", repeat(largeValue, 3), 0);
+            fail("Expected exception to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The signed value needs 13 chunks, the maximum is 8", e.getMessage());
+        }
+    }
+
+    @Test
+    @Parameters
+    public void testDecodeCookieThrowsInvalidFormatException(FailureReason expectedReason, String expectedMessage,
+            String tampering) {
+        List<Cookie> chunks = kept(subject.encodeCookie(new Cookie("session", largeValue)));
+
+        switch (tampering) {
+        case "drop middle":
+            chunks.remove(2);
+            break;
+        case "drop last":
+            chunks.remove(chunks.size() - 1);
+            break;
+        case "append":
+            chunks.add(new Cookie("session.5", "extra"));
+            break;
+        case "swap":
+            Cookie first = chunks.get(1);
+            chunks.set(1, new Cookie("session.1", chunks.get(2).getValue()));
+            chunks.set(2, new Cookie("session.2", first.getValue()));
+            break;
+        case "duplicate":
+            chunks.add(new Cookie("session.1", chunks.get(1).getValue()));
+            break;
+        case "beyond maximum":
+            chunks.add(new Cookie("session.8", "extra"));
+            break;
+        default:
+            chunks.set(0, new Cookie("session.0", repeat("x", 1001)));
+            break;
+        }
+
+        try {
+            subject.decodeCookie("session", jar(chunks));
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(expectedReason, e.getReason());
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestDecodeCookieThrowsInvalidFormatException() {
+        return new Object[] {
+                new Object[] { FailureReason.FIELD_COUNT, "Missing chunk 2", "drop middle" },
+                new Object[] { FailureReason.FIELD_COUNT, "Invalid field quantity. Expected 6, got 5", "drop last" },
+                new Object[] { FailureReason.NAME_MISMATCH, "Cookie name mismatch", "append" },
+                new Object[] { FailureReason.SIGNATURE_MISMATCH, "Cookie signature mismatch", "swap" },
+                new Object[] { FailureReason.FIELD_COUNT, "Duplicate chunk 1", "duplicate" },
+                new Object[] { FailureReason.OVERSIZED, "Chunk index exceeds the maximum count of 8",
+                        "beyond maximum" },
+                new Object[] { FailureReason.OVERSIZED, "Chunk 0 length 1001 exceeds the maximum of 1000",
+                        "oversized" }, };
+    }
+
+    @Test
+    public void testBuilderRejectsInvalidLimits() {
+        try {
+            CookieChunker.builder(null);
+            fail("Expected exception to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The codec can not be null", e.getMessage());
+        }
+        try {
+            CookieChunker.builder(V2TornadoCookieCodec.builder().withSecretKey(secretkey).build()).withMaxChunks(0);
+            fail("Expected exception to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("The maximum chunk count must be positive", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+public class EncodeCacheTest {
+
+    private EncodeCache subject;
+
+    @Before
+    public void setUp() {
+        subject = new EncodeCache(2);
+    }
+
+    @Test
+    public void testGetAfterPut() {
+        subject.put("one", "value", 0, 1521518443L, "signed");
+
+        assertEquals("signed", subject.get("one", "value", 0, 1521518443L));
+        assertNull(subject.get("one", "value", 1, 1521518443L));
+        assertNull(subject.get("one", null, 0, 1521518443L));
+        assertEquals(1, subject.getHitCount());
+        assertEquals(2, subject.getMissCount());
+    }
+
+    @Test
+    public void testSecondRolloverInvalidates() {
+        subject.put("one", "value", 0, 1521518443L, "signed");
+        subject.put("one", "value", 0, 1521518444L, "signed-later");
+
+        assertNull(subject.get("one", "value", 0, 1521518443L));
+        assertEquals("signed-later", subject.get("one", "value", 0, 1521518444L));
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void testIsBounded() {
+        subject.put("one", "value", 0, 1521518443L, "signed-one");
+        subject.put("two", "value", 0, 1521518443L, "signed-two");
+        subject.put("three", "value", 0, 1521518443L, "signed-three");
+
+        assertEquals(2, subject.size());
+        assertNull(subject.get("three", "value", 0, 1521518443L));
+    }
+
+    @Test
+    public void testCodecReturnsMemoizedValue() {
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withTimestamp(1521518443L)
+                .withSecretKey("not-so-secret").withEncodeCache(16).build();
+
+        String first = codec.encodeCookie(new Cookie("one", "simple value")).getValue();
+        String second = codec.encodeCookie(new Cookie("one", "simple value")).getValue();
+
+        assertEquals("2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+                + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb", first);
+        assertEquals(first, second);
+        assertEquals(1, codec.getEncodeCache().getHitCount());
+        assertEquals(1, codec.getEncodeCache().getMissCount());
+    }
+}
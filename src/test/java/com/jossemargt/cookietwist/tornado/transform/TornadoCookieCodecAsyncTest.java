@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.transform.impl.V2TornadoCookieCodec;
+
+public class TornadoCookieCodecAsyncTest {
+
+    private static String secretkey = "not-so-secret";
+    private static long frozentimestamp = 1521518443L;
+
+    private static String signedOne = "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+            + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb";
+
+    private AtomicInteger submittedTasks;
+    private TornadoCookieCodec subject;
+
+    @Before
+    public void setUp() {
+        submittedTasks = new AtomicInteger();
+        Executor countingExecutor = task -> {
+            submittedTasks.incrementAndGet();
+            task.run();
+        };
+        subject = V2TornadoCookieCodec.builder().withTimestamp(frozentimestamp).withSecretKey(secretkey)
+                .withExecutor(countingExecutor).build();
+    }
+
+    @Test
+    public void testEncodeAsync() throws InterruptedException, ExecutionException {
+        Cookie signed = subject.encodeAsync(new Cookie("one", "simple value")).get();
+
+        assertEquals(signedOne, signed.getValue());
+        assertEquals(1, submittedTasks.get());
+    }
+
+    @Test
+    public void testDecodeAsync() throws InterruptedException, ExecutionException {
+        Cookie flat = subject.decodeAsync(new Cookie("one", signedOne)).get();
+
+        assertEquals("simple value", flat.getValue());
+    }
+
+    @Test
+    public void testDecodeAsyncCompletesExceptionally() throws InterruptedException {
+        CompletableFuture<Cookie> result = subject.decodeAsync(new Cookie("two", signedOne));
+
+        try {
+            result.get();
+            fail("Expected exception to be thrown");
+        } catch (ExecutionException e) {
+            assertTrue("Expected InvalidFormatException", e.getCause() instanceof InvalidFormatException);
+        }
+    }
+
+    @Test
+    public void testDecodeAllAsyncBatchesSmallCookies() throws InterruptedException, ExecutionException {
+        List<Cookie> sources = Arrays.asList(new Cookie("one", signedOne), new Cookie("two", signedOne),
+                new Cookie("one", signedOne));
+
+        List<CompletableFuture<Cookie>> results = subject.decodeAllAsync(sources);
+
+        assertEquals(1, submittedTasks.get());
+        assertEquals(3, results.size());
+        assertEquals("simple value", results.get(0).get().getValue());
+        assertTrue(results.get(1).isCompletedExceptionally());
+        assertEquals("simple value", results.get(2).get().getValue());
+    }
+
+    @Test
+    public void testEncodeAllAsyncSplitsLargeCookies() throws InterruptedException, ExecutionException {
+        StringBuilder largeValue = new StringBuilder();
+        for (int i = 0; i < 4096; i++) {
+            largeValue.append('x');
+        }
+
+        List<Cookie> sources = new ArrayList<Cookie>();
+        sources.add(new Cookie("large", largeValue.toString()));
+        sources.add(new Cookie("one", "simple value"));
+        sources.add(new Cookie("one", "simple value"));
+
+        List<CompletableFuture<Cookie>> results = subject.encodeAllAsync(sources, 0);
+
+        assertEquals(2, submittedTasks.get());
+        assertEquals(signedOne, results.get(2).get().getValue());
+    }
+
+    @Test
+    public void testEncodeAllAsyncOnThreadPoolCompletesEveryFuture()
+            throws InterruptedException, ExecutionException, TimeoutException {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            TornadoCookieCodec pooled = V2TornadoCookieCodec.builder().withTimestamp(frozentimestamp)
+                    .withSecretKey(secretkey).withExecutor(task -> pool.execute(() -> {
+                        try {
+                            Thread.sleep(10);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        task.run();
+                    })).build();
+
+            StringBuilder largeValue = new StringBuilder();
+            for (int i = 0; i < 4096; i++) {
+                largeValue.append('x');
+            }
+
+            List<Cookie> sources = new ArrayList<Cookie>();
+            for (int i = 0; i < 8; i++) {
+                sources.add(new Cookie("large", largeValue.toString()));
+                sources.add(new Cookie("one", "simple value"));
+            }
+
+            List<CompletableFuture<Cookie>> results = pooled.encodeAllAsync(sources, 0);
+
+            assertEquals(sources.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                Cookie signed = results.get(i).get(5, TimeUnit.SECONDS);
+                assertEquals(sources.get(i).getName(), signed.getName());
+            }
+            assertEquals(signedOne, results.get(1).get().getValue());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class ValueCompressionTest {
+
+    private static String repeat(String chunk, int times) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            result.append(chunk);
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        ValueCompression subject = ValueCompression.builder().build();
+        String value = repeat("{\"item\":\"café\",\"qty\":1},", 100);
+
+        String compressed = subject.compress(value);
+
+        assertNotNull(compressed);
+        assertTrue(compressed.getBytes(StandardCharsets.ISO_8859_1).length
+                < value.getBytes(StandardCharsets.UTF_8).length);
+        assertEquals(value, subject.decompress(compressed));
+    }
+
+    @Test
+    public void testPoolsStayBoundedUnderConcurrency() throws Exception {
+        ValueCompression subject = ValueCompression.builder().build();
+        String value = repeat("{\"item\":\"café\",\"qty\":1},", 100);
+        int threads = 4 * ValueCompression.poolSize() + 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<Future<String>>();
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return subject.decompress(subject.compress(value));
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals(value, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(subject.idleCount() > 0);
+        assertTrue(subject.idleCount() <= 2 * ValueCompression.poolSize());
+    }
+
+    @Test
+    public void testPooledInflaterIsReusableAfterAFailure() {
+        ValueCompression subject = ValueCompression.builder().build();
+        String value = repeat("{\"item\":\"café\",\"qty\":1},", 100);
+        String compressed = subject.compress(value);
+
+        try {
+            subject.decompress(compressed.substring(0, compressed.length() / 2));
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(FailureReason.COMPRESSION, e.getReason());
+        }
+
+        assertEquals(value, subject.decompress(compressed));
+    }
+
+    @Test
+    public void testCompressSkipsValuesBelowThreshold() {
+        ValueCompression subject = ValueCompression.builder().withThreshold(64).build();
+
+        assertNull(subject.compress(repeat("a", 63)));
+        assertNotNull(subject.compress(repeat("a", 64)));
+        assertNull(subject.compress(null));
+    }
+
+    @Test
+    public void testCompressSkipsValuesWithoutGain() {
+        ValueCompression subject = ValueCompression.builder().withThreshold(0).build();
+
+        assertNull(subject.compress(""));
+        assertNull(subject.compress("abc"));
+    }
+
+    @Test
+    public void testDecompressWithinRaisedRatio() {
+        ValueCompression permissive = ValueCompression.builder().withMaxRatio(1000).build();
+        String value = repeat("a", 8192);
+
+        assertEquals(value, permissive.decompress(permissive.compress(value)));
+    }
+
+    @Test
+    @Parameters
+    public void testDecompressThrowsInvalidFormatException(String expectedMessage, String compressed) {
+        ValueCompression subject = ValueCompression.builder().build();
+        try {
+            subject.decompress(compressed);
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(FailureReason.COMPRESSION, e.getReason());
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestDecompressThrowsInvalidFormatException() {
+        ValueCompression permissive = ValueCompression.builder().withThreshold(0).build();
+        String fair = permissive.compress(repeat("{\"qty\":1},", 50));
+        String bomb = permissive.compress(repeat("a", 1024 * 1024));
+        String dense = permissive.compress(repeat("a", 8192));
+
+        return new Object[] {
+                new Object[] { "Compressed value inflates beyond 65536 bytes", bomb },
+                new Object[] { String.format("Compressed value inflates beyond %d bytes", dense.length() * 100),
+                        dense },
+                new Object[] { "Corrupt compressed value", "not a deflate stream" },
+                new Object[] { "Truncated compressed value", fair.substring(0, fair.length() - 4) },
+                new Object[] { "Truncated compressed value", "" },
+                new Object[] { "Trailing bytes after the compressed value", fair + "x" }, };
+    }
+
+    @Test
+    @Parameters
+    public void testBuilderRejectsInvalidLimits(Runnable configuration) {
+        try {
+            configuration.run();
+            fail("Expected exception to be thrown");
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestBuilderRejectsInvalidLimits() {
+        return new Object[] {
+                new Object[] { (Runnable) () -> ValueCompression.builder().withThreshold(-1) },
+                new Object[] { (Runnable) () -> ValueCompression.builder().withLevel(10) },
+                new Object[] { (Runnable) () -> ValueCompression.builder().withMaxInflatedLength(0) },
+                new Object[] { (Runnable) () -> ValueCompression.builder().withMaxRatio(0) }, };
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Base64;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieValueDeserializer;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class AdversarialInputTest {
+
+    private static final int SMALL = 8 * 1024;
+    private static final int LARGE = 64 * 1024;
+
+    // A linear parser takes about 8 times longer on the large input, a quadratic one about 64 times
+    private static final double MAX_SCALING = 24;
+    // Absorbs the timer resolution and the noise on inputs rejected within a few characters
+    private static final long SLACK_NANOS = 200_000;
+    private static final int WARMUP_PARSES = 200;
+    private static final int RUNS = 50;
+
+    private static final String HEADER = "2|1:0|10:1521518443|3:one|";
+    private static final String TAIL = "|1521518443|sig";
+
+    // Detailed parsing times are measured by AdversarialInputBenchmark
+    @SuppressWarnings("unused")
+    private Object parametersForTestPathologicalInputOutcome() {
+        return new Object[] {
+                new Object[] { "V1", "pipes", null },
+                new Object[] { "V1", "digits", FailureReason.FIELD_FORMAT },
+                new Object[] { "V2", "pipes", FailureReason.FIELD_COUNT },
+                new Object[] { "V2", "colons", FailureReason.FIELD_FORMAT },
+                new Object[] { "V2", "giant-length", FailureReason.LENGTH },
+                new Object[] { "V2", "length-digits", FailureReason.LENGTH },
+                new Object[] { "V2", "invalid-utf8", null }
+        };
+    }
+
+    @Test
+    @Parameters
+    public void testPathologicalInputOutcome(String format, String kind, FailureReason expected) {
+        TornadoCookieValueDeserializer subject = deserializer(format, LARGE);
+        String input = pathological(kind, LARGE);
+
+        assertTrue(input.length() <= LARGE);
+        if (expected != null) {
+            assertReason(expected, subject, input);
+            return;
+        }
+
+        String value = subject.deserialize(input).getValue();
+        assertTrue(String.format("%s %s decoded %d characters", format, kind, value.length()),
+                value.length() < input.length());
+        assertReason(FailureReason.OVERSIZED, deserializer(format, input.length() - 1), input);
+    }
+
+    @Test
+    @Parameters(method = "parametersForTestPathologicalInputOutcome")
+    public void testPathologicalInputScalesLinearly(String format, String kind, FailureReason expected) {
+        TornadoCookieValueDeserializer subject = deserializer(format, LARGE);
+        String small = pathological(kind, SMALL);
+        String large = pathological(kind, LARGE);
+
+        for (int i = 0; i < WARMUP_PARSES; i++) {
+            parse(subject, small);
+            parse(subject, large);
+        }
+
+        long smallNanos = Long.MAX_VALUE;
+        long largeNanos = Long.MAX_VALUE;
+
+        // The fastest of many single parses, interleaving both sizes, filters out the scheduling and GC noise
+        for (int run = 0; run < RUNS; run++) {
+            smallNanos = Math.min(smallNanos, time(subject, small));
+            largeNanos = Math.min(largeNanos, time(subject, large));
+        }
+
+        assertTrue(String.format("%s %s took %d ns for 8 KiB and %d ns for 64 KiB", format, kind, smallNanos,
+                largeNanos), largeNanos <= MAX_SCALING * smallNanos + SLACK_NANOS);
+    }
+
+    @Test
+    @Parameters({ "V1", "V2" })
+    public void testOversizedValueIsRejectedBeforeParsing(String format) {
+        TornadoCookieValueDeserializer subject = deserializer(format, TornadoCookieValueDeserializer.DEFAULT_MAX_LENGTH);
+
+        String justAbove = pathological("pipes", TornadoCookieValueDeserializer.DEFAULT_MAX_LENGTH + 1);
+
+        assertEquals(TornadoCookieValueDeserializer.DEFAULT_MAX_LENGTH + 1, justAbove.length());
+        assertReason(FailureReason.OVERSIZED, subject, justAbove);
+        assertReason(FailureReason.OVERSIZED, subject, pathological("pipes", LARGE));
+    }
+
+    @Test
+    public void testCodecMaxValueLength() {
+        TornadoCookieCodec codec = V2TornadoCookieCodec.builder().withSecretKey("not-so-secret")
+                .withMaxValueLength(128).build();
+        String signed = codec.encodeValue("one", "simple value", 0);
+
+        assertEquals("simple value", codec.decodeValue("one", signed));
+
+        try {
+            codec.decodeValue("one", signed + pathological("pipes", 128));
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(FailureReason.OVERSIZED, e.getReason());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCodecRejectsNonPositiveMaxValueLength() {
+        V1TornadoCookieCodec.builder().withMaxValueLength(0);
+    }
+
+    @Test
+    public void testInvalidUtf8IsReplaced() {
+        String encoded = Base64.getEncoder().encodeToString(new byte[] { 'a', (byte) 0xC3, (byte) 0xFF, 'b' });
+        String input = HEADER + encoded.length() + ":" + encoded + "|sig";
+
+        assertEquals("a��b", new V2TornadoCookieValueDeserializer().deserialize(input).getValue());
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestFailureReasons() {
+        return new Object[] {
+                new Object[] { "V1", "value|1521518443|", FailureReason.FIELD_COUNT },
+                new Object[] { "V1", "||||", FailureReason.FIELD_COUNT },
+                new Object[] { "V1", "||sig", FailureReason.FIELD_FORMAT },
+                new Object[] { "V2", HEADER + "999999999:c2ltcGxl|sig", FailureReason.LENGTH },
+                new Object[] { "V2", HEADER + "99999999999999999999:c2ltcGxl|sig", FailureReason.LENGTH },
+                new Object[] { "V2", HEADER + "8:c2ltc:Gxl|sig", FailureReason.FIELD_FORMAT },
+                new Object[] { "V2", HEADER + "::|sig", FailureReason.LENGTH },
+                new Object[] { "V2", HEADER + "4:c2ltcGxl|sig|extra", FailureReason.LENGTH },
+                new Object[] { "V2", HEADER + "8:c2ltcGxl|sig|extra", FailureReason.FIELD_COUNT },
+                new Object[] { "V2", "3|1:0|10:1521518443|3:one|8:c2ltcGxl|sig|extra", FailureReason.VERSION }
+        };
+    }
+
+    @Test
+    @Parameters
+    public void testFailureReasons(String format, String input, FailureReason expected) {
+        assertReason(expected, deserializer(format, TornadoCookieValueDeserializer.DEFAULT_MAX_LENGTH), input);
+    }
+
+    @Test
+    public void testTrailingSeparatorsAreIgnored() {
+        assertEquals("sig", new V1TornadoCookieValueDeserializer().deserialize("value|1521518443|sig||").getSignature());
+        assertEquals("simple", new V2TornadoCookieValueDeserializer().deserialize(HEADER + "8:c2ltcGxl::|sig|")
+                .getValue());
+    }
+
+    private static TornadoCookieValueDeserializer deserializer(String format, int maxLength) {
+        if ("V1".equals(format)) {
+            return new V1TornadoCookieValueDeserializer(maxLength);
+        }
+        return new V2TornadoCookieValueDeserializer(maxLength);
+    }
+
+    private static String pathological(String kind, int length) {
+        StringBuilder input = new StringBuilder(length);
+
+        switch (kind) {
+        case "pipes":
+            // Well formed ends, so every pipe is part of the value
+            input.append(HEADER).append("8:c2ltcGxl|sig");
+            while (input.length() < length - TAIL.length() - 1) {
+                input.append("|a");
+            }
+            if (input.length() < length - TAIL.length()) {
+                input.append('a');
+            }
+            input.append(TAIL);
+            break;
+        case "digits":
+            input.append("value|");
+            while (input.length() < length - 4) {
+                input.append('9');
+            }
+            input.append("|sig");
+            break;
+        case "colons":
+            input.append(HEADER).append("8:");
+            while (input.length() < length - 4) {
+                input.append(':');
+            }
+            input.append("|sig");
+            break;
+        case "giant-length":
+            input.append(HEADER).append("2147483647:");
+            while (input.length() < length - 4) {
+                input.append('A');
+            }
+            input.append("|sig");
+            break;
+        case "length-digits":
+            input.append(HEADER);
+            while (input.length() < length - 6) {
+                input.append('9');
+            }
+            input.append(":A|sig");
+            break;
+        case "invalid-utf8":
+            byte[] bytes = new byte[(length - HEADER.length() - 16) / 4 * 3];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) (0x80 | i);
+            }
+            String encoded = Base64.getEncoder().encodeToString(bytes);
+            input.append(HEADER).append(encoded.length()).append(':').append(encoded).append("|sig");
+            break;
+        default:
+            throw new IllegalArgumentException(kind);
+        }
+
+        return input.substring(0, Math.min(length, input.length()));
+    }
+
+    private static long time(TornadoCookieValueDeserializer subject, String input) {
+        long start = System.nanoTime();
+        parse(subject, input);
+        return System.nanoTime() - start;
+    }
+
+    private static void parse(TornadoCookieValueDeserializer subject, String input) {
+        try {
+            subject.deserialize(input);
+        } catch (InvalidFormatException e) {
+            // The outcome is pinned by testPathologicalInputOutcome
+        }
+    }
+
+    private static void assertReason(FailureReason expected, TornadoCookieValueDeserializer subject, String input) {
+        try {
+            subject.deserialize(input);
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(expected, e.getReason());
+        }
+    }
+}
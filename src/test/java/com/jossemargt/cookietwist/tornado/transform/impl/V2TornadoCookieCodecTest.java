@@ -1,6 +1,7 @@
 package com.jossemargt.cookietwist.tornado.transform.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -13,8 +14,11 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.jossemargt.cookietwist.exception.FailureReason;
 import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
 import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tornado.transform.ValueCompression;
 
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
@@ -55,6 +59,26 @@ public class V2TornadoCookieCodecTest {
         assertEquals(expectedValue, cookieFlat.getValue());
     }
 
+    @Test
+    @Parameters(method = "codecParameters")
+    public void testDecodeTornadoCookieValueKeepsTimestampAndKeyVersion(String name, String value,
+            int secretKeyNumber, String signedStringValue) {
+        TornadoCookieValue decoded = subject.decodeTornadoCookieValue(name, signedStringValue);
+
+        assertEquals(value, decoded.getValue());
+        assertEquals(frozentimestamp, decoded.getTimestamp());
+        assertEquals(secretKeyNumber, decoded.getSignatureKeyVersion());
+    }
+
+    @Test
+    public void testEncodeValueWithIssueTimestamp() {
+        TornadoCookieCodec unfrozen = V2TornadoCookieCodec.builder().withSecretKey(secretkey).build();
+
+        assertEquals("2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|"
+                + "94639b39df48c578b6396f7e02cad0cb3c496a7a1440107ef0182c8fb35ecfbb",
+                unfrozen.encodeValue("one", "simple value", 0, frozentimestamp));
+    }
+
     @SuppressWarnings("unused")
     private Object codecParameters() {
         return new Object[] { new Object[] { "one", "simple value", 0,
@@ -103,4 +127,83 @@ public class V2TornadoCookieCodecTest {
                 new Object[] { "Invalid field length format", "six",
                         "2|1:0|10:1521518443|a:six|8:c2hvcnQ=|the_signature" }, };
     }
+
+    private static String repeat(String chunk, int times) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            result.append(chunk);
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void testCompressedValueRoundTrip() {
+        TornadoCookieCodec compressing = V2TornadoCookieCodec.builder().withTimestamp(frozentimestamp)
+                .withSecretKey(secretkey).withCompression(ValueCompression.builder().build()).build();
+        String value = repeat("{\"item\":\"café\",\"qty\":1},", 100);
+
+        String signed = compressing.encodeValue("one", value, 0, frozentimestamp);
+        String plainSigned = subject.encodeValue("one", value, 0, frozentimestamp);
+        TornadoCookieValue decoded = compressing.decodeTornadoCookieValue("one", signed);
+
+        assertTrue(signed.length() < plainSigned.length() / 4);
+        assertEquals(value, compressing.decodeCookie(new Cookie("one", signed)).getValue());
+        assertEquals(value, decoded.getValue());
+        assertFalse(decoded.isCompressed());
+        assertEquals(value, compressing.decodeCookie(new Cookie("one", plainSigned)).getValue());
+        assertEquals(subject.encodeValue("one", "short", 0, frozentimestamp),
+                compressing.encodeValue("one", "short", 0, frozentimestamp));
+    }
+
+    @Test
+    public void testCompressedValueIsVerifiedBeforeInflating() {
+        TornadoCookieCodec compressing = V2TornadoCookieCodec.builder().withTimestamp(frozentimestamp)
+                .withSecretKey(secretkey).withCompression(ValueCompression.builder().withThreshold(0).build())
+                .build();
+        String signed = compressing.encodeValue("one", repeat("tampered ", 20), 0, frozentimestamp);
+        int valueStart = signed.indexOf("|", signed.indexOf(":one|")) + 1;
+        valueStart = signed.indexOf(':', valueStart) + 1;
+        char replacement = 'A';
+        if (signed.charAt(valueStart + 4) == replacement) {
+            replacement = 'B';
+        }
+        String tampered = signed.substring(0, valueStart + 4) + replacement + signed.substring(valueStart + 5);
+
+        try {
+            compressing.decodeCookie(new Cookie("one", tampered));
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(FailureReason.SIGNATURE_MISMATCH, e.getReason());
+        }
+    }
+
+    @Test
+    public void testCompressedValueBeyondLimitsIsRejected() {
+        TornadoCookieCodec compressing = V2TornadoCookieCodec.builder().withTimestamp(frozentimestamp)
+                .withSecretKey(secretkey).withCompression(ValueCompression.builder().build()).build();
+        String signed = compressing.encodeValue("one", repeat("a", 1024 * 1024), 0, frozentimestamp);
+
+        assertTrue(signed.length() < 4096);
+        try {
+            compressing.decodeCookie(new Cookie("one", signed));
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(FailureReason.COMPRESSION, e.getReason());
+        }
+    }
+
+    @Test
+    public void testCodecWithoutCompressionIgnoresTheFlag() {
+        TornadoCookieCodec compressing = V2TornadoCookieCodec.builder().withTimestamp(frozentimestamp)
+                .withSecretKey(secretkey).withCompression(ValueCompression.builder().build()).build();
+        String signed = compressing.encodeValue("one", repeat("a", 1024 * 1024), 0, frozentimestamp);
+
+        // The flagged bytes are not valid UTF-8, so they verify no better than before compression existed
+        try {
+            subject.decodeCookie(new Cookie("one", signed));
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(FailureReason.SIGNATURE_MISMATCH, e.getReason());
+        }
+    }
 }
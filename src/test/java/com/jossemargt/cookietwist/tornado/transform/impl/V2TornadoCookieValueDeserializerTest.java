@@ -24,6 +24,7 @@
 package com.jossemargt.cookietwist.tornado.transform.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -59,6 +60,26 @@ public class V2TornadoCookieValueDeserializerTest {
         assertEquals(Long.parseLong(expectedTimestamp), model.getTimestamp());
         assertTrue("Unexpected signature key version", expectedKeyVersion == model.getSignatureKeyVersion());
         assertEquals(expectedSignature, model.getSignature());
+        assertFalse(model.isCompressed());
+    }
+
+    @Test
+    public void testDeserializeCompressedValue() {
+        V2TornadoCookieValueDeserializer compressing = new V2TornadoCookieValueDeserializer(
+                V2TornadoCookieValueDeserializer.DEFAULT_MAX_LENGTH, true);
+
+        TornadoCookieValue model = compressing.deserialize("2|1:0|10:1521518443|3:one|4:/wH+|the_signature");
+
+        assertTrue(model.isCompressed());
+        assertEquals("\u0001\u00fe", model.getValue());
+    }
+
+    @Test
+    public void testDeserializeIgnoresCompressedFlagByDefault() {
+        TornadoCookieValue model = subject.deserialize("2|1:0|10:1521518443|3:one|4:/wH+|the_signature");
+
+        assertFalse(model.isCompressed());
+        assertEquals("\ufffd\u0001\ufffd", model.getValue());
     }
 
     @SuppressWarnings("unused")
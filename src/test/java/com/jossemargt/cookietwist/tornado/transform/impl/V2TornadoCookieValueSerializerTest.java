@@ -58,6 +58,18 @@ public class V2TornadoCookieValueSerializerTest {
         assertEquals(expectation, subject.serialize(model));
     }
 
+    @Test
+    public void testSerializeCompressedValue() {
+        TornadoCookieValue model = TornadoCookieValue.builder()
+                .withName("one")
+                .withValue("\u0001\u00fe")
+                .withCompressed(true)
+                .withSignature("the_signature")
+                .withTimestamp(1521518443L)
+                .build();
+        assertEquals("2|1:0|10:1521518443|3:one|4:/wH+|the_signature", subject.serialize(model));
+    }
+
     @SuppressWarnings("unused")
     private Object parametersForTestSerialize() {
         return new Object[] {
@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.metrics.StripedCodecMetrics;
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class V3CompactCookieCodecTest {
+
+    private static TornadoCookieCodec subject;
+    private static TornadoCookieCodec truncated;
+    private static String secretkey = "not-so-secret";
+    private static String anotherSecretkey = "like-a-ninja";
+
+    private static long frozentimestamp = 1521518443L;
+
+    @BeforeClass
+    public static void setUp() {
+        subject = V3CompactCookieCodec.builder().withTimestamp(frozentimestamp).withSecretKey(secretkey)
+                .withSecretKey(anotherSecretkey).build();
+        truncated = V3CompactCookieCodec.builder().withTimestamp(frozentimestamp).withSecretKey(secretkey)
+                .withSecretKey(anotherSecretkey).withSignatureLength(V3CompactCookieCodec.MIN_SIGNATURE_LENGTH)
+                .build();
+    }
+
+    @Test
+    @Parameters(method = "codecParameters")
+    public void testEncodeValue(String name, String value, int secretKeyNumber, String expectedValue,
+            String expectedTruncatedValue) {
+        assertEquals(expectedValue, subject.encodeValue(name, value, secretKeyNumber));
+        assertEquals(expectedTruncatedValue, truncated.encodeValue(name, value, secretKeyNumber));
+    }
+
+    @Test
+    @Parameters(method = "codecParameters")
+    public void testDecodeTornadoCookieValue(String name, String value, int secretKeyNumber, String signedValue,
+            String truncatedSignedValue) {
+        TornadoCookieValue decoded = subject.decodeTornadoCookieValue(name, signedValue);
+        TornadoCookieValue decodedTruncated = truncated.decodeTornadoCookieValue(name, truncatedSignedValue);
+
+        assertEquals(value, decoded.getValue());
+        assertEquals(frozentimestamp, decoded.getTimestamp());
+        assertEquals(secretKeyNumber, decoded.getSignatureKeyVersion());
+        assertEquals(value, decodedTruncated.getValue());
+    }
+
+    @Test
+    @Parameters(method = "codecParameters")
+    public void testObservedCodecMatches(String name, String value, int secretKeyNumber, String signedValue,
+            String __) {
+        TornadoCookieCodec observed = V3CompactCookieCodec.builder().withTimestamp(frozentimestamp)
+                .withSecretKey(secretkey).withSecretKey(anotherSecretkey).withMetrics(new StripedCodecMetrics())
+                .build();
+
+        assertEquals(signedValue, observed.encodeValue(name, value, secretKeyNumber));
+        assertEquals(value, observed.decodeValue(name, signedValue));
+    }
+
+    @SuppressWarnings("unused")
+    private Object codecParameters() {
+        return new Object[] {
+                new Object[] { "one", "simple value", 0,
+                        "AwDWnYSrCwxzaW1wbGUgdmFsdWV5uwEH38q4W3aK80PEoX1H4o75MDYisiEbWP9ea5Ngsg",
+                        "AwDWnYSrCwxzaW1wbGUgdmFsdWV5uwEH38q4W3aK80PEoX1H" },
+                new Object[] { "two", "", 1,
+                        "AwHWnYSrCwBJrBdKbTNKWEVIpWJvCWxuLGWTaW0x89hAtQFXqbMnSg",
+                        "AwHWnYSrCwBJrBdKbTNKWEVIpWJvCWxu" },
+                new Object[] { "three", "'|/unw@nt€d ch@r$?", 0,
+                        "AwDWnYSrCxQnfC91bndAbnTigqxkIGNoQHIkPyto1R7nxanDZdRJuis8DBZ9FeOKwxQPGcvb1SCX9Qp_",
+                        "AwDWnYSrCxQnfC91bndAbnTigqxkIGNoQHIkPyto1R7nxanDZdRJuis8DBY" } };
+    }
+
+    @Test
+    public void testEncodedCookieIsShorterThanV2() {
+        TornadoCookieCodec v2 = V2TornadoCookieCodec.builder().withTimestamp(frozentimestamp).withSecretKey(secretkey)
+                .build();
+        Cookie plain = new Cookie("session", "simple value");
+
+        int v2Length = v2.encodeCookie(plain).getValue().length();
+        int v3Length = subject.encodeCookie(plain).getValue().length();
+
+        assertTrue(String.format("Expected %d < %d", v3Length, v2Length), v3Length < v2Length);
+        assertTrue(truncated.encodeCookie(plain).getValue().length() < v3Length);
+    }
+
+    @Test
+    @Parameters
+    public void testDecodeThrowsInvalidFormatException(FailureReason expectedReason, boolean truncatedCodec,
+            String cookieName, String signedValue) {
+        TornadoCookieCodec codec = subject;
+        if (truncatedCodec) {
+            codec = truncated;
+        }
+        try {
+            codec.decodeValue(cookieName, signedValue);
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(expectedReason, e.getReason());
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestDecodeThrowsInvalidFormatException() {
+        String signedOne = "AwDWnYSrCwxzaW1wbGUgdmFsdWV5uwEH38q4W3aK80PEoX1H4o75MDYisiEbWP9ea5Ngsg";
+        return new Object[] {
+                new Object[] { FailureReason.SIGNATURE_MISMATCH, false, "two", signedOne },
+                new Object[] { FailureReason.SIGNATURE_MISMATCH, true, "one", signedOne },
+                new Object[] { FailureReason.SIGNATURE_MISMATCH, false, "one",
+                        "AwDWnYSrCwxzaW1wbGUgdmFsdWV5uwEH38q4W3aK80PEoX1H" },
+                new Object[] { FailureReason.SIGNATURE_MISMATCH, false, "one",
+                        "AwDWnYSrCwxzaW1wbGUgdmFsdWZ5uwEH38q4W3aK80PEoX1H4o75MDYisiEbWP9ea5Ngsg" },
+                new Object[] { FailureReason.UNKNOWN_KEY, false, "one",
+                        "AwLWnYSrCwxzaW1wbGUgdmFsdWV5uwEH38q4W3aK80PEoX1H4o75MDYisiEbWP9ea5Ngsg" },
+                new Object[] { FailureReason.VERSION, false, "one", "AgDWnYSrCwxzaW1wbGUgdmFsdWUAAQID" },
+                new Object[] { FailureReason.ENCODING, false, "one",
+                        "2|1:0|10:1521518443|3:one|16:c2ltcGxlIHZhbHVl|" } };
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithSignatureLengthTooShort() {
+        V3CompactCookieCodec.builder().withSignatureLength(V3CompactCookieCodec.MIN_SIGNATURE_LENGTH - 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithSignatureLengthTooLong() {
+        V3CompactCookieCodec.builder().withSignatureLength(V3CompactCookieCodec.DEFAULT_SIGNATURE_LENGTH + 1);
+    }
+}
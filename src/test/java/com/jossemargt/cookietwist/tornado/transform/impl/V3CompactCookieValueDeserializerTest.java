@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class V3CompactCookieValueDeserializerTest {
+    private V3CompactCookieValueDeserializer subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new V3CompactCookieValueDeserializer();
+    }
+
+    @Test
+    @Parameters
+    public void testDeserialize(String serializedValue, String expectedValue, long expectedTimestamp,
+            int expectedKeyVersion, String expectedSignature) {
+
+        TornadoCookieValue model = subject.deserialize(serializedValue);
+
+        assertEquals(expectedValue, model.getValue());
+        assertEquals(expectedTimestamp, model.getTimestamp());
+        assertEquals(expectedKeyVersion, model.getSignatureKeyVersion());
+        assertEquals(expectedSignature, model.getSignature());
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestDeserialize() {
+        return new Object[] {
+                new Object[] { "A6wC1p2EqwsMc2ltcGxlIHZhbHVlAAECAw", "simple value", 1521518443L, 300, "AAECAw" },
+                new Object[] { "AwEBAAABAgM", "", -1L, 1, "AAECAw" },
+                new Object[] { "AwAAFCd8L3Vud0BudOKCrGQgY2hAciQ_AAECAw", "'|/unw@nt€d ch@r$?", 0L, 0, "AAECAw" } };
+    }
+
+    @Test
+    @Parameters
+    public void testDeserializeInvalidFormatException(FailureReason expectedReason, String serializedValue) {
+        try {
+            subject.deserialize(serializedValue);
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(expectedReason, e.getReason());
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestDeserializeInvalidFormatException() {
+        return new Object[] {
+                new Object[] { FailureReason.FIELD_COUNT, "" },
+                new Object[] { FailureReason.FIELD_COUNT, "AwDWnYSrCwxzaW1wbGUgdmFsdWU" },
+                new Object[] { FailureReason.FIELD_COUNT, "A4A" },
+                new Object[] { FailureReason.ENCODING, "A+DWnYSrCw" },
+                new Object[] { FailureReason.VERSION, "AgDWnYSrCwxzaW1wbGUgdmFsdWUAAQID" },
+                new Object[] { FailureReason.LENGTH, "AwAAIGEB" },
+                new Object[] { FailureReason.FIELD_FORMAT, "A_______________" },
+                new Object[] { FailureReason.FIELD_FORMAT, "A4CAgIAIAAAB" } };
+    }
+
+    @Test
+    public void testDeserializeOversized() {
+        try {
+            new V3CompactCookieValueDeserializer(10).deserialize("A6wC1p2EqwsMc2ltcGxlIHZhbHVlAAECAw");
+            fail("Expected exception to be thrown");
+        } catch (InvalidFormatException e) {
+            assertEquals(FailureReason.OVERSIZED, e.getReason());
+        }
+    }
+}
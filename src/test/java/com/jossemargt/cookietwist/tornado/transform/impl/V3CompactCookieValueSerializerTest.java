@@ -0,0 +1,68 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tornado.transform.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class V3CompactCookieValueSerializerTest {
+    private V3CompactCookieValueSerializer subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new V3CompactCookieValueSerializer();
+    }
+
+    @Test
+    @Parameters
+    public void testSerialize(String value, long timestamp, int keyVersion, String signature, String expected) {
+        TornadoCookieValue model = TornadoCookieValue.builder().withName("ignored").withValue(value)
+                .withTimestamp(timestamp).withSignatureKeyVersion(keyVersion).withSignature(signature).build();
+
+        assertEquals(expected, subject.serialize(model));
+    }
+
+    @SuppressWarnings("unused")
+    private Object parametersForTestSerialize() {
+        return new Object[] {
+                new Object[] { "simple value", 1521518443L, 0, "", "AwDWnYSrCwxzaW1wbGUgdmFsdWU" },
+                new Object[] { "simple value", 1521518443L, 300, "AAECAw", "A6wC1p2EqwsMc2ltcGxlIHZhbHVlAAECAw" },
+                new Object[] { "", -1L, 1, "AAECAw", "AwEBAAABAgM" },
+                new Object[] { "'|/unw@nt€d ch@r$?", 0L, 0, "AAECAw", "AwAAFCd8L3Vud0BudOKCrGQgY2hAciQ_AAECAw" } };
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSerializeNegativeKeyVersion() {
+        subject.serialize(TornadoCookieValue.builder().withValue("value").withSignatureKeyVersion(-1).build());
+    }
+}
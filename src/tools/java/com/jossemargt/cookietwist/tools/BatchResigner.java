@@ -0,0 +1,475 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.metrics.StripedCodecMetrics;
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class BatchResigner re-signs persisted cookie values, one
+ * <code>name&lt;TAB&gt;value</code> line each, for key rotations and V1 to V2
+ * migrations. Every value is verified with the source codec and signed again
+ * with the target one, keeping its issue timestamp, so no value outlives its
+ * original expiration.
+ *
+ * <p>
+ * The input is read through a {@link FileChannel} in blocks cut at line ends.
+ * Blocks are re-signed in parallel while the output is written in input order,
+ * and at most two blocks per worker are in flight, which bounds the memory use.
+ *
+ * <p>
+ * Options:
+ * <ul>
+ *  <li><code>--input=path</code> and <code>--output=path</code> (required)
+ *  <li><code>--from-algorithm</code>, <code>--from-key</code> and
+ *  <code>--from-key-file</code>: the source codec
+ *  <li><code>--to-algorithm</code>, <code>--to-key</code> and
+ *  <code>--to-key-file</code>: the target codec
+ *  <li><code>--key-version=N</code>: the target key version, by default each
+ *  value keeps its own
+ *  <li><code>--rejects=path</code>: receives the lines that could not be
+ *  re-signed, followed by the failure reason
+ *  <li><code>--parallelism=N</code>: the worker count, defaults to the core count
+ *  <li><code>--block-size=4m</code>: the input block size
+ * </ul>
+ */
+public final class BatchResigner {
+
+    /** The Constant KEEP_KEY_VERSION keeps the key version of each value. */
+    public static final int KEEP_KEY_VERSION = -1;
+
+    /** The Constant DEFAULT_BLOCK_SIZE holds the default input block size, in bytes. */
+    private static final int DEFAULT_BLOCK_SIZE = 4 * 1024 * 1024;
+
+    /** The Constant IN_FLIGHT_PER_WORKER holds the blocks in flight per worker. */
+    private static final int IN_FLIGHT_PER_WORKER = 2;
+
+    /** The Constant SEPARATOR holds the name and value separator. */
+    private static final byte SEPARATOR = '\t';
+
+    /** The Constant LINE_END holds the line terminator. */
+    private static final byte LINE_END = '\n';
+
+    /** The Constant NO_SEPARATOR marks a line without separator. */
+    private static final int NO_SEPARATOR = -1;
+
+    /** The Constant CARRIAGE_RETURN holds the optional character before the line terminator. */
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    /** The codec that verifies the persisted values. */
+    private final TornadoCookieCodec source;
+
+    /** The codec that signs the values again. */
+    private final TornadoCookieCodec target;
+
+    /** The target key version or {@link #KEEP_KEY_VERSION}. */
+    private final int keyVersion;
+
+    /** The re-signed line count. */
+    private final LongAdder resigned;
+
+    /** The count of lines the target codec refused to sign. */
+    private final LongAdder signFailures;
+
+    /** The count of lines without separator. */
+    private final LongAdder unparsable;
+
+    /**
+     * Instantiates a new batch resigner.
+     *
+     * @param source
+     *            the codec that verifies the persisted values
+     * @param target
+     *            the codec that signs the values again
+     * @param keyVersion
+     *            the target key version or {@link #KEEP_KEY_VERSION}
+     */
+    BatchResigner(TornadoCookieCodec source, TornadoCookieCodec target, int keyVersion) {
+        this.source = source;
+        this.target = target;
+        this.keyVersion = keyVersion;
+        this.resigned = new LongAdder();
+        this.signFailures = new LongAdder();
+        this.unparsable = new LongAdder();
+    }
+
+    /**
+     * The main method.
+     *
+     * @param args
+     *            the tool options
+     * @throws IOException
+     *             when a file cannot be read or written
+     * @throws InterruptedException
+     *             when interrupted while waiting for a block
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ToolOptions options = ToolOptions.parse(args);
+        StripedCodecMetrics sourceMetrics = new StripedCodecMetrics();
+        TornadoCookieCodec source = options.codecBuilder("from-").withMetrics(sourceMetrics).build();
+        TornadoCookieCodec target = options.codecBuilder("to-").build();
+        int parallelism = options.getInt("parallelism", Runtime.getRuntime().availableProcessors());
+        long blockSize = options.getSize("block-size", DEFAULT_BLOCK_SIZE);
+
+        if (blockSize < CorpusReplay.MAX_LINE_LENGTH || blockSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The block size must be between 64 KiB and 2 GiB");
+        }
+
+        BatchResigner resigner = new BatchResigner(source, target,
+                options.getInt("key-version", KEEP_KEY_VERSION));
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        long startedAt = System.nanoTime();
+
+        try (FileChannel input = FileChannel.open(Paths.get(options.get("input")), StandardOpenOption.READ);
+                FileChannel output = FileChannel.open(Paths.get(options.get("output")), StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                FileChannel rejects = openRejects(options)) {
+            resigner.run(input, output, rejects, workers, (int) blockSize, parallelism * IN_FLIGHT_PER_WORKER);
+        } finally {
+            workers.shutdown();
+        }
+
+        System.out.printf("parallelism: %d, block size: %d bytes%n", parallelism, blockSize);
+        resigner.report(System.out, sourceMetrics, System.nanoTime() - startedAt);
+    }
+
+    /**
+     * Re-signs the input blocks in parallel, writing their output in input order.
+     *
+     * @param input
+     *            the input channel
+     * @param output
+     *            the output channel
+     * @param rejects
+     *            the rejected lines channel, null to drop them
+     * @param workers
+     *            the executor re-signing the blocks
+     * @param blockSize
+     *            the input block size
+     * @param maxInFlight
+     *            the most blocks read and not written yet
+     * @throws IOException
+     *             when a file cannot be read or written
+     * @throws InterruptedException
+     *             when interrupted while waiting for a block
+     */
+    void run(FileChannel input, FileChannel output, FileChannel rejects, ExecutorService workers, int blockSize,
+            int maxInFlight) throws IOException, InterruptedException {
+        Deque<Future<Block>> inFlight = new ArrayDeque<Future<Block>>();
+        ByteBuffer buffer = ByteBuffer.allocate(blockSize);
+
+        while (input.read(buffer) >= 0 || buffer.position() > 0) {
+            byte[] block = takeLines(buffer, input.position() == input.size());
+
+            if (block.length > 0) {
+                inFlight.add(workers.submit(() -> resign(block)));
+            } else if (!buffer.hasRemaining()) {
+                throw new IOException(String.format("A line is longer than the %d bytes block size", blockSize));
+            }
+
+            while (inFlight.size() >= maxInFlight) {
+                write(inFlight.poll(), output, rejects);
+            }
+        }
+
+        while (!inFlight.isEmpty()) {
+            write(inFlight.poll(), output, rejects);
+        }
+    }
+
+    /**
+     * Prints the re-signing report.
+     *
+     * @param out
+     *            the output stream
+     * @param sourceMetrics
+     *            the source codec metrics
+     * @param elapsedNanos
+     *            the wall clock time
+     */
+    void report(PrintStream out, StripedCodecMetrics sourceMetrics, long elapsedNanos) {
+        Reports.printThroughput(out, "re-signed", resigned.sum(), elapsedNanos);
+        out.printf("unparsable: %d, target refused: %d%n", unparsable.sum(), signFailures.sum());
+        Reports.printFailures(out, sourceMetrics.getFailureCounts());
+        Reports.printByKeyVersion(out, "verified", sourceMetrics.getDecodeCountByKeyVersion());
+    }
+
+    /**
+     * Takes every complete line out of the buffer, keeping the trailing partial
+     * line for the next read.
+     *
+     * @param buffer
+     *            the buffer, in write mode
+     * @param endOfInput
+     *            whether the input was fully read, so the trailing line is
+     *            complete
+     * @return the complete lines
+     */
+    private static byte[] takeLines(ByteBuffer buffer, boolean endOfInput) {
+        int end = buffer.position();
+
+        if (!endOfInput) {
+            while (end > 0 && buffer.get(end - 1) != LINE_END) {
+                end--;
+            }
+        }
+
+        byte[] lines = Arrays.copyOf(buffer.array(), end);
+
+        buffer.flip();
+        buffer.position(end);
+        buffer.compact();
+
+        return lines;
+    }
+
+    /**
+     * Re-signs every line of a block.
+     *
+     * @param block
+     *            the complete lines
+     * @return the re-signed block
+     */
+    private Block resign(byte[] block) {
+        Block result = new Block(block.length);
+        int lineStart = 0;
+
+        while (lineStart < block.length) {
+            int lineEnd = lineStart;
+            int separator = NO_SEPARATOR;
+
+            while (lineEnd < block.length && block[lineEnd] != LINE_END) {
+                if (separator < 0 && block[lineEnd] == SEPARATOR) {
+                    separator = lineEnd;
+                }
+                lineEnd++;
+            }
+
+            int valueEnd = lineEnd;
+            if (valueEnd > lineStart && block[valueEnd - 1] == CARRIAGE_RETURN) {
+                valueEnd--;
+            }
+
+            if (valueEnd > lineStart) {
+                resignLine(block, lineStart, separator, valueEnd, result);
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Re-signs a single line, appending it to the output or to the rejects.
+     *
+     * @param block
+     *            the complete lines
+     * @param lineStart
+     *            the line start position
+     * @param separator
+     *            the separator position, negative when missing
+     * @param valueEnd
+     *            the value end position, exclusive
+     * @param result
+     *            the re-signed block
+     */
+    private void resignLine(byte[] block, int lineStart, int separator, int valueEnd, Block result) {
+        if (separator < 0) {
+            unparsable.increment();
+            result.reject(block, lineStart, valueEnd, "UNPARSABLE");
+            return;
+        }
+
+        String name = new String(block, lineStart, separator - lineStart, StandardCharsets.ISO_8859_1);
+        String value = new String(block, separator + 1, valueEnd - separator - 1, StandardCharsets.ISO_8859_1);
+        TornadoCookieValue verified;
+
+        try {
+            verified = source.decodeTornadoCookieValue(name, value);
+        } catch (InvalidFormatException e) {
+            result.reject(block, lineStart, valueEnd, e.getReason().name());
+            return;
+        }
+
+        int signingKeyVersion = keyVersion;
+        if (signingKeyVersion == KEEP_KEY_VERSION) {
+            signingKeyVersion = verified.getSignatureKeyVersion();
+        }
+
+        try {
+            String signed = target.encodeValue(name, verified.getValue(), signingKeyVersion, verified.getTimestamp());
+            result.accept(name, signed);
+            resigned.increment();
+        } catch (InvalidFormatException e) {
+            signFailures.increment();
+            result.reject(block, lineStart, valueEnd, "TARGET_" + e.getReason().name());
+        }
+    }
+
+    /**
+     * Waits for a block and writes it.
+     *
+     * @param future
+     *            the block being re-signed
+     * @param output
+     *            the output channel
+     * @param rejects
+     *            the rejected lines channel, null to drop them
+     * @throws IOException
+     *             when a file cannot be written
+     * @throws InterruptedException
+     *             when interrupted while waiting for the block
+     */
+    private static void write(Future<Block> future, FileChannel output, FileChannel rejects)
+            throws IOException, InterruptedException {
+        Block block;
+
+        try {
+            block = future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A block could not be re-signed", e.getCause());
+        }
+
+        writeFully(output, block.output);
+        if (rejects != null) {
+            writeFully(rejects, block.rejects);
+        }
+    }
+
+    /**
+     * Writes every byte of the stream into the channel.
+     *
+     * @param channel
+     *            the channel
+     * @param bytes
+     *            the bytes to write
+     * @throws IOException
+     *             when the channel cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteArrayOutputStream bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Opens the rejected lines channel when requested.
+     *
+     * @param options
+     *            the tool options
+     * @return the channel or null
+     * @throws IOException
+     *             when the file cannot be opened
+     */
+    private static FileChannel openRejects(ToolOptions options) throws IOException {
+        if (!options.has("rejects")) {
+            return null;
+        }
+        return FileChannel.open(Paths.get(options.get("rejects")), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * The Class Block holds the output and rejected lines of an input block.
+     */
+    private static final class Block {
+
+        /** The re-signed lines. */
+        private final ByteArrayOutputStream output;
+
+        /** The rejected lines, each one followed by its failure reason. */
+        private final ByteArrayOutputStream rejects;
+
+        /**
+         * Instantiates a new block.
+         *
+         * @param inputLength
+         *            the input block length
+         */
+        Block(int inputLength) {
+            this.output = new ByteArrayOutputStream(inputLength);
+            this.rejects = new ByteArrayOutputStream();
+        }
+
+        /**
+         * Appends a re-signed line.
+         *
+         * @param name
+         *            the cookie name
+         * @param signed
+         *            the re-signed value
+         */
+        void accept(String name, String signed) {
+            byte[] nameBytes = name.getBytes(StandardCharsets.ISO_8859_1);
+            byte[] signedBytes = signed.getBytes(StandardCharsets.ISO_8859_1);
+
+            output.write(nameBytes, 0, nameBytes.length);
+            output.write(SEPARATOR);
+            output.write(signedBytes, 0, signedBytes.length);
+            output.write(LINE_END);
+        }
+
+        /**
+         * Appends a rejected line.
+         *
+         * @param block
+         *            the input block
+         * @param lineStart
+         *            the line start position
+         * @param lineEnd
+         *            the line end position, exclusive
+         * @param reason
+         *            the failure reason
+         */
+        void reject(byte[] block, int lineStart, int lineEnd, String reason) {
+            byte[] reasonBytes = reason.getBytes(StandardCharsets.ISO_8859_1);
+
+            rejects.write(block, lineStart, lineEnd - lineStart);
+            rejects.write(SEPARATOR);
+            rejects.write(reasonBytes, 0, reasonBytes.length);
+            rejects.write(LINE_END);
+        }
+    }
+}
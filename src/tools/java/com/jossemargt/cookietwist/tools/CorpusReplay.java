@@ -0,0 +1,324 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tools;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.metrics.StripedCodecMetrics;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class CorpusReplay decodes and verifies a corpus of captured cookies, one
+ * <code>name&lt;TAB&gt;value</code> line each, as fast as the codec allows,
+ * then reports the throughput, the latency percentiles, the failures by reason
+ * and the key version distribution.
+ *
+ * <p>
+ * The corpus is never loaded onto the heap: the file is split into chunks that
+ * a fork-join pool memory maps and replays independently. A chunk replays the
+ * lines that start inside it, reading past its end up to
+ * {@link #MAX_LINE_LENGTH} bytes to finish its last line.
+ *
+ * <p>
+ * Options:
+ * <ul>
+ *  <li><code>--input=path</code>: the corpus file (required)
+ *  <li><code>--algorithm=TORNADO_V2</code>: the codec algorithm
+ *  <li><code>--key=secret</code> or <code>--key-file=path</code>: the key ring,
+ *  in key version order (required, repeatable)
+ *  <li><code>--parallelism=N</code>: the pool size, defaults to the core count
+ *  <li><code>--chunk-size=32m</code>: the largest chunk mapped at once
+ * </ul>
+ */
+public final class CorpusReplay {
+
+    /** The Constant MAX_LINE_LENGTH holds the longest line a chunk can finish. */
+    public static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    /** The Constant DEFAULT_CHUNK_SIZE holds the default chunk size, in bytes. */
+    private static final long DEFAULT_CHUNK_SIZE = 32L * 1024 * 1024;
+
+    /** The Constant MAX_CHUNK_SIZE holds the largest chunk size, in bytes. */
+    private static final long MAX_CHUNK_SIZE = 1024L * 1024 * 1024;
+
+    /** The Constant SEPARATOR holds the name and value separator. */
+    private static final byte SEPARATOR = '\t';
+
+    /** The Constant NO_SEPARATOR flags a line without separator. */
+    private static final int NO_SEPARATOR = -1;
+
+    /** The Constant LINE_END holds the line terminator. */
+    private static final byte LINE_END = '\n';
+
+    /** The Constant CARRIAGE_RETURN holds the optional character before the line terminator. */
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    /** The corpus file channel, shared by every chunk. */
+    private final FileChannel channel;
+
+    /** The corpus file size. */
+    private final long fileSize;
+
+    /** The codec under test. */
+    private final TornadoCookieCodec codec;
+
+    /** The largest chunk mapped at once. */
+    private final long chunkSize;
+
+    /** The replayed line count. */
+    private final LongAdder lines;
+
+    /** The count of lines without separator or longer than {@link #MAX_LINE_LENGTH}. */
+    private final LongAdder unparsable;
+
+    /**
+     * Instantiates a new corpus replay.
+     *
+     * @param channel
+     *            the corpus file channel
+     * @param codec
+     *            the codec under test
+     * @param chunkSize
+     *            the largest chunk mapped at once
+     * @throws IOException
+     *             when the file size cannot be read
+     */
+    CorpusReplay(FileChannel channel, TornadoCookieCodec codec, long chunkSize) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.codec = codec;
+        this.chunkSize = chunkSize;
+        this.lines = new LongAdder();
+        this.unparsable = new LongAdder();
+    }
+
+    /**
+     * The main method.
+     *
+     * @param args
+     *            the tool options
+     * @throws IOException
+     *             when the corpus or a key file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        ToolOptions options = ToolOptions.parse(args);
+        StripedCodecMetrics metrics = new StripedCodecMetrics();
+        TornadoCookieCodec codec = options.codecBuilder("").withMetrics(metrics).build();
+        int parallelism = options.getInt("parallelism", Runtime.getRuntime().availableProcessors());
+        long chunkSize = options.getSize("chunk-size", DEFAULT_CHUNK_SIZE);
+
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("The chunk size must be between 1 byte and 1 GiB");
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(options.get("input")), StandardOpenOption.READ)) {
+            CorpusReplay replay = new CorpusReplay(channel, codec, chunkSize);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            long startedAt = System.nanoTime();
+
+            try {
+                pool.invoke(replay.new Chunk(0, channel.size()));
+            } finally {
+                pool.shutdown();
+            }
+
+            System.out.printf("parallelism: %d, chunk size: %d bytes%n", parallelism, chunkSize);
+            replay.report(System.out, metrics, System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * Prints the replay report.
+     *
+     * @param out
+     *            the output stream
+     * @param metrics
+     *            the codec metrics
+     * @param elapsedNanos
+     *            the replay wall clock time
+     */
+    void report(PrintStream out, StripedCodecMetrics metrics, long elapsedNanos) {
+        out.printf("lines: %d, unparsable: %d%n", lines.sum(), unparsable.sum());
+        Reports.printThroughput(out, "decodes", metrics.getDecodeCount() + metrics.getFailureCount(), elapsedNanos);
+        Reports.printLatency(out, "decode latency", metrics.getDecodeLatency());
+        out.printf("verified: %d%n", metrics.getDecodeCount());
+        Reports.printFailures(out, metrics.getFailureCounts());
+        Reports.printByKeyVersion(out, "verified", metrics.getDecodeCountByKeyVersion());
+    }
+
+    /**
+     * Replays the lines that start within the given file region.
+     *
+     * @param start
+     *            the region start offset
+     * @param end
+     *            the region end offset, exclusive
+     * @throws IOException
+     *             when the region cannot be mapped
+     */
+    void replay(long start, long end) throws IOException {
+        long mapStart = Math.max(0, start - 1);
+        long mapEnd = Math.min(fileSize, end + MAX_LINE_LENGTH);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int limit = (int) (end - mapStart);
+        int mapped = buffer.limit();
+        boolean lastRegion = mapEnd == fileSize;
+        byte[] scratch = new byte[MAX_LINE_LENGTH];
+        int position = 0;
+
+        if (start > 0) {
+            // Skips the tail of the line started by the previous region
+            while (position < mapped && buffer.get(position) != LINE_END) {
+                position++;
+            }
+            position++;
+        }
+
+        while (position < limit) {
+            int lineEnd = position;
+            int separator = NO_SEPARATOR;
+
+            while (lineEnd < mapped && buffer.get(lineEnd) != LINE_END) {
+                if (separator == NO_SEPARATOR && buffer.get(lineEnd) == SEPARATOR) {
+                    separator = lineEnd;
+                }
+                lineEnd++;
+            }
+
+            if (lineEnd == mapped && !lastRegion) {
+                // The line does not end within the mapped slack
+                lines.increment();
+                unparsable.increment();
+                return;
+            }
+
+            int valueEnd = lineEnd;
+            if (valueEnd > position && buffer.get(valueEnd - 1) == CARRIAGE_RETURN) {
+                valueEnd--;
+            }
+
+            if (valueEnd > position) {
+                lines.increment();
+                if (separator == NO_SEPARATOR || valueEnd - position > MAX_LINE_LENGTH) {
+                    unparsable.increment();
+                } else {
+                    verify(buffer, scratch, position, separator, valueEnd);
+                }
+            }
+
+            position = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Decodes and verifies a single line, counting failures through the codec
+     * metrics.
+     *
+     * @param buffer
+     *            the mapped region
+     * @param scratch
+     *            the line copy buffer
+     * @param lineStart
+     *            the line start position
+     * @param separator
+     *            the separator position
+     * @param valueEnd
+     *            the value end position, exclusive
+     */
+    private void verify(MappedByteBuffer buffer, byte[] scratch, int lineStart, int separator, int valueEnd) {
+        int length = valueEnd - lineStart;
+
+        buffer.position(lineStart);
+        buffer.get(scratch, 0, length);
+
+        int nameLength = separator - lineStart;
+        String name = new String(scratch, 0, nameLength, StandardCharsets.ISO_8859_1);
+        String value = new String(scratch, nameLength + 1, length - nameLength - 1, StandardCharsets.ISO_8859_1);
+
+        try {
+            codec.decodeValue(name, value);
+        } catch (InvalidFormatException e) {
+            // Already counted by the codec metrics
+        }
+    }
+
+    /**
+     * The Class Chunk splits a file region in halves until it fits the chunk
+     * size, then replays it.
+     */
+    private final class Chunk extends RecursiveAction {
+
+        /** The Constant serialVersionUID. */
+        private static final long serialVersionUID = 1L;
+
+        /** The region start offset. */
+        private final long start;
+
+        /** The region end offset, exclusive. */
+        private final long end;
+
+        /**
+         * Instantiates a new chunk.
+         *
+         * @param start
+         *            the region start offset
+         * @param end
+         *            the region end offset, exclusive
+         */
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute() {
+            if (end - start > chunkSize) {
+                long middle = start + ((end - start) >>> 1);
+                invokeAll(new Chunk(start, middle), new Chunk(middle, end));
+                return;
+            }
+
+            try {
+                replay(start, end);
+            } catch (IOException e) {
+                throw new IllegalStateException(String.format("Cannot map the region %d-%d", start, end), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,666 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tools;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.jossemargt.cookietwist.CookieSignatureAlgorithm;
+import com.jossemargt.cookietwist.exception.InvalidFormatException;
+import com.jossemargt.cookietwist.metrics.LogHistogram;
+import com.jossemargt.cookietwist.tornado.TornadoCookieValue;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+import com.jossemargt.cookietwist.tools.TrafficMix.Kind;
+import com.jossemargt.cookietwist.tools.TrafficMix.Sample;
+
+/**
+ * The Class LoadHarness drives the codecs with a sustained mix of valid,
+ * forged, malformed, expired and unknown key cookies, in both formats, from a
+ * growing number of platform or virtual threads, and reports how the
+ * throughput scales.
+ *
+ * <p>
+ * A decoded cookie older than <code>--max-age-days</code> is rejected, as
+ * Tornado does; the codecs themselves do not enforce expiration. Every outcome
+ * is checked against the kind of the sample, so an accepted forgery shows up as
+ * an unexpected outcome.
+ *
+ * <p>
+ * Latencies are corrected for coordinated omission. With <code>--rate</code>
+ * the workers follow a fixed schedule and every latency is measured from the
+ * intended start of its operation. Without it the workers run flat out and a
+ * stalled operation back-fills the samples the stall prevented, at the mean
+ * service time measured while warming up.
+ *
+ * <p>
+ * Options:
+ * <ul>
+ *  <li><code>--key</code> and <code>--key-file</code>: the secret keys (required)
+ *  <li><code>--mix=valid:80,forged:5,...</code>: the traffic weights by kind
+ *  <li><code>--v1-percent=50</code>: the share of V1 cookies
+ *  <li><code>--encode-percent=10</code>: the share of encodes
+ *  <li><code>--threads=1,2,4</code>: the thread counts, by default the powers
+ *  of two up to the core count, and the core count
+ *  <li><code>--virtual</code>: runs on virtual threads, on Java 21 or later
+ *  <li><code>--duration=10</code> and <code>--warmup=5</code>: the seconds
+ *  measured and discarded per thread count
+ *  <li><code>--rate=N</code>: the total operations per second to schedule
+ *  <li><code>--max-age-days=31</code>: the maximum age of a valid cookie
+ *  <li><code>--pool-size=1024</code> and <code>--seed=N</code>: the samples
+ *  generated per format and kind, and their seed
+ * </ul>
+ */
+public final class LoadHarness {
+
+    /** The Constant DEFAULT_DURATION holds the default measured seconds. */
+    private static final int DEFAULT_DURATION = 10;
+
+    /** The Constant DEFAULT_WARMUP holds the default warm up seconds. */
+    private static final int DEFAULT_WARMUP = 5;
+
+    /** The Constant DEFAULT_V1_PERCENT holds the default share of V1 cookies. */
+    private static final int DEFAULT_V1_PERCENT = 50;
+
+    /** The Constant DEFAULT_ENCODE_PERCENT holds the default share of encodes. */
+    private static final int DEFAULT_ENCODE_PERCENT = 10;
+
+    /** The Constant DEFAULT_MAX_AGE_DAYS holds the Tornado default maximum age. */
+    private static final int DEFAULT_MAX_AGE_DAYS = 31;
+
+    /** The Constant DEFAULT_POOL_SIZE holds the default samples per format and kind. */
+    private static final int DEFAULT_POOL_SIZE = 1024;
+
+    /** The Constant PERCENT holds the total of a percentage. */
+    private static final int PERCENT = 100;
+
+    /**
+     * The Constant START_DELAY_MILLIS holds the delay between the release of the
+     * started workers and their first operation, so they all begin together.
+     */
+    private static final long START_DELAY_MILLIS = 100;
+
+    /** The Constant NANOS_PER_SECOND holds the nanoseconds in a second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** The Constant P99 holds the percentile summarized by thread count. */
+    private static final double P99 = 99.0;
+
+    /** The Constant NANOS_PER_MICRO holds the nanoseconds in a microsecond. */
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    /** The traffic mix. */
+    private final TrafficMix mix;
+
+    /** The V1 codec. */
+    private final TornadoCookieCodec v1Codec;
+
+    /** The V2 codec. */
+    private final TornadoCookieCodec v2Codec;
+
+    /** The secret key count. */
+    private final int keyCount;
+
+    /** The share of encodes. */
+    private final int encodePercent;
+
+    /** The maximum age of a valid cookie, in seconds. */
+    private final long maxAgeSeconds;
+
+    /** The thread factory. */
+    private final ThreadFactory threadFactory;
+
+    /**
+     * Instantiates a new load harness.
+     *
+     * @param mix
+     *            the traffic mix
+     * @param secretKeys
+     *            the secret keys, by key version
+     * @param encodePercent
+     *            the share of encodes
+     * @param maxAgeSeconds
+     *            the maximum age of a valid cookie, in seconds
+     * @param threadFactory
+     *            the thread factory
+     */
+    LoadHarness(TrafficMix mix, List<String> secretKeys, int encodePercent, long maxAgeSeconds,
+            ThreadFactory threadFactory) {
+        this.mix = mix;
+        this.v1Codec = ToolOptions.codecBuilder(CookieSignatureAlgorithm.TORNADO_V1, secretKeys).build();
+        this.v2Codec = ToolOptions.codecBuilder(CookieSignatureAlgorithm.TORNADO_V2, secretKeys).build();
+        this.keyCount = secretKeys.size();
+        this.encodePercent = encodePercent;
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * The main method.
+     *
+     * @param args
+     *            the tool options
+     * @throws IOException
+     *             when a key file cannot be read
+     * @throws InterruptedException
+     *             when interrupted while waiting for the workers
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ToolOptions options = ToolOptions.parse(args);
+        List<String> secretKeys = options.getSecretKeys("");
+        long maxAgeSeconds = TimeUnit.DAYS.toSeconds(options.getInt("max-age-days", DEFAULT_MAX_AGE_DAYS));
+        boolean virtual = options.has("virtual");
+        TrafficMix mix = new TrafficMix(TrafficMix.parseWeights(options.get("mix", TrafficMix.DEFAULT_MIX)),
+                options.getInt("v1-percent", DEFAULT_V1_PERCENT), secretKeys, maxAgeSeconds,
+                options.getInt("pool-size", DEFAULT_POOL_SIZE),
+                options.getInt("seed", ThreadLocalRandom.current().nextInt()));
+        LoadHarness harness = new LoadHarness(mix, secretKeys,
+                options.getInt("encode-percent", DEFAULT_ENCODE_PERCENT), maxAgeSeconds, threadFactory(virtual));
+        long durationNanos = TimeUnit.SECONDS.toNanos(options.getInt("duration", DEFAULT_DURATION));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(options.getInt("warmup", DEFAULT_WARMUP));
+        int rate = options.getInt("rate", 0);
+        PrintStream out = System.out;
+        List<Step> steps = new ArrayList<Step>();
+
+        out.printf("cores: %d, threads: %s, mix: %s, rate: %s%n", Runtime.getRuntime().availableProcessors(),
+                threadKind(virtual), options.get("mix", TrafficMix.DEFAULT_MIX), rateLabel(rate));
+
+        for (int threads : threadCounts(options)) {
+            Step warmup = harness.run(threads, rate, 0, warmupNanos);
+            Step step = harness.run(threads, rate, (long) warmup.service.getMean(), durationNanos);
+            steps.add(step);
+            step.report(out, steps.get(0));
+        }
+
+        printScaling(out, steps);
+    }
+
+    /**
+     * Runs the workers for the given duration.
+     *
+     * @param threads
+     *            the worker count
+     * @param rate
+     *            the total operations per second to schedule, 0 to run flat out
+     * @param expectedIntervalNanos
+     *            the mean service time used to back-fill stalls when running flat
+     *            out, 0 to skip the correction
+     * @param durationNanos
+     *            the run duration
+     * @return the merged worker results
+     * @throws InterruptedException
+     *             when interrupted while waiting for the workers
+     */
+    Step run(int threads, int rate, long expectedIntervalNanos, long durationNanos) throws InterruptedException {
+        long intervalNanos = 0;
+        if (rate > 0) {
+            intervalNanos = (long) (NANOS_PER_SECOND * threads / rate);
+        }
+
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Worker> workers = new ArrayList<Worker>();
+
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(intervalNanos, expectedIntervalNanos, ready, start, done);
+            workers.add(worker);
+            threadFactory.newThread(worker).start();
+        }
+
+        // The schedule only begins once every worker thread is running
+        ready.await();
+        long startAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(START_DELAY_MILLIS);
+        for (Worker worker : workers) {
+            worker.schedule(startAt, startAt + durationNanos);
+        }
+        start.countDown();
+
+        done.await();
+
+        Step step = new Step(threads, durationNanos);
+        for (Worker worker : workers) {
+            step.add(worker);
+        }
+
+        return step;
+    }
+
+    /**
+     * Runs a single operation, drawn from the traffic mix.
+     *
+     * @param random
+     *            the random generator of the calling thread
+     * @param worker
+     *            the worker counting the outcome
+     */
+    private void operate(Random random, Worker worker) {
+        if (random.nextInt(PERCENT) < encodePercent) {
+            TornadoCookieCodec codec = v2Codec;
+            if (mix.nextIsV1(random)) {
+                codec = v1Codec;
+            }
+            codec.encodeValue(TrafficMix.nextName(random), mix.nextPlainValue(random), random.nextInt(keyCount));
+            worker.encodes++;
+            return;
+        }
+
+        Sample sample = mix.next(random);
+        TornadoCookieCodec codec = v2Codec;
+        if (sample.isV1()) {
+            codec = v1Codec;
+        }
+
+        boolean accepted;
+        try {
+            TornadoCookieValue value = codec.decodeTornadoCookieValue(sample.getName(), sample.getValue());
+            long age = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - value.getTimestamp();
+            accepted = age <= maxAgeSeconds;
+        } catch (InvalidFormatException e) {
+            accepted = false;
+        }
+
+        int kind = sample.getKind().ordinal();
+        worker.sent[kind]++;
+        if (accepted) {
+            worker.accepted[kind]++;
+        }
+    }
+
+    /**
+     * Gets the thread counts to run, from the <code>--threads</code> option or
+     * the powers of two up to the core count, and the core count.
+     *
+     * @param options
+     *            the tool options
+     * @return the thread counts
+     */
+    private static List<Integer> threadCounts(ToolOptions options) {
+        List<Integer> counts = new ArrayList<Integer>();
+
+        if (options.has("threads")) {
+            for (String count : options.get("threads").split(",")) {
+                counts.add(Integer.parseInt(count.trim()));
+            }
+            return counts;
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int count = 1; count < cores; count <<= 1) {
+            counts.add(count);
+        }
+        counts.add(cores);
+
+        return counts;
+    }
+
+    /**
+     * Creates the worker thread factory. Virtual threads are created through
+     * reflection so the tools still build and run on Java 8.
+     *
+     * @param virtual
+     *            whether to use virtual threads
+     * @return the thread factory
+     * @throws IllegalArgumentException
+     *             when virtual threads are not available
+     */
+    static ThreadFactory threadFactory(boolean virtual) {
+        if (!virtual) {
+            return Thread::new;
+        }
+
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Virtual threads need Java 21 or later", e);
+        }
+    }
+
+    /**
+     * Prints the throughput and p99 latency by thread count.
+     *
+     * @param out
+     *            the output stream
+     * @param steps
+     *            the results by thread count
+     */
+    private static void printScaling(PrintStream out, List<Step> steps) {
+        Step baseline = steps.get(0);
+
+        out.println();
+        out.printf("%8s %14s %9s %11s %17s%n", "threads", "ops/s", "speedup", "efficiency", "corrected p99 us");
+        for (Step step : steps) {
+            double speedup = step.getThroughput() / baseline.getThroughput();
+            double efficiency = speedup * baseline.threads / step.threads;
+            out.printf("%8d %14.0f %8.2fx %10.0f%% %17.2f%n", step.threads, step.getThroughput(), speedup,
+                    efficiency * PERCENT, step.corrected.getValueAtPercentile(P99) / NANOS_PER_MICRO);
+        }
+    }
+
+    /**
+     * Describes the thread kind.
+     *
+     * @param virtual
+     *            whether the workers use virtual threads
+     * @return the label
+     */
+    private static String threadKind(boolean virtual) {
+        if (virtual) {
+            return "virtual";
+        }
+        return "platform";
+    }
+
+    /**
+     * Describes the scheduled rate.
+     *
+     * @param rate
+     *            the total operations per second, 0 when running flat out
+     * @return the label
+     */
+    private static String rateLabel(int rate) {
+        if (rate > 0) {
+            return rate + " ops/s";
+        }
+        return "unbounded";
+    }
+
+    /**
+     * The Class Worker runs operations until its deadline, counting into its own
+     * counters and histograms.
+     */
+    private final class Worker implements Runnable {
+
+        /** The time the operations start at, set before the start latch opens. */
+        private long startAt;
+
+        /** The time the operations stop at, set before the start latch opens. */
+        private long deadline;
+
+        /** The scheduled interval between operations, 0 to run flat out. */
+        private final long intervalNanos;
+
+        /** The interval used to back-fill stalls when running flat out. */
+        private final long expectedIntervalNanos;
+
+        /** The latch counting the started workers. */
+        private final CountDownLatch ready;
+
+        /** The latch released once the schedule is set. */
+        private final CountDownLatch start;
+
+        /** The latch counting the finished workers. */
+        private final CountDownLatch done;
+
+        /** The decodes by kind. */
+        private final long[] sent;
+
+        /** The accepted decodes by kind. */
+        private final long[] accepted;
+
+        /** The service time, from the actual start of each operation. */
+        private final LogHistogram service;
+
+        /** The latency corrected for coordinated omission. */
+        private final LogHistogram corrected;
+
+        /** The encode count. */
+        private long encodes;
+
+        /**
+         * Instantiates a new worker.
+         *
+         * @param intervalNanos
+         *            the scheduled interval between operations, 0 to run flat out
+         * @param expectedIntervalNanos
+         *            the interval used to back-fill stalls when running flat out
+         * @param ready
+         *            the latch counting the started workers
+         * @param start
+         *            the latch released once the schedule is set
+         * @param done
+         *            the latch counting the finished workers
+         */
+        Worker(long intervalNanos, long expectedIntervalNanos, CountDownLatch ready, CountDownLatch start,
+                CountDownLatch done) {
+            this.intervalNanos = intervalNanos;
+            this.expectedIntervalNanos = expectedIntervalNanos;
+            this.ready = ready;
+            this.start = start;
+            this.done = done;
+            this.sent = new long[Kind.values().length];
+            this.accepted = new long[Kind.values().length];
+            this.service = new LogHistogram();
+            this.corrected = new LogHistogram();
+        }
+
+        /**
+         * Sets the schedule, before the start latch opens.
+         *
+         * @param startAt
+         *            the time the operations start at
+         * @param deadline
+         *            the time the operations stop at
+         */
+        void schedule(long startAt, long deadline) {
+            this.startAt = startAt;
+            this.deadline = deadline;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            try {
+                ready.countDown();
+                start.await();
+                waitUntil(startAt);
+                loop(ThreadLocalRandom.current());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Runs operations until the deadline.
+         *
+         * @param random
+         *            the random generator of this thread
+         */
+        private void loop(Random random) {
+            long scheduled = startAt;
+
+            while (true) {
+                long intended = System.nanoTime();
+                if (intervalNanos > 0) {
+                    intended = scheduled;
+                    scheduled += intervalNanos;
+                    waitUntil(intended);
+                }
+
+                if (intended >= deadline) {
+                    return;
+                }
+
+                long started = System.nanoTime();
+                operate(random, this);
+                long ended = System.nanoTime();
+
+                service.record(ended - started);
+                recordCorrected(ended - intended);
+            }
+        }
+
+        /**
+         * Records a corrected latency. When running flat out, a latency longer
+         * than the expected interval also records the latencies of the operations
+         * that would have been issued during the stall.
+         *
+         * @param latency
+         *            the latency from the intended start
+         */
+        private void recordCorrected(long latency) {
+            corrected.record(latency);
+
+            if (intervalNanos > 0 || expectedIntervalNanos <= 0) {
+                return;
+            }
+
+            for (long missed = latency - expectedIntervalNanos; missed >= expectedIntervalNanos;
+                    missed -= expectedIntervalNanos) {
+                corrected.record(missed);
+            }
+        }
+
+        /**
+         * Parks until the given time.
+         *
+         * @param time
+         *            the time to wait for
+         */
+        private void waitUntil(long time) {
+            long remaining = time - System.nanoTime();
+            while (remaining > 0) {
+                LockSupport.parkNanos(remaining);
+                remaining = time - System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * The Class Step holds the merged results of a run.
+     */
+    private static final class Step {
+
+        /** The worker count. */
+        private final int threads;
+
+        /** The run duration. */
+        private final long durationNanos;
+
+        /** The decodes by kind. */
+        private final long[] sent;
+
+        /** The accepted decodes by kind. */
+        private final long[] accepted;
+
+        /** The service time. */
+        private final LogHistogram service;
+
+        /** The latency corrected for coordinated omission. */
+        private final LogHistogram corrected;
+
+        /** The encode count. */
+        private long encodes;
+
+        /**
+         * Instantiates a new empty step.
+         *
+         * @param threads
+         *            the worker count
+         * @param durationNanos
+         *            the run duration
+         */
+        Step(int threads, long durationNanos) {
+            this.threads = threads;
+            this.durationNanos = durationNanos;
+            this.sent = new long[Kind.values().length];
+            this.accepted = new long[Kind.values().length];
+            this.service = new LogHistogram();
+            this.corrected = new LogHistogram();
+        }
+
+        /**
+         * Adds the results of a worker.
+         *
+         * @param worker
+         *            the finished worker
+         */
+        void add(Worker worker) {
+            for (int i = 0; i < sent.length; i++) {
+                sent[i] += worker.sent[i];
+                accepted[i] += worker.accepted[i];
+            }
+            encodes += worker.encodes;
+            service.add(worker.service);
+            corrected.add(worker.corrected);
+        }
+
+        /**
+         * Gets the operations per second.
+         *
+         * @return the throughput
+         */
+        double getThroughput() {
+            return service.getCount() * NANOS_PER_SECOND / durationNanos;
+        }
+
+        /**
+         * Prints the step report.
+         *
+         * @param out
+         *            the output stream
+         * @param baseline
+         *            the first step
+         */
+        void report(PrintStream out, Step baseline) {
+            long unexpected = 0;
+
+            out.println();
+            out.printf("threads: %d%n", threads);
+            Reports.printThroughput(out, "operations", service.getCount(), durationNanos);
+            out.printf("speedup over %d thread(s): %.2fx, encodes: %d%n", baseline.threads,
+                    getThroughput() / baseline.getThroughput(), encodes);
+            out.print("accepted/sent:");
+            for (Kind kind : Kind.values()) {
+                int i = kind.ordinal();
+                out.printf(" %s=%d/%d", kind.getOptionName(), accepted[i], sent[i]);
+                if (kind.isAcceptable()) {
+                    unexpected += sent[i] - accepted[i];
+                } else {
+                    unexpected += accepted[i];
+                }
+            }
+            out.println();
+            out.printf("unexpected outcomes: %d%n", unexpected);
+            Reports.printLatency(out, "service time", service);
+            Reports.printLatency(out, "corrected latency", corrected);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tools;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+import com.jossemargt.cookietwist.exception.FailureReason;
+import com.jossemargt.cookietwist.metrics.LogHistogram;
+
+/**
+ * The utility Class Reports prints the plain text summaries shared by the
+ * tools.
+ */
+final class Reports {
+
+    /** The Constant PERCENTILES holds the reported latency percentiles. */
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9, 99.99 };
+
+    /** The Constant NANOS_PER_MICRO holds the nanoseconds in a microsecond. */
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    /** The Constant NANOS_PER_SECOND holds the nanoseconds in a second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Instantiates a new reports.
+     */
+    private Reports() {
+        // Hides this utility class constructor
+    }
+
+    /**
+     * Prints the operation count and throughput.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the operation label
+     * @param operations
+     *            the operation count
+     * @param elapsedNanos
+     *            the wall clock time the operations took
+     */
+    static void printThroughput(PrintStream out, String label, long operations, long elapsedNanos) {
+        double seconds = elapsedNanos / NANOS_PER_SECOND;
+        out.printf("%s: %d in %.3f s, %.0f ops/s%n", label, operations, seconds, operations / seconds);
+    }
+
+    /**
+     * Prints the latency percentiles, in microseconds.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the latency label
+     * @param latency
+     *            the latency histogram, in nanoseconds
+     */
+    static void printLatency(PrintStream out, String label, LogHistogram latency) {
+        out.printf("%s (us): count=%d mean=%.2f", label, latency.getCount(), latency.getMean() / NANOS_PER_MICRO);
+        for (double percentile : PERCENTILES) {
+            out.printf(" p%s=%.2f", percentileLabel(percentile),
+                    latency.getValueAtPercentile(percentile) / NANOS_PER_MICRO);
+        }
+        out.printf(" max=%.2f%n", latency.getMax() / NANOS_PER_MICRO);
+    }
+
+    /**
+     * Prints the non zero failure counts by reason.
+     *
+     * @param out
+     *            the output stream
+     * @param failures
+     *            the failure count by reason
+     */
+    static void printFailures(PrintStream out, Map<FailureReason, Long> failures) {
+        out.print("failures:");
+        for (Map.Entry<FailureReason, Long> entry : failures.entrySet()) {
+            if (entry.getValue() > 0) {
+                out.printf(" %s=%d", entry.getKey(), entry.getValue());
+            }
+        }
+        out.println();
+    }
+
+    /**
+     * Prints the count by secret key version.
+     *
+     * @param out
+     *            the output stream
+     * @param label
+     *            the count label
+     * @param counts
+     *            the count by key version
+     */
+    static void printByKeyVersion(PrintStream out, String label, Map<Integer, Long> counts) {
+        out.printf("%s by key version:", label);
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            out.printf(" %d=%d", entry.getKey(), entry.getValue());
+        }
+        out.println();
+    }
+
+    /**
+     * Formats a percentile without trailing zeros, as in p99 or p99.9.
+     *
+     * @param percentile
+     *            the percentile
+     * @return the percentile label
+     */
+    private static String percentileLabel(double percentile) {
+        if (percentile == Math.rint(percentile)) {
+            return String.valueOf((long) percentile);
+        }
+        return String.valueOf(percentile);
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tools;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jossemargt.cookietwist.CookiePot;
+import com.jossemargt.cookietwist.CookieSignatureAlgorithm;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec.Builder;
+
+/**
+ * The Class ToolOptions parses the <code>--name=value</code> command line
+ * options shared by the tools. An option may be repeated and a bare
+ * <code>--name</code> stands for <code>--name=true</code>.
+ */
+final class ToolOptions {
+
+    /** The Constant PREFIX holds the option prefix. */
+    private static final String PREFIX = "--";
+
+    /** The Constant SIZE_SUFFIXES holds the binary size suffixes, in growing order. */
+    private static final String SIZE_SUFFIXES = "kmg";
+
+    /** The Constant BINARY_PREFIX_BITS holds the bit shift between binary size suffixes. */
+    private static final int BINARY_PREFIX_BITS = 10;
+
+    /** The option values by name, in command line order. */
+    private final Map<String, List<String>> values;
+
+    /**
+     * Instantiates a new tool options.
+     *
+     * @param values
+     *            the option values by name
+     */
+    private ToolOptions(Map<String, List<String>> values) {
+        this.values = values;
+    }
+
+    /**
+     * Parses the command line options.
+     *
+     * @param args
+     *            the command line arguments
+     * @return the tool options
+     * @throws IllegalArgumentException
+     *             when an argument is not an option
+     */
+    static ToolOptions parse(String[] args) {
+        Map<String, List<String>> values = new LinkedHashMap<String, List<String>>();
+
+        for (String arg : args) {
+            if (!arg.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(String.format("Unexpected argument '%s'", arg));
+            }
+
+            int separator = arg.indexOf('=');
+            String name;
+            String value;
+
+            if (separator < 0) {
+                name = arg.substring(PREFIX.length());
+                value = Boolean.TRUE.toString();
+            } else {
+                name = arg.substring(PREFIX.length(), separator);
+                value = arg.substring(separator + 1);
+            }
+
+            values.computeIfAbsent(name, key -> new ArrayList<String>()).add(value);
+        }
+
+        return new ToolOptions(values);
+    }
+
+    /**
+     * Checks if the option was given.
+     *
+     * @param name
+     *            the option name
+     * @return true, if given
+     */
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    /**
+     * Gets the last value of a required option.
+     *
+     * @param name
+     *            the option name
+     * @return the option value
+     * @throws IllegalArgumentException
+     *             when the option is missing
+     */
+    String get(String name) {
+        if (!has(name)) {
+            throw new IllegalArgumentException(String.format("Missing --%s option", name));
+        }
+
+        List<String> optionValues = values.get(name);
+        return optionValues.get(optionValues.size() - 1);
+    }
+
+    /**
+     * Gets the last value of an option.
+     *
+     * @param name
+     *            the option name
+     * @param defaultValue
+     *            the value when the option is missing
+     * @return the option value
+     */
+    String get(String name, String defaultValue) {
+        if (!has(name)) {
+            return defaultValue;
+        }
+        return get(name);
+    }
+
+    /**
+     * Gets every value of an option.
+     *
+     * @param name
+     *            the option name
+     * @return the option values, empty when missing
+     */
+    List<String> getAll(String name) {
+        if (!has(name)) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(values.get(name));
+    }
+
+    /**
+     * Gets the last value of an integer option.
+     *
+     * @param name
+     *            the option name
+     * @param defaultValue
+     *            the value when the option is missing
+     * @return the option value
+     * @throws IllegalArgumentException
+     *             when the value is not an integer
+     */
+    int getInt(String name, int defaultValue) {
+        if (!has(name)) {
+            return defaultValue;
+        }
+        return Integer.parseInt(get(name));
+    }
+
+    /**
+     * Gets the last value of a long option, accepting the <code>k</code>,
+     * <code>m</code> and <code>g</code> binary size suffixes.
+     *
+     * @param name
+     *            the option name
+     * @param defaultValue
+     *            the value when the option is missing
+     * @return the option value
+     * @throws IllegalArgumentException
+     *             when the value is not a number
+     */
+    long getSize(String name, long defaultValue) {
+        if (!has(name)) {
+            return defaultValue;
+        }
+
+        String value = get(name).toLowerCase();
+        int shift = SIZE_SUFFIXES.indexOf(value.charAt(value.length() - 1)) + 1;
+
+        if (shift > 0) {
+            value = value.substring(0, value.length() - 1);
+        }
+
+        return Long.parseLong(value) << (shift * BINARY_PREFIX_BITS);
+    }
+
+    /**
+     * Gets the secret keys given by the options sharing the given prefix: every
+     * <code>--{prefix}key</code> and the lines of every
+     * <code>--{prefix}key-file</code>, in that order, become the key versions.
+     *
+     * @param prefix
+     *            the option name prefix, empty for none
+     * @return the secret keys, by key version
+     * @throws IOException
+     *             when a key file cannot be read
+     * @throws IllegalArgumentException
+     *             when no key is given
+     */
+    List<String> getSecretKeys(String prefix) throws IOException {
+        List<String> secretKeys = new ArrayList<String>(getAll(prefix + "key"));
+
+        for (String keyFile : getAll(prefix + "key-file")) {
+            for (String line : Files.readAllLines(Paths.get(keyFile), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    secretKeys.add(line.trim());
+                }
+            }
+        }
+
+        if (secretKeys.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Missing --%skey or --%skey-file option", prefix,
+                    prefix));
+        }
+
+        return secretKeys;
+    }
+
+    /**
+     * Creates a codec builder from the <code>--{prefix}algorithm</code> option
+     * and the secret keys sharing the same prefix.
+     *
+     * @param prefix
+     *            the option name prefix, empty for none
+     * @return the codec builder with its secret keys
+     * @throws IOException
+     *             when a key file cannot be read
+     * @throws IllegalArgumentException
+     *             when the algorithm is unknown or no key is given
+     * @see #getSecretKeys(String)
+     */
+    Builder<?> codecBuilder(String prefix) throws IOException {
+        CookieSignatureAlgorithm algorithm = CookieSignatureAlgorithm
+                .valueOf(get(prefix + "algorithm", CookieSignatureAlgorithm.TORNADO_V2.name()));
+
+        return codecBuilder(algorithm, getSecretKeys(prefix));
+    }
+
+    /**
+     * Creates a codec builder for the given algorithm and secret keys.
+     *
+     * @param algorithm
+     *            the signature algorithm
+     * @param secretKeys
+     *            the secret keys, by key version
+     * @return the codec builder with its secret keys
+     */
+    static Builder<?> codecBuilder(CookieSignatureAlgorithm algorithm, List<String> secretKeys) {
+        Builder<?> builder = CookiePot.getBuilderFor(algorithm);
+        for (String secretKey : secretKeys) {
+            builder.withSecretKey(secretKey);
+        }
+
+        return builder;
+    }
+}
@@ -0,0 +1,513 @@
+/*
+ * The MIT License
+ *
+ * Copyright (C) 2018 Jonnatan Jossemar Cordero
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.jossemargt.cookietwist.tools;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.jossemargt.cookietwist.CookieSignatureAlgorithm;
+import com.jossemargt.cookietwist.tornado.transform.TornadoCookieCodec;
+
+/**
+ * The Class TrafficMix pre-generates pools of signed cookies, both V1 and V2,
+ * of every {@link Kind} and draws them at random following the configured
+ * weights. Generating the pools up front keeps the signing cost of the forged
+ * and unknown key samples out of the measured decodes.
+ */
+final class TrafficMix {
+
+    /** The Constant DEFAULT_MIX holds the default weights by kind. */
+    static final String DEFAULT_MIX = "valid:80,forged:5,malformed:5,expired:5,unknown-key:5";
+
+    /** The Constant PERCENT holds the total of a percentage. */
+    private static final int PERCENT = 100;
+
+    /** The Constant NAMES holds the generated cookie names. */
+    private static final String[] NAMES = {"session", "prefs", "cart", "csrf", "locale" };
+
+    /** The Constant MIN_VALUE_LENGTH holds the shortest generated value. */
+    private static final int MIN_VALUE_LENGTH = 16;
+
+    /** The Constant MAX_VALUE_LENGTH holds the longest generated value. */
+    private static final int MAX_VALUE_LENGTH = 256;
+
+    /** The Constant VALUE_ALPHABET holds the generated value characters. */
+    private static final String VALUE_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_.:=";
+
+    /** The Constant HEX_DIGITS holds the signature characters. */
+    private static final String HEX_DIGITS = "0123456789abcdef";
+
+    /** The Constant MALFORMATIONS holds the amount of malformation variants. */
+    private static final int MALFORMATIONS = 4;
+
+    /** The Constant TRUNCATED truncates the signed value. */
+    private static final int TRUNCATED = 0;
+
+    /** The Constant BROKEN_SEPARATORS replaces the field separators. */
+    private static final int BROKEN_SEPARATORS = 1;
+
+    /** The Constant INSERTED inserts a character in the signed value. */
+    private static final int INSERTED = 2;
+
+    /** The Constant ROGUE_KEY holds the secret key unknown to the decoders. */
+    private static final String ROGUE_KEY = "rogue-secret-key";
+
+    /** The pools by format, V1 first, and kind. */
+    private final Sample[][][] pools;
+
+    /** The kinds with a positive weight. */
+    private final Kind[] kinds;
+
+    /** The cumulative weights, aligned with {@link #kinds}. */
+    private final int[] cumulativeWeights;
+
+    /** The percentage of V1 cookies. */
+    private final int v1Percent;
+
+    /** The plain values used by the encodes. */
+    private final String[] plainValues;
+
+    /**
+     * Instantiates a new traffic mix, signing every sample with the given secret
+     * keys.
+     *
+     * @param weights
+     *            the weights by kind
+     * @param v1Percent
+     *            the percentage of V1 cookies
+     * @param secretKeys
+     *            the secret keys known by the decoders, by key version
+     * @param maxAgeSeconds
+     *            the maximum age of a valid cookie
+     * @param poolSize
+     *            the samples generated by format and kind
+     * @param seed
+     *            the generator seed
+     */
+    TrafficMix(Map<Kind, Integer> weights, int v1Percent, List<String> secretKeys, long maxAgeSeconds,
+            int poolSize, long seed) {
+        List<Kind> weighted = new ArrayList<Kind>();
+        List<Integer> cumulative = new ArrayList<Integer>();
+        int total = 0;
+
+        for (Map.Entry<Kind, Integer> entry : weights.entrySet()) {
+            if (entry.getValue() > 0) {
+                total += entry.getValue();
+                weighted.add(entry.getKey());
+                cumulative.add(total);
+            }
+        }
+
+        if (total == 0) {
+            throw new IllegalArgumentException("The traffic mix needs a positive weight");
+        }
+
+        if (v1Percent < 0 || v1Percent > PERCENT) {
+            throw new IllegalArgumentException("The V1 percentage must be between 0 and 100");
+        }
+
+        this.kinds = weighted.toArray(new Kind[weighted.size()]);
+        this.cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+        this.v1Percent = v1Percent;
+
+        Random random = new Random(seed);
+        this.plainValues = new String[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            plainValues[i] = randomValue(random);
+        }
+
+        List<String> rogueKeys = new ArrayList<String>(secretKeys);
+        rogueKeys.add(ROGUE_KEY);
+        CookieSignatureAlgorithm[] formats = {CookieSignatureAlgorithm.TORNADO_V1,
+            CookieSignatureAlgorithm.TORNADO_V2 };
+
+        this.pools = new Sample[formats.length][][];
+        for (int format = 0; format < formats.length; format++) {
+            TornadoCookieCodec signer = ToolOptions.codecBuilder(formats[format], secretKeys).build();
+            TornadoCookieCodec rogue = ToolOptions.codecBuilder(formats[format], rogueKeys).build();
+            pools[format] = new Sample[Kind.values().length][];
+
+            for (Kind kind : kinds) {
+                pools[format][kind.ordinal()] = new Sample[poolSize];
+                for (int i = 0; i < poolSize; i++) {
+                    pools[format][kind.ordinal()][i] = generate(kind, format == 0, signer, rogue,
+                            secretKeys.size(), maxAgeSeconds, random);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a traffic mix option, as in <code>valid:80,forged:5,expired:15</code>.
+     * The kinds left out get no traffic.
+     *
+     * @param mix
+     *            the traffic mix option
+     * @return the weights by kind
+     * @throws IllegalArgumentException
+     *             when a kind is unknown or a weight is not a number
+     */
+    static Map<Kind, Integer> parseWeights(String mix) {
+        Map<Kind, Integer> weights = new EnumMap<Kind, Integer>(Kind.class);
+
+        for (String entry : mix.split(",")) {
+            int separator = entry.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException(String.format("Expected kind:weight, got '%s'", entry));
+            }
+            weights.put(Kind.fromOptionName(entry.substring(0, separator).trim()),
+                    Integer.parseInt(entry.substring(separator + 1).trim()));
+        }
+
+        return weights;
+    }
+
+    /**
+     * Draws a sample.
+     *
+     * @param random
+     *            the random generator of the calling thread
+     * @return the sample
+     */
+    Sample next(Random random) {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+
+        while (draw >= cumulativeWeights[index]) {
+            index++;
+        }
+
+        Sample[] pool = pools[formatIndex(random)][kinds[index].ordinal()];
+        return pool[random.nextInt(pool.length)];
+    }
+
+    /**
+     * Draws a plain value to encode.
+     *
+     * @param random
+     *            the random generator of the calling thread
+     * @return the plain value
+     */
+    String nextPlainValue(Random random) {
+        return plainValues[random.nextInt(plainValues.length)];
+    }
+
+    /**
+     * Draws whether the next encode uses the V1 format.
+     *
+     * @param random
+     *            the random generator of the calling thread
+     * @return true, for V1
+     */
+    boolean nextIsV1(Random random) {
+        return formatIndex(random) == 0;
+    }
+
+    /**
+     * Draws a cookie name.
+     *
+     * @param random
+     *            the random generator
+     * @return the cookie name
+     */
+    static String nextName(Random random) {
+        return NAMES[random.nextInt(NAMES.length)];
+    }
+
+    /**
+     * Draws the format index, 0 for V1 and 1 for V2.
+     *
+     * @param random
+     *            the random generator
+     * @return the format index
+     */
+    private int formatIndex(Random random) {
+        if (random.nextInt(PERCENT) < v1Percent) {
+            return 0;
+        }
+        return 1;
+    }
+
+    /**
+     * Generates a sample of the given kind.
+     *
+     * @param kind
+     *            the sample kind
+     * @param v1
+     *            whether the sample uses the V1 format
+     * @param signer
+     *            the codec signing with the known secret keys
+     * @param rogue
+     *            the codec that also knows a secret key unknown to the decoders
+     * @param keyCount
+     *            the known secret key count
+     * @param maxAgeSeconds
+     *            the maximum age of a valid cookie
+     * @param random
+     *            the random generator
+     * @return the sample
+     */
+    private static Sample generate(Kind kind, boolean v1, TornadoCookieCodec signer, TornadoCookieCodec rogue,
+            int keyCount, long maxAgeSeconds, Random random) {
+        String name = nextName(random);
+        String value = randomValue(random);
+        int keyVersion = random.nextInt(keyCount);
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        String signed;
+
+        switch (kind) {
+        case FORGED:
+            signed = forge(signer.encodeValue(name, value, keyVersion, now), random);
+            break;
+        case MALFORMED:
+            signed = malform(signer.encodeValue(name, value, keyVersion, now), random);
+            break;
+        case EXPIRED:
+            long age = maxAgeSeconds + 1 + random.nextInt((int) TimeUnit.DAYS.toSeconds(1));
+            signed = signer.encodeValue(name, value, keyVersion, now - age);
+            break;
+        case UNKNOWN_KEY:
+            signed = rogue.encodeValue(name, value, keyCount, now);
+            break;
+        default:
+            signed = signer.encodeValue(name, value, keyVersion, now);
+            break;
+        }
+
+        return new Sample(kind, v1, name, signed);
+    }
+
+    /**
+     * Replaces the last signature digit with a different one.
+     *
+     * @param signed
+     *            the signed value
+     * @param random
+     *            the random generator
+     * @return the forged value
+     */
+    private static String forge(String signed, Random random) {
+        char last = signed.charAt(signed.length() - 1);
+        char replacement = last;
+
+        while (replacement == last) {
+            replacement = HEX_DIGITS.charAt(random.nextInt(HEX_DIGITS.length()));
+        }
+
+        return signed.substring(0, signed.length() - 1) + replacement;
+    }
+
+    /**
+     * Breaks the structure of a signed value.
+     *
+     * @param signed
+     *            the signed value
+     * @param random
+     *            the random generator
+     * @return the malformed value
+     */
+    private static String malform(String signed, Random random) {
+        int position = random.nextInt(signed.length());
+
+        switch (random.nextInt(MALFORMATIONS)) {
+        case TRUNCATED:
+            return signed.substring(0, position);
+        case BROKEN_SEPARATORS:
+            return signed.replace('|', '!');
+        case INSERTED:
+            return signed.substring(0, position) + '|' + signed.substring(position);
+        default:
+            return randomValue(random);
+        }
+    }
+
+    /**
+     * Generates a plain value.
+     *
+     * @param random
+     *            the random generator
+     * @return the value
+     */
+    private static String randomValue(Random random) {
+        int length = MIN_VALUE_LENGTH + random.nextInt(MAX_VALUE_LENGTH - MIN_VALUE_LENGTH + 1);
+        StringBuilder value = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++) {
+            value.append(VALUE_ALPHABET.charAt(random.nextInt(VALUE_ALPHABET.length())));
+        }
+
+        return value.toString();
+    }
+
+    /**
+     * The Enum Kind lists the generated traffic kinds.
+     */
+    enum Kind {
+
+        /** A cookie signed with a known key, within its maximum age. */
+        VALID(true),
+
+        /** A well formed cookie with a tampered signature. */
+        FORGED(false),
+
+        /** A cookie with a broken structure. */
+        MALFORMED(false),
+
+        /** A cookie signed with a known key, older than its maximum age. */
+        EXPIRED(false),
+
+        /**
+         * A cookie signed with a key the decoders do not know; V1 cookies carry no
+         * key version, so theirs fail as a signature mismatch.
+         */
+        UNKNOWN_KEY(false);
+
+        /** Whether a decoder must accept this kind. */
+        private final boolean acceptable;
+
+        /**
+         * Instantiates a new kind.
+         *
+         * @param acceptable
+         *            whether a decoder must accept this kind
+         */
+        Kind(boolean acceptable) {
+            this.acceptable = acceptable;
+        }
+
+        /**
+         * Checks if a decoder must accept this kind.
+         *
+         * @return true, if acceptable
+         */
+        boolean isAcceptable() {
+            return acceptable;
+        }
+
+        /**
+         * Gets the option name, as in <code>unknown-key</code>.
+         *
+         * @return the option name
+         */
+        String getOptionName() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+
+        /**
+         * Finds the kind with the given option name.
+         *
+         * @param optionName
+         *            the option name
+         * @return the kind
+         * @throws IllegalArgumentException
+         *             when no kind has that name
+         */
+        static Kind fromOptionName(String optionName) {
+            for (Kind kind : values()) {
+                if (kind.getOptionName().equals(optionName)) {
+                    return kind;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Unknown traffic kind '%s'", optionName));
+        }
+    }
+
+    /**
+     * The Class Sample holds a generated cookie.
+     */
+    static final class Sample {
+
+        /** The sample kind. */
+        private final Kind kind;
+
+        /** Whether the sample uses the V1 format. */
+        private final boolean v1;
+
+        /** The cookie name. */
+        private final String name;
+
+        /** The signed value. */
+        private final String value;
+
+        /**
+         * Instantiates a new sample.
+         *
+         * @param kind
+         *            the sample kind
+         * @param v1
+         *            whether the sample uses the V1 format
+         * @param name
+         *            the cookie name
+         * @param value
+         *            the signed value
+         */
+        Sample(Kind kind, boolean v1, String name, String value) {
+            this.kind = kind;
+            this.v1 = v1;
+            this.name = name;
+            this.value = value;
+        }
+
+        /**
+         * Gets the sample kind.
+         *
+         * @return the kind
+         */
+        Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Checks if the sample uses the V1 format.
+         *
+         * @return true, for V1
+         */
+        boolean isV1() {
+            return v1;
+        }
+
+        /**
+         * Gets the cookie name.
+         *
+         * @return the name
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the signed value.
+         *
+         * @return the value
+         */
+        String getValue() {
+            return value;
+        }
+    }
+}